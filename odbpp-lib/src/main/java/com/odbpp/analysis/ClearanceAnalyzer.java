@@ -0,0 +1,168 @@
+package com.odbpp.analysis;
+
+import com.odbpp.geometry.CopperShapes;
+import com.odbpp.geometry.SweepLine;
+import com.odbpp.geometry.SymbolResolver;
+import com.odbpp.index.NetFeatureIndex;
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.MatrixLayer;
+import com.odbpp.model.Step;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Computes the minimum copper clearance ("track space") of each copper layer.
+ *
+ * Features are decomposed into {@link CopperShapes}; shapes that touch are merged into conductors, and a plane
+ * sweep then looks for the closest pair of capsules that belong to different conductors. The sweep range starts
+ * at the maximum clearance of interest and shrinks to the best distance found so far, so the number of pairs
+ * examined stays close to O(n log n). When net assignments are known, shapes of the same net are not compared
+ * either.
+ *
+ * Only positive pads, lines, arcs and surfaces are considered; negative features are not subtracted.
+ */
+public class ClearanceAnalyzer {
+    private static final double TOUCH_TOLERANCE = 1e-9;
+
+    private final Job job;
+    private final SymbolResolver symbolResolver;
+
+    public ClearanceAnalyzer(Job job) {
+        this.job = job;
+        this.symbolResolver = new SymbolResolver(job);
+    }
+
+    /**
+     * Analyzes all copper layers of the step in parallel, looking for gaps up to a default range of 40 mil
+     * (1 mm for metric layers).
+     *
+     * @return the closest pair per layer; layers without any gap in range are omitted
+     */
+    public Map<String, ClearanceResult> analyze(Step step) {
+        return analyze(step, -1);
+    }
+
+    /**
+     * Analyzes all copper layers of the step in parallel. When the step has EDA data, shapes of the same net are
+     * not compared.
+     *
+     * @param maxClearance the largest gap of interest in job units, or a negative value for the default
+     * @return the closest pair per layer; layers without any gap in range are omitted
+     */
+    public Map<String, ClearanceResult> analyze(Step step, double maxClearance) {
+        Map<String, ClearanceResult> results = new ConcurrentHashMap<>();
+        NetFeatureIndex nets = step.getEdaData() == null ? null : new NetFeatureIndex(step);
+        copperLayers(step).parallel().forEach(layer -> {
+            Features features = layer.getFeatures();
+            double range = maxClearance >= 0 ? maxClearance : defaultRange(features);
+            int[] netByFeature = nets == null ? null : nets.getFeatureNets(layer.getName());
+            ClearanceResult result = analyze(layer.getName(), features, netByFeature, range);
+            if (result != null) {
+                results.put(layer.getName(), result);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Finds the minimum clearance between distinct copper shapes of one layer.
+     *
+     * @param netByFeature net number per feature index, -1 where unknown; may be null
+     * @param maxClearance the largest gap of interest in job units
+     * @return the closest pair, or null if no two shapes are closer than maxClearance
+     */
+    public ClearanceResult analyze(String layerName, Features features, int[] netByFeature, double maxClearance) {
+        CopperShapes shapes = CopperShapes.of(features, symbolResolver);
+        int[] conductor = conductors(shapes);
+
+        double[] best = {maxClearance};
+        int[] bestPair = {-1, -1};
+        double[] location = new double[2];
+        double[] closest = new double[4];
+        SweepLine.ofCapsules(shapes).forEachPair(() -> best[0], (a, b) -> {
+            int fa = shapes.getOwner(a);
+            int fb = shapes.getOwner(b);
+            if (conductor[fa] == conductor[fb]) {
+                return;
+            }
+            if (netByFeature != null && fa < netByFeature.length && fb < netByFeature.length
+                    && netByFeature[fa] >= 0 && netByFeature[fa] == netByFeature[fb]) {
+                return;
+            }
+            double distance = shapes.distance(a, b, closest);
+            if (distance < best[0]) {
+                best[0] = distance;
+                bestPair[0] = fa;
+                bestPair[1] = fb;
+                location[0] = (closest[0] + closest[2]) / 2;
+                location[1] = (closest[1] + closest[3]) / 2;
+            }
+        });
+        if (bestPair[0] < 0) {
+            return null;
+        }
+
+        ClearanceResult result = new ClearanceResult();
+        result.setLayerName(layerName);
+        result.setClearance(Math.max(0, best[0]));
+        result.setFeatureIndexA(Math.min(bestPair[0], bestPair[1]));
+        result.setFeatureIndexB(Math.max(bestPair[0], bestPair[1]));
+        result.setFeatureA(features.getFeatures().get(result.getFeatureIndexA()));
+        result.setFeatureB(features.getFeatures().get(result.getFeatureIndexB()));
+        result.setX(location[0]);
+        result.setY(location[1]);
+        return result;
+    }
+
+    /**
+     * Groups touching features of a layer into conductors.
+     *
+     * @return a conductor id per feature index; features that touch share an id
+     */
+    public static int[] conductors(CopperShapes shapes) {
+        int[] parent = new int[shapes.getFeatures().getFeatures().size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        shapes.forEachTouchingPair(TOUCH_TOLERANCE, (a, b) -> {
+            int ra = find(parent, a);
+            int rb = find(parent, b);
+            if (ra != rb) {
+                parent[Math.max(ra, rb)] = Math.min(ra, rb);
+            }
+        });
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = find(parent, i);
+        }
+        return parent;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private Stream<Layer> copperLayers(Step step) {
+        if (step.getLayersByName() == null) {
+            return Stream.empty();
+        }
+        if (job == null || job.getMatrix() == null || job.getMatrix().getLayers() == null) {
+            return step.getLayersByName().values().stream().filter(layer -> layer.getFeatures() != null);
+        }
+        return job.getMatrix().getLayers().stream()
+                .filter(MatrixLayer::isCopper)
+                .map(matrixLayer -> step.getLayersByName().get(matrixLayer.getName()))
+                .filter(layer -> layer != null && layer.getFeatures() != null);
+    }
+
+    private static double defaultRange(Features features) {
+        return "MM".equalsIgnoreCase(features.getUnits()) ? 1.0 : 0.04;
+    }
+}
@@ -0,0 +1,31 @@
+package com.odbpp.analysis;
+
+import com.odbpp.model.Feature;
+import lombok.Data;
+
+/**
+ * The closest pair of distinct copper shapes found on a layer.
+ */
+@Data
+public class ClearanceResult {
+    private String layerName;
+
+    /**
+     * Gap between the two shapes in job units (inch or mm)
+     */
+    private double clearance;
+
+    /**
+     * Indices of the two features in the layer's feature list
+     */
+    private int featureIndexA;
+    private int featureIndexB;
+    private Feature featureA;
+    private Feature featureB;
+
+    /**
+     * Location of the violation: midpoint between the closest points of the two shapes
+     */
+    private double x;
+    private double y;
+}
@@ -0,0 +1,141 @@
+package com.odbpp.analysis;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Derived nets of a step: groups of copper features and plated holes that touch, within a layer or through a
+ * hole.
+ *
+ * Copper features of all layers and the holes of all drill layers are numbered globally: layer features first,
+ * in layer order, then holes, in drill layer order. Net members are stored as a compressed sparse row (CSR)
+ * array so that the features of a net can be listed without scanning the whole step. Features that are not
+ * copper (negative features, text, barcodes) and non-plated holes have net -1.
+ */
+public class Connectivity {
+    private final List<String> layerNames;
+    private final int[] layerOffsets;
+    private final List<String> drillLayerNames;
+    private final int[] drillOffsets;
+    private final int[] netOfElement;
+    private final int netCount;
+    private final int[] netOffsets;
+    private final int[] netMembers;
+
+    Connectivity(List<String> layerNames, int[] layerOffsets, List<String> drillLayerNames, int[] drillOffsets,
+                 int[] netOfElement, int netCount) {
+        this.layerNames = layerNames;
+        this.layerOffsets = layerOffsets;
+        this.drillLayerNames = drillLayerNames;
+        this.drillOffsets = drillOffsets;
+        this.netOfElement = netOfElement;
+        this.netCount = netCount;
+
+        netOffsets = new int[netCount + 1];
+        for (int net : netOfElement) {
+            if (net >= 0) {
+                netOffsets[net + 1]++;
+            }
+        }
+        for (int i = 0; i < netCount; i++) {
+            netOffsets[i + 1] += netOffsets[i];
+        }
+        netMembers = new int[netOffsets[netCount]];
+        int[] next = Arrays.copyOf(netOffsets, netCount);
+        for (int element = 0; element < netOfElement.length; element++) {
+            int net = netOfElement[element];
+            if (net >= 0) {
+                netMembers[next[net]++] = element;
+            }
+        }
+    }
+
+    /**
+     * @return the copper layers in matrix order
+     */
+    public List<String> getLayerNames() {
+        return layerNames;
+    }
+
+    /**
+     * @return the drill layers whose plated holes join the copper layers
+     */
+    public List<String> getDrillLayerNames() {
+        return drillLayerNames;
+    }
+
+    public int getNetCount() {
+        return netCount;
+    }
+
+    /**
+     * @return the derived net of a feature, or -1 if it is not copper or the layer was not analyzed
+     */
+    public int getNet(String layerName, int featureIndex) {
+        int layer = layerNames.indexOf(layerName);
+        return layer < 0 ? -1 : netOfElement[layerOffsets[layer] + featureIndex];
+    }
+
+    /**
+     * @return the derived net of every feature of the layer, indexed like the layer's feature list, or null if
+     *         the layer was not analyzed
+     */
+    public int[] getFeatureNets(String layerName) {
+        int layer = layerNames.indexOf(layerName);
+        return layer < 0 ? null : Arrays.copyOfRange(netOfElement, layerOffsets[layer], layerOffsets[layer + 1]);
+    }
+
+    /**
+     * @param hole index of the hole in the order the drill layer's pads appear in its features file
+     * @return the derived net of the hole, or -1 if it is not plated
+     */
+    public int getHoleNet(String drillLayerName, int hole) {
+        int layer = drillLayerNames.indexOf(drillLayerName);
+        return layer < 0 ? -1 : netOfElement[drillOffsets[layer] + hole];
+    }
+
+    /**
+     * @return the global element numbers of the net's features and holes
+     */
+    public int[] getMembers(int net) {
+        return Arrays.copyOfRange(netMembers, netOffsets[net], netOffsets[net + 1]);
+    }
+
+    public int getMemberCount(int net) {
+        return netOffsets[net + 1] - netOffsets[net];
+    }
+
+    public boolean isHole(int element) {
+        return element >= layerOffsets[layerOffsets.length - 1];
+    }
+
+    /**
+     * @return the copper or drill layer an element belongs to
+     */
+    public String getLayerName(int element) {
+        if (isHole(element)) {
+            return drillLayerNames.get(segment(drillOffsets, element));
+        }
+        return layerNames.get(segment(layerOffsets, element));
+    }
+
+    /**
+     * @return the feature index of an element within its copper layer, or the hole index within its drill layer
+     */
+    public int getLocalIndex(int element) {
+        int[] offsets = isHole(element) ? drillOffsets : layerOffsets;
+        return element - offsets[segment(offsets, element)];
+    }
+
+    private static int segment(int[] offsets, int element) {
+        int index = Arrays.binarySearch(offsets, element);
+        if (index < 0) {
+            return -index - 2;
+        }
+        // Skip empty layers sharing the same offset
+        while (index + 1 < offsets.length - 1 && offsets[index + 1] == element) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,219 @@
+package com.odbpp.analysis;
+
+import com.odbpp.geometry.CopperShapes;
+import com.odbpp.geometry.SymbolResolver;
+import com.odbpp.index.ConcurrentUnionFind;
+import com.odbpp.index.IntList;
+import com.odbpp.index.NetFeatureIndex;
+import com.odbpp.model.EdaData;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.MatrixLayer;
+import com.odbpp.model.Step;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Extracts the bare-board connectivity of a step: which copper features touch each other on their layer and
+ * which layers are joined by plated holes.
+ *
+ * Each copper layer is decomposed into {@link CopperShapes}, the plated holes of every drill layer spanning it
+ * are added as round shapes, and a plane sweep reports the touching pairs. All layers feed one
+ * {@link ConcurrentUnionFind} over the global element numbering of {@link Connectivity}, so layers are swept in
+ * parallel without locking. The resulting sets are the derived nets.
+ *
+ * Negative features are not subtracted, and layers with negative matrix polarity are skipped.
+ * {@link #compareWithEda} checks the derived nets against the nets of the EDA data.
+ */
+public class ConnectivityAnalyzer {
+    private static final double TOUCH_TOLERANCE = 1e-9;
+
+    private final Job job;
+    private final SymbolResolver symbolResolver;
+
+    public ConnectivityAnalyzer(Job job) {
+        this.job = job;
+        this.symbolResolver = new SymbolResolver(job);
+    }
+
+    public Connectivity analyze(Step step) {
+        List<MatrixLayer> matrixLayers = job == null || job.getMatrix() == null || job.getMatrix().getLayers() == null
+                ? List.of()
+                : job.getMatrix().getLayers().stream()
+                .sorted(Comparator.comparingInt(MatrixLayer::getRow))
+                .filter(layer -> step.getLayersByName() != null && step.getLayersByName().containsKey(layer.getName()))
+                .collect(Collectors.toList());
+        List<MatrixLayer> copper = matrixLayers.stream()
+                .filter(MatrixLayer::isCopper)
+                .filter(layer -> !"NEGATIVE".equals(layer.getPolarity()))
+                .filter(layer -> step.getLayersByName().get(layer.getName()).getFeatures() != null)
+                .collect(Collectors.toList());
+        List<MatrixLayer> drills = matrixLayers.stream().filter(MatrixLayer::isDrill).collect(Collectors.toList());
+
+        DrillHoles[] holes = drills.parallelStream()
+                .map(drill -> DrillHoles.read(step.getLayersByName().get(drill.getName()), job))
+                .toArray(DrillHoles[]::new);
+
+        int[] layerOffsets = new int[copper.size() + 1];
+        for (int i = 0; i < copper.size(); i++) {
+            Layer layer = step.getLayersByName().get(copper.get(i).getName());
+            layerOffsets[i + 1] = layerOffsets[i] + layer.getFeatures().getFeatures().size();
+        }
+        int[] drillOffsets = new int[drills.size() + 1];
+        drillOffsets[0] = layerOffsets[copper.size()];
+        for (int i = 0; i < drills.size(); i++) {
+            drillOffsets[i + 1] = drillOffsets[i] + holes[i].count;
+        }
+        int elementCount = drillOffsets[drills.size()];
+
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(elementCount);
+        boolean[] conductive = new boolean[elementCount];
+        for (int d = 0; d < holes.length; d++) {
+            for (int h = 0; h < holes[d].count; h++) {
+                conductive[drillOffsets[d] + h] = holes[d].isPlated(h);
+            }
+        }
+
+        IntStream.range(0, copper.size()).parallel().forEach(i -> {
+            MatrixLayer matrixLayer = copper.get(i);
+            Layer layer = step.getLayersByName().get(matrixLayer.getName());
+            CopperShapes shapes = CopperShapes.of(layer.getFeatures(), symbolResolver);
+            int featureCount = shapes.getShapeCount();
+            for (int f = 0; f < featureCount; f++) {
+                conductive[layerOffsets[i] + f] = shapes.getFirstCapsule(f) < shapes.getFirstCapsule(f + 1);
+            }
+
+            // Plated holes through this layer become extra shapes mapped to their global element numbers
+            int[] holeElements = spanningHoles(matrixLayer, drills, holes, drillOffsets, shapes);
+            shapes.forEachTouchingPair(TOUCH_TOLERANCE, (a, b) -> unionFind.union(
+                    a < featureCount ? layerOffsets[i] + a : holeElements[a - featureCount],
+                    b < featureCount ? layerOffsets[i] + b : holeElements[b - featureCount]));
+        });
+
+        // Number the nets, leaving non-conductive elements out
+        int[] netOfElement = new int[elementCount];
+        int[] netOfRoot = new int[elementCount];
+        Arrays.fill(netOfRoot, -1);
+        int netCount = 0;
+        for (int element = 0; element < elementCount; element++) {
+            if (!conductive[element]) {
+                netOfElement[element] = -1;
+                continue;
+            }
+            int root = unionFind.find(element);
+            if (netOfRoot[root] < 0) {
+                netOfRoot[root] = netCount++;
+            }
+            netOfElement[element] = netOfRoot[root];
+        }
+
+        return new Connectivity(
+                copper.stream().map(MatrixLayer::getName).collect(Collectors.toList()), layerOffsets,
+                drills.stream().map(MatrixLayer::getName).collect(Collectors.toList()), drillOffsets,
+                netOfElement, netCount);
+    }
+
+    /**
+     * Compares derived nets with the nets of the step's EDA data. Copper features are matched by layer and feature
+     * index, so no tolerance is involved; holes are not compared. An EDA net whose features fall into several
+     * derived nets is open, a derived net holding features of several EDA nets is a short. Derived nets are named
+     * by their number with a $ prefix.
+     *
+     * Point indices in the result are element numbers of the connectivity: unmatched reference points are
+     * features the EDA data assigns to a net that have no copper shape, unmatched other points are copper
+     * features no EDA net references.
+     */
+    public static NetlistComparison compareWithEda(Connectivity connectivity, NetFeatureIndex eda) {
+        NetlistComparison result = new NetlistComparison();
+        Map<Integer, Set<Integer>> derivedByEdaNet = new TreeMap<>();
+        Map<Integer, Set<Integer>> edaByDerivedNet = new TreeMap<>();
+        IntList unmatchedReference = new IntList();
+        IntList unmatchedOther = new IntList();
+        int element = 0;
+        for (String layerName : connectivity.getLayerNames()) {
+            int[] derived = connectivity.getFeatureNets(layerName);
+            int[] edaNets = eda.getFeatureNets(layerName);
+            for (int feature = 0; feature < derived.length; feature++, element++) {
+                int edaNet = edaNets == null || feature >= edaNets.length ? -1 : edaNets[feature];
+                int derivedNet = derived[feature];
+                if (edaNet >= 0) {
+                    result.setReferencePointCount(result.getReferencePointCount() + 1);
+                }
+                if (derivedNet >= 0) {
+                    result.setOtherPointCount(result.getOtherPointCount() + 1);
+                }
+                if (edaNet >= 0 && derivedNet >= 0) {
+                    result.setMatchedPointCount(result.getMatchedPointCount() + 1);
+                    derivedByEdaNet.computeIfAbsent(edaNet, net -> new TreeSet<>()).add(derivedNet);
+                    edaByDerivedNet.computeIfAbsent(derivedNet, net -> new TreeSet<>()).add(edaNet);
+                } else if (edaNet >= 0) {
+                    unmatchedReference.add(element);
+                } else if (derivedNet >= 0) {
+                    unmatchedOther.add(element);
+                }
+            }
+        }
+        result.setUnmatchedReferencePoints(unmatchedReference.toArray());
+        result.setUnmatchedOtherPoints(unmatchedOther.toArray());
+
+        List<EdaData.NetRecord> netRecords = eda.getEdaData() == null ? List.of() : eda.getEdaData().getNetRecords();
+        for (Map.Entry<Integer, Set<Integer>> entry : derivedByEdaNet.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                NetlistComparison.Mismatch open = new NetlistComparison.Mismatch();
+                open.setNet(netRecords.get(entry.getKey()).getName());
+                entry.getValue().forEach(net -> open.getNets().add("$" + net));
+                result.getOpens().add(open);
+            }
+        }
+        for (Map.Entry<Integer, Set<Integer>> entry : edaByDerivedNet.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                NetlistComparison.Mismatch shorted = new NetlistComparison.Mismatch();
+                shorted.setNet("$" + entry.getKey());
+                entry.getValue().forEach(net -> shorted.getNets().add(netRecords.get(net).getName()));
+                result.getShorts().add(shorted);
+            }
+        }
+        return result;
+    }
+
+    private int[] spanningHoles(MatrixLayer layer, List<MatrixLayer> drills, DrillHoles[] holes, int[] drillOffsets,
+                                CopperShapes shapes) {
+        int total = 0;
+        List<Integer> spanning = new ArrayList<>();
+        for (int d = 0; d < drills.size(); d++) {
+            if (job.getMatrix().spans(drills.get(d), layer)) {
+                spanning.add(d);
+                total += holes[d].count;
+            }
+        }
+        int[] elements = new int[total];
+        double[] x = new double[total];
+        double[] y = new double[total];
+        double[] size = new double[total];
+        int count = 0;
+        for (int d : spanning) {
+            DrillHoles drill = holes[d];
+            for (int h = 0; h < drill.count; h++) {
+                if (!drill.isPlated(h)) {
+                    continue;
+                }
+                elements[count] = drillOffsets[d] + h;
+                x[count] = drill.x[h];
+                y[count] = drill.y[h];
+                size[count] = drill.size[h];
+                count++;
+            }
+        }
+        shapes.addHoles(x, y, size, count);
+        return Arrays.copyOf(elements, count);
+    }
+}
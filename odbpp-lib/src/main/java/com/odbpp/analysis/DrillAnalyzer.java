@@ -0,0 +1,153 @@
+package com.odbpp.analysis;
+
+import com.odbpp.geometry.StandardSymbol;
+import com.odbpp.model.AttrList;
+import com.odbpp.model.DrillTool;
+import com.odbpp.model.DrillTools;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.MatrixLayer;
+import com.odbpp.model.Step;
+import com.odbpp.parser.DrillFeaturesReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Computes hole statistics over the drill layers of a step: hole counts per size, minimum and maximum drill,
+ * plated versus non-plated holes and the aspect ratio against the board thickness.
+ *
+ * When the layer directory is known the features file is streamed in a single pass, so the drill features never
+ * need to be held in memory and plating can be read from the .drill attribute. Otherwise the loaded features are
+ * used. Drill layers are processed in parallel.
+ */
+public class DrillAnalyzer {
+    private static final String BOARD_THICKNESS = ".board_thickness";
+
+    private final Job job;
+
+    public DrillAnalyzer(Job job) {
+        this.job = job;
+    }
+
+    /**
+     * Statistics of all drill layers of the step combined, using the board thickness from the job attributes
+     * or the tools files.
+     */
+    public DrillStatistics analyze(Step step) {
+        return analyze(step, 0);
+    }
+
+    /**
+     * Statistics of all drill layers of the step combined.
+     *
+     * @param boardThickness board thickness in job units, or 0 to take it from the job attributes or tools files
+     */
+    public DrillStatistics analyze(Step step, double boardThickness) {
+        DrillStatistics total = new DrillStatistics();
+        analyzeLayers(step, boardThickness).values().forEach(total::merge);
+        total.applyThickness(boardThickness > 0 ? boardThickness : boardThickness(step));
+        return total;
+    }
+
+    /**
+     * Statistics per drill layer, keyed and ordered by layer name.
+     *
+     * @param boardThickness board thickness in job units, or 0 to take it from the job attributes or tools files
+     */
+    public Map<String, DrillStatistics> analyzeLayers(Step step, double boardThickness) {
+        double thickness = boardThickness > 0 ? boardThickness : boardThickness(step);
+        Map<String, DrillStatistics> results = new ConcurrentHashMap<>();
+        drillLayers(step).parallel().forEach(layer -> {
+            DrillStatistics statistics = analyze(layer);
+            statistics.applyThickness(thickness);
+            results.put(layer.getName(), statistics);
+        });
+        return new TreeMap<>(results);
+    }
+
+    /**
+     * Statistics of a single drill layer, without a board thickness.
+     */
+    public DrillStatistics analyze(Layer layer) {
+        DrillStatistics statistics = new DrillStatistics();
+        statistics.setLayerName(layer.getName());
+        DrillFeaturesReader reader = DrillFeaturesReader.forLayer(layer, job);
+        DrillFeaturesReader.DrillVisitor visitor = new DrillFeaturesReader.DrillVisitor() {
+            @Override
+            public void hole(double x, double y, double size, int tool, DrillTool.Type type) {
+                statistics.addHole(size, type);
+            }
+
+            @Override
+            public void slot(double xs, double ys, double xe, double ye, double size, int tool, DrillTool.Type type) {
+                statistics.addSlot(type);
+            }
+        };
+        try {
+            reader.read(layer, visitor);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read drill layer " + layer.getName(), e);
+        }
+        return statistics;
+    }
+
+    /**
+     * Board thickness from the step or product model attributes, else the largest tools file thickness, in job
+     * units
+     */
+    private double boardThickness(Step step) {
+        double thickness = attributeValue(step.getAttrList());
+        if (thickness <= 0 && job != null) {
+            thickness = attributeValue(job.getProductModelAttributes());
+        }
+        if (thickness <= 0) {
+            thickness = drillLayers(step)
+                    .filter(layer -> layer.getTools() != null)
+                    .mapToDouble(DrillAnalyzer::toolsThickness)
+                    .max().orElse(0);
+        }
+        return thickness;
+    }
+
+    /**
+     * @return the THICKNESS of the tools file of the layer in job units. Tools files give it in mils or microns,
+     *         like the tool sizes; the job units are those of the loaded features, else those of the tools file.
+     */
+    private static double toolsThickness(Layer layer) {
+        DrillTools tools = layer.getTools();
+        String toolsUnits = tools.getUnits() != null && tools.getUnits().toUpperCase().startsWith("MM") ? "M" : "I";
+        String jobUnits = layer.getFeatures() != null && layer.getFeatures().getUnits() != null
+                ? layer.getFeatures().getUnits() : tools.getUnits();
+        return tools.getThickness() * StandardSymbol.scale(toolsUnits, jobUnits);
+    }
+
+    private static double attributeValue(AttrList attrList) {
+        if (attrList == null || attrList.getAttributes() == null) {
+            return 0;
+        }
+        String value = attrList.getAttributes().get(BOARD_THICKNESS);
+        try {
+            return value == null ? 0 : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Stream<Layer> drillLayers(Step step) {
+        if (step.getLayersByName() == null) {
+            return Stream.empty();
+        }
+        if (job == null || job.getMatrix() == null || job.getMatrix().getLayers() == null) {
+            return step.getLayersByName().values().stream().filter(layer -> layer.getTools() != null);
+        }
+        return job.getMatrix().getLayers().stream()
+                .filter(MatrixLayer::isDrill)
+                .map(matrixLayer -> step.getLayersByName().get(matrixLayer.getName()))
+                .filter(layer -> layer != null);
+    }
+}
@@ -0,0 +1,229 @@
+package com.odbpp.analysis;
+
+import com.odbpp.geometry.CopperShapes;
+import com.odbpp.geometry.SymbolResolver;
+import com.odbpp.index.ComponentIndex;
+import com.odbpp.index.KdTree;
+import com.odbpp.model.DrillTool;
+import com.odbpp.model.Feature;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.MatrixLayer;
+import com.odbpp.model.Pad;
+import com.odbpp.model.Step;
+import com.odbpp.model.ToeprintRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Joins the holes of the drill layers with the pads of the copper layers their drill span covers, reporting the
+ * minimum annular ring per copper layer and the vias that sit inside component pads.
+ *
+ * The holes of each drill layer are loaded once into a {@link KdTree}. Each pad of a copper layer then probes
+ * the trees of the drill layers that span it with a radius just large enough to reach any hole overlapping the
+ * pad, so the join costs O(p log h) per layer instead of p * h. Drill layers are loaded in parallel, then copper
+ * layers are joined in parallel.
+ *
+ * A hole is a via-in-pad when it is a via (or has no plating information) and it lies inside a pad that holds a
+ * component toeprint on the outer layer facing that component side. Each hole is reported once per copper layer,
+ * against the first such pad, even where several overlapping pads hold it. Slots are not considered.
+ */
+public class DrillCopperAnalyzer {
+    private final Job job;
+    private final SymbolResolver symbolResolver;
+
+    public DrillCopperAnalyzer(Job job) {
+        this.job = job;
+        this.symbolResolver = new SymbolResolver(job);
+    }
+
+    /**
+     * Analyzes every copper layer of the step that is covered by a drill layer.
+     *
+     * @return results keyed and ordered by copper layer name
+     */
+    public Map<String, DrillCopperResult> analyze(Step step) {
+        if (step.getLayersByName() == null || job == null || job.getMatrix() == null || job.getMatrix().getLayers() == null) {
+            return new TreeMap<>();
+        }
+        List<MatrixLayer> matrixLayers = job.getMatrix().getLayers().stream()
+                .sorted(Comparator.comparingInt(MatrixLayer::getRow))
+                .collect(Collectors.toList());
+        List<MatrixLayer> copper = matrixLayers.stream()
+                .filter(MatrixLayer::isCopper)
+                .filter(layer -> step.getLayersByName().containsKey(layer.getName()))
+                .collect(Collectors.toList());
+        List<MatrixLayer> drills = matrixLayers.stream()
+                .filter(MatrixLayer::isDrill)
+                .filter(layer -> step.getLayersByName().containsKey(layer.getName()))
+                .collect(Collectors.toList());
+        if (copper.isEmpty() || drills.isEmpty()) {
+            return new TreeMap<>();
+        }
+
+        Map<String, DrillHoles> holesByLayer = new ConcurrentHashMap<>();
+        drills.parallelStream().forEach(drill -> {
+            DrillHoles holes = DrillHoles.read(step.getLayersByName().get(drill.getName()), job);
+            holes.index();
+            holesByLayer.put(drill.getName(), holes);
+        });
+
+        Map<String, ComponentIndex> componentIndexes = ComponentIndex.forStep(step);
+        ComponentIndex top = componentIndex(matrixLayers, componentIndexes, true, copper.get(0).getRow());
+        ComponentIndex bottom = componentIndex(matrixLayers, componentIndexes, false, copper.get(copper.size() - 1).getRow());
+
+        Map<String, DrillCopperResult> results = new ConcurrentHashMap<>();
+        copper.parallelStream().forEach(copperLayer -> {
+            List<DrillHoles> spanning = new ArrayList<>();
+            for (MatrixLayer drill : drills) {
+                if (job.getMatrix().spans(drill, copperLayer)) {
+                    spanning.add(holesByLayer.get(drill.getName()));
+                }
+            }
+            if (spanning.isEmpty()) {
+                return;
+            }
+            ComponentIndex components = copperLayer == copper.get(0) ? top
+                    : copperLayer == copper.get(copper.size() - 1) ? bottom : null;
+            Layer layer = step.getLayersByName().get(copperLayer.getName());
+            results.put(copperLayer.getName(), join(layer, spanning, components));
+        });
+        return new TreeMap<>(results);
+    }
+
+    private DrillCopperResult join(Layer layer, List<DrillHoles> spanning, ComponentIndex components) {
+        DrillCopperResult result = new DrillCopperResult();
+        result.setLayerName(layer.getName());
+        for (DrillHoles holes : spanning) {
+            result.setHoleCount(result.getHoleCount() + holes.count);
+        }
+        if (layer.getFeatures() == null) {
+            return result;
+        }
+        CopperShapes shapes = CopperShapes.of(layer.getFeatures(), symbolResolver);
+        List<Feature> features = layer.getFeatures().getFeatures();
+
+        for (DrillHoles holes : spanning) {
+            // Best annular ring of each hole over the pads it lands on
+            double[] ring = new double[holes.count];
+            int[] pad = new int[holes.count];
+            boolean[] inPad = new boolean[holes.count];
+            Arrays.fill(ring, Double.NEGATIVE_INFINITY);
+            Arrays.fill(pad, -1);
+            for (int f = 0; f < features.size(); f++) {
+                int from = shapes.getFirstCapsule(f);
+                int to = shapes.getFirstCapsule(f + 1);
+                if (!(features.get(f) instanceof Pad) || from == to) {
+                    continue;
+                }
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int c = from; c < to; c++) {
+                    double r = shapes.getRadius(c);
+                    minX = Math.min(minX, Math.min(shapes.getX1(c), shapes.getX2(c)) - r);
+                    minY = Math.min(minY, Math.min(shapes.getY1(c), shapes.getY2(c)) - r);
+                    maxX = Math.max(maxX, Math.max(shapes.getX1(c), shapes.getX2(c)) + r);
+                    maxY = Math.max(maxY, Math.max(shapes.getY1(c), shapes.getY2(c)) + r);
+                }
+                double cx = (minX + maxX) / 2;
+                double cy = (minY + maxY) / 2;
+                double reach = Math.hypot(maxX - minX, maxY - minY) / 2 + holes.maxSize / 2;
+                for (int h : holes.tree.withinRadius(cx, cy, reach)) {
+                    double radius = holes.size[h] / 2;
+                    double inside = shapes.boundaryDistance(f, holes.x[h], holes.y[h]);
+                    if (inside + radius <= 0) {
+                        continue;
+                    }
+                    if (inside - radius > ring[h]) {
+                        ring[h] = inside - radius;
+                        pad[h] = f;
+                    }
+                    if (components != null && !inPad[h] && inside > 0 && isVia(holes.type[h])) {
+                        ViaInPad via = viaInPad(shapes, f, components, holes, h);
+                        if (via != null) {
+                            inPad[h] = true;
+                            via.setCopperLayerName(layer.getName());
+                            result.getViasInPad().add(via);
+                        }
+                    }
+                }
+            }
+            for (int h = 0; h < holes.count; h++) {
+                if (pad[h] < 0) {
+                    continue;
+                }
+                result.setHolesOnPad(result.getHolesOnPad() + 1);
+                if (Double.isNaN(result.getMinAnnularRing()) || ring[h] < result.getMinAnnularRing()) {
+                    result.setMinAnnularRing(ring[h]);
+                    result.setMinAnnularRingDrillLayer(holes.layerName);
+                    result.setMinAnnularRingPadIndex(pad[h]);
+                    result.setX(holes.x[h]);
+                    result.setY(holes.y[h]);
+                    result.setDrillSize(holes.size[h]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the via-in-pad record if the pad holds a component toeprint, else null
+     */
+    private static ViaInPad viaInPad(CopperShapes shapes, int padIndex, ComponentIndex components, DrillHoles holes, int hole) {
+        Pad pad = (Pad) shapes.getFeatures().getFeatures().get(padIndex);
+        double reach = 0;
+        for (int c = shapes.getFirstCapsule(padIndex); c < shapes.getFirstCapsule(padIndex + 1); c++) {
+            reach = Math.max(reach, Math.hypot(shapes.getX1(c) - pad.getX(), shapes.getY1(c) - pad.getY()) + shapes.getRadius(c));
+            reach = Math.max(reach, Math.hypot(shapes.getX2(c) - pad.getX(), shapes.getY2(c) - pad.getY()) + shapes.getRadius(c));
+        }
+        for (int t : components.toeprintsWithin(pad.getX(), pad.getY(), reach)) {
+            ToeprintRecord toeprint = components.getToeprint(t);
+            if (shapes.boundaryDistance(padIndex, toeprint.getX(), toeprint.getY()) < 0) {
+                continue;
+            }
+            // A hole without plating information centered on the toeprint is the pin's own hole
+            if (holes.type[hole] == DrillTool.Type.UNKNOWN
+                    && Math.hypot(toeprint.getX() - holes.x[hole], toeprint.getY() - holes.y[hole]) < holes.size[hole] / 4) {
+                return null;
+            }
+            ViaInPad via = new ViaInPad();
+            via.setDrillLayerName(holes.layerName);
+            via.setX(holes.x[hole]);
+            via.setY(holes.y[hole]);
+            via.setDrillSize(holes.size[hole]);
+            via.setDrillType(holes.type[hole]);
+            via.setPadFeatureIndex(padIndex);
+            via.setComponentName(components.getComponent(components.getToeprintOwner(t)).getCompName());
+            via.setPinName(toeprint.getName());
+            return via;
+        }
+        return null;
+    }
+
+    private static boolean isVia(DrillTool.Type type) {
+        return type == DrillTool.Type.VIA || type == DrillTool.Type.UNKNOWN;
+    }
+
+    /**
+     * Component layers above the first copper layer belong to the top side, those below the last to the bottom
+     */
+    private static ComponentIndex componentIndex(List<MatrixLayer> matrixLayers, Map<String, ComponentIndex> indexes,
+                                                 boolean top, int copperRow) {
+        for (MatrixLayer layer : matrixLayers) {
+            ComponentIndex index = indexes.get(layer.getName());
+            if (index != null && (top ? layer.getRow() < copperRow : layer.getRow() > copperRow)) {
+                return index;
+            }
+        }
+        return null;
+    }
+}
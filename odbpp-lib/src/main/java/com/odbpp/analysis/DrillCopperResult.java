@@ -0,0 +1,42 @@
+package com.odbpp.analysis;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drill-to-copper results of one copper layer: the minimum annular ring over all holes that land on a pad of
+ * the layer, and the vias found inside component pads.
+ */
+@Data
+public class DrillCopperResult {
+    private String layerName;
+
+    /**
+     * Number of holes whose drill span covers this layer
+     */
+    private long holeCount;
+
+    /**
+     * Number of those holes that land on a pad of this layer
+     */
+    private long holesOnPad;
+
+    /**
+     * Smallest distance from a hole edge to the edge of its pad in job units; negative when the hole breaks out
+     * of the pad. Undefined (NaN) if no hole lands on a pad.
+     */
+    private double minAnnularRing = Double.NaN;
+
+    /**
+     * Location and origin of the minimum annular ring
+     */
+    private String minAnnularRingDrillLayer;
+    private int minAnnularRingPadIndex = -1;
+    private double x;
+    private double y;
+    private double drillSize;
+
+    private List<ViaInPad> viasInPad = new ArrayList<>();
+}
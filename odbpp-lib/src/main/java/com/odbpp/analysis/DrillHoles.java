@@ -0,0 +1,65 @@
+package com.odbpp.analysis;
+
+import com.odbpp.index.KdTree;
+import com.odbpp.model.DrillTool;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.parser.DrillFeaturesReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Holes of one drill layer in primitive arrays, with an optional spatial index over their centers
+ */
+final class DrillHoles {
+    final String layerName;
+    int count;
+    double[] x = new double[64];
+    double[] y = new double[64];
+    double[] size = new double[64];
+    DrillTool.Type[] type = new DrillTool.Type[64];
+    double maxSize;
+    KdTree tree;
+
+    DrillHoles(String layerName) {
+        this.layerName = layerName;
+    }
+
+    /**
+     * Streams the holes of a drill layer; slots are skipped.
+     */
+    static DrillHoles read(Layer layer, Job job) {
+        DrillHoles holes = new DrillHoles(layer.getName());
+        try {
+            DrillFeaturesReader.forLayer(layer, job).read(layer, (x, y, size, tool, type) -> holes.add(x, y, size, type));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read drill layer " + layer.getName(), e);
+        }
+        return holes;
+    }
+
+    void add(double hx, double hy, double hs, DrillTool.Type ht) {
+        if (count == x.length) {
+            x = Arrays.copyOf(x, count * 2);
+            y = Arrays.copyOf(y, count * 2);
+            size = Arrays.copyOf(size, count * 2);
+            type = Arrays.copyOf(type, count * 2);
+        }
+        x[count] = hx;
+        y[count] = hy;
+        size[count] = hs;
+        type[count] = ht;
+        maxSize = Math.max(maxSize, hs);
+        count++;
+    }
+
+    boolean isPlated(int hole) {
+        return type[hole] != DrillTool.Type.NON_PLATED;
+    }
+
+    void index() {
+        tree = new KdTree(Arrays.copyOf(x, count), Arrays.copyOf(y, count));
+    }
+}
@@ -0,0 +1,108 @@
+package com.odbpp.analysis;
+
+import com.odbpp.model.DrillTool;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hole statistics of one drill layer, or of all drill layers of a step combined.
+ *
+ * Sizes and thickness are in job units (inch or mm).
+ */
+@Data
+public class DrillStatistics {
+    /**
+     * Name of the drill layer, null for the combined statistics of a step
+     */
+    private String layerName;
+
+    private long holeCount;
+    private long slotCount;
+    private long platedCount;
+    private long nonPlatedCount;
+    private long viaCount;
+    private long unknownCount;
+
+    /**
+     * Smallest and largest hole size, 0 if there are no holes
+     */
+    private double minDrill;
+    private double maxDrill;
+
+    /**
+     * Number of holes per hole size, in ascending size order
+     */
+    private Map<Double, Long> holesBySize = new TreeMap<>();
+
+    /**
+     * Board thickness used for the aspect ratio, 0 if unknown
+     */
+    private double boardThickness;
+
+    /**
+     * Board thickness divided by the smallest drill, 0 if either is unknown
+     */
+    private double aspectRatio;
+
+    public void addHole(double size, DrillTool.Type type) {
+        // Round away floating point noise so that equal tools share a bucket
+        double key = Math.round(size * 1e6) / 1e6;
+        holesBySize.merge(key, 1L, Long::sum);
+        if (holeCount == 0 || size < minDrill) {
+            minDrill = size;
+        }
+        if (holeCount == 0 || size > maxDrill) {
+            maxDrill = size;
+        }
+        holeCount++;
+        count(type);
+    }
+
+    public void addSlot(DrillTool.Type type) {
+        slotCount++;
+        count(type);
+    }
+
+    private void count(DrillTool.Type type) {
+        switch (type == null ? DrillTool.Type.UNKNOWN : type) {
+            case PLATED:
+                platedCount++;
+                break;
+            case NON_PLATED:
+                nonPlatedCount++;
+                break;
+            case VIA:
+                viaCount++;
+                break;
+            default:
+                unknownCount++;
+        }
+    }
+
+    /**
+     * Adds the counts of another layer to these statistics.
+     */
+    public void merge(DrillStatistics other) {
+        if (other.holeCount > 0) {
+            minDrill = holeCount == 0 ? other.minDrill : Math.min(minDrill, other.minDrill);
+            maxDrill = holeCount == 0 ? other.maxDrill : Math.max(maxDrill, other.maxDrill);
+        }
+        holeCount += other.holeCount;
+        slotCount += other.slotCount;
+        platedCount += other.platedCount;
+        nonPlatedCount += other.nonPlatedCount;
+        viaCount += other.viaCount;
+        unknownCount += other.unknownCount;
+        other.holesBySize.forEach((size, count) -> holesBySize.merge(size, count, Long::sum));
+    }
+
+    /**
+     * Sets the board thickness and derives the aspect ratio from the smallest drill.
+     */
+    public void applyThickness(double thickness) {
+        boardThickness = thickness;
+        aspectRatio = thickness > 0 && minDrill > 0 ? thickness / minDrill : 0;
+    }
+}
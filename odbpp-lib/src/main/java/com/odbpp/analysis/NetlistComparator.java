@@ -0,0 +1,213 @@
+package com.odbpp.analysis;
+
+import com.odbpp.index.ComponentTable;
+import com.odbpp.index.IntList;
+import com.odbpp.index.LongIntHashMap;
+import com.odbpp.model.EdaData;
+import com.odbpp.model.Layer;
+import com.odbpp.model.NetPoints;
+import com.odbpp.model.Netlist;
+import com.odbpp.model.Step;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two netlists of a step, typically the cadnet netlist against the connectivity derived from the EDA
+ * data, and reports shorts and opens.
+ *
+ * Points of the other netlist are hashed into a grid with cells of the match tolerance, so each reference point
+ * probes at most nine cells instead of all points. Every match yields a (reference net, other net) pair; a
+ * reference net paired with several other nets is open, an other net paired with several reference nets is a
+ * short. The comparison is linear in the number of points.
+ */
+public class NetlistComparator {
+    private static final String NO_NET = "$NONE$";
+
+    private final double tolerance;
+
+    /**
+     * Matches points within 0.0001 units
+     */
+    public NetlistComparator() {
+        this(1e-4);
+    }
+
+    /**
+     * @param tolerance maximum x and y offset of matching points, in the units of the reference netlist
+     */
+    public NetlistComparator(double tolerance) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Builds a netlist from the toeprints of the components of the step, with the net numbers and names of the
+     * EDA data. Toeprints of top components are on side T, those of bottom components on side D.
+     */
+    public static Netlist fromComponents(Step step) {
+        Netlist netlist = new Netlist();
+        EdaData eda = step.getEdaData();
+        if (eda != null && eda.getNetRecords() != null) {
+            for (int i = 0; i < eda.getNetRecords().size(); i++) {
+                Netlist.Net net = new Netlist.Net();
+                net.setSerialNum(i);
+                net.setName(eda.getNetRecords().get(i).getName());
+                netlist.getNets().add(net);
+            }
+            netlist.setUnits(eda.getUnits());
+        }
+        if (step.getLayersByName() == null) {
+            return netlist;
+        }
+        NetPoints points = netlist.getPoints();
+        for (Layer layer : new TreeMap<>(step.getLayersByName()).values()) {
+            if (layer.getComponents() == null) {
+                continue;
+            }
+            char side = layer.getName().toLowerCase().endsWith("_bot") ? 'D' : 'T';
+            ComponentTable table = new ComponentTable(layer.getComponents());
+            int toeprints = table.size() == 0 ? 0 : table.getFirstToeprint(table.size() - 1) + table.getToeprintCount(table.size() - 1);
+            for (int t = 0; t < toeprints; t++) {
+                points.add(table.getToeprintNet(t), 0, table.getToeprintX(t), table.getToeprintY(t), side,
+                        Double.NaN, Double.NaN, true, 'e');
+            }
+            if (netlist.getUnits() == null) {
+                netlist.setUnits(layer.getComponents().getUnits());
+            }
+        }
+        points.trim();
+        return netlist;
+    }
+
+    public NetlistComparison compare(Netlist reference, Netlist other) {
+        NetPoints ref = reference.getPoints();
+        NetPoints oth = other.getPoints();
+        double scale = scale(other.getUnits(), reference.getUnits());
+
+        // Grid hash of the other points: cell key -> first point, chained through next
+        int n = oth.size();
+        int[] next = new int[n];
+        LongIntHashMap heads = new LongIntHashMap(n, -1);
+        for (int p = n - 1; p >= 0; p--) {
+            next[p] = heads.put(key(cellOf(oth.getX(p) * scale), cellOf(oth.getY(p) * scale)), p);
+        }
+
+        boolean[] otherMatched = new boolean[n];
+        IntList unmatchedReference = new IntList();
+        LongIntHashMap pairs = new LongIntHashMap(-1);
+        IntList pairReference = new IntList();
+        IntList pairOther = new IntList();
+        int matched = 0;
+        for (int r = 0; r < ref.size(); r++) {
+            double x = ref.getX(r);
+            double y = ref.getY(r);
+            long cx = cellOf(x);
+            long cy = cellOf(y);
+            boolean found = false;
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    for (int o = heads.get(key(cx + dx, cy + dy)); o >= 0; o = next[o]) {
+                        if (Math.abs(oth.getX(o) * scale - x) > tolerance || Math.abs(oth.getY(o) * scale - y) > tolerance) {
+                            continue;
+                        }
+                        found = true;
+                        otherMatched[o] = true;
+                        long pair = ((long) ref.getNet(r) << 32) | (oth.getNet(o) & 0xFFFFFFFFL);
+                        if (pairs.put(pair, 1) < 0) {
+                            pairReference.add(ref.getNet(r));
+                            pairOther.add(oth.getNet(o));
+                        }
+                    }
+                }
+            }
+            if (found) {
+                matched++;
+            } else {
+                unmatchedReference.add(r);
+            }
+        }
+
+        IntList unmatchedOther = new IntList();
+        for (int o = 0; o < n; o++) {
+            if (!otherMatched[o]) {
+                unmatchedOther.add(o);
+            }
+        }
+
+        NetlistComparison comparison = new NetlistComparison();
+        comparison.setReferencePointCount(ref.size());
+        comparison.setOtherPointCount(n);
+        comparison.setMatchedPointCount(matched);
+        comparison.setUnmatchedReferencePoints(unmatchedReference.toArray());
+        comparison.setUnmatchedOtherPoints(unmatchedOther.toArray());
+        comparison.setOpens(mismatches(pairReference, pairOther, reference, other));
+        comparison.setShorts(mismatches(pairOther, pairReference, other, reference));
+        return comparison;
+    }
+
+    /**
+     * @return the nets of the first netlist paired with more than one net of the second
+     */
+    private static List<NetlistComparison.Mismatch> mismatches(IntList nets, IntList partners, Netlist netlist, Netlist partnerNetlist) {
+        Map<Integer, IntList> byNet = new TreeMap<>();
+        for (int i = 0; i < nets.size(); i++) {
+            String partnerName = partnerNetlist.getNetName(partners.get(i));
+            if (!NO_NET.equals(partnerName)) {
+                byNet.computeIfAbsent(nets.get(i), net -> new IntList(2)).add(partners.get(i));
+            }
+        }
+        List<NetlistComparison.Mismatch> result = new ArrayList<>();
+        for (Map.Entry<Integer, IntList> entry : byNet.entrySet()) {
+            String name = name(netlist, entry.getKey());
+            if (entry.getValue().size() < 2 || NO_NET.equals(name)) {
+                continue;
+            }
+            int[] partnerNets = entry.getValue().toArray();
+            Arrays.sort(partnerNets);
+            NetlistComparison.Mismatch mismatch = new NetlistComparison.Mismatch();
+            mismatch.setNet(name);
+            for (int partner : partnerNets) {
+                mismatch.getNets().add(name(partnerNetlist, partner));
+            }
+            result.add(mismatch);
+        }
+        return result;
+    }
+
+    private static String name(Netlist netlist, int net) {
+        String name = netlist.getNetName(net);
+        return name == null ? "#" + net : name;
+    }
+
+    private long cellOf(double coordinate) {
+        return (long) Math.floor(coordinate / tolerance);
+    }
+
+    private static long key(long cx, long cy) {
+        long key = (cx * 0x1F1F1F1F1L) ^ cy;
+        // Long.MIN_VALUE marks empty slots of the hash map
+        return key == Long.MIN_VALUE ? 0 : key;
+    }
+
+    /**
+     * @return the factor converting coordinates in units from to units to
+     */
+    private static double scale(String from, String to) {
+        if (from == null || to == null || from.equalsIgnoreCase(to)) {
+            return 1;
+        }
+        if (from.equalsIgnoreCase("MM") && to.equalsIgnoreCase("INCH")) {
+            return 1 / 25.4;
+        }
+        if (from.equalsIgnoreCase("INCH") && to.equalsIgnoreCase("MM")) {
+            return 25.4;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.odbpp.analysis;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Differences between a reference netlist and another netlist of the same step.
+ */
+@Data
+public class NetlistComparison {
+    private int referencePointCount;
+    private int otherPointCount;
+
+    /**
+     * Reference points with a point of the other netlist within tolerance
+     */
+    private int matchedPointCount;
+
+    /**
+     * Indices of the points of either netlist that have no counterpart in the other
+     */
+    private int[] unmatchedReferencePoints = new int[0];
+    private int[] unmatchedOtherPoints = new int[0];
+
+    /**
+     * Nets of the other netlist that join points of several reference nets
+     */
+    private List<Mismatch> shorts = new ArrayList<>();
+
+    /**
+     * Reference nets whose points fall into several nets of the other netlist
+     */
+    private List<Mismatch> opens = new ArrayList<>();
+
+    public boolean isEquivalent() {
+        return shorts.isEmpty() && opens.isEmpty()
+                && unmatchedReferencePoints.length == 0 && unmatchedOtherPoints.length == 0;
+    }
+
+    @Data
+    public static class Mismatch {
+        /**
+         * The net that is shorted (other netlist) or open (reference netlist)
+         */
+        private String net;
+
+        /**
+         * The nets of the opposite netlist it touches
+         */
+        private List<String> nets = new ArrayList<>();
+    }
+}
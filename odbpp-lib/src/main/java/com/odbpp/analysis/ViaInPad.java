@@ -0,0 +1,32 @@
+package com.odbpp.analysis;
+
+import com.odbpp.model.DrillTool;
+import lombok.Data;
+
+/**
+ * A via drilled inside a component pad.
+ */
+@Data
+public class ViaInPad {
+    private String drillLayerName;
+    private String copperLayerName;
+
+    /**
+     * Hole center and size in job units
+     */
+    private double x;
+    private double y;
+    private double drillSize;
+    private DrillTool.Type drillType;
+
+    /**
+     * Index of the pad in the copper layer's feature list
+     */
+    private int padFeatureIndex;
+
+    /**
+     * Component and toeprint whose pad holds the via
+     */
+    private String componentName;
+    private String pinName;
+}
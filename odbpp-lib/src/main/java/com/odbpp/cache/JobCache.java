@@ -0,0 +1,586 @@
+package com.odbpp.cache;
+
+import com.odbpp.model.Component;
+import com.odbpp.model.ContourPolygon;
+import com.odbpp.model.Components;
+import com.odbpp.model.Feature;
+import com.odbpp.model.FeatureAttributes;
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Netlist;
+import com.odbpp.model.Step;
+import com.odbpp.model.Surface;
+import com.odbpp.model.Symbol;
+import com.odbpp.parser.FeaturesFileParser;
+import com.odbpp.parser.OdbParser;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process cache of parsed jobs, bounded by the estimated memory the jobs retain.
+ *
+ * Jobs are keyed by the canonical path of their directory. A lookup fingerprints the directory (names, sizes
+ * and modification times of all files) when the job was last checked longer ago than the recheck interval, so a
+ * job changed on disk is parsed again; {@link #invalidate(Path)} forces it sooner. Concurrent lookups of a job
+ * that is not cached wait for a single parse.
+ *
+ * Entries are weighed with {@link #estimateWeight(Job)} and kept in least-recently-used order. When the total
+ * weight exceeds the budget, the cache first drops the layer features of the least recently used jobs, keeping
+ * the job structure (matrix, misc, step profiles, components) resident, and only then evicts whole jobs. The job
+ * used last is never evicted. Jobs already handed out are never changed by eviction: the cache replaces its own
+ * copy of the job with one whose evicted layers have no features, and callers holding the old copy keep its
+ * features until they release it. Dropped features are parsed again by {@link #getFeatures(Path, String, String)};
+ * callers that may see a partially evicted job should read features through it rather than from the layer.
+ */
+public final class JobCache {
+
+    /**
+     * Parses a job directory
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Job load(Path jobDir) throws IOException;
+    }
+
+    /**
+     * Told when the cache lets go of a job or of the features of a layer, so that data derived from them can be
+     * dropped too. Called with the cache locked: implementations must be quick and must not call the cache.
+     */
+    public interface EvictionListener {
+        /**
+         * The job was evicted, invalidated or replaced by a newer version
+         */
+        void jobRemoved(Path jobDir);
+
+        void featuresRemoved(Path jobDir, String stepName, String layerName);
+    }
+
+    // Rough retained sizes of the model objects, in bytes
+    private static final long LAYER_BYTES = 512;
+    private static final long FEATURE_BYTES = 80;
+    private static final long POLYGON_BYTES = 64;
+    private static final long POLYGON_PART_BYTES = 56;
+    private static final long COMPONENT_BYTES = 200;
+    private static final long RECORD_BYTES = 96;
+    private static final long NET_POINT_BYTES = 50;
+
+    private static final long DEFAULT_RECHECK_MILLIS = 1000;
+
+    private static final class Entry {
+        private final Path path;
+        private final long fingerprint;
+        private final CompletableFuture<Job> job = new CompletableFuture<>();
+        // The cache's copy of the job, replaced when features are evicted
+        private Job current;
+        private long checkedAt;
+        private long baseWeight;
+        // Layers of the current copy whose features are resident, with the weight of the features. Layers compare
+        // by value, so the map is keyed by identity.
+        private final Map<Layer, Long> resident = new IdentityHashMap<>();
+
+        Entry(Path path, long fingerprint, long checkedAt) {
+            this.path = path;
+            this.fingerprint = fingerprint;
+            this.checkedAt = checkedAt;
+        }
+
+        long weight() {
+            long weight = baseWeight;
+            for (long features : resident.values()) {
+                weight += features;
+            }
+            return weight;
+        }
+    }
+
+    private final long maxWeight;
+    private final Loader loader;
+    private final long recheckNanos;
+    private final List<EvictionListener> listeners = new CopyOnWriteArrayList<>();
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long featureEvictions;
+
+    /**
+     * @param maxWeight the budget, in estimated bytes
+     */
+    public JobCache(long maxWeight) {
+        this(maxWeight, jobDir -> new OdbParser().parse(jobDir));
+    }
+
+    public JobCache(long maxWeight, Loader loader) {
+        this(maxWeight, loader, DEFAULT_RECHECK_MILLIS);
+    }
+
+    /**
+     * @param recheckMillis how long a cached job is served without fingerprinting its directory again; 0 checks
+     *                      on every lookup
+     */
+    public JobCache(long maxWeight, Loader loader, long recheckMillis) {
+        this.maxWeight = maxWeight;
+        this.loader = loader;
+        this.recheckNanos = recheckMillis * 1_000_000;
+    }
+
+    public void addEvictionListener(EvictionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return the cached job, parsed first if it is not cached or changed on disk
+     */
+    public Job get(Path jobDir) throws IOException {
+        Path path = jobDir.toRealPath();
+        Entry entry = recentlyChecked(path);
+        if (entry == null) {
+            long checkedAt = System.nanoTime();
+            long fingerprint = fingerprint(path);
+            boolean load = false;
+            synchronized (this) {
+                entry = entries.get(path);
+                if (entry != null && entry.fingerprint == fingerprint) {
+                    entry.checkedAt = checkedAt;
+                    hits++;
+                } else {
+                    if (entry != null) {
+                        remove(entry);
+                    }
+                    entry = new Entry(path, fingerprint, checkedAt);
+                    entries.put(path, entry);
+                    misses++;
+                    load = true;
+                }
+            }
+            if (load) {
+                load(entry);
+            }
+        }
+        await(entry.job);
+        synchronized (this) {
+            return entry.current;
+        }
+    }
+
+    /**
+     * @return the entry of the path if its directory was fingerprinted within the recheck interval, else null
+     */
+    private synchronized Entry recentlyChecked(Path path) {
+        Entry entry = entries.get(path);
+        if (entry == null || System.nanoTime() - entry.checkedAt >= recheckNanos) {
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+
+    private void load(Entry entry) {
+        Job job;
+        try {
+            job = loader.load(entry.path);
+        } catch (IOException | RuntimeException | Error e) {
+            synchronized (this) {
+                if (entries.get(entry.path) == entry) {
+                    entries.remove(entry.path);
+                }
+            }
+            entry.job.completeExceptionally(e);
+            return;
+        }
+        synchronized (this) {
+            entry.current = job;
+            entry.baseWeight = estimateBaseWeight(job);
+            forEachLayer(job, (step, layer) -> {
+                if (layer.getFeatures() != null) {
+                    entry.resident.put(layer, estimateWeight(layer.getFeatures()));
+                }
+            });
+            if (entries.get(entry.path) == entry) {
+                weight += entry.weight();
+                evict(entry);
+            }
+        }
+        entry.job.complete(job);
+    }
+
+    private static Job await(CompletableFuture<Job> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            throw new IOException("Job load was cancelled", e);
+        }
+    }
+
+    /**
+     * @return the features of a layer of a cached job, parsed again if they were evicted; null if the layer has no
+     *         features file
+     */
+    public Features getFeatures(Path jobDir, String stepName, String layerName) throws IOException {
+        Job job = get(jobDir);
+        Step step = job.getSteps() == null ? null : job.getSteps().get(stepName);
+        Layer layer = step == null || step.getLayersByName() == null ? null : step.getLayersByName().get(layerName);
+        if (layer == null) {
+            throw new IllegalArgumentException("Unknown layer " + stepName + "/" + layerName);
+        }
+        return getFeatures(job, layer);
+    }
+
+    /**
+     * @param job   a job returned by {@link #get(Path)}
+     * @param layer a layer of that job
+     * @return the features of the layer, parsed again if they were evicted; null if the layer has no features
+     *         file. Features are only cached on the layer while the job is the cache's current copy.
+     */
+    public Features getFeatures(Job job, Layer layer) throws IOException {
+        synchronized (layer) {
+            Features features = layer.getFeatures();
+            if (features != null || layer.getPath() == null) {
+                return features;
+            }
+            Path featuresFile = Path.of(layer.getPath()).resolve("features");
+            if (!Files.exists(featuresFile)) {
+                return null;
+            }
+            features = new FeaturesFileParser().parse(featuresFile);
+            features.getAttributes().resolve(job);
+            synchronized (this) {
+                // Only the cache's current copy is filled in, so that the weight accounts for every layer holding
+                // features
+                Entry entry = entryOf(job);
+                if (entry != null) {
+                    long featuresWeight = estimateWeight(features);
+                    entry.resident.put(layer, featuresWeight);
+                    weight += featuresWeight;
+                    layer.setFeatures(features);
+                    evict(entry);
+                }
+            }
+            return features;
+        }
+    }
+
+    /**
+     * @return the entry whose current copy is the job, or null
+     */
+    private Entry entryOf(Job job) {
+        for (Entry entry : entries.values()) {
+            if (entry.current == job) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the features of least recently used jobs, then whole jobs, until the weight is within budget
+     */
+    private void evict(Entry keep) {
+        for (Iterator<Entry> it = entries.values().iterator(); weight > maxWeight && it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry == keep || !entry.job.isDone()) {
+                continue;
+            }
+            Set<Layer> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Iterator<Map.Entry<Layer, Long>> layers = entry.resident.entrySet().iterator();
+                 weight > maxWeight && layers.hasNext(); ) {
+                Map.Entry<Layer, Long> layer = layers.next();
+                dropped.add(layer.getKey());
+                weight -= layer.getValue();
+                layers.remove();
+                featureEvictions++;
+            }
+            if (!dropped.isEmpty()) {
+                entry.current = withoutFeatures(entry.path, entry.current, dropped);
+            }
+        }
+        for (Iterator<Entry> it = entries.values().iterator(); weight > maxWeight && it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry == keep || !entry.job.isDone()) {
+                continue;
+            }
+            weight -= entry.weight();
+            it.remove();
+            evictions++;
+            for (EvictionListener listener : listeners) {
+                listener.jobRemoved(entry.path);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the job sharing everything but the dropped layers and the steps holding them, which are
+     *         copied with the layer features left out
+     */
+    private Job withoutFeatures(Path path, Job job, Set<Layer> dropped) {
+        Map<String, Step> steps = new HashMap<>();
+        for (Map.Entry<String, Step> entry : job.getSteps().entrySet()) {
+            Step step = entry.getValue();
+            Map<String, Layer> layers = step.getLayersByName() == null ? null : new HashMap<>(step.getLayersByName());
+            boolean changed = false;
+            if (layers != null) {
+                for (Map.Entry<String, Layer> layer : layers.entrySet()) {
+                    if (dropped.contains(layer.getValue())) {
+                        layer.setValue(copy(layer.getValue()));
+                        changed = true;
+                        for (EvictionListener listener : listeners) {
+                            listener.featuresRemoved(path, entry.getKey(), layer.getKey());
+                        }
+                    }
+                }
+            }
+            steps.put(entry.getKey(), changed ? copy(step, layers) : step);
+        }
+        Job copy = new Job();
+        copy.setMiscInfo(job.getMiscInfo());
+        copy.setProductModelAttributes(job.getProductModelAttributes());
+        copy.setLastSave(job.getLastSave());
+        copy.setMetadata(job.getMetadata());
+        copy.setMatrix(job.getMatrix());
+        copy.setStackup(job.getStackup());
+        copy.setStandardFont(job.getStandardFont());
+        copy.setSymbols(job.getSymbols());
+        copy.setWheels(job.getWheels());
+        copy.setSystemAttributes(job.getSystemAttributes());
+        copy.setUserAttributes(job.getUserAttributes());
+        copy.setSteps(steps);
+        return copy;
+    }
+
+    private static Step copy(Step step, Map<String, Layer> layers) {
+        Step copy = new Step();
+        copy.setName(step.getName());
+        copy.setLayersByName(layers);
+        copy.setEdaData(step.getEdaData());
+        copy.setNetlistsByName(step.getNetlistsByName());
+        copy.setAttrList(step.getAttrList());
+        copy.setProfile(step.getProfile());
+        copy.setStepHdr(step.getStepHdr());
+        copy.setBom(step.getBom());
+        copy.setImpedance(step.getImpedance());
+        copy.setZones(step.getZones());
+        copy.setCol(step.getCol());
+        copy.setId(step.getId());
+        return copy;
+    }
+
+    // The layer without its features
+    private static Layer copy(Layer layer) {
+        Layer copy = new Layer();
+        copy.setName(layer.getName());
+        copy.setPath(layer.getPath());
+        copy.setComponents(layer.getComponents());
+        copy.setAttrList(layer.getAttrList());
+        copy.setProfile(layer.getProfile());
+        copy.setTools(layer.getTools());
+        return copy;
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.path);
+        if (entry.job.isDone()) {
+            weight -= entry.weight();
+        }
+        for (EvictionListener listener : listeners) {
+            listener.jobRemoved(entry.path);
+        }
+    }
+
+    /**
+     * Removes a job from the cache. Callers holding the job keep it.
+     */
+    public synchronized void invalidate(Path jobDir) throws IOException {
+        Entry entry = entries.get(jobDir.toRealPath());
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            remove(entry);
+        }
+    }
+
+    /**
+     * @return the number of cached jobs, including jobs being loaded
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated bytes retained by the cached jobs
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the number of whole jobs evicted
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of layers whose features were evicted
+     */
+    public synchronized long getFeatureEvictionCount() {
+        return featureEvictions;
+    }
+
+    /**
+     * Fingerprints a job directory from the relative paths, sizes and modification times of its files.
+     */
+    static long fingerprint(Path jobDir) throws IOException {
+        List<String> files = new ArrayList<>();
+        Map<String, BasicFileAttributes> attributes = new HashMap<>();
+        Files.walkFileTree(jobDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = jobDir.relativize(file).toString();
+                files.add(name);
+                attributes.put(name, attrs);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        files.sort(null);
+        long hash = 1125899906842597L;
+        for (String file : files) {
+            BasicFileAttributes attrs = attributes.get(file);
+            hash = 31 * hash + file.hashCode();
+            hash = 31 * hash + attrs.size();
+            hash = 31 * hash + attrs.lastModifiedTime().toMillis();
+        }
+        return hash;
+    }
+
+    /**
+     * @return the estimated bytes retained by the job
+     */
+    public static long estimateWeight(Job job) {
+        long[] weight = {estimateBaseWeight(job)};
+        forEachLayer(job, (step, layer) -> weight[0] += estimateWeight(layer.getFeatures()));
+        return weight[0];
+    }
+
+    /**
+     * @return the estimated bytes retained by the job without the features of its layers
+     */
+    private static long estimateBaseWeight(Job job) {
+        long[] weight = {4096};
+        if (job.getSymbols() != null) {
+            for (Symbol symbol : job.getSymbols().values()) {
+                weight[0] += LAYER_BYTES + estimateWeight(symbol.getFeatures());
+            }
+        }
+        if (job.getSteps() != null) {
+            for (Step step : job.getSteps().values()) {
+                weight[0] += 4 * LAYER_BYTES + estimateWeight(step.getProfile());
+                if (step.getNetlistsByName() != null) {
+                    for (Netlist netlist : step.getNetlistsByName().values()) {
+                        weight[0] += NET_POINT_BYTES * netlist.getPoints().size() + RECORD_BYTES * netlist.getNets().size();
+                    }
+                }
+            }
+        }
+        forEachLayer(job, (step, layer) -> weight[0] += LAYER_BYTES + estimateWeight(layer.getComponents()));
+        return weight[0];
+    }
+
+    /**
+     * @return the estimated bytes retained by the features of a layer
+     */
+    public static long estimateWeight(Features features) {
+        if (features == null) {
+            return 0;
+        }
+        long weight = FEATURE_BYTES * features.getFeatures().size();
+        for (Feature feature : features.getFeatures()) {
+            if (feature instanceof Surface && ((Surface) feature).getPolygons() != null) {
+                for (ContourPolygon polygon : ((Surface) feature).getPolygons()) {
+                    weight += POLYGON_BYTES + POLYGON_PART_BYTES * polygon.getPolygonParts().size();
+                }
+            }
+        }
+        FeatureAttributes attributes = features.getAttributes();
+        if (attributes != null) {
+            weight += 8L * attributes.size() + 4L * attributes.getFeatureCount() + 12L * attributes.getIdCount();
+        }
+        return weight;
+    }
+
+    private static long estimateWeight(Components components) {
+        if (components == null) {
+            return 0;
+        }
+        long weight = 0;
+        for (Component component : components.getComponents()) {
+            weight += COMPONENT_BYTES + RECORD_BYTES * (component.getToeprintRecords().size()
+                    + component.getPropertyRecords().size() + component.getAttributes().size());
+        }
+        return weight;
+    }
+
+    private interface LayerVisitor {
+        void visit(Step step, Layer layer);
+    }
+
+    private static void forEachLayer(Job job, LayerVisitor visitor) {
+        if (job.getSteps() == null) {
+            return;
+        }
+        for (Step step : job.getSteps().values()) {
+            if (step.getLayersByName() != null) {
+                for (Layer layer : step.getLayersByName().values()) {
+                    visitor.visit(step, layer);
+                }
+            }
+        }
+    }
+}
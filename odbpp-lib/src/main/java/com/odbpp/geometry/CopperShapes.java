@@ -0,0 +1,385 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.Arc;
+import com.odbpp.model.BoundingBox;
+import com.odbpp.model.ContourPolygon;
+import com.odbpp.model.Feature;
+import com.odbpp.model.Features;
+import com.odbpp.model.Line;
+import com.odbpp.model.Pad;
+import com.odbpp.model.Polarity;
+import com.odbpp.model.Surface;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Flat geometric decomposition of the positive copper features of one layer.
+ *
+ * Every feature becomes one or more capsules: a segment swept by a radius. Round pads are zero-length capsules,
+ * lines and oval pads are capsules of half their width, arcs are flattened into chords and the outlines of
+ * surfaces and polygonal pads become zero-radius capsules. Features with an area (surfaces and polygonal pads)
+ * additionally keep their filled outline so that a feature lying completely inside another is detected as
+ * touching it.
+ *
+ * Capsules are stored in parallel primitive arrays; {@link #getOwner(int)} maps a capsule back to the index of
+ * its feature in {@link Features#getFeatures()}. Negative features, text and barcodes are not copper shapes
+ * and are skipped. Plated holes can be appended with {@link #addHoles}; they own the indices following the
+ * features.
+ */
+public final class CopperShapes {
+    private final Features features;
+    private int count;
+    private double[] x1 = new double[64];
+    private double[] y1 = new double[64];
+    private double[] x2 = new double[64];
+    private double[] y2 = new double[64];
+    private double[] radius = new double[64];
+    private int[] owner = new int[64];
+    private double[][][] fills;
+    private int[] capsuleStart;
+
+    private CopperShapes(Features features) {
+        this.features = features;
+        this.fills = new double[features.getFeatures().size()][][];
+    }
+
+    /**
+     * Decomposes the positive pads, lines, arcs and surfaces of a layer.
+     */
+    public static CopperShapes of(Features features, SymbolResolver symbolResolver) {
+        CopperShapes shapes = new CopperShapes(features);
+        List<Feature> list = features.getFeatures();
+        for (int i = 0; i < list.size(); i++) {
+            shapes.addFeature(i, list.get(i), symbolResolver);
+        }
+        shapes.indexCapsules();
+        return shapes;
+    }
+
+    /**
+     * Appends round holes as zero-length capsules. Hole i is owned by index {@code getShapeCount()} before the
+     * call plus i, so holes take part in {@link #forEachTouchingPair} like features.
+     *
+     * @param diameter hole diameters in job units
+     */
+    public void addHoles(double[] x, double[] y, double[] diameter, int holeCount) {
+        int first = fills.length;
+        fills = Arrays.copyOf(fills, first + holeCount);
+        for (int i = 0; i < holeCount; i++) {
+            add(first + i, x[i], y[i], x[i], y[i], diameter[i] / 2);
+        }
+        indexCapsules();
+    }
+
+    // Capsules are appended owner by owner, so each feature or hole owns a contiguous range
+    private void indexCapsules() {
+        capsuleStart = new int[fills.length + 1];
+        for (int c = 0; c < count; c++) {
+            capsuleStart[owner[c] + 1]++;
+        }
+        for (int i = 0; i < fills.length; i++) {
+            capsuleStart[i + 1] += capsuleStart[i];
+        }
+    }
+
+    public Features getFeatures() {
+        return features;
+    }
+
+    /**
+     * @return the number of owners: the features of the layer followed by any added holes
+     */
+    public int getShapeCount() {
+        return fills.length;
+    }
+
+    public int getCapsuleCount() {
+        return count;
+    }
+
+    public int getOwner(int capsule) {
+        return owner[capsule];
+    }
+
+    public double getX1(int capsule) {
+        return x1[capsule];
+    }
+
+    public double getY1(int capsule) {
+        return y1[capsule];
+    }
+
+    public double getX2(int capsule) {
+        return x2[capsule];
+    }
+
+    public double getY2(int capsule) {
+        return y2[capsule];
+    }
+
+    public double getRadius(int capsule) {
+        return radius[capsule];
+    }
+
+    /**
+     * @return the filled outline of the feature as even-odd contours, or null if the feature has no area
+     *         beyond its capsules
+     */
+    public double[][] getFill(int featureIndex) {
+        return fills[featureIndex];
+    }
+
+    /**
+     * @return the bounding box of the capsule including its radius
+     */
+    public BoundingBox getBounds(int capsule) {
+        double r = radius[capsule];
+        return new BoundingBox(Math.min(x1[capsule], x2[capsule]) - r, Math.min(y1[capsule], y2[capsule]) - r,
+                Math.max(x1[capsule], x2[capsule]) + r, Math.max(y1[capsule], y2[capsule]) + r);
+    }
+
+    /**
+     * Clearance between two capsules: the gap between their swept outlines, 0 or negative if they touch.
+     *
+     * @param closest if not null, receives the closest points as in {@link Geometry#segmentDistance}
+     */
+    public double distance(int a, int b, double[] closest) {
+        return Geometry.segmentDistance(x1[a], y1[a], x2[a], y2[a], x1[b], y1[b], x2[b], y2[b], closest)
+                - radius[a] - radius[b];
+    }
+
+    /**
+     * @return the index of the first capsule of the feature; the feature owns capsules up to
+     *         {@code getFirstCapsule(featureIndex + 1)}
+     */
+    public int getFirstCapsule(int featureIndex) {
+        return capsuleStart[featureIndex];
+    }
+
+    /**
+     * Signed distance from a point to the outline of a feature: positive inside the feature, negative outside.
+     *
+     * @return the signed distance, or negative infinity if the feature has no copper shape
+     */
+    public double boundaryDistance(int featureIndex, double x, double y) {
+        int from = capsuleStart[featureIndex];
+        int to = capsuleStart[featureIndex + 1];
+        if (from == to) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double[][] fill = fills[featureIndex];
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int c = from; c < to; c++) {
+            double d = Geometry.segmentDistance(x, y, x, y, x1[c], y1[c], x2[c], y2[c], null) - radius[c];
+            nearest = Math.min(nearest, d);
+        }
+        if (fill == null) {
+            return -nearest;
+        }
+        return Geometry.contains(fill, x, y) ? nearest : -nearest;
+    }
+
+    /**
+     * @return true if the first point of the capsule lies inside the filled outline of the given feature
+     */
+    public boolean insideFill(int capsule, int featureIndex) {
+        double[][] fill = fills[featureIndex];
+        return fill != null && Geometry.contains(fill, x1[capsule], y1[capsule]);
+    }
+
+    /**
+     * Reports pairs of distinct features that touch or overlap: their capsules are within the tolerance of each
+     * other, or one lies inside the filled outline of the other. A pair may be reported more than once.
+     */
+    public void forEachTouchingPair(double tolerance, SweepLine.PairVisitor visitor) {
+        SweepLine.ofCapsules(this).forEachPair(tolerance, (a, b) -> {
+            if (owner[a] != owner[b] && distance(a, b, null) <= tolerance) {
+                visitor.visit(owner[a], owner[b]);
+            }
+        });
+
+        // Features completely inside a surface or polygonal pad do not touch its outline
+        int featureCount = fills.length;
+        int[] firstCapsule = new int[featureCount];
+        Arrays.fill(firstCapsule, -1);
+        double[] minX = new double[featureCount];
+        double[] minY = new double[featureCount];
+        double[] maxX = new double[featureCount];
+        double[] maxY = new double[featureCount];
+        Arrays.fill(minX, Double.POSITIVE_INFINITY);
+        Arrays.fill(minY, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxX, Double.NEGATIVE_INFINITY);
+        Arrays.fill(maxY, Double.NEGATIVE_INFINITY);
+        boolean anyFill = false;
+        for (int c = 0; c < count; c++) {
+            int f = owner[c];
+            if (firstCapsule[f] < 0) {
+                firstCapsule[f] = c;
+                anyFill |= fills[f] != null;
+            }
+            double r = radius[c];
+            minX[f] = Math.min(minX[f], Math.min(x1[c], x2[c]) - r);
+            minY[f] = Math.min(minY[f], Math.min(y1[c], y2[c]) - r);
+            maxX[f] = Math.max(maxX[f], Math.max(x1[c], x2[c]) + r);
+            maxY[f] = Math.max(maxY[f], Math.max(y1[c], y2[c]) + r);
+        }
+        if (!anyFill) {
+            return;
+        }
+        new SweepLine(minX, minY, maxX, maxY).forEachPair(0, (a, b) -> {
+            if (firstCapsule[a] < 0 || firstCapsule[b] < 0) {
+                return;
+            }
+            if (insideFill(firstCapsule[b], a) || insideFill(firstCapsule[a], b)) {
+                visitor.visit(a, b);
+            }
+        });
+    }
+
+    private void addFeature(int index, Feature feature, SymbolResolver symbolResolver) {
+        if (feature instanceof Pad) {
+            Pad pad = (Pad) feature;
+            if ("N".equals(pad.getPolarity())) {
+                return;
+            }
+            addPad(index, pad, symbolResolver);
+        } else if (feature instanceof Line) {
+            Line line = (Line) feature;
+            if (line.getPolarity() == Polarity.NEGATIVE) {
+                return;
+            }
+            add(index, line.getXs(), line.getYs(), line.getXe(), line.getYe(), halfWidth(line.getSymbolNumber(), symbolResolver));
+        } else if (feature instanceof Arc) {
+            Arc arc = (Arc) feature;
+            if (arc.getPolarity() == Polarity.NEGATIVE) {
+                return;
+            }
+            double r = halfWidth(arc.getSymbolNumber(), symbolResolver);
+            double[] points = Geometry.arcPoints(arc.getXs(), arc.getYs(), arc.getXe(), arc.getYe(), arc.getXc(), arc.getYc(),
+                    !"N".equals(arc.getCw()));
+            addPolyline(index, points, r);
+        } else if (feature instanceof Surface) {
+            Surface surface = (Surface) feature;
+            if (surface.getPolarity() == Polarity.NEGATIVE || surface.getPolygons() == null) {
+                return;
+            }
+            double[][] contours = new double[surface.getPolygons().size()][];
+            for (int i = 0; i < contours.length; i++) {
+                contours[i] = contourPoints(surface.getPolygons().get(i));
+                addPolyline(index, contours[i], 0);
+            }
+            fills[index] = contours;
+        }
+    }
+
+    private void addPad(int index, Pad pad, SymbolResolver symbolResolver) {
+        double scale = (pad.getResizeFactor() == null ? 1 : pad.getResizeFactor())
+                * symbolResolver.scale(features, pad.getSymbolNumber());
+        String name = symbolResolver.symbolName(features, pad.getSymbolNumber());
+        StandardSymbol symbol = symbolResolver.standardSymbol(name);
+        double x = pad.getX();
+        double y = pad.getY();
+        if (symbol == null) {
+            // User-defined symbol: use its extents as a rectangle
+            BoundingBox box = new ExtentsCalculator(symbolResolver).extents(features, pad);
+            if (box.isEmpty()) {
+                add(index, x, y, x, y, 0);
+                return;
+            }
+            addFill(index, Geometry.rectangle(box.getCenterX(), box.getCenterY(), box.getWidth(), box.getHeight(), 0));
+            return;
+        }
+        double w = symbol.getWidth() * scale;
+        double h = symbol.getHeight() * scale;
+        switch (symbol.getShape()) {
+            case NULL:
+                return;
+            case ROUND:
+            case HOLE:
+            case ROUND_DONUT:
+            case ROUND_THERMAL:
+            case ROUND_THERMAL_SQUARED:
+            case ROUND_BUTTERFLY:
+            case MOIRE:
+                add(index, x, y, x, y, w / 2);
+                return;
+            case OVAL: {
+                // Capsule along the long axis, rotated clockwise with the pad
+                double r = Math.min(w, h) / 2;
+                double half = Math.abs(w - h) / 2;
+                double radians = Math.toRadians(pad.getRotation());
+                double dx = w >= h ? half * Math.cos(radians) : half * Math.sin(radians);
+                double dy = w >= h ? -half * Math.sin(radians) : half * Math.cos(radians);
+                add(index, x - dx, y - dy, x + dx, y + dy, r);
+                return;
+            }
+            default:
+                addFill(index, Geometry.rectangle(x, y, w, h, pad.getRotation()));
+        }
+    }
+
+    private void addFill(int index, double[] contour) {
+        double[] closed = Arrays.copyOf(contour, contour.length + 2);
+        closed[contour.length] = contour[0];
+        closed[contour.length + 1] = contour[1];
+        addPolyline(index, closed, 0);
+        fills[index] = new double[][]{contour};
+    }
+
+    private double halfWidth(int symbolNumber, SymbolResolver symbolResolver) {
+        StandardSymbol symbol = symbolResolver.standardSymbol(features, symbolNumber);
+        return symbol == null ? 0 : symbol.getWidth() / 2 * symbolResolver.scale(features, symbolNumber);
+    }
+
+    private static double[] contourPoints(ContourPolygon polygon) {
+        double[] points = new double[16];
+        int size = 0;
+        double x = polygon.getXStart();
+        double y = polygon.getYStart();
+        points[size++] = x;
+        points[size++] = y;
+        for (ContourPolygon.PolygonPart part : polygon.getPolygonParts()) {
+            double[] segment;
+            if (part.getType() == ContourPolygon.PolygonPart.Type.ARC) {
+                segment = Geometry.arcPoints(x, y, part.getEndX(), part.getEndY(), part.getXCenter(), part.getYCenter(), part.isClockwise());
+            } else {
+                segment = new double[]{x, y, part.getEndX(), part.getEndY()};
+            }
+            // Skip the first point, it repeats the current position
+            if (size + segment.length > points.length) {
+                points = Arrays.copyOf(points, Math.max(points.length * 2, size + segment.length));
+            }
+            System.arraycopy(segment, 2, points, size, segment.length - 2);
+            size += segment.length - 2;
+            x = part.getEndX();
+            y = part.getEndY();
+        }
+        return Arrays.copyOf(points, size);
+    }
+
+    private void addPolyline(int index, double[] points, double r) {
+        for (int i = 0; i + 3 < points.length; i += 2) {
+            add(index, points[i], points[i + 1], points[i + 2], points[i + 3], r);
+        }
+    }
+
+    private void add(int index, double ax, double ay, double bx, double by, double r) {
+        if (count == owner.length) {
+            int capacity = count * 2;
+            x1 = Arrays.copyOf(x1, capacity);
+            y1 = Arrays.copyOf(y1, capacity);
+            x2 = Arrays.copyOf(x2, capacity);
+            y2 = Arrays.copyOf(y2, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            owner = Arrays.copyOf(owner, capacity);
+        }
+        x1[count] = ax;
+        y1[count] = ay;
+        x2[count] = bx;
+        y2[count] = by;
+        radius[count] = r;
+        owner[count] = index;
+        count++;
+    }
+}
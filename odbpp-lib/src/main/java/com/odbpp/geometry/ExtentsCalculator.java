@@ -0,0 +1,328 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.Arc;
+import com.odbpp.model.Barcode;
+import com.odbpp.model.BoundingBox;
+import com.odbpp.model.ContourPolygon;
+import com.odbpp.model.Feature;
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Line;
+import com.odbpp.model.Pad;
+import com.odbpp.model.Profile;
+import com.odbpp.model.Step;
+import com.odbpp.model.Surface;
+import com.odbpp.model.Symbol;
+import com.odbpp.model.Text;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes bounding boxes of features, layers and steps.
+ *
+ * Contour arcs are handled exactly (the box includes the axis extremes the arc sweeps through) and pads, lines
+ * and arcs are grown by the extents of their symbol, including user-defined symbols from the job. Text and
+ * barcodes are approximated from their character size and length.
+ *
+ * Results for a whole {@link Features} are cached on the features object and reused until its feature list is
+ * changed (see {@link Features#invalidateExtents()} for edits to feature objects). Step queries combine the
+ * cached layer results and compute missing layers in parallel.
+ */
+public class ExtentsCalculator {
+    private static final double HALF_PI = Math.PI / 2;
+
+    private final SymbolResolver symbolResolver;
+
+    public ExtentsCalculator(Job job) {
+        this(new SymbolResolver(job));
+    }
+
+    public ExtentsCalculator(SymbolResolver symbolResolver) {
+        this.symbolResolver = symbolResolver;
+    }
+
+    /**
+     * @return the board outline extents from the step profile, or the extents of all layers if there is none
+     */
+    public BoundingBox boardExtents(Step step) {
+        if (step.getProfile() != null) {
+            BoundingBox profile = extents(step.getProfile());
+            if (!profile.isEmpty()) {
+                return profile;
+            }
+        }
+        return extents(step);
+    }
+
+    /**
+     * @return the union of the profile and all layer features of the step
+     */
+    public BoundingBox extents(Step step) {
+        BoundingBox result = step.getProfile() == null ? BoundingBox.EMPTY : extents(step.getProfile());
+        for (BoundingBox layer : layerExtents(step).values()) {
+            result = result.union(layer);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the extents of every layer of the step that has features, in parallel.
+     *
+     * @return extents keyed by layer name
+     */
+    public Map<String, BoundingBox> layerExtents(Step step) {
+        if (step.getLayersByName() == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, BoundingBox> result = new ConcurrentHashMap<>();
+        step.getLayersByName().values().parallelStream()
+                .filter(layer -> layer.getFeatures() != null)
+                .forEach(layer -> result.put(layer.getName(), extents(layer)));
+        return result;
+    }
+
+    public BoundingBox extents(Layer layer) {
+        return layer.getFeatures() == null ? BoundingBox.EMPTY : extents(layer.getFeatures());
+    }
+
+    public BoundingBox extents(Features features) {
+        long modification = features.getModificationCount();
+        BoundingBox cached = features.getCachedExtents();
+        if (cached != null) {
+            return cached;
+        }
+        Box box = new Box();
+        for (Feature feature : features.getFeatures()) {
+            include(box, features, feature);
+        }
+        BoundingBox result = box.toBoundingBox();
+        features.cacheExtents(result, modification);
+        return result;
+    }
+
+    public BoundingBox extents(Profile profile) {
+        Box box = new Box();
+        for (Surface surface : profile.getSurfaces()) {
+            includeSurface(box, surface);
+        }
+        return box.toBoundingBox();
+    }
+
+    /**
+     * @param features the features the feature belongs to, used to resolve its symbol
+     */
+    public BoundingBox extents(Features features, Feature feature) {
+        Box box = new Box();
+        include(box, features, feature);
+        return box.toBoundingBox();
+    }
+
+    public BoundingBox extents(Surface surface) {
+        Box box = new Box();
+        includeSurface(box, surface);
+        return box.toBoundingBox();
+    }
+
+    public BoundingBox extents(ContourPolygon polygon) {
+        Box box = new Box();
+        includeContour(box, polygon);
+        return box.toBoundingBox();
+    }
+
+    /**
+     * Exact extents of a circular arc from (xs, ys) to (xe, ye) around (xc, yc). Equal start and end points
+     * describe a full circle.
+     */
+    public static BoundingBox arcExtents(double xs, double ys, double xe, double ye, double xc, double yc, boolean clockwise) {
+        Box box = new Box();
+        includeArc(box, xs, ys, xe, ye, xc, yc, clockwise, 0);
+        return box.toBoundingBox();
+    }
+
+    private void include(Box box, Features features, Feature feature) {
+        if (feature instanceof Pad) {
+            includePad(box, features, (Pad) feature);
+        } else if (feature instanceof Line) {
+            Line line = (Line) feature;
+            double[] half = symbolHalfSize(features, line.getSymbolNumber());
+            box.add(line.getXs() - half[0], line.getYs() - half[1]);
+            box.add(line.getXs() + half[0], line.getYs() + half[1]);
+            box.add(line.getXe() - half[0], line.getYe() - half[1]);
+            box.add(line.getXe() + half[0], line.getYe() + half[1]);
+        } else if (feature instanceof Arc) {
+            Arc arc = (Arc) feature;
+            double[] half = symbolHalfSize(features, arc.getSymbolNumber());
+            includeArc(box, arc.getXs(), arc.getYs(), arc.getXe(), arc.getYe(), arc.getXc(), arc.getYc(),
+                    !"N".equals(arc.getCw()), Math.max(half[0], half[1]));
+        } else if (feature instanceof Surface) {
+            includeSurface(box, (Surface) feature);
+        } else if (feature instanceof Text) {
+            Text text = (Text) feature;
+            int length = text.getText() == null ? 0 : text.getText().length();
+            includeRotatedRectangle(box, text.getX(), text.getY(), 0, 0, text.getXsize() * length, text.getYsize(),
+                    orientDefRotation(text.getOrientDef()), orientDefMirror(text.getOrientDef()));
+        } else if (feature instanceof Barcode) {
+            Barcode barcode = (Barcode) feature;
+            // Code 39: 13 narrow elements per character including the gap, plus start and stop characters
+            int length = barcode.getText() == null ? 0 : barcode.getText().length();
+            double rotation = barcode.getOrientDef() >= 8 ? barcode.getOrientDefRotation() : (barcode.getOrientDef() % 4) * 90;
+            includeRotatedRectangle(box, barcode.getX(), barcode.getY(), 0, 0, (length + 2) * 13 * barcode.getWidth(),
+                    barcode.getHeight(), rotation, barcode.getOrientDef() == 9 || (barcode.getOrientDef() >= 4 && barcode.getOrientDef() <= 7));
+        }
+    }
+
+    private void includePad(Box box, Features features, Pad pad) {
+        double scale = pad.getResizeFactor() == null ? 1 : pad.getResizeFactor();
+        String name = symbolResolver.symbolName(features, pad.getSymbolNumber());
+        StandardSymbol standard = symbolResolver.standardSymbol(name);
+        if (standard != null) {
+            double units = symbolResolver.scale(features, pad.getSymbolNumber());
+            double w = standard.getWidth() * scale * units;
+            double h = standard.getHeight() * scale * units;
+            includeRotatedRectangle(box, pad.getX(), pad.getY(), -w / 2, -h / 2, w, h, pad.getRotation(), false);
+            return;
+        }
+        Symbol symbol = symbolResolver.userSymbol(name);
+        if (symbol != null && symbol.getFeatures() != null) {
+            BoundingBox local = extents(symbol.getFeatures());
+            if (!local.isEmpty()) {
+                includeRotatedRectangle(box, pad.getX(), pad.getY(), local.getMinX() * scale, local.getMinY() * scale,
+                        local.getWidth() * scale, local.getHeight() * scale, pad.getRotation(), pad.isMirrored());
+                return;
+            }
+        }
+        box.add(pad.getX(), pad.getY());
+    }
+
+    /**
+     * @return half width and half height of a line or arc symbol in job units
+     */
+    private double[] symbolHalfSize(Features features, int symbolNumber) {
+        StandardSymbol symbol = symbolResolver.standardSymbol(features, symbolNumber);
+        if (symbol == null) {
+            return new double[2];
+        }
+        double units = symbolResolver.scale(features, symbolNumber);
+        return new double[]{symbol.getWidth() / 2 * units, symbol.getHeight() / 2 * units};
+    }
+
+    private static void includeSurface(Box box, Surface surface) {
+        if (surface.getPolygons() == null) {
+            return;
+        }
+        for (ContourPolygon polygon : surface.getPolygons()) {
+            // Holes lie inside their island and never extend the surface
+            if (polygon.getType() != ContourPolygon.Type.HOLE) {
+                includeContour(box, polygon);
+            }
+        }
+    }
+
+    private static void includeContour(Box box, ContourPolygon polygon) {
+        double x = polygon.getXStart();
+        double y = polygon.getYStart();
+        box.add(x, y);
+        for (ContourPolygon.PolygonPart part : polygon.getPolygonParts()) {
+            if (part.getType() == ContourPolygon.PolygonPart.Type.ARC) {
+                includeArc(box, x, y, part.getEndX(), part.getEndY(), part.getXCenter(), part.getYCenter(), part.isClockwise(), 0);
+            } else {
+                box.add(part.getEndX(), part.getEndY());
+            }
+            x = part.getEndX();
+            y = part.getEndY();
+        }
+    }
+
+    private static void includeArc(Box box, double xs, double ys, double xe, double ye, double xc, double yc,
+                                   boolean clockwise, double margin) {
+        double radius = Math.hypot(xs - xc, ys - yc);
+        box.add(xs - margin, ys - margin);
+        box.add(xs + margin, ys + margin);
+        box.add(xe - margin, ye - margin);
+        box.add(xe + margin, ye + margin);
+        double start = Math.atan2(ys - yc, xs - xc);
+        double end = Math.atan2(ye - yc, xe - xc);
+        // Sweep counter-clockwise from 'from' by 'sweep' radians
+        double from = clockwise ? end : start;
+        double sweep = normalize(clockwise ? start - end : end - start);
+        if (sweep == 0) {
+            sweep = 2 * Math.PI;
+        }
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            double angle = quadrant * HALF_PI;
+            if (normalize(angle - from) <= sweep) {
+                double r = radius + margin;
+                box.add(xc + r * Math.cos(angle), yc + r * Math.sin(angle));
+            }
+        }
+    }
+
+    private static double normalize(double angle) {
+        double twoPi = 2 * Math.PI;
+        angle %= twoPi;
+        return angle < 0 ? angle + twoPi : angle;
+    }
+
+    /**
+     * Adds a rectangle given in local coordinates (offset and size), mirrored and then rotated clockwise about
+     * the origin (x, y).
+     */
+    private static void includeRotatedRectangle(Box box, double x, double y, double localX, double localY,
+                                                double width, double height, double rotation, boolean mirror) {
+        double radians = Math.toRadians(rotation);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        for (int corner = 0; corner < 4; corner++) {
+            double px = localX + ((corner & 1) == 0 ? 0 : width);
+            double py = localY + ((corner & 2) == 0 ? 0 : height);
+            if (mirror) {
+                px = -px;
+            }
+            box.add(x + px * cos + py * sin, y - px * sin + py * cos);
+        }
+    }
+
+    private static double orientDefRotation(String orientDef) {
+        if (orientDef == null || orientDef.isEmpty()) {
+            return 0;
+        }
+        String[] parts = orientDef.trim().split("\\s+");
+        int type = Integer.parseInt(parts[0]);
+        if (type >= 8) {
+            return parts.length > 1 ? Double.parseDouble(parts[1]) : 0;
+        }
+        return (type % 4) * 90;
+    }
+
+    private static boolean orientDefMirror(String orientDef) {
+        if (orientDef == null || orientDef.isEmpty()) {
+            return false;
+        }
+        int type = Character.digit(orientDef.trim().charAt(0), 10);
+        return type == 9 || (type >= 4 && type <= 7);
+    }
+
+    /**
+     * Mutable accumulator used while scanning features.
+     */
+    private static final class Box {
+        private double minX = Double.POSITIVE_INFINITY;
+        private double minY = Double.POSITIVE_INFINITY;
+        private double maxX = Double.NEGATIVE_INFINITY;
+        private double maxY = Double.NEGATIVE_INFINITY;
+
+        void add(double x, double y) {
+            if (x < minX) minX = x;
+            if (x > maxX) maxX = x;
+            if (y < minY) minY = y;
+            if (y > maxY) maxY = y;
+        }
+
+        BoundingBox toBoundingBox() {
+            return minX > maxX ? BoundingBox.EMPTY : new BoundingBox(minX, minY, maxX, maxY);
+        }
+    }
+}
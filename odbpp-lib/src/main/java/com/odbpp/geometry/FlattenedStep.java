@@ -0,0 +1,287 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.BoundingBox;
+import com.odbpp.model.Component;
+import com.odbpp.model.Feature;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.MatrixLayer;
+import com.odbpp.model.Step;
+import com.odbpp.model.StepHdr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * View of a step with all of its nested step-repeat arrays expanded into {@link StepInstance}s.
+ *
+ * Child steps are never copied: each instance references the child step and carries the transform that maps
+ * its coordinates into the root step, so a 500-up panel costs 500 small instance objects rather than 500 copies
+ * of the board. Instances are only enumerated when first needed, and counts can be answered from the step-repeat
+ * multiplicities without enumerating at all.
+ *
+ * A step-repeat places the child datum at (X + i*DX, Y + j*DY) after rotating it clockwise by ANGLE and mirroring
+ * it in X when MIRROR or FLIP is set (both together cancel out). A flipped instance also reads its layers in
+ * reverse: each board layer maps to the layer of the same type at the mirrored position in the matrix, so
+ * comp_+_top of a flipped child contributes to comp_+_bot of the root.
+ */
+public class FlattenedStep {
+    private final Job job;
+    private final Step root;
+    private final Map<String, String> flippedLayerNames;
+    private final Map<String, Long> componentCounts = new ConcurrentHashMap<>();
+    private final Map<String, BoundingBox> stepExtents = new ConcurrentHashMap<>();
+    private volatile List<StepInstance> instances;
+
+    /**
+     * Receives features of a flattened layer. Feature coordinates are in the instance step's coordinates; apply
+     * {@link StepInstance#getTransform()} to map them into the root step.
+     */
+    @FunctionalInterface
+    public interface FeatureVisitor {
+        void visit(StepInstance instance, int featureIndex, Feature feature);
+    }
+
+    /**
+     * Receives components of a flattened component layer with their location in root step coordinates.
+     */
+    @FunctionalInterface
+    public interface ComponentVisitor {
+        void visit(StepInstance instance, Component component, double x, double y, double rotation, boolean mirrored);
+    }
+
+    public FlattenedStep(Job job, Step root) {
+        this.job = job;
+        this.root = root;
+        this.flippedLayerNames = flippedLayerNames(job);
+    }
+
+    public Step getRoot() {
+        return root;
+    }
+
+    /**
+     * Visits the root and every nested instance depth-first, parents before their children.
+     */
+    public void forEachInstance(Consumer<StepInstance> consumer) {
+        List<StepInstance> cached = instances;
+        if (cached != null) {
+            cached.forEach(consumer);
+            return;
+        }
+        visit(new StepInstance(root, Transform.IDENTITY, false, null, 0, 0), consumer, new ArrayDeque<>());
+    }
+
+    /**
+     * @return all instances including the root, computed on first use
+     */
+    public List<StepInstance> getInstances() {
+        List<StepInstance> result = instances;
+        if (result == null) {
+            List<StepInstance> list = new ArrayList<>();
+            visit(new StepInstance(root, Transform.IDENTITY, false, null, 0, 0), list::add, new ArrayDeque<>());
+            result = Collections.unmodifiableList(list);
+            instances = result;
+        }
+        return result;
+    }
+
+    private void visit(StepInstance instance, Consumer<StepInstance> consumer, Deque<String> stack) {
+        Step step = instance.getStep();
+        if (stack.contains(step.getName())) {
+            throw new IllegalStateException("Step-repeat cycle: " + String.join(" -> ", stack) + " -> " + step.getName());
+        }
+        consumer.accept(instance);
+        if (step.getStepHdr() == null || step.getStepHdr().getStepRepeats() == null) {
+            return;
+        }
+        stack.addLast(step.getName());
+        for (StepHdr.StepRepeat repeat : step.getStepHdr().getStepRepeats()) {
+            Step child = childStep(repeat);
+            if (child == null) {
+                continue;
+            }
+            boolean flipped = instance.isFlipped() ^ repeat.isFlip();
+            for (int row = 0; row < Math.max(1, repeat.getNy()); row++) {
+                for (int column = 0; column < Math.max(1, repeat.getNx()); column++) {
+                    Transform transform = instance.getTransform().concat(placement(repeat, child, column, row));
+                    visit(new StepInstance(child, transform, flipped, instance, column, row), consumer, stack);
+                }
+            }
+        }
+        stack.removeLast();
+    }
+
+    /**
+     * @return the transform from child coordinates to parent coordinates for one element of the array
+     */
+    public static Transform placement(StepHdr.StepRepeat repeat, Step child, int column, int row) {
+        double datumX = child.getStepHdr() == null ? 0 : child.getStepHdr().getXDatum();
+        double datumY = child.getStepHdr() == null ? 0 : child.getStepHdr().getYDatum();
+        Transform transform = Transform.translation(repeat.getX() + column * repeat.getDx(), repeat.getY() + row * repeat.getDy())
+                .concat(Transform.rotation(repeat.getAngle()));
+        if (repeat.isMirror() ^ repeat.isFlip()) {
+            transform = transform.concat(Transform.mirrorX());
+        }
+        return transform.concat(Transform.translation(-datumX, -datumY));
+    }
+
+    /**
+     * @return the layer of the instance's step that contributes to the given root layer, or null
+     */
+    public Layer layer(StepInstance instance, String layerName) {
+        Map<String, Layer> layers = instance.getStep().getLayersByName();
+        if (layers == null) {
+            return null;
+        }
+        return layers.get(instance.isFlipped() ? flippedLayerNames.getOrDefault(layerName, layerName) : layerName);
+    }
+
+    /**
+     * Visits every feature of the given root layer across all instances.
+     */
+    public void forEachFeature(String layerName, FeatureVisitor visitor) {
+        forEachInstance(instance -> {
+            Layer layer = layer(instance, layerName);
+            if (layer == null || layer.getFeatures() == null) {
+                return;
+            }
+            List<Feature> features = layer.getFeatures().getFeatures();
+            for (int i = 0; i < features.size(); i++) {
+                visitor.visit(instance, i, features.get(i));
+            }
+        });
+    }
+
+    /**
+     * Visits every component of the given root component layer (e.g. comp_+_top) across all instances.
+     */
+    public void forEachComponent(String layerName, ComponentVisitor visitor) {
+        forEachInstance(instance -> {
+            Layer layer = layer(instance, layerName);
+            if (layer == null || layer.getComponents() == null) {
+                return;
+            }
+            Transform transform = instance.getTransform();
+            boolean mirrored = transform.isMirrored();
+            double angle = transform.getRotation();
+            for (Component component : layer.getComponents().getComponents()) {
+                double x = transform.applyX(component.getX(), component.getY());
+                double y = transform.applyY(component.getX(), component.getY());
+                double rotation = mirrored ? angle - component.getRotation() : angle + component.getRotation();
+                rotation %= 360;
+                visitor.visit(instance, component, x, y, rotation < 0 ? rotation + 360 : rotation, mirrored);
+            }
+        });
+    }
+
+    /**
+     * @return the pick-and-place list of the given root component layer
+     */
+    public List<Placement> placements(String layerName) {
+        List<Placement> placements = new ArrayList<>();
+        forEachComponent(layerName, (instance, component, x, y, rotation, mirrored) -> {
+            Placement placement = new Placement();
+            placement.setCompName(component.getCompName());
+            placement.setPartName(component.getPartName());
+            placement.setLayerName(layerName);
+            placement.setX(x);
+            placement.setY(y);
+            placement.setRotation(rotation);
+            placement.setMirrored(mirrored);
+            placement.setInstancePath(instance.getPath());
+            placements.add(placement);
+        });
+        return placements;
+    }
+
+    /**
+     * Counts the components on a root component layer from the step-repeat multiplicities, without enumerating
+     * instances.
+     */
+    public long componentCount(String layerName) {
+        return componentCount(root, layerName, new ArrayDeque<>());
+    }
+
+    private long componentCount(Step step, String layerName, Deque<String> stack) {
+        String key = step.getName() + '\n' + layerName;
+        Long cached = componentCounts.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (stack.contains(step.getName())) {
+            throw new IllegalStateException("Step-repeat cycle: " + String.join(" -> ", stack) + " -> " + step.getName());
+        }
+        Layer layer = step.getLayersByName() == null ? null : step.getLayersByName().get(layerName);
+        long count = layer == null || layer.getComponents() == null ? 0 : layer.getComponents().getComponents().size();
+        if (step.getStepHdr() != null && step.getStepHdr().getStepRepeats() != null) {
+            stack.addLast(step.getName());
+            for (StepHdr.StepRepeat repeat : step.getStepHdr().getStepRepeats()) {
+                Step child = childStep(repeat);
+                if (child != null) {
+                    String childLayer = repeat.isFlip() ? flippedLayerNames.getOrDefault(layerName, layerName) : layerName;
+                    count += (long) Math.max(1, repeat.getNx()) * Math.max(1, repeat.getNy()) * componentCount(child, childLayer, stack);
+                }
+            }
+            stack.removeLast();
+        }
+        componentCounts.put(key, count);
+        return count;
+    }
+
+    /**
+     * @return the union of the board extents (profile) of every instance in root coordinates; rotated instances
+     *         contribute the box around their rotated extents
+     */
+    public BoundingBox extents() {
+        ExtentsCalculator calculator = new ExtentsCalculator(job);
+        BoundingBox[] result = {BoundingBox.EMPTY};
+        forEachInstance(instance -> {
+            BoundingBox own = stepExtents.computeIfAbsent(instance.getStep().getName(),
+                    name -> calculator.boardExtents(instance.getStep()));
+            result[0] = result[0].union(instance.getTransform().apply(own));
+        });
+        return result[0];
+    }
+
+    private Step childStep(StepHdr.StepRepeat repeat) {
+        if (job == null || job.getSteps() == null || repeat.getName() == null) {
+            return null;
+        }
+        Step child = job.getSteps().get(repeat.getName());
+        return child != null ? child : job.getSteps().get(repeat.getName().toLowerCase());
+    }
+
+    /**
+     * Pairs each board layer with the layer of the same type at the mirrored position in the matrix
+     */
+    private static Map<String, String> flippedLayerNames(Job job) {
+        Map<String, String> result = new HashMap<>();
+        if (job == null || job.getMatrix() == null || job.getMatrix().getLayers() == null) {
+            result.put("comp_+_top", "comp_+_bot");
+            result.put("comp_+_bot", "comp_+_top");
+            return result;
+        }
+        Map<String, List<MatrixLayer>> byType = new HashMap<>();
+        for (MatrixLayer layer : job.getMatrix().getLayers()) {
+            if ("BOARD".equals(layer.getContext()) && layer.getType() != null) {
+                byType.computeIfAbsent(layer.getType(), type -> new ArrayList<>()).add(layer);
+            }
+        }
+        for (List<MatrixLayer> layers : byType.values()) {
+            layers.sort(Comparator.comparingInt(MatrixLayer::getRow));
+            for (int i = 0; i < layers.size(); i++) {
+                result.put(layers.get(i).getName(), layers.get(layers.size() - 1 - i).getName());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,164 @@
+package com.odbpp.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Low-level planar geometry used by the analysis engines: segment distances, arc flattening and
+ * point-in-polygon tests. All methods are allocation-free unless they return an array.
+ */
+public final class Geometry {
+    /**
+     * Maximum angle covered by one chord when arcs are flattened, in radians (5 degrees).
+     */
+    public static final double ARC_STEP = Math.toRadians(5);
+
+    private Geometry() {
+    }
+
+    /**
+     * Distance between segments (ax1, ay1)-(ax2, ay2) and (bx1, by1)-(bx2, by2).
+     *
+     * @param closest if not null, receives the closest point on a (index 0, 1) and on b (index 2, 3)
+     * @return the minimum distance between the two segments
+     */
+    public static double segmentDistance(double ax1, double ay1, double ax2, double ay2,
+                                         double bx1, double by1, double bx2, double by2, double[] closest) {
+        double d1x = ax2 - ax1;
+        double d1y = ay2 - ay1;
+        double d2x = bx2 - bx1;
+        double d2y = by2 - by1;
+        double rx = ax1 - bx1;
+        double ry = ay1 - by1;
+        double a = d1x * d1x + d1y * d1y;
+        double e = d2x * d2x + d2y * d2y;
+        double f = d2x * rx + d2y * ry;
+        double s;
+        double t;
+        if (a <= 1e-18 && e <= 1e-18) {
+            s = 0;
+            t = 0;
+        } else if (a <= 1e-18) {
+            s = 0;
+            t = clamp(f / e);
+        } else {
+            double c = d1x * rx + d1y * ry;
+            if (e <= 1e-18) {
+                t = 0;
+                s = clamp(-c / a);
+            } else {
+                double b = d1x * d2x + d1y * d2y;
+                double denominator = a * e - b * b;
+                s = denominator > 1e-18 ? clamp((b * f - c * e) / denominator) : 0;
+                t = (b * s + f) / e;
+                if (t < 0) {
+                    t = 0;
+                    s = clamp(-c / a);
+                } else if (t > 1) {
+                    t = 1;
+                    s = clamp((b - c) / a);
+                }
+            }
+        }
+        double px = ax1 + d1x * s;
+        double py = ay1 + d1y * s;
+        double qx = bx1 + d2x * t;
+        double qy = by1 + d2y * t;
+        if (closest != null) {
+            closest[0] = px;
+            closest[1] = py;
+            closest[2] = qx;
+            closest[3] = qy;
+        }
+        if (segmentsIntersect(ax1, ay1, ax2, ay2, bx1, by1, bx2, by2)) {
+            return 0;
+        }
+        return Math.hypot(px - qx, py - qy);
+    }
+
+    private static boolean segmentsIntersect(double ax1, double ay1, double ax2, double ay2,
+                                             double bx1, double by1, double bx2, double by2) {
+        double o1 = orientation(ax1, ay1, ax2, ay2, bx1, by1);
+        double o2 = orientation(ax1, ay1, ax2, ay2, bx2, by2);
+        double o3 = orientation(bx1, by1, bx2, by2, ax1, ay1);
+        double o4 = orientation(bx1, by1, bx2, by2, ax2, ay2);
+        return ((o1 > 0 && o2 < 0) || (o1 < 0 && o2 > 0)) && ((o3 > 0 && o4 < 0) || (o3 < 0 && o4 > 0));
+    }
+
+    private static double orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    private static double clamp(double value) {
+        return value < 0 ? 0 : (value > 1 ? 1 : value);
+    }
+
+    /**
+     * Flattens a circular arc into a polyline whose chords each cover at most {@link #ARC_STEP}. Equal start and
+     * end points describe a full circle.
+     *
+     * @return interleaved x/y coordinates, starting with the start point and ending with the end point
+     */
+    public static double[] arcPoints(double xs, double ys, double xe, double ye, double xc, double yc, boolean clockwise) {
+        double radius = Math.hypot(xs - xc, ys - yc);
+        double start = Math.atan2(ys - yc, xs - xc);
+        double end = Math.atan2(ye - yc, xe - xc);
+        double sweep = clockwise ? start - end : end - start;
+        sweep %= 2 * Math.PI;
+        if (sweep <= 1e-12) {
+            sweep += 2 * Math.PI;
+        }
+        int steps = Math.max(1, (int) Math.ceil(sweep / ARC_STEP));
+        double[] points = new double[2 * (steps + 1)];
+        double direction = clockwise ? -1 : 1;
+        for (int i = 0; i <= steps; i++) {
+            double angle = start + direction * sweep * i / steps;
+            points[2 * i] = xc + radius * Math.cos(angle);
+            points[2 * i + 1] = yc + radius * Math.sin(angle);
+        }
+        points[0] = xs;
+        points[1] = ys;
+        points[2 * steps] = xe;
+        points[2 * steps + 1] = ye;
+        return points;
+    }
+
+    /**
+     * Even-odd point-in-polygon test over a set of closed contours, so holes inside islands are honoured.
+     *
+     * @param contours contours as interleaved x/y coordinates; the closing edge is implied
+     */
+    public static boolean contains(double[][] contours, double x, double y) {
+        boolean inside = false;
+        for (double[] contour : contours) {
+            int n = contour.length / 2;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                double xi = contour[2 * i];
+                double yi = contour[2 * i + 1];
+                double xj = contour[2 * j];
+                double yj = contour[2 * j + 1];
+                if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * @return the corners of a width x height rectangle centred on (x, y), rotated clockwise, as a contour
+     */
+    public static double[] rectangle(double x, double y, double width, double height, double rotation) {
+        double radians = Math.toRadians(rotation);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        double[] local = {-width / 2, -height / 2, width / 2, -height / 2, width / 2, height / 2, -width / 2, height / 2};
+        double[] result = Arrays.copyOf(local, local.length);
+        for (int i = 0; i < 4; i++) {
+            double px = local[2 * i];
+            double py = local[2 * i + 1];
+            result[2 * i] = x + px * cos + py * sin;
+            result[2 * i + 1] = y - px * sin + py * cos;
+        }
+        return result;
+    }
+}
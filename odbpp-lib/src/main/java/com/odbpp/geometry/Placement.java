@@ -0,0 +1,30 @@
+package com.odbpp.geometry;
+
+import lombok.Data;
+
+/**
+ * A component placed in the coordinates of a flattened panel, as used for pick-and-place.
+ */
+@Data
+public class Placement {
+    private String compName;
+    private String partName;
+
+    /**
+     * The component layer of the root step that the component ends up on
+     */
+    private String layerName;
+
+    /**
+     * Location in root step coordinates and clockwise rotation in degrees
+     */
+    private double x;
+    private double y;
+    private double rotation;
+    private boolean mirrored;
+
+    /**
+     * Path of the step instance holding the component, see {@link StepInstance#getPath()}
+     */
+    private String instancePath;
+}
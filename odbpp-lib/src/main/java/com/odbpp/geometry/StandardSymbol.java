@@ -0,0 +1,230 @@
+package com.odbpp.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A standard ODB++ symbol decoded from its name, e.g. r10, rect20x10xr2 or donut_r30x20.
+ *
+ * Dimensions are kept in symbol units as they appear in the name: mils for imperial jobs and microns for
+ * metric jobs. {@link #SYMBOL_UNITS_PER_JOB_UNIT} converts them to the units of the features file. A symbol
+ * table entry may override this with an I (mils) or M (microns) suffix; {@link #scale(String, String)} converts
+ * such symbols.
+ */
+public final class StandardSymbol {
+    /**
+     * Symbol dimensions are given in mils (inch jobs) or microns (mm jobs), both 1/1000 of the job unit.
+     */
+    public static final double SYMBOL_UNITS_PER_JOB_UNIT = 1000.0;
+
+    private static final double MM_PER_INCH = 25.4;
+
+    public enum Shape {
+        ROUND("r"),
+        SQUARE("s"),
+        RECTANGLE("rect"),
+        OVAL("oval"),
+        DIAMOND("di"),
+        OCTAGON("oct"),
+        ROUND_DONUT("donut_r"),
+        SQUARE_DONUT("donut_s"),
+        SQUARE_ROUND_DONUT("donut_sr"),
+        RECTANGLE_DONUT("donut_rc"),
+        OVAL_DONUT("donut_o"),
+        HORIZONTAL_HEXAGON("hex_l"),
+        VERTICAL_HEXAGON("hex_s"),
+        ROUND_BUTTERFLY("bfr"),
+        SQUARE_BUTTERFLY("bfs"),
+        TRIANGLE("tri"),
+        HALF_OVAL("oval_h"),
+        ROUND_THERMAL("thr"),
+        ROUND_THERMAL_SQUARED("ths"),
+        SQUARE_THERMAL("s_ths"),
+        SQUARE_THERMAL_OPEN("s_tho"),
+        LINE_THERMAL("s_thr"),
+        SQUARE_ROUND_THERMAL("sr_ths"),
+        RECTANGULAR_THERMAL("rc_ths"),
+        RECTANGULAR_THERMAL_OPEN("rc_tho"),
+        OVAL_THERMAL("o_ths"),
+        OBLONG_THERMAL("oblong_ths"),
+        ELLIPSE("el"),
+        MOIRE("moire"),
+        HOLE("hole"),
+        NULL("null");
+
+        private final String prefix;
+
+        Shape(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+    }
+
+    private final String name;
+    private final Shape shape;
+    private final double[] parameters;
+    private final double width;
+    private final double height;
+
+    private StandardSymbol(String name, Shape shape, double[] parameters, double width, double height) {
+        this.name = name;
+        this.shape = shape;
+        this.parameters = parameters;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Decodes a standard symbol name.
+     *
+     * @param name the symbol name from the features file symbol table
+     * @return the decoded symbol, or null if the name is not a standard symbol (i.e. a user-defined symbol)
+     */
+    public static StandardSymbol parse(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        int split = 0;
+        while (split < name.length() && !Character.isDigit(name.charAt(split)) && name.charAt(split) != '.') {
+            split++;
+        }
+        if (split == 0 || split == name.length()) {
+            return null;
+        }
+        Shape shape = shapeOf(name.substring(0, split));
+        if (shape == null) {
+            return null;
+        }
+        double[] parameters = parseParameters(name.substring(split));
+        if (parameters == null || parameters.length == 0) {
+            return null;
+        }
+        double first = parameters[0];
+        double second = parameters.length > 1 ? parameters[1] : first;
+        switch (shape) {
+            case ROUND:
+            case SQUARE:
+            case ROUND_DONUT:
+            case SQUARE_DONUT:
+            case SQUARE_ROUND_DONUT:
+            case ROUND_BUTTERFLY:
+            case SQUARE_BUTTERFLY:
+            case ROUND_THERMAL:
+            case ROUND_THERMAL_SQUARED:
+            case SQUARE_THERMAL:
+            case SQUARE_THERMAL_OPEN:
+            case LINE_THERMAL:
+            case SQUARE_ROUND_THERMAL:
+            case HOLE:
+            case NULL:
+                return new StandardSymbol(name, shape, parameters, first, first);
+            case MOIRE: {
+                // moire<ring_width>x<ring_gap>x<num_rings>x<line_width>x<line_length>x<line_angle>
+                double ringDiameter = parameters.length > 2 ? 2 * parameters[2] * (parameters[0] + parameters[1]) : first;
+                double lineLength = parameters.length > 4 ? parameters[4] : 0;
+                double size = Math.max(ringDiameter, lineLength);
+                return new StandardSymbol(name, shape, parameters, size, size);
+            }
+            default:
+                return new StandardSymbol(name, shape, parameters, first, second);
+        }
+    }
+
+    /**
+     * @param symbolUnits the I or M suffix of the symbol table entry, or null if it has none
+     * @param fileUnits   the units of the features file, INCH or MM; null is taken as INCH
+     * @return the factor converting symbol dimensions to the units of the features file
+     */
+    public static double scale(String symbolUnits, String fileUnits) {
+        boolean metricFile = fileUnits != null && fileUnits.toUpperCase().startsWith("MM");
+        if ("I".equalsIgnoreCase(symbolUnits) && metricFile) {
+            return MM_PER_INCH / SYMBOL_UNITS_PER_JOB_UNIT;
+        }
+        if ("M".equalsIgnoreCase(symbolUnits) && !metricFile) {
+            return 1 / (MM_PER_INCH * SYMBOL_UNITS_PER_JOB_UNIT);
+        }
+        return 1 / SYMBOL_UNITS_PER_JOB_UNIT;
+    }
+
+    private static Shape shapeOf(String prefix) {
+        for (Shape shape : Shape.values()) {
+            if (shape.prefix.equals(prefix)) {
+                return shape;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the numeric part of a symbol name, e.g. "20x10xr2x1234". Corner modifiers (xr, xc) and the corner
+     * list are kept as plain numbers; anything that is not a number ends the list.
+     */
+    private static double[] parseParameters(String text) {
+        List<Double> values = new ArrayList<>();
+        for (String token : text.split("x")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (token.charAt(0) == 'r' || token.charAt(0) == 'c') {
+                token = token.substring(1);
+            }
+            try {
+                values.add(Double.parseDouble(token));
+            } catch (NumberFormatException e) {
+                if (values.isEmpty()) {
+                    return null;
+                }
+                break;
+            }
+        }
+        double[] result = new double[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * @return the i-th numeric parameter of the name in symbol units, or 0 if there is none
+     */
+    public double getParameter(int i) {
+        return i < parameters.length ? parameters[i] : 0;
+    }
+
+    /**
+     * @return the unrotated width of the symbol in symbol units (mils or microns)
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the unrotated height of the symbol in symbol units (mils or microns)
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * @return true for symbols whose outline is a circle (round pads, round drills, round line ends)
+     */
+    public boolean isRound() {
+        return shape == Shape.ROUND || shape == Shape.HOLE;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
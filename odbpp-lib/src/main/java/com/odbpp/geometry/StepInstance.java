@@ -0,0 +1,81 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.Step;
+
+/**
+ * One placement of a step inside a flattened panel: the step itself (not a copy of its data) together with the
+ * transform from its coordinates to the coordinates of the root step.
+ */
+public final class StepInstance {
+    private final Step step;
+    private final Transform transform;
+    private final boolean flipped;
+    private final StepInstance parent;
+    private final int column;
+    private final int row;
+
+    StepInstance(Step step, Transform transform, boolean flipped, StepInstance parent, int column, int row) {
+        this.step = step;
+        this.transform = transform;
+        this.flipped = flipped;
+        this.parent = parent;
+        this.column = column;
+        this.row = row;
+    }
+
+    public Step getStep() {
+        return step;
+    }
+
+    /**
+     * @return the transform from this step's coordinates to the root step's coordinates
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * @return true if the step is turned over relative to the root, so its top layers face the root's bottom
+     */
+    public boolean isFlipped() {
+        return flipped;
+    }
+
+    /**
+     * @return the instance this one is nested in, or null for the root step
+     */
+    public StepInstance getParent() {
+        return parent;
+    }
+
+    /**
+     * @return the zero-based column of this instance in its step-repeat array
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return the zero-based row of this instance in its step-repeat array
+     */
+    public int getRow() {
+        return row;
+    }
+
+    public int getDepth() {
+        return parent == null ? 0 : parent.getDepth() + 1;
+    }
+
+    /**
+     * @return the nesting path, e.g. panel/array[1,0]/pcb[0,2]
+     */
+    public String getPath() {
+        String name = parent == null ? step.getName() : step.getName() + "[" + column + "," + row + "]";
+        return parent == null ? name : parent.getPath() + "/" + name;
+    }
+
+    @Override
+    public String toString() {
+        return getPath();
+    }
+}
@@ -0,0 +1,198 @@
+package com.odbpp.geometry;
+
+import com.odbpp.index.IndexSort;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Plane sweep over axis-aligned boxes that reports every pair of boxes closer than a search range.
+ *
+ * Boxes are visited in order of their left edge. Boxes whose right edge is still within range are active and
+ * are kept ordered by their bottom edge, so each box only looks at the active boxes in its own y band rather
+ * than at the whole active set; a column of pads sharing an x coordinate costs O(n log n) like any other
+ * layout. The few boxes much taller than the rest (board-sized surfaces, long vertical lines) would widen every
+ * band and are checked separately. The range is re-read before each box, so a caller looking for a minimum
+ * distance can shrink it as better candidates are found; it must not grow during a sweep.
+ */
+public final class SweepLine {
+    /**
+     * Boxes taller than this multiple of the 95th percentile of the non-zero heights are checked separately
+     */
+    private static final double TALL_FACTOR = 4;
+
+    /**
+     * Receives candidate pairs. Indices refer to the arrays the sweep was created with.
+     */
+    @FunctionalInterface
+    public interface PairVisitor {
+        void visit(int a, int b);
+    }
+
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final int[] order;
+    private final int[] expiry;
+    private final int[] byMinY;
+    private final double[] sortedMinY;
+    private final int[] rank;
+    private final boolean[] tall;
+    private final double bandHeight;
+
+    public SweepLine(double[] minX, double[] minY, double[] maxX, double[] maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.order = IndexSort.sortedIndices(minX);
+        this.expiry = IndexSort.sortedIndices(maxX);
+        this.byMinY = IndexSort.sortedIndices(minY);
+        int n = minX.length;
+        this.sortedMinY = new double[n];
+        this.rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedMinY[i] = minY[byMinY[i]];
+            rank[byMinY[i]] = i;
+        }
+        double[] heights = new double[n];
+        for (int i = 0; i < n; i++) {
+            heights[i] = maxY[i] - minY[i];
+        }
+        int[] byHeight = IndexSort.sortedIndices(heights);
+        // Zero heights (horizontal tracks, points) are left out, or a layer of mostly flat boxes would make
+        // every other box tall
+        int flat = 0;
+        while (flat < n && heights[byHeight[flat]] <= 0) {
+            flat++;
+        }
+        double limit = flat == n ? 0 : TALL_FACTOR * heights[byHeight[flat + (int) (0.95 * (n - flat - 1))]];
+        this.tall = new boolean[n];
+        double band = 0;
+        for (int i = 0; i < n; i++) {
+            if (heights[i] > limit) {
+                tall[i] = true;
+            } else {
+                band = Math.max(band, heights[i]);
+            }
+        }
+        this.bandHeight = band;
+    }
+    /**
+     * Creates a sweep over the capsules of a layer, each boxed with its radius.
+     */
+    public static SweepLine ofCapsules(CopperShapes shapes) {
+        int n = shapes.getCapsuleCount();
+        double[] minX = new double[n];
+        double[] minY = new double[n];
+        double[] maxX = new double[n];
+        double[] maxY = new double[n];
+        for (int i = 0; i < n; i++) {
+            double r = shapes.getRadius(i);
+            minX[i] = Math.min(shapes.getX1(i), shapes.getX2(i)) - r;
+            maxX[i] = Math.max(shapes.getX1(i), shapes.getX2(i)) + r;
+            minY[i] = Math.min(shapes.getY1(i), shapes.getY2(i)) - r;
+            maxY[i] = Math.max(shapes.getY1(i), shapes.getY2(i)) + r;
+        }
+        return new SweepLine(minX, minY, maxX, maxY);
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Visits every pair of boxes whose gap in both x and y is at most the given range.
+     */
+    public void forEachPair(double range, PairVisitor visitor) {
+        forEachPair(() -> range, visitor);
+    }
+
+    /**
+     * Visits candidate pairs using a range that may shrink while the sweep runs.
+     */
+    public void forEachPair(DoubleSupplier range, PairVisitor visitor) {
+        // Active boxes by their rank in bottom edge order; tall boxes in a separate list
+        BitSet active = new BitSet(order.length);
+        int[] tallActive = new int[16];
+        int tallCount = 0;
+        int expired = 0;
+        for (int box : order) {
+            double r = range.getAsDouble();
+            double left = minX[box] - r;
+            // Right edges only move out of range as the sweep advances, so expiry follows the right edge order
+            while (expired < expiry.length && maxX[expiry[expired]] < left) {
+                active.clear(rank[expiry[expired++]]);
+            }
+            int kept = 0;
+            for (int i = 0; i < tallCount; i++) {
+                int other = tallActive[i];
+                if (maxX[other] >= left) {
+                    tallActive[kept++] = other;
+                }
+            }
+            tallCount = kept;
+            double bottom = minY[box] - r;
+            double top = maxY[box] + r;
+            // An active box reaches into the band only if its bottom edge is within one band height below it
+            int from = lowerBound(sortedMinY, bottom - bandHeight);
+            int to = upperBound(sortedMinY, top);
+            for (int i = active.nextSetBit(from); i >= 0 && i < to; i = active.nextSetBit(i + 1)) {
+                int other = byMinY[i];
+                if (maxY[other] >= bottom) {
+                    visitor.visit(other, box);
+                }
+            }
+            for (int i = 0; i < tallCount; i++) {
+                int other = tallActive[i];
+                if (minY[other] <= top && maxY[other] >= bottom) {
+                    visitor.visit(other, box);
+                }
+            }
+            if (tall[box]) {
+                if (tallCount == tallActive.length) {
+                    tallActive = Arrays.copyOf(tallActive, tallCount * 2);
+                }
+                tallActive[tallCount++] = box;
+            } else {
+                active.set(rank[box]);
+            }
+        }
+    }
+
+    /**
+     * @return the first position whose value is at least the key
+     */
+    private static int lowerBound(double[] sorted, double key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the first position whose value is greater than the key
+     */
+    private static int upperBound(double[] sorted, double key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
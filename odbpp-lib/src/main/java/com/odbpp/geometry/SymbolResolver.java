@@ -0,0 +1,73 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Symbol;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the symbol numbers used by pads, lines and arcs to standard or user-defined symbols.
+ *
+ * Decoded standard symbols are cached by name, so resolving millions of features only parses each distinct
+ * symbol name once. Instances are thread-safe.
+ */
+public class SymbolResolver {
+    private static final StandardSymbol NOT_STANDARD = StandardSymbol.parse("null0");
+
+    private final Map<String, Symbol> userSymbols;
+    private final Map<String, StandardSymbol> standardSymbols = new ConcurrentHashMap<>();
+
+    /**
+     * @param job the job whose symbols directory provides user-defined symbols; may be null
+     */
+    public SymbolResolver(Job job) {
+        this.userSymbols = job == null || job.getSymbols() == null ? Collections.emptyMap() : job.getSymbols();
+    }
+
+    /**
+     * @return the symbol name for the symbol number in the features file, or null if it is not defined
+     */
+    public String symbolName(Features features, int symbolNumber) {
+        return features.getSymbolNames() == null ? null : features.getSymbolNames().get(symbolNumber);
+    }
+
+    /**
+     * @return the factor converting the dimensions of the standard symbol to the units of the features file,
+     *         honouring the I or M suffix of its symbol table entry
+     */
+    public double scale(Features features, int symbolNumber) {
+        String units = features.getSymbolUnits() == null ? null : features.getSymbolUnits().get(symbolNumber);
+        return StandardSymbol.scale(units, features.getUnits());
+    }
+
+    /**
+     * @return the decoded standard symbol, or null if the symbol is user-defined or unknown
+     */
+    public StandardSymbol standardSymbol(Features features, int symbolNumber) {
+        return standardSymbol(symbolName(features, symbolNumber));
+    }
+
+    /**
+     * @return the decoded standard symbol, or null if the name is not a standard symbol
+     */
+    public StandardSymbol standardSymbol(String name) {
+        if (name == null) {
+            return null;
+        }
+        StandardSymbol symbol = standardSymbols.computeIfAbsent(name, n -> {
+            StandardSymbol parsed = StandardSymbol.parse(n);
+            return parsed == null ? NOT_STANDARD : parsed;
+        });
+        return symbol == NOT_STANDARD ? null : symbol;
+    }
+
+    /**
+     * @return the user-defined symbol with the given name, or null if the job does not define it
+     */
+    public Symbol userSymbol(String name) {
+        return name == null ? null : userSymbols.get(name);
+    }
+}
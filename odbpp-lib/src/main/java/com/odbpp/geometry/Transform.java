@@ -0,0 +1,133 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.BoundingBox;
+
+/**
+ * Immutable 2D affine transform: x' = a*x + b*y + tx, y' = c*x + d*y + ty.
+ *
+ * Rotations follow the ODB++ convention and turn clockwise for positive angles.
+ */
+public final class Transform {
+    public static final Transform IDENTITY = new Transform(1, 0, 0, 1, 0, 0);
+
+    private final double a;
+    private final double b;
+    private final double c;
+    private final double d;
+    private final double tx;
+    private final double ty;
+
+    public Transform(double a, double b, double c, double d, double tx, double ty) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.tx = tx;
+        this.ty = ty;
+    }
+
+    public static Transform translation(double dx, double dy) {
+        return new Transform(1, 0, 0, 1, dx, dy);
+    }
+
+    /**
+     * @param angle clockwise rotation in degrees around the origin
+     */
+    public static Transform rotation(double angle) {
+        double radians = Math.toRadians(angle);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        // Snap the common right angles so that repeated panels stay on exact coordinates
+        if (angle % 90 == 0) {
+            cos = Math.rint(cos);
+            sin = Math.rint(sin);
+        }
+        return new Transform(cos, sin, -sin, cos, 0, 0);
+    }
+
+    /**
+     * @return a mirror in X (x becomes -x)
+     */
+    public static Transform mirrorX() {
+        return new Transform(-1, 0, 0, 1, 0, 0);
+    }
+
+    /**
+     * @return the transform that applies {@code inner} first and then this one
+     */
+    public Transform concat(Transform inner) {
+        return new Transform(
+                a * inner.a + b * inner.c, a * inner.b + b * inner.d,
+                c * inner.a + d * inner.c, c * inner.b + d * inner.d,
+                a * inner.tx + b * inner.ty + tx, c * inner.tx + d * inner.ty + ty);
+    }
+
+    public double applyX(double x, double y) {
+        return a * x + b * y + tx;
+    }
+
+    public double applyY(double x, double y) {
+        return c * x + d * y + ty;
+    }
+
+    /**
+     * Transforms interleaved x/y coordinates in bulk.
+     *
+     * @param source interleaved x/y coordinates
+     * @param target receives the transformed coordinates; may be the source array
+     * @param count  number of points
+     */
+    public void apply(double[] source, int sourceOffset, double[] target, int targetOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            double x = source[sourceOffset + 2 * i];
+            double y = source[sourceOffset + 2 * i + 1];
+            target[targetOffset + 2 * i] = a * x + b * y + tx;
+            target[targetOffset + 2 * i + 1] = c * x + d * y + ty;
+        }
+    }
+
+    /**
+     * @return the axis-aligned box around the transformed corners of the given box
+     */
+    public BoundingBox apply(BoundingBox box) {
+        if (box.isEmpty()) {
+            return box;
+        }
+        double[] corners = {box.getMinX(), box.getMinY(), box.getMaxX(), box.getMinY(),
+                box.getMaxX(), box.getMaxY(), box.getMinX(), box.getMaxY()};
+        apply(corners, 0, corners, 0, 4);
+        double minX = Math.min(Math.min(corners[0], corners[2]), Math.min(corners[4], corners[6]));
+        double minY = Math.min(Math.min(corners[1], corners[3]), Math.min(corners[5], corners[7]));
+        double maxX = Math.max(Math.max(corners[0], corners[2]), Math.max(corners[4], corners[6]));
+        double maxY = Math.max(Math.max(corners[1], corners[3]), Math.max(corners[5], corners[7]));
+        return new BoundingBox(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @return true if the transform mirrors (its determinant is negative)
+     */
+    public boolean isMirrored() {
+        return a * d - b * c < 0;
+    }
+
+    /**
+     * @return the clockwise rotation in degrees, in [0, 360), applied after any mirror
+     */
+    public double getRotation() {
+        double angle = Math.toDegrees(Math.atan2(b, isMirrored() ? -a : a));
+        return angle < 0 ? angle + 360 : angle;
+    }
+
+    public double getTranslateX() {
+        return tx;
+    }
+
+    public double getTranslateY() {
+        return ty;
+    }
+
+    @Override
+    public String toString() {
+        return "Transform[" + a + ", " + b + ", " + c + ", " + d + ", " + tx + ", " + ty + "]";
+    }
+}
@@ -0,0 +1,286 @@
+package com.odbpp.index;
+
+import com.odbpp.model.BoardSide;
+import com.odbpp.model.Bom;
+import com.odbpp.model.BomItem;
+import com.odbpp.model.ChosenStatus;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Step;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Joins the BOM of a step with the components placed on its component layers.
+ *
+ * The component side is the build side of a hash join: every part name of comp_+_top and comp_+_bot is hashed
+ * once to its placements (count per side and reference designators). BOM items are grouped into lines by CPN,
+ * the group's alternates ordered chosen first and then by priority, and each line probes the hash with its CPN,
+ * then the IPN and MPN of its alternates, until a part name matches.
+ *
+ * {@link #refresh(Bom)} re-joins a changed BOM against the same placements and keeps the lines whose items did
+ * not change, so editing a BOM does not rescan the components.
+ */
+public final class AssemblyIndex {
+
+    /**
+     * The components placed with one part name
+     */
+    public static final class Placements {
+        private final String partName;
+        private final List<String> refdes = new ArrayList<>();
+        private final EnumSet<BoardSide> sides = EnumSet.noneOf(BoardSide.class);
+        private int topCount;
+        private int bottomCount;
+
+        Placements(String partName) {
+            this.partName = partName;
+        }
+
+        public String getPartName() {
+            return partName;
+        }
+
+        public int getCount() {
+            return refdes.size();
+        }
+
+        public int getTopCount() {
+            return topCount;
+        }
+
+        public int getBottomCount() {
+            return bottomCount;
+        }
+
+        public List<String> getRefdes() {
+            return Collections.unmodifiableList(refdes);
+        }
+
+        public Set<BoardSide> getSides() {
+            return Collections.unmodifiableSet(sides);
+        }
+    }
+
+    /**
+     * One BOM line: the alternates sharing a CPN and the placements they matched
+     */
+    public static final class BomLine {
+        private final String cpn;
+        private final List<BomItem> alternates;
+        private final Placements placements;
+
+        BomLine(String cpn, List<BomItem> alternates, Placements placements) {
+            this.cpn = cpn;
+            this.alternates = alternates;
+            this.placements = placements;
+        }
+
+        public String getCpn() {
+            return cpn;
+        }
+
+        /**
+         * @return the items of the line, chosen first and then by ascending priority
+         */
+        public List<BomItem> getAlternates() {
+            return Collections.unmodifiableList(alternates);
+        }
+
+        /**
+         * @return the chosen item, or the highest priority alternate if none is marked chosen
+         */
+        public BomItem getChosen() {
+            return alternates.get(0);
+        }
+
+        /**
+         * @return the matched placements, or null if no component uses the part
+         */
+        public Placements getPlacements() {
+            return placements;
+        }
+
+        public int getPlacementCount() {
+            return placements == null ? 0 : placements.getCount();
+        }
+
+        public List<String> getRefdes() {
+            return placements == null ? List.of() : placements.getRefdes();
+        }
+
+        public Set<BoardSide> getSides() {
+            return placements == null ? Set.of() : placements.getSides();
+        }
+    }
+
+    private static final Comparator<BomItem> ALTERNATE_ORDER = Comparator
+            .comparing((BomItem item) -> item.getChosenStatus() != ChosenStatus.CHOSEN)
+            .thenComparingInt(BomItem::getPriority)
+            .thenComparingInt(BomItem::getItemNumber);
+
+    private final Map<String, Placements> placements;
+    private Map<String, BomLine> lines = new LinkedHashMap<>();
+    private Map<String, String> matchedParts = new HashMap<>();
+    private int reusedLines;
+
+    /**
+     * @param tables component tables keyed by layer name; comp_+_top and comp_+_bot give the side
+     */
+    public AssemblyIndex(Map<String, ComponentTable> tables, Bom bom) {
+        this.placements = new HashMap<>();
+        for (Map.Entry<String, ComponentTable> entry : new TreeMap<>(tables).entrySet()) {
+            BoardSide side = side(entry.getKey());
+            ComponentTable table = entry.getValue();
+            for (int row = 0; row < table.size(); row++) {
+                String part = table.getPartName(row);
+                if (part == null) {
+                    continue;
+                }
+                Placements placement = placements.computeIfAbsent(part, Placements::new);
+                placement.refdes.add(table.getCompName(row));
+                placement.sides.add(side);
+                if (side == BoardSide.TOP) {
+                    placement.topCount++;
+                } else if (side == BoardSide.BOTTOM) {
+                    placement.bottomCount++;
+                }
+            }
+        }
+        refresh(bom);
+    }
+
+    public static AssemblyIndex forStep(Step step) {
+        Map<String, ComponentTable> tables = new HashMap<>();
+        if (step.getLayersByName() != null) {
+            for (Layer layer : step.getLayersByName().values()) {
+                if (layer.getComponents() != null) {
+                    tables.put(layer.getName(), new ComponentTable(layer.getComponents()));
+                }
+            }
+        }
+        return new AssemblyIndex(tables, step.getBom());
+    }
+
+    private static BoardSide side(String layerName) {
+        String name = layerName.toLowerCase();
+        if (name.endsWith("_top")) {
+            return BoardSide.TOP;
+        }
+        return name.endsWith("_bot") ? BoardSide.BOTTOM : BoardSide.NONE;
+    }
+
+    /**
+     * Re-joins a new version of the BOM against the placements. Lines whose items are unchanged are kept.
+     */
+    public void refresh(Bom bom) {
+        Map<String, List<BomItem>> groups = new LinkedHashMap<>();
+        if (bom != null && bom.getItems() != null) {
+            for (BomItem item : bom.getItems()) {
+                groups.computeIfAbsent(item.getCpn() == null ? "" : item.getCpn(), cpn -> new ArrayList<>()).add(item);
+            }
+        }
+        Map<String, BomLine> previous = lines;
+        Map<String, BomLine> joined = new LinkedHashMap<>();
+        Map<String, String> matched = new HashMap<>();
+        int reused = 0;
+        for (Map.Entry<String, List<BomItem>> group : groups.entrySet()) {
+            List<BomItem> alternates = group.getValue();
+            alternates.sort(ALTERNATE_ORDER);
+            BomLine line = previous.get(group.getKey());
+            if (line != null && line.alternates.equals(alternates)) {
+                reused++;
+            } else {
+                line = new BomLine(group.getKey(), alternates, probe(group.getKey(), alternates));
+            }
+            joined.put(group.getKey(), line);
+            if (line.placements != null) {
+                matched.putIfAbsent(line.placements.partName, group.getKey());
+            }
+        }
+        this.lines = joined;
+        this.matchedParts = matched;
+        this.reusedLines = reused;
+    }
+
+    private Placements probe(String cpn, List<BomItem> alternates) {
+        Placements match = placements.get(cpn);
+        for (int i = 0; match == null && i < alternates.size(); i++) {
+            BomItem item = alternates.get(i);
+            match = item.getIpn() == null ? null : placements.get(item.getIpn());
+            if (match == null && item.getMpn() != null) {
+                match = placements.get(item.getMpn());
+            }
+        }
+        return match;
+    }
+
+    /**
+     * @return the BOM lines in BOM order
+     */
+    public List<BomLine> getLines() {
+        return new ArrayList<>(lines.values());
+    }
+
+    public BomLine getLine(String cpn) {
+        return lines.get(cpn);
+    }
+
+    /**
+     * @return the placements of a part name, or null if no component uses it
+     */
+    public Placements getPlacements(String partName) {
+        return placements.get(partName);
+    }
+
+    /**
+     * @return the number of components per part name, ordered by part name
+     */
+    public Map<String, Integer> getPartCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        placements.forEach((part, placement) -> counts.put(part, placement.getCount()));
+        return counts;
+    }
+
+    /**
+     * @return BOM lines that matched no placed part
+     */
+    public List<BomLine> getUnplacedLines() {
+        List<BomLine> unplaced = new ArrayList<>();
+        for (BomLine line : lines.values()) {
+            if (line.placements == null) {
+                unplaced.add(line);
+            }
+        }
+        return unplaced;
+    }
+
+    /**
+     * @return placed parts that no BOM line matched, ordered by part name
+     */
+    public List<Placements> getUnmatchedParts() {
+        List<Placements> unmatched = new ArrayList<>();
+        for (Placements placement : placements.values()) {
+            if (!matchedParts.containsKey(placement.partName)) {
+                unmatched.add(placement);
+            }
+        }
+        unmatched.sort(Comparator.comparing(Placements::getPartName));
+        return unmatched;
+    }
+
+    /**
+     * @return the number of lines the last refresh kept from the previous BOM
+     */
+    public int getReusedLineCount() {
+        return reusedLines;
+    }
+}
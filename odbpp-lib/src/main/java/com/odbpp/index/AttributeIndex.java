@@ -0,0 +1,255 @@
+package com.odbpp.index;
+
+import com.odbpp.model.Components;
+import com.odbpp.model.FeatureAttributes;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Step;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lazily built attribute indexes over the features of a layer or the components of a components layer.
+ *
+ * Nothing is indexed up front. The first query for an attribute scans the attribute entries once and keeps a
+ * {@link Bitmap} of the rows that carry it, a bitmap per distinct raw value, or a {@link NumericIndex} for range
+ * queries; later queries for that attribute are answered from the index. Results are bitmaps of feature indices
+ * or component rows, combined with {@link Bitmap#and(Bitmap)} and {@link Bitmap#or(Bitmap)}.
+ *
+ * Values are compared raw: option and text attributes by their option or text number, numbers in the units of
+ * the file. The index is safe for concurrent queries but does not follow later changes to its source.
+ */
+public final class AttributeIndex {
+
+    /**
+     * Attribute entries of the rows, in the CSR layout shared by FeatureAttributes and ComponentTable
+     */
+    private interface Source {
+        int start(int row);
+
+        int end(int row);
+
+        int name(int entry);
+
+        String value(int entry);
+    }
+
+    private final int size;
+    private final List<String> names;
+    private final Source source;
+    private volatile Map<String, Integer> nameIndex;
+
+    private final Map<Integer, Bitmap> presence = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, Bitmap>> values = new ConcurrentHashMap<>();
+    private final Map<Integer, NumericIndex> numbers = new ConcurrentHashMap<>();
+
+    public AttributeIndex(FeatureAttributes attributes) {
+        this(attributes.getFeatureCount(), attributes.getNames(), new Source() {
+            public int start(int row) {
+                return attributes.getStart(row);
+            }
+
+            public int end(int row) {
+                return attributes.getStart(row + 1);
+            }
+
+            public int name(int entry) {
+                return attributes.getNameIndex(entry);
+            }
+
+            public String value(int entry) {
+                return attributes.getRawValue(entry);
+            }
+        });
+    }
+
+    /**
+     * @param attributeNames the attribute name table of the components file
+     */
+    public AttributeIndex(ComponentTable table, List<String> attributeNames) {
+        this(table.size(), attributeNames, new Source() {
+            public int start(int row) {
+                return table.getFirstAttribute(row);
+            }
+
+            public int end(int row) {
+                return table.getFirstAttribute(row) + table.getAttributeCount(row);
+            }
+
+            public int name(int entry) {
+                return table.getAttributeIndexAt(entry);
+            }
+
+            public String value(int entry) {
+                return table.getAttributeValueAt(entry);
+            }
+        });
+    }
+
+    private AttributeIndex(int size, List<String> names, Source source) {
+        this.size = size;
+        this.names = names;
+        this.source = source;
+    }
+
+    public static AttributeIndex forComponents(Components components) {
+        return new AttributeIndex(new ComponentTable(components), components.getAttributeNames());
+    }
+
+    /**
+     * Creates an index for the features of every layer of the step. Creating them is cheap; each is built on
+     * its first query.
+     *
+     * @return indexes keyed by layer name
+     */
+    public static Map<String, AttributeIndex> forFeatures(Step step) {
+        Map<String, AttributeIndex> indexes = new HashMap<>();
+        if (step.getLayersByName() == null) {
+            return indexes;
+        }
+        for (Layer layer : step.getLayersByName().values()) {
+            if (layer.getFeatures() != null) {
+                indexes.put(layer.getName(), new AttributeIndex(layer.getFeatures().getAttributes()));
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the number of rows (features or components) covered by the index
+     */
+    public int size() {
+        return size;
+    }
+
+    public Bitmap all() {
+        return Bitmap.range(size);
+    }
+
+    /**
+     * @return the rows that carry the attribute, with or without a value
+     */
+    public Bitmap has(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return Bitmap.empty();
+        }
+        return presence.computeIfAbsent(index, this::buildPresence);
+    }
+
+    /**
+     * @return the rows whose raw value of the attribute equals value
+     */
+    public Bitmap equalTo(String name, String value) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return Bitmap.empty();
+        }
+        Bitmap rows = values.computeIfAbsent(index, this::buildValues).get(value);
+        return rows == null ? Bitmap.empty() : rows;
+    }
+
+    /**
+     * @return the sorted index over the numeric values of the attribute
+     */
+    public NumericIndex numeric(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return new NumericIndex(new int[0], new double[0]);
+        }
+        return numbers.computeIfAbsent(index, this::buildNumbers);
+    }
+
+    /**
+     * @return the rows whose value of the attribute lies in [min, max]
+     */
+    public Bitmap between(String name, double min, double max) {
+        return numeric(name).between(min, max);
+    }
+
+    public Bitmap greaterThan(String name, double min) {
+        return numeric(name).greaterThan(min);
+    }
+
+    public Bitmap lessThan(String name, double max) {
+        return numeric(name).lessThan(max);
+    }
+
+    private int indexOf(String name) {
+        Map<String, Integer> index = nameIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i) != null) {
+                    index.putIfAbsent(names.get(i), i);
+                }
+            }
+            nameIndex = index;
+        }
+        Integer result = index.get(name);
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * @return the first entry of the row with the attribute name, or -1
+     */
+    private int find(int row, int name) {
+        for (int entry = source.start(row); entry < source.end(row); entry++) {
+            if (source.name(entry) == name) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private Bitmap buildPresence(int name) {
+        Bitmap.Builder builder = new Bitmap.Builder();
+        for (int row = 0; row < size; row++) {
+            if (find(row, name) >= 0) {
+                builder.add(row);
+            }
+        }
+        return builder.build();
+    }
+
+    private Map<String, Bitmap> buildValues(int name) {
+        Map<String, Bitmap.Builder> builders = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            int entry = find(row, name);
+            String value = entry < 0 ? null : source.value(entry);
+            if (value != null) {
+                builders.computeIfAbsent(value, v -> new Bitmap.Builder()).add(row);
+            }
+        }
+        Map<String, Bitmap> result = new HashMap<>();
+        builders.forEach((value, builder) -> result.put(value, builder.build()));
+        return result;
+    }
+
+    private NumericIndex buildNumbers(int name) {
+        IntList rows = new IntList();
+        double[] parsed = new double[16];
+        for (int row = 0; row < size; row++) {
+            int entry = find(row, name);
+            String value = entry < 0 ? null : source.value(entry);
+            if (value == null) {
+                continue;
+            }
+            double number;
+            try {
+                number = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (rows.size() == parsed.length) {
+                parsed = Arrays.copyOf(parsed, parsed.length * 2);
+            }
+            parsed[rows.size()] = number;
+            rows.add(row);
+        }
+        return new NumericIndex(rows.toArray(), Arrays.copyOf(parsed, rows.size()));
+    }
+}
@@ -0,0 +1,390 @@
+package com.odbpp.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable compressed set of non-negative ints, laid out like a roaring bitmap.
+ *
+ * Values are grouped by their upper 16 bits into chunks of 65536. A chunk holding at most 4096 values is stored
+ * as a sorted char array, a denser chunk as 1024 words of bits, so sparse sets cost about two bytes per value
+ * and dense sets one bit. AND, OR and AND NOT work chunk by chunk and never expand a set to its full range.
+ */
+public final class Bitmap {
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = 1024;
+    private static final Bitmap EMPTY = new Bitmap(new char[0], new Object[0], 0);
+
+    // Upper 16 bits of the values of each chunk, increasing
+    private final char[] keys;
+    // char[] (sorted low 16 bits) or long[WORDS]
+    private final Object[] containers;
+    private final int cardinality;
+
+    private Bitmap(char[] keys, Object[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    public static Bitmap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param values values in strictly increasing order
+     */
+    public static Bitmap of(int[] values) {
+        return of(values, 0, values.length);
+    }
+
+    /**
+     * @param values array holding values in strictly increasing order between from and to
+     */
+    public static Bitmap of(int[] values, int from, int to) {
+        Builder builder = new Builder();
+        for (int i = from; i < to; i++) {
+            builder.add(values[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the set of all values from 0 to size - 1
+     */
+    public static Bitmap range(int size) {
+        Builder builder = new Builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(i);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects values in strictly increasing order.
+     */
+    public static final class Builder {
+        private char[] keys = new char[4];
+        private Object[] containers = new Object[4];
+        private int chunks;
+        private int cardinality;
+        private final char[] buffer = new char[ARRAY_LIMIT];
+        private long[] words;
+        private int bufferSize;
+        private int key = -1;
+        private int last = -1;
+
+        public Builder add(int value) {
+            if (value <= last) {
+                throw new IllegalArgumentException("Values must be added in increasing order: " + value + " after " + last);
+            }
+            last = value;
+            int high = value >>> 16;
+            if (high != key) {
+                flush();
+                key = high;
+            }
+            char low = (char) value;
+            if (words != null) {
+                words[low >>> 6] |= 1L << low;
+            } else if (bufferSize < ARRAY_LIMIT) {
+                buffer[bufferSize] = low;
+            } else {
+                words = new long[WORDS];
+                for (int i = 0; i < bufferSize; i++) {
+                    words[buffer[i] >>> 6] |= 1L << buffer[i];
+                }
+                words[low >>> 6] |= 1L << low;
+            }
+            bufferSize++;
+            return this;
+        }
+
+        private void flush() {
+            if (key < 0 || bufferSize == 0) {
+                return;
+            }
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, chunks * 2);
+                containers = Arrays.copyOf(containers, chunks * 2);
+            }
+            keys[chunks] = (char) key;
+            containers[chunks] = words != null ? words : Arrays.copyOf(buffer, bufferSize);
+            chunks++;
+            cardinality += bufferSize;
+            words = null;
+            bufferSize = 0;
+        }
+
+        public Bitmap build() {
+            flush();
+            key = -1;
+            last = -1;
+            Bitmap bitmap = chunks == 0 ? EMPTY
+                    : new Bitmap(Arrays.copyOf(keys, chunks), Arrays.copyOf(containers, chunks), cardinality);
+            chunks = 0;
+            cardinality = 0;
+            keys = new char[4];
+            containers = new Object[4];
+            return bitmap;
+        }
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int chunk = Arrays.binarySearch(keys, (char) (value >>> 16));
+        return chunk >= 0 && contains(containers[chunk], (char) value);
+    }
+
+    public void forEach(IntConsumer consumer) {
+        for (int chunk = 0; chunk < keys.length; chunk++) {
+            int high = keys[chunk] << 16;
+            Object container = containers[chunk];
+            if (container instanceof char[]) {
+                for (char low : (char[]) container) {
+                    consumer.accept(high | low);
+                }
+            } else {
+                long[] words = (long[]) container;
+                for (int w = 0; w < WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        consumer.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the values in increasing order
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality];
+        int[] count = new int[1];
+        forEach(value -> result[count[0]++] = value);
+        return result;
+    }
+
+    public Bitmap and(Bitmap other) {
+        Merge merge = new Merge(Math.min(keys.length, other.keys.length));
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                merge.add(keys[i], and(containers[i], other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return merge.build();
+    }
+
+    public Bitmap or(Bitmap other) {
+        Merge merge = new Merge(keys.length + other.keys.length);
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                merge.add(keys[i], containers[i]);
+                i++;
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                merge.add(other.keys[j], other.containers[j]);
+                j++;
+            } else {
+                merge.add(keys[i], or(containers[i], other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return merge.build();
+    }
+
+    public Bitmap andNot(Bitmap other) {
+        Merge merge = new Merge(keys.length);
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.keys.length && other.keys[j] == keys[i]) {
+                merge.add(keys[i], andNot(containers[i], other.containers[j]));
+            } else {
+                merge.add(keys[i], containers[i]);
+            }
+        }
+        return merge.build();
+    }
+
+    /**
+     * Collects result chunks, dropping empty ones
+     */
+    private static final class Merge {
+        private final char[] keys;
+        private final Object[] containers;
+        private int chunks;
+        private int cardinality;
+
+        Merge(int capacity) {
+            keys = new char[capacity];
+            containers = new Object[capacity];
+        }
+
+        void add(char key, Object container) {
+            int size = cardinality(container);
+            if (size > 0) {
+                keys[chunks] = key;
+                containers[chunks++] = container;
+                cardinality += size;
+            }
+        }
+
+        Bitmap build() {
+            return chunks == 0 ? EMPTY
+                    : new Bitmap(Arrays.copyOf(keys, chunks), Arrays.copyOf(containers, chunks), cardinality);
+        }
+    }
+
+    private static boolean contains(Object container, char low) {
+        if (container instanceof char[]) {
+            return Arrays.binarySearch((char[]) container, low) >= 0;
+        }
+        return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    private static int cardinality(Object container) {
+        if (container instanceof char[]) {
+            return ((char[]) container).length;
+        }
+        int count = 0;
+        for (long word : (long[]) container) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static Object and(Object a, Object b) {
+        if (a instanceof char[] || b instanceof char[]) {
+            char[] array = (char[]) (a instanceof char[] ? a : b);
+            Object other = array == a ? b : a;
+            return filter(array, other, true);
+        }
+        long[] x = (long[]) a;
+        long[] y = (long[]) b;
+        long[] words = new long[WORDS];
+        for (int w = 0; w < WORDS; w++) {
+            words[w] = x[w] & y[w];
+        }
+        return compact(words);
+    }
+
+    private static Object or(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]
+                && ((char[]) a).length + ((char[]) b).length <= ARRAY_LIMIT) {
+            char[] x = (char[]) a;
+            char[] y = (char[]) b;
+            char[] result = new char[x.length + y.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < x.length || j < y.length) {
+                if (j == y.length || (i < x.length && x[i] < y[j])) {
+                    result[n++] = x[i++];
+                } else if (i == x.length || x[i] > y[j]) {
+                    result[n++] = y[j++];
+                } else {
+                    result[n++] = x[i++];
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, n);
+        }
+        long[] words = words(a);
+        if (b instanceof char[]) {
+            for (char low : (char[]) b) {
+                words[low >>> 6] |= 1L << low;
+            }
+        } else {
+            long[] y = (long[]) b;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] |= y[w];
+            }
+        }
+        return words;
+    }
+
+    private static Object andNot(Object a, Object b) {
+        if (a instanceof char[]) {
+            return filter((char[]) a, b, false);
+        }
+        long[] words = ((long[]) a).clone();
+        if (b instanceof char[]) {
+            for (char low : (char[]) b) {
+                words[low >>> 6] &= ~(1L << low);
+            }
+        } else {
+            long[] y = (long[]) b;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] &= ~y[w];
+            }
+        }
+        return compact(words);
+    }
+
+    private static char[] filter(char[] array, Object other, boolean keep) {
+        char[] result = new char[array.length];
+        int n = 0;
+        for (char low : array) {
+            if (contains(other, low) == keep) {
+                result[n++] = low;
+            }
+        }
+        return n == array.length ? array : Arrays.copyOf(result, n);
+    }
+
+    private static long[] words(Object container) {
+        if (container instanceof long[]) {
+            return ((long[]) container).clone();
+        }
+        long[] words = new long[WORDS];
+        for (char low : (char[]) container) {
+            words[low >>> 6] |= 1L << low;
+        }
+        return words;
+    }
+
+    /**
+     * @return the words as a sorted array if they hold few enough values
+     */
+    private static Object compact(long[] words) {
+        int count = cardinality(words);
+        if (count > ARRAY_LIMIT) {
+            return words;
+        }
+        char[] array = new char[count];
+        int n = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                array[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return array;
+    }
+}
@@ -0,0 +1,145 @@
+package com.odbpp.index;
+
+import com.odbpp.model.Component;
+import com.odbpp.model.Components;
+import com.odbpp.model.Step;
+import com.odbpp.model.ToeprintRecord;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nearest-neighbour index over the components of one component layer (e.g. comp_+_top).
+ *
+ * Component centroids and toeprint positions are indexed in two separate KD-trees. Component queries return
+ * indices into {@link Components#getComponents()}; toeprint queries return toeprint indices, which are a flat
+ * numbering of all toeprint records of the layer in component order. Use {@link #getToeprintOwner(int)} and
+ * {@link #getToeprint(int)} to resolve them.
+ *
+ * The index is a snapshot: it must be rebuilt after components are added, removed or moved.
+ */
+public final class ComponentIndex {
+    private final List<Component> components;
+    private final KdTree componentTree;
+    private final KdTree toeprintTree;
+    private final int[] toeprintOwner;
+    private final int[] toeprintOffsets;
+
+    public ComponentIndex(Components components) {
+        this.components = components.getComponents();
+        int count = this.components.size();
+        double[] cx = new double[count];
+        double[] cy = new double[count];
+        toeprintOffsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            Component component = this.components.get(i);
+            cx[i] = component.getX();
+            cy[i] = component.getY();
+            List<ToeprintRecord> toeprints = component.getToeprintRecords();
+            toeprintOffsets[i + 1] = toeprintOffsets[i] + (toeprints == null ? 0 : toeprints.size());
+        }
+        componentTree = new KdTree(cx, cy);
+
+        int toeprintCount = toeprintOffsets[count];
+        double[] tx = new double[toeprintCount];
+        double[] ty = new double[toeprintCount];
+        toeprintOwner = new int[toeprintCount];
+        for (int i = 0; i < count; i++) {
+            List<ToeprintRecord> toeprints = this.components.get(i).getToeprintRecords();
+            for (int j = toeprintOffsets[i]; j < toeprintOffsets[i + 1]; j++) {
+                ToeprintRecord toeprint = toeprints.get(j - toeprintOffsets[i]);
+                tx[j] = toeprint.getX();
+                ty[j] = toeprint.getY();
+                toeprintOwner[j] = i;
+            }
+        }
+        toeprintTree = new KdTree(tx, ty);
+    }
+
+    /**
+     * Builds an index for every layer of the step that has a components file, in parallel.
+     *
+     * @return indexes keyed by layer name, e.g. comp_+_top and comp_+_bot
+     */
+    public static Map<String, ComponentIndex> forStep(Step step) {
+        Map<String, ComponentIndex> indexes = new ConcurrentHashMap<>();
+        if (step.getLayersByName() == null) {
+            return indexes;
+        }
+        step.getLayersByName().values().parallelStream()
+                .filter(layer -> layer.getComponents() != null)
+                .forEach(layer -> indexes.put(layer.getName(), new ComponentIndex(layer.getComponents())));
+        return indexes;
+    }
+
+    public int getComponentCount() {
+        return components.size();
+    }
+
+    public int getToeprintCount() {
+        return toeprintOwner.length;
+    }
+
+    public Component getComponent(int componentIndex) {
+        return components.get(componentIndex);
+    }
+
+    /**
+     * @return the index of the component that owns the given toeprint
+     */
+    public int getToeprintOwner(int toeprintIndex) {
+        return toeprintOwner[toeprintIndex];
+    }
+
+    public ToeprintRecord getToeprint(int toeprintIndex) {
+        int owner = toeprintOwner[toeprintIndex];
+        return components.get(owner).getToeprintRecords().get(toeprintIndex - toeprintOffsets[owner]);
+    }
+
+    /**
+     * @return the index of the component whose centroid is nearest to (x, y), or -1 if there are none
+     */
+    public int nearestComponent(double x, double y) {
+        return componentTree.nearest(x, y);
+    }
+
+    public int[] nearestComponents(double x, double y, int k) {
+        return componentTree.nearest(x, y, k);
+    }
+
+    public int[] componentsWithin(double x, double y, double radius) {
+        return componentTree.withinRadius(x, y, radius);
+    }
+
+    public int[] nearestComponents(double[] xs, double[] ys) {
+        return componentTree.nearest(xs, ys);
+    }
+
+    public int[][] componentsWithin(double[] xs, double[] ys, double radius) {
+        return componentTree.withinRadius(xs, ys, radius);
+    }
+
+    /**
+     * @return the toeprint index of the pin nearest to (x, y), or -1 if there are none
+     */
+    public int nearestToeprint(double x, double y) {
+        return toeprintTree.nearest(x, y);
+    }
+
+    public int[] nearestToeprints(double x, double y, int k) {
+        return toeprintTree.nearest(x, y, k);
+    }
+
+    public int[] toeprintsWithin(double x, double y, double radius) {
+        return toeprintTree.withinRadius(x, y, radius);
+    }
+
+    public int[] nearestToeprints(double[] xs, double[] ys) {
+        return toeprintTree.nearest(xs, ys);
+    }
+
+    public int[][] toeprintsWithin(double[] xs, double[] ys, double radius) {
+        return toeprintTree.withinRadius(xs, ys, radius);
+    }
+}
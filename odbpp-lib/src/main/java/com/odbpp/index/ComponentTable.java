@@ -0,0 +1,419 @@
+package com.odbpp.index;
+
+import com.odbpp.model.AttributeType;
+import com.odbpp.model.Component;
+import com.odbpp.model.ComponentAttribute;
+import com.odbpp.model.Components;
+import com.odbpp.model.MirrorType;
+import com.odbpp.model.PropertyRecord;
+import com.odbpp.model.ToeprintRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar snapshot of a components file with hash indexes by reference designator, part name and package.
+ *
+ * Every component is a row; its fields live in primitive or interned String columns, and its toeprints,
+ * attributes and properties are ranges of shared arrays addressed through offset columns (CSR). A row costs a
+ * few dozen bytes instead of a Component object with its own lists and map, and lookups by refdes, part or
+ * package are O(1) hash probes rather than list scans.
+ *
+ * The table does not follow later changes to the source {@link Components}; rebuild it after edits.
+ */
+public final class ComponentTable {
+    private final int size;
+    private final int[] pkgRef;
+    private final double[] x;
+    private final double[] y;
+    private final double[] rotation;
+    private final boolean[] mirrored;
+    private final String[] compName;
+    private final String[] partName;
+    private final String[] uniqueId;
+
+    private final int[] toeprintOffsets;
+    private final int[] toeprintPin;
+    private final double[] toeprintX;
+    private final double[] toeprintY;
+    private final double[] toeprintRotation;
+    private final boolean[] toeprintMirrored;
+    private final int[] toeprintNet;
+    private final int[] toeprintSubnet;
+    private final String[] toeprintName;
+
+    private final int[] attributeOffsets;
+    private final int[] attributeIndex;
+    private final AttributeType[] attributeType;
+    private final String[] attributeValue;
+
+    private final int[] propertyOffsets;
+    private final PropertyRecord[] properties;
+
+    // Open addressing table of row + 1 by compName, 0 for empty slots
+    private final int[] refdesSlots;
+
+    private final Map<String, Integer> partGroups = new HashMap<>();
+    private final int[] partOffsets;
+    private final int[] partRows;
+    private final int[] packageOffsets;
+    private final int[] packageRows;
+
+    public ComponentTable(Components components) {
+        List<Component> list = components.getComponents();
+        size = list.size();
+        pkgRef = new int[size];
+        x = new double[size];
+        y = new double[size];
+        rotation = new double[size];
+        mirrored = new boolean[size];
+        compName = new String[size];
+        partName = new String[size];
+        uniqueId = new String[size];
+        toeprintOffsets = new int[size + 1];
+        attributeOffsets = new int[size + 1];
+        propertyOffsets = new int[size + 1];
+
+        Map<String, String> interned = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            Component component = list.get(row);
+            pkgRef[row] = component.getPkgRef();
+            x[row] = component.getX();
+            y[row] = component.getY();
+            rotation[row] = component.getRotation();
+            mirrored[row] = component.getMirror() == MirrorType.MIRRORED;
+            compName[row] = intern(interned, component.getCompName());
+            partName[row] = intern(interned, component.getPartName());
+            uniqueId[row] = component.getUniqueId();
+            toeprintOffsets[row + 1] = toeprintOffsets[row] + count(component.getToeprintRecords());
+            attributeOffsets[row + 1] = attributeOffsets[row] + count(component.getAttributes());
+            propertyOffsets[row + 1] = propertyOffsets[row] + count(component.getPropertyRecords());
+        }
+
+        int toeprintCount = toeprintOffsets[size];
+        toeprintPin = new int[toeprintCount];
+        toeprintX = new double[toeprintCount];
+        toeprintY = new double[toeprintCount];
+        toeprintRotation = new double[toeprintCount];
+        toeprintMirrored = new boolean[toeprintCount];
+        toeprintNet = new int[toeprintCount];
+        toeprintSubnet = new int[toeprintCount];
+        toeprintName = new String[toeprintCount];
+        attributeIndex = new int[attributeOffsets[size]];
+        attributeType = new AttributeType[attributeOffsets[size]];
+        attributeValue = new String[attributeOffsets[size]];
+        properties = new PropertyRecord[propertyOffsets[size]];
+
+        for (int row = 0; row < size; row++) {
+            Component component = list.get(row);
+            int t = toeprintOffsets[row];
+            if (component.getToeprintRecords() != null) {
+                for (ToeprintRecord toeprint : component.getToeprintRecords()) {
+                    toeprintPin[t] = toeprint.getPinNumber();
+                    toeprintX[t] = toeprint.getX();
+                    toeprintY[t] = toeprint.getY();
+                    toeprintRotation[t] = toeprint.getRotation();
+                    toeprintMirrored[t] = toeprint.getMirror() == MirrorType.MIRRORED;
+                    toeprintNet[t] = toeprint.getNetNumber();
+                    toeprintSubnet[t] = toeprint.getSubnetNumber();
+                    toeprintName[t] = intern(interned, toeprint.getName());
+                    t++;
+                }
+            }
+            int a = attributeOffsets[row];
+            if (component.getAttributes() != null) {
+                for (ComponentAttribute attribute : component.getAttributes()) {
+                    attributeIndex[a] = attribute.getAttributeIndex();
+                    attributeType[a] = attribute.getType();
+                    attributeValue[a] = intern(interned, attribute.getValue());
+                    a++;
+                }
+            }
+            if (component.getPropertyRecords() != null) {
+                int p = propertyOffsets[row];
+                for (PropertyRecord property : component.getPropertyRecords()) {
+                    properties[p++] = property;
+                }
+            }
+        }
+
+        refdesSlots = new int[Integer.highestOneBit(Math.max(1, size) * 2) * 2];
+        for (int row = 0; row < size; row++) {
+            if (compName[row] != null && indexOf(compName[row]) < 0) {
+                int slot = slot(compName[row]);
+                while (refdesSlots[slot] != 0) {
+                    slot = (slot + 1) & (refdesSlots.length - 1);
+                }
+                refdesSlots[slot] = row + 1;
+            }
+        }
+
+        // Group rows by part name and by package reference, both as CSR
+        int[] partOfRow = new int[size];
+        for (int row = 0; row < size; row++) {
+            String part = partName[row] == null ? "" : partName[row];
+            Integer group = partGroups.get(part);
+            if (group == null) {
+                group = partGroups.size();
+                partGroups.put(part, group);
+            }
+            partOfRow[row] = group;
+        }
+        partOffsets = new int[partGroups.size() + 1];
+        partRows = new int[size];
+        group(partOfRow, partOffsets, partRows);
+
+        int maxPackage = -1;
+        for (int row = 0; row < size; row++) {
+            maxPackage = Math.max(maxPackage, pkgRef[row]);
+        }
+        int[] packageOfRow = new int[size];
+        for (int row = 0; row < size; row++) {
+            packageOfRow[row] = pkgRef[row] < 0 ? -1 : pkgRef[row];
+        }
+        packageOffsets = new int[maxPackage + 2];
+        packageRows = new int[size];
+        group(packageOfRow, packageOffsets, packageRows);
+    }
+
+    /**
+     * Fills a CSR grouping of rows by group number; rows with a negative group are left out.
+     */
+    private static void group(int[] groupOfRow, int[] offsets, int[] rows) {
+        for (int group : groupOfRow) {
+            if (group >= 0) {
+                offsets[group + 1]++;
+            }
+        }
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int row = 0; row < groupOfRow.length; row++) {
+            if (groupOfRow[row] >= 0) {
+                rows[next[groupOfRow[row]]++] = row;
+            }
+        }
+    }
+
+    private static String intern(Map<String, String> interned, String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = interned.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    private static int count(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    private int slot(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (refdesSlots.length - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the row of the component with the given reference designator, or -1
+     */
+    public int indexOf(String refdes) {
+        if (refdes == null) {
+            return -1;
+        }
+        int slot = slot(refdes);
+        while (refdesSlots[slot] != 0) {
+            int row = refdesSlots[slot] - 1;
+            if (refdes.equals(compName[row])) {
+                return row;
+            }
+            slot = (slot + 1) & (refdesSlots.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the rows of all components with the given part name
+     */
+    public int[] rowsOfPart(String part) {
+        Integer group = partGroups.get(part);
+        return group == null ? new int[0] : Arrays.copyOfRange(partRows, partOffsets[group], partOffsets[group + 1]);
+    }
+
+    /**
+     * @return the rows of all components referencing the given eda/data package
+     */
+    public int[] rowsOfPackage(int packageRef) {
+        if (packageRef < 0 || packageRef + 1 >= packageOffsets.length) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(packageRows, packageOffsets[packageRef], packageOffsets[packageRef + 1]);
+    }
+
+    public int getPkgRef(int row) {
+        return pkgRef[row];
+    }
+
+    public double getX(int row) {
+        return x[row];
+    }
+
+    public double getY(int row) {
+        return y[row];
+    }
+
+    public double getRotation(int row) {
+        return rotation[row];
+    }
+
+    public boolean isMirrored(int row) {
+        return mirrored[row];
+    }
+
+    public String getCompName(int row) {
+        return compName[row];
+    }
+
+    public String getPartName(int row) {
+        return partName[row];
+    }
+
+    public String getUniqueId(int row) {
+        return uniqueId[row];
+    }
+
+    /**
+     * @return the index of the row's first toeprint in the toeprint columns
+     */
+    public int getFirstToeprint(int row) {
+        return toeprintOffsets[row];
+    }
+
+    public int getToeprintCount(int row) {
+        return toeprintOffsets[row + 1] - toeprintOffsets[row];
+    }
+
+    public int getToeprintPin(int toeprint) {
+        return toeprintPin[toeprint];
+    }
+
+    public double getToeprintX(int toeprint) {
+        return toeprintX[toeprint];
+    }
+
+    public double getToeprintY(int toeprint) {
+        return toeprintY[toeprint];
+    }
+
+    public double getToeprintRotation(int toeprint) {
+        return toeprintRotation[toeprint];
+    }
+
+    public boolean isToeprintMirrored(int toeprint) {
+        return toeprintMirrored[toeprint];
+    }
+
+    public int getToeprintNet(int toeprint) {
+        return toeprintNet[toeprint];
+    }
+
+    public int getToeprintSubnet(int toeprint) {
+        return toeprintSubnet[toeprint];
+    }
+
+    public String getToeprintName(int toeprint) {
+        return toeprintName[toeprint];
+    }
+
+    /**
+     * @return the index of the row's first attribute in the attribute columns
+     */
+    public int getFirstAttribute(int row) {
+        return attributeOffsets[row];
+    }
+
+    public int getAttributeCount(int row) {
+        return attributeOffsets[row + 1] - attributeOffsets[row];
+    }
+
+    /**
+     * @return the attribute name index of an entry of the attribute columns
+     */
+    public int getAttributeIndexAt(int entry) {
+        return attributeIndex[entry];
+    }
+
+    /**
+     * @return the raw value of an entry of the attribute columns, null for a boolean attribute
+     */
+    public String getAttributeValueAt(int entry) {
+        return attributeValue[entry];
+    }
+
+    public boolean hasAttribute(int row, int attribute) {
+        for (int a = attributeOffsets[row]; a < attributeOffsets[row + 1]; a++) {
+            if (attributeIndex[a] == attribute) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the raw attribute value, or null if the attribute is not set or is boolean
+     */
+    public String getAttributeValue(int row, int attribute) {
+        for (int a = attributeOffsets[row]; a < attributeOffsets[row + 1]; a++) {
+            if (attributeIndex[a] == attribute) {
+                return attributeValue[a];
+            }
+        }
+        return null;
+    }
+
+    public List<PropertyRecord> getProperties(int row) {
+        return Arrays.asList(properties).subList(propertyOffsets[row], propertyOffsets[row + 1]);
+    }
+
+    /**
+     * Materializes a row as a Component, e.g. to hand a single result to code using the object model.
+     */
+    public Component toComponent(int row) {
+        Component component = new Component();
+        component.setPkgRef(pkgRef[row]);
+        component.setX(x[row]);
+        component.setY(y[row]);
+        component.setRotation(rotation[row]);
+        component.setMirror(mirrored[row] ? MirrorType.MIRRORED : MirrorType.NOT_MIRRORED);
+        component.setCompName(compName[row]);
+        component.setPartName(partName[row]);
+        component.setUniqueId(uniqueId[row]);
+        for (int t = toeprintOffsets[row]; t < toeprintOffsets[row + 1]; t++) {
+            ToeprintRecord toeprint = new ToeprintRecord();
+            toeprint.setPinNumber(toeprintPin[t]);
+            toeprint.setX(toeprintX[t]);
+            toeprint.setY(toeprintY[t]);
+            toeprint.setRotation(toeprintRotation[t]);
+            toeprint.setMirror(toeprintMirrored[t] ? MirrorType.MIRRORED : MirrorType.NOT_MIRRORED);
+            toeprint.setNetNumber(toeprintNet[t]);
+            toeprint.setSubnetNumber(toeprintSubnet[t]);
+            toeprint.setName(toeprintName[t]);
+            component.addToeprintRecord(toeprint);
+        }
+        for (int a = attributeOffsets[row]; a < attributeOffsets[row + 1]; a++) {
+            ComponentAttribute attribute = new ComponentAttribute();
+            attribute.setAttributeIndex(attributeIndex[a]);
+            attribute.setType(attributeType[a]);
+            attribute.setValue(attributeValue[a]);
+            component.addAttribute(attribute);
+        }
+        component.setPropertyRecords(new ArrayList<>(getProperties(row)));
+        return component;
+    }
+}
@@ -0,0 +1,89 @@
+package com.odbpp.index;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free union-find (disjoint sets) over the integers 0..n-1.
+ *
+ * Parents live in an {@link AtomicIntegerArray}. A union links the root with the larger index under the root with
+ * the smaller one using compare-and-set, retrying if another thread changed either root in the meantime; finds
+ * compress paths by halving, also with compare-and-set. Because links always point to smaller indices no cycle
+ * can form, and the representative of each set is its smallest element once all unions have completed.
+ */
+public final class ConcurrentUnionFind {
+    private final AtomicIntegerArray parent;
+
+    public ConcurrentUnionFind(int size) {
+        parent = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    public int size() {
+        return parent.length();
+    }
+
+    public int find(int i) {
+        while (true) {
+            int p = parent.get(i);
+            if (p == i) {
+                return i;
+            }
+            int grandparent = parent.get(p);
+            if (grandparent != p) {
+                parent.compareAndSet(i, p, grandparent);
+            }
+            i = p;
+        }
+    }
+
+    /**
+     * Merges the sets of a and b.
+     *
+     * @return true if they were in different sets
+     */
+    public boolean union(int a, int b) {
+        while (true) {
+            int ra = find(a);
+            int rb = find(b);
+            if (ra == rb) {
+                return false;
+            }
+            int low = Math.min(ra, rb);
+            int high = Math.max(ra, rb);
+            if (parent.compareAndSet(high, high, low)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean connected(int a, int b) {
+        while (true) {
+            int ra = find(a);
+            int rb = find(b);
+            if (ra == rb) {
+                return true;
+            }
+            // ra is still a root, so no concurrent union has joined the sets yet
+            if (parent.get(ra) == ra) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Numbers the sets consecutively in order of their smallest element. Must not run concurrently with unions.
+     *
+     * @param labels receives the set number of each element
+     * @return the number of sets
+     */
+    public int label(int[] labels) {
+        int count = 0;
+        for (int i = 0; i < labels.length; i++) {
+            int root = find(i);
+            labels[i] = root == i ? count++ : labels[root];
+        }
+        return count;
+    }
+}
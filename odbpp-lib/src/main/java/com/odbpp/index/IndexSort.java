@@ -0,0 +1,74 @@
+package com.odbpp.index;
+
+/**
+ * Sorts index arrays by a primitive key without boxing. Keys must not be NaN.
+ */
+public final class IndexSort {
+    private static final int INSERTION_THRESHOLD = 16;
+
+    private IndexSort() {
+    }
+
+    /**
+     * @return the indices 0..key.length-1 ordered by ascending key
+     */
+    public static int[] sortedIndices(double[] key) {
+        int[] indices = new int[key.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        sort(indices, key);
+        return indices;
+    }
+
+    /**
+     * Sorts the indices in place by ascending key[index].
+     */
+    public static void sort(int[] indices, double[] key) {
+        sort(indices, key, 0, indices.length - 1);
+    }
+
+    private static void sort(int[] a, double[] key, int lo, int hi) {
+        while (hi - lo > INSERTION_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            // Median of three as pivot
+            if (key[a[mid]] < key[a[lo]]) swap(a, lo, mid);
+            if (key[a[hi]] < key[a[lo]]) swap(a, lo, hi);
+            if (key[a[hi]] < key[a[mid]]) swap(a, mid, hi);
+            double pivot = key[a[mid]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[a[i]] < pivot) i++;
+                while (key[a[j]] > pivot) j--;
+                if (i <= j) {
+                    swap(a, i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound the stack depth
+            if (j - lo < hi - i) {
+                sort(a, key, lo, j);
+                lo = i;
+            } else {
+                sort(a, key, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            int value = a[i];
+            double k = key[value];
+            int j = i - 1;
+            while (j >= lo && key[a[j]] > k) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
@@ -0,0 +1,280 @@
+package com.odbpp.index;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Static two-dimensional KD-tree over a set of points.
+ *
+ * The tree is stored implicitly in flat arrays: the points are reordered so that the median of every
+ * range [lo, hi) sits at (lo + hi) / 2 and splits the range on x at even depths and on y at odd depths.
+ * No node objects are allocated, which keeps the index compact for hundreds of thousands of points.
+ *
+ * All queries return the indices of the points in the arrays the tree was built from.
+ */
+public final class KdTree {
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] ids;
+
+    /**
+     * Builds a tree over the given coordinates. The arrays are copied and are not modified.
+     *
+     * @param x x coordinates
+     * @param y y coordinates, same length as x
+     */
+    public KdTree(double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Coordinate arrays differ in length: " + x.length + " != " + y.length);
+        }
+        this.xs = Arrays.copyOf(x, x.length);
+        this.ys = Arrays.copyOf(y, y.length);
+        this.ids = new int[x.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        build(0, ids.length, 0);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the index of the point nearest to (x, y), or -1 if the tree is empty
+     */
+    public int nearest(double x, double y) {
+        if (ids.length == 0) {
+            return -1;
+        }
+        double[] best = {Double.POSITIVE_INFINITY};
+        int[] bestId = {-1};
+        nearest(0, ids.length, 0, x, y, best, bestId);
+        return bestId[0];
+    }
+
+    /**
+     * @return the indices of the k points nearest to (x, y), closest first
+     */
+    public int[] nearest(double x, double y, int k) {
+        k = Math.min(k, ids.length);
+        if (k <= 0) {
+            return new int[0];
+        }
+        BoundedHeap heap = new BoundedHeap(k);
+        nearest(0, ids.length, 0, x, y, heap);
+        return heap.sortedIds();
+    }
+
+    /**
+     * @return the indices of all points within distance r of (x, y), in no particular order
+     */
+    public int[] withinRadius(double x, double y, double r) {
+        IntList result = new IntList();
+        withinRadius(0, ids.length, 0, x, y, r, r * r, result);
+        return result.toArray();
+    }
+
+    /**
+     * @return the indices of all points inside the axis-aligned window, in no particular order
+     */
+    public int[] withinWindow(double minX, double minY, double maxX, double maxY) {
+        IntList result = new IntList();
+        withinWindow(0, ids.length, 0, minX, minY, maxX, maxY, result);
+        return result.toArray();
+    }
+
+    /**
+     * Nearest-point query for many points at once. Queries are spread over the common pool.
+     *
+     * @return for each query point the index of the nearest point, or -1 if the tree is empty
+     */
+    public int[] nearest(double[] qx, double[] qy) {
+        int[] result = new int[qx.length];
+        IntStream.range(0, qx.length).parallel().forEach(i -> result[i] = nearest(qx[i], qy[i]));
+        return result;
+    }
+
+    /**
+     * Radius query for many points at once. Queries are spread over the common pool.
+     *
+     * @return for each query point the indices of the points within distance r
+     */
+    public int[][] withinRadius(double[] qx, double[] qy, double r) {
+        int[][] result = new int[qx.length][];
+        IntStream.range(0, qx.length).parallel().forEach(i -> result[i] = withinRadius(qx[i], qy[i], r));
+        return result;
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, (depth & 1) == 0 ? xs : ys);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Quickselect: partially orders [lo, hi] so that position k holds the element it would hold when sorted.
+     */
+    private void select(int lo, int hi, int k, double[] key) {
+        while (hi > lo) {
+            double pivot = key[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[i] < pivot) i++;
+                while (key[j] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        double tx = xs[a]; xs[a] = xs[b]; xs[b] = tx;
+        double ty = ys[a]; ys[a] = ys[b]; ys[b] = ty;
+        int ti = ids[a]; ids[a] = ids[b]; ids[b] = ti;
+    }
+
+    private void nearest(int lo, int hi, int depth, double x, double y, double[] best, int[] bestId) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double dx = xs[mid] - x;
+        double dy = ys[mid] - y;
+        double d2 = dx * dx + dy * dy;
+        if (d2 < best[0] || (d2 == best[0] && ids[mid] < bestId[0])) {
+            best[0] = d2;
+            bestId[0] = ids[mid];
+        }
+        double diff = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        if (diff < 0) {
+            nearest(lo, mid, depth + 1, x, y, best, bestId);
+            if (diff * diff <= best[0]) nearest(mid + 1, hi, depth + 1, x, y, best, bestId);
+        } else {
+            nearest(mid + 1, hi, depth + 1, x, y, best, bestId);
+            if (diff * diff <= best[0]) nearest(lo, mid, depth + 1, x, y, best, bestId);
+        }
+    }
+
+    private void nearest(int lo, int hi, int depth, double x, double y, BoundedHeap heap) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double dx = xs[mid] - x;
+        double dy = ys[mid] - y;
+        heap.offer(ids[mid], dx * dx + dy * dy);
+        double diff = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        if (diff < 0) {
+            nearest(lo, mid, depth + 1, x, y, heap);
+            if (diff * diff <= heap.bound()) nearest(mid + 1, hi, depth + 1, x, y, heap);
+        } else {
+            nearest(mid + 1, hi, depth + 1, x, y, heap);
+            if (diff * diff <= heap.bound()) nearest(lo, mid, depth + 1, x, y, heap);
+        }
+    }
+
+    private void withinRadius(int lo, int hi, int depth, double x, double y, double r, double r2, IntList out) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double dx = xs[mid] - x;
+        double dy = ys[mid] - y;
+        if (dx * dx + dy * dy <= r2) {
+            out.add(ids[mid]);
+        }
+        double diff = (depth & 1) == 0 ? x - xs[mid] : y - ys[mid];
+        if (diff - r <= 0) withinRadius(lo, mid, depth + 1, x, y, r, r2, out);
+        if (diff + r >= 0) withinRadius(mid + 1, hi, depth + 1, x, y, r, r2, out);
+    }
+
+    private void withinWindow(int lo, int hi, int depth, double minX, double minY, double maxX, double maxY, IntList out) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double px = xs[mid];
+        double py = ys[mid];
+        if (px >= minX && px <= maxX && py >= minY && py <= maxY) {
+            out.add(ids[mid]);
+        }
+        double split = (depth & 1) == 0 ? px : py;
+        double low = (depth & 1) == 0 ? minX : minY;
+        double high = (depth & 1) == 0 ? maxX : maxY;
+        if (low <= split) withinWindow(lo, mid, depth + 1, minX, minY, maxX, maxY, out);
+        if (high >= split) withinWindow(mid + 1, hi, depth + 1, minX, minY, maxX, maxY, out);
+    }
+
+    /**
+     * Fixed-capacity max-heap on squared distance used for k-nearest queries.
+     */
+    private static final class BoundedHeap {
+        private final int[] heapIds;
+        private final double[] dist;
+        private int size;
+
+        BoundedHeap(int capacity) {
+            heapIds = new int[capacity];
+            dist = new double[capacity];
+        }
+
+        double bound() {
+            return size < dist.length ? Double.POSITIVE_INFINITY : dist[0];
+        }
+
+        void offer(int id, double d) {
+            if (size < dist.length) {
+                int i = size++;
+                heapIds[i] = id;
+                dist[i] = d;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (dist[parent] >= dist[i]) break;
+                    swap(i, parent);
+                    i = parent;
+                }
+            } else if (d < dist[0]) {
+                heapIds[0] = id;
+                dist[0] = d;
+                int i = 0;
+                while (true) {
+                    int left = 2 * i + 1;
+                    int largest = i;
+                    if (left < size && dist[left] > dist[largest]) largest = left;
+                    if (left + 1 < size && dist[left + 1] > dist[largest]) largest = left + 1;
+                    if (largest == i) break;
+                    swap(i, largest);
+                    i = largest;
+                }
+            }
+        }
+
+        int[] sortedIds() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Double.compare(dist[a], dist[b]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) result[i] = heapIds[order[i]];
+            return result;
+        }
+
+        private void swap(int a, int b) {
+            int ti = heapIds[a]; heapIds[a] = heapIds[b]; heapIds[b] = ti;
+            double td = dist[a]; dist[a] = dist[b]; dist[b] = td;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.odbpp.index;
+
+import com.odbpp.model.EdaData;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Step;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Two-way lookup between EDA nets and layer features, built from the FID records of eda/data.
+ *
+ * Net to features uses the CSR layout of {@link EdaData}: the features of net i are the FIDs
+ * [netFidOffsets[i], netFidOffsets[i + 1]). Feature to net uses one int[] per layer indexed by feature index,
+ * holding the net index or -1. The per-layer arrays are filled in parallel after a counting sort of the FIDs by
+ * layer, so building costs O(FIDs) and every query is O(1) or O(features of the net).
+ *
+ * Net indices are positions in {@link EdaData#getNetRecords()}. The index is a snapshot of the step's EDA data.
+ */
+public final class NetFeatureIndex {
+
+    /**
+     * Receives the features of a net
+     */
+    @FunctionalInterface
+    public interface FeatureVisitor {
+        void visit(String layerName, int featureIndex);
+    }
+
+    private final EdaData edaData;
+    private final List<String> layerNames;
+    private final Map<String, Integer> layerIndex = new HashMap<>();
+    private final int[][] netByFeature;
+
+    public NetFeatureIndex(Step step) {
+        this(step.getEdaData(), step.getLayersByName());
+    }
+
+    /**
+     * @param layers the step layers, used to size the per-layer arrays; may be null
+     */
+    public NetFeatureIndex(EdaData edaData, Map<String, Layer> layers) {
+        this.edaData = edaData;
+        this.layerNames = edaData == null || edaData.getLayerNames() == null
+                ? Collections.emptyList() : edaData.getLayerNames();
+        int layerCount = layerNames.size();
+        for (int i = 0; i < layerCount; i++) {
+            layerIndex.putIfAbsent(layerNames.get(i), i);
+        }
+        this.netByFeature = new int[layerCount][];
+        if (edaData == null || layerCount == 0) {
+            return;
+        }
+
+        int fidCount = edaData.getFidCount();
+        int[] fidLayers = edaData.getFidLayers();
+        int[] fidFeatures = edaData.getFidFeatures();
+        int[] netFidOffsets = edaData.getNetFidOffsets();
+        int netCount = netFidOffsets.length - 1;
+
+        // Net of each FID, filled per net range
+        int[] fidNet = new int[fidCount];
+        IntStream.range(0, netCount).parallel()
+                .forEach(net -> Arrays.fill(fidNet, netFidOffsets[net], netFidOffsets[net + 1], net));
+
+        // Counting sort of FIDs by layer, remembering the largest feature index per layer
+        int[] layerOffsets = new int[layerCount + 1];
+        int[] maxFeature = new int[layerCount];
+        Arrays.fill(maxFeature, -1);
+        for (int fid = 0; fid < fidCount; fid++) {
+            int layer = fidLayers[fid];
+            if (layer >= 0 && layer < layerCount) {
+                layerOffsets[layer + 1]++;
+                maxFeature[layer] = Math.max(maxFeature[layer], fidFeatures[fid]);
+            }
+        }
+        for (int i = 0; i < layerCount; i++) {
+            layerOffsets[i + 1] += layerOffsets[i];
+        }
+        int[] byLayer = new int[layerOffsets[layerCount]];
+        int[] next = Arrays.copyOf(layerOffsets, layerCount);
+        for (int fid = 0; fid < fidCount; fid++) {
+            int layer = fidLayers[fid];
+            if (layer >= 0 && layer < layerCount) {
+                byLayer[next[layer]++] = fid;
+            }
+        }
+
+        IntStream.range(0, layerCount).parallel().forEach(layer -> {
+            Layer stepLayer = layers == null ? null : layers.get(layerNames.get(layer));
+            int size = maxFeature[layer] + 1;
+            if (stepLayer != null && stepLayer.getFeatures() != null) {
+                size = Math.max(size, stepLayer.getFeatures().getFeatures().size());
+            }
+            int[] nets = new int[size];
+            Arrays.fill(nets, -1);
+            for (int i = layerOffsets[layer]; i < layerOffsets[layer + 1]; i++) {
+                int fid = byLayer[i];
+                if (fidFeatures[fid] >= 0) {
+                    nets[fidFeatures[fid]] = fidNet[fid];
+                }
+            }
+            netByFeature[layer] = nets;
+        });
+    }
+
+    public EdaData getEdaData() {
+        return edaData;
+    }
+
+    /**
+     * @return the index of the net owning the feature, or -1
+     */
+    public int getNet(String layerName, int featureIndex) {
+        int[] nets = getFeatureNets(layerName);
+        return nets == null || featureIndex < 0 || featureIndex >= nets.length ? -1 : nets[featureIndex];
+    }
+
+    /**
+     * @return the net record owning the feature, or null
+     */
+    public EdaData.NetRecord getNetRecord(String layerName, int featureIndex) {
+        int net = getNet(layerName, featureIndex);
+        return net < 0 ? null : edaData.getNetRecords().get(net);
+    }
+
+    /**
+     * @return the net index of every feature of the layer (-1 where unknown), or null if the EDA data does not
+     *         reference the layer. The array is shared and must not be modified.
+     */
+    public int[] getFeatureNets(String layerName) {
+        Integer layer = layerIndex.get(layerName);
+        return layer == null ? null : netByFeature[layer];
+    }
+
+    /**
+     * @return the number of feature references of the net, 0 without EDA data
+     */
+    public int getFeatureCount(int net) {
+        if (edaData == null) {
+            return 0;
+        }
+        int[] offsets = edaData.getNetFidOffsets();
+        return offsets[net + 1] - offsets[net];
+    }
+
+    /**
+     * Visits the features of a net on all layers, in eda/data order; does nothing without EDA data.
+     */
+    public void forEachFeature(int net, FeatureVisitor visitor) {
+        if (edaData == null) {
+            return;
+        }
+        int[] offsets = edaData.getNetFidOffsets();
+        for (int fid = offsets[net]; fid < offsets[net + 1]; fid++) {
+            String layerName = edaData.getFidLayerName(fid);
+            if (layerName != null) {
+                visitor.visit(layerName, edaData.getFidFeatures()[fid]);
+            }
+        }
+    }
+
+    /**
+     * Visits the features of the named net; does nothing if there is no such net.
+     */
+    public void forEachFeature(String netName, FeatureVisitor visitor) {
+        EdaData.NetRecord net = edaData == null ? null : edaData.getNetRecordsByName().get(netName);
+        if (net != null) {
+            forEachFeature(net.getIndex(), visitor);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.odbpp.index;
+
+import java.util.Arrays;
+
+/**
+ * Sorted index over the numeric values of an attribute, answering range queries with a binary search.
+ *
+ * Rows without a numeric value are not indexed. Results are {@link Bitmap}s so they combine directly with
+ * other attribute filters. A NaN bound matches no rows.
+ */
+public final class NumericIndex {
+    private final double[] values;
+    private final int[] rows;
+
+    /**
+     * @param rows   rows that have a value
+     * @param values the value of each row, same length as rows; NaN values are skipped
+     */
+    public NumericIndex(int[] rows, double[] values) {
+        if (rows.length != values.length) {
+            throw new IllegalArgumentException("Row and value arrays differ in length: " + rows.length + " != " + values.length);
+        }
+        // NaN compares false both ways and would break the sort, so it is dropped first
+        int count = 0;
+        double[] numbers = new double[values.length];
+        int[] numberRows = new int[rows.length];
+        for (int i = 0; i < values.length; i++) {
+            if (!Double.isNaN(values[i])) {
+                numbers[count] = values[i];
+                numberRows[count++] = rows[i];
+            }
+        }
+        numbers = Arrays.copyOf(numbers, count);
+        int[] order = IndexSort.sortedIndices(numbers);
+        this.values = new double[count];
+        this.rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.values[i] = numbers[order[i]];
+            this.rows[i] = numberRows[order[i]];
+        }
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * @return the rows whose value lies in [min, max]
+     */
+    public Bitmap between(double min, double max) {
+        if (Double.isNaN(min) || Double.isNaN(max)) {
+            return Bitmap.empty();
+        }
+        return select(lowerBound(min, true), lowerBound(max, false));
+    }
+
+    /**
+     * @return the rows whose value is strictly greater than min
+     */
+    public Bitmap greaterThan(double min) {
+        if (Double.isNaN(min)) {
+            return Bitmap.empty();
+        }
+        return select(lowerBound(min, false), rows.length);
+    }
+
+    /**
+     * @return the rows whose value is strictly less than max
+     */
+    public Bitmap lessThan(double max) {
+        if (Double.isNaN(max)) {
+            return Bitmap.empty();
+        }
+        return select(0, lowerBound(max, true));
+    }
+
+    public double getMin() {
+        return values.length == 0 ? Double.NaN : values[0];
+    }
+
+    public double getMax() {
+        return values.length == 0 ? Double.NaN : values[values.length - 1];
+    }
+
+    /**
+     * @param inclusive whether a value equal to the bound counts as above it
+     * @return the first position whose value is at least (inclusive) or greater than (exclusive) the bound
+     */
+    private int lowerBound(double bound, boolean inclusive) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (inclusive ? values[mid] < bound : values[mid] <= bound) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private Bitmap select(int from, int to) {
+        if (from >= to) {
+            return Bitmap.empty();
+        }
+        int[] selected = Arrays.copyOfRange(rows, from, to);
+        Arrays.sort(selected);
+        return Bitmap.of(selected);
+    }
+}
@@ -0,0 +1,264 @@
+package com.odbpp.index;
+
+import com.odbpp.model.Component;
+import com.odbpp.model.Components;
+import com.odbpp.model.FeatureAttributes;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Step;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Job-wide index from numeric unique IDs (;ID=n) to the feature, profile surface or component that carries them.
+ *
+ * Feature IDs are read from the ID columns the features parser fills in {@link FeatureAttributes}, so building
+ * the index does not touch the feature objects. IDs map to entries through a {@link LongIntHashMap}; entries are
+ * parallel int arrays holding the layer they belong to, the row within that layer and the next entry with the
+ * same ID, so an ID shared by several steps resolves to all its occurrences.
+ *
+ * Layers loaded after the index was built are added with {@link #addLayer(String, Layer)}. All methods are
+ * synchronized.
+ */
+public final class UniqueIdIndex {
+
+    public enum Kind {
+        FEATURE,
+        PROFILE,
+        COMPONENT
+    }
+
+    /**
+     * Where an ID was found: the index of the feature in the layer's feature list, of the surface in the layer
+     * profile, or of the component in the layer's component list.
+     */
+    public static final class Location {
+        private final String stepName;
+        private final String layerName;
+        private final Kind kind;
+        private final int index;
+
+        Location(String stepName, String layerName, Kind kind, int index) {
+            this.stepName = stepName;
+            this.layerName = layerName;
+            this.kind = kind;
+            this.index = index;
+        }
+
+        public String getStepName() {
+            return stepName;
+        }
+
+        public String getLayerName() {
+            return layerName;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the Feature, Surface or Component at this location, or null if the job no longer holds it
+         */
+        public Object resolve(Job job) {
+            Step step = job.getSteps() == null ? null : job.getSteps().get(stepName);
+            Layer layer = step == null || step.getLayersByName() == null ? null : step.getLayersByName().get(layerName);
+            if (layer == null) {
+                return null;
+            }
+            List<?> list;
+            switch (kind) {
+                case FEATURE:
+                    list = layer.getFeatures() == null ? null : layer.getFeatures().getFeatures();
+                    break;
+                case PROFILE:
+                    list = layer.getProfile() == null ? null : layer.getProfile().getSurfaces();
+                    break;
+                default:
+                    list = layer.getComponents() == null ? null : layer.getComponents().getComponents();
+                    break;
+            }
+            return list == null || index >= list.size() ? null : list.get(index);
+        }
+
+        @Override
+        public String toString() {
+            return stepName + "/" + layerName + " " + kind + " " + index;
+        }
+    }
+
+    private final LongIntHashMap first = new LongIntHashMap(-1);
+
+    // Layers (step, layer, kind) that entries refer to
+    private final List<String> sourceSteps = new ArrayList<>();
+    private final List<String> sourceLayers = new ArrayList<>();
+    private final List<Kind> sourceKinds = new ArrayList<>();
+
+    private int size;
+    private int[] entrySource = new int[16];
+    private int[] entryRow = new int[16];
+    private int[] entryNext = new int[16];
+    // Last entry of the chain, kept on the first entry of each ID
+    private int[] entryTail = new int[16];
+    private int duplicates;
+
+    /**
+     * Indexes the IDs of every loaded layer of every step of the job.
+     */
+    public static UniqueIdIndex build(Job job) {
+        UniqueIdIndex index = new UniqueIdIndex();
+        if (job.getSteps() == null) {
+            return index;
+        }
+        for (Map.Entry<String, Step> step : job.getSteps().entrySet()) {
+            if (step.getValue().getLayersByName() == null) {
+                continue;
+            }
+            for (Layer layer : step.getValue().getLayersByName().values()) {
+                index.addLayer(step.getKey(), layer);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds the feature, profile and component IDs of a layer, e.g. one loaded after the index was built.
+     */
+    public synchronized void addLayer(String stepName, Layer layer) {
+        if (layer.getFeatures() != null) {
+            addFeatures(stepName, layer.getName(), Kind.FEATURE, layer.getFeatures().getAttributes());
+        }
+        if (layer.getProfile() != null) {
+            addFeatures(stepName, layer.getName(), Kind.PROFILE, layer.getProfile().getAttributes());
+        }
+        if (layer.getComponents() != null) {
+            addComponents(stepName, layer.getName(), layer.getComponents());
+        }
+    }
+
+    private void addFeatures(String stepName, String layerName, Kind kind, FeatureAttributes attributes) {
+        if (attributes == null || attributes.getIdCount() == 0) {
+            return;
+        }
+        int source = addSource(stepName, layerName, kind);
+        for (int i = 0; i < attributes.getIdCount(); i++) {
+            add(attributes.getIdAt(i), source, attributes.getIdFeature(i));
+        }
+    }
+
+    private void addComponents(String stepName, String layerName, Components components) {
+        int source = -1;
+        List<Component> list = components.getComponents();
+        for (int row = 0; row < list.size(); row++) {
+            long id = parseId(list.get(row).getUniqueId());
+            if (id < 0) {
+                continue;
+            }
+            if (source < 0) {
+                source = addSource(stepName, layerName, Kind.COMPONENT);
+            }
+            add(id, source, row);
+        }
+    }
+
+    private int addSource(String stepName, String layerName, Kind kind) {
+        sourceSteps.add(stepName);
+        sourceLayers.add(layerName);
+        sourceKinds.add(kind);
+        return sourceSteps.size() - 1;
+    }
+
+    private void add(long id, int source, int row) {
+        if (size == entrySource.length) {
+            entrySource = Arrays.copyOf(entrySource, size * 2);
+            entryRow = Arrays.copyOf(entryRow, size * 2);
+            entryNext = Arrays.copyOf(entryNext, size * 2);
+            entryTail = Arrays.copyOf(entryTail, size * 2);
+        }
+        entrySource[size] = source;
+        entryRow[size] = row;
+        entryNext[size] = -1;
+        int head = first.get(id);
+        if (head < 0) {
+            first.put(id, size);
+            entryTail[size] = size;
+        } else {
+            // Append so that occurrences stay in the order they were added
+            entryNext[entryTail[head]] = size;
+            entryTail[head] = size;
+            duplicates++;
+        }
+        size++;
+    }
+
+    /**
+     * @return the number of indexed occurrences
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of occurrences whose ID was already indexed elsewhere
+     */
+    public synchronized int getDuplicateCount() {
+        return duplicates;
+    }
+
+    public synchronized boolean contains(long id) {
+        return id >= 0 && first.containsKey(id);
+    }
+
+    /**
+     * @return the first location of the ID, or null if it is not indexed
+     */
+    public synchronized Location get(long id) {
+        int entry = id < 0 ? -1 : first.get(id);
+        return entry < 0 ? null : location(entry);
+    }
+
+    public Location get(String id) {
+        return get(parseId(id));
+    }
+
+    /**
+     * @return every location of the ID, in the order they were indexed
+     */
+    public synchronized List<Location> getAll(long id) {
+        List<Location> locations = new ArrayList<>(1);
+        for (int entry = id < 0 ? -1 : first.get(id); entry >= 0; entry = entryNext[entry]) {
+            locations.add(location(entry));
+        }
+        return locations;
+    }
+
+    private Location location(int entry) {
+        int source = entrySource[entry];
+        return new Location(sourceSteps.get(source), sourceLayers.get(source), sourceKinds.get(source), entryRow[entry]);
+    }
+
+    /**
+     * @return the ID as a number, or -1 if it is not a non-negative integer
+     */
+    private static long parseId(String id) {
+        if (id == null || id.isEmpty() || id.length() > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,402 @@
+package com.odbpp.ingest;
+
+import com.odbpp.cache.JobCache;
+import com.odbpp.model.Job;
+import com.odbpp.parser.OdbParser;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Parses many jobs in parallel within a heap budget.
+ *
+ * Sources are job directories or tar archives of jobs (.tgz, .tar.gz, .tar). Before a job is started its heap
+ * need is estimated from the size of its files, and the job waits until that much of the budget is free; the
+ * caller's thread blocks in {@link #ingest(List, JobHandler)} meanwhile, so sources are only opened as fast as
+ * the workers finish them. A job larger than the whole budget runs alone.
+ *
+ * Bytes of heap per byte on disk start from a conservative guess and follow the sizes
+ * {@link JobCache#estimateWeight(Job)} measures on the parsed jobs, so estimates adapt to the dataset. A job
+ * whose parse fails is retried after the other jobs, alone, with the whole budget to itself.
+ *
+ * The parsed job is handed to the {@link JobHandler} on the worker thread and dropped afterwards.
+ */
+public final class BatchIngest {
+
+    /**
+     * Receives each parsed job
+     */
+    @FunctionalInterface
+    public interface JobHandler {
+        void accept(Path source, Job job) throws IOException;
+    }
+
+    // Archives are assumed to expand by this much
+    private static final double ARCHIVE_EXPANSION = 6;
+    // Peak heap while parsing relative to the retained size of the parsed job
+    private static final double PARSE_OVERHEAD = 2;
+
+    private final long heapBudget;
+    private final int parallelism;
+    private final JobCache.Loader loader;
+    private int maxAttempts = 2;
+    private Consumer<IngestResult> listener = result -> { };
+    private LongSupplier clock = System::nanoTime;
+
+    // Estimated heap bytes per byte of job files, updated from the parsed jobs; the bits of a double
+    private final AtomicLong heapPerByte = new AtomicLong(Double.doubleToLongBits(8));
+
+    /**
+     * Uses the available processors and 60% of the maximum heap
+     */
+    public BatchIngest() {
+        this((long) (Runtime.getRuntime().maxMemory() * 0.6), Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchIngest(long heapBudget, int parallelism) {
+        // Jobs are the unit of parallelism here, so each job is parsed on its worker thread alone
+        this(heapBudget, parallelism, jobDir -> new OdbParser(1).parse(jobDir));
+    }
+
+    public BatchIngest(long heapBudget, int parallelism, JobCache.Loader loader) {
+        if (heapBudget <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Budget and parallelism must be positive");
+        }
+        this.heapBudget = heapBudget;
+        this.parallelism = parallelism;
+        this.loader = loader;
+    }
+
+    /**
+     * @param maxAttempts parse attempts per job, at least 1
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Sets a listener called with the result of each job as soon as it is done, from the worker thread
+     */
+    public void setListener(Consumer<IngestResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Replaces the nanosecond time source of the wait and parse times, for tests
+     */
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    private static final class Task {
+        private final Path source;
+        private final long diskBytes;
+        private final IngestResult result = new IngestResult();
+        private long reserved;
+        private boolean retry;
+
+        Task(Path source, long diskBytes) {
+            this.source = source;
+            this.diskBytes = diskBytes;
+            result.setSource(source);
+            result.setDiskBytes(diskBytes);
+        }
+    }
+
+    /**
+     * Admission control: a job starts when a worker is free and its estimate fits into the remaining budget, or
+     * when nothing else is running. Exclusive jobs wait until nothing else is running and block others.
+     */
+    private final class Budget {
+        private long available = heapBudget;
+        private int running;
+        private boolean exclusive;
+
+        synchronized void acquire(long amount, boolean alone) throws InterruptedException {
+            while (exclusive || running >= parallelism || running > 0 && (alone || amount > available)) {
+                wait();
+            }
+            available -= amount;
+            running++;
+            exclusive = alone;
+        }
+
+        synchronized void release(long amount) {
+            available += amount;
+            running--;
+            exclusive = false;
+            notifyAll();
+        }
+
+        synchronized void awaitIdle() throws InterruptedException {
+            while (running > 0) {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * Ingests the sources and returns once every job is done.
+     */
+    public IngestSummary ingest(List<Path> sources, JobHandler handler) throws InterruptedException {
+        long start = clock.getAsLong();
+        IngestSummary summary = new IngestSummary();
+        summary.setParallelism(parallelism);
+        List<Task> retries = new ArrayList<>();
+        Budget budget = new Budget();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (Path source : sources) {
+                Task task = new Task(source, diskBytes(source));
+                start(task, false, budget, handler, summary, retries, start, workers);
+            }
+            budget.awaitIdle();
+            // Retries run one at a time in the order they failed
+            for (int i = 0; i < retries.size(); i++) {
+                Task task = retries.get(i);
+                task.retry = false;
+                start(task, true, budget, handler, summary, retries, start, workers);
+                budget.awaitIdle();
+            }
+        } finally {
+            workers.shutdown();
+        }
+        summary.setElapsedMillis((clock.getAsLong() - start) / 1_000_000);
+        return summary;
+    }
+
+    private void start(Task task, boolean alone, Budget budget, JobHandler handler, IngestSummary summary,
+                       List<Task> retries, long batchStart, ExecutorService workers) throws InterruptedException {
+        long estimate = (long) (expandedBytes(task) * Double.longBitsToDouble(heapPerByte.get()));
+        task.result.setEstimatedBytes(estimate);
+        task.reserved = alone ? heapBudget : Math.min(estimate, heapBudget);
+        budget.acquire(task.reserved, alone);
+        task.result.setWaitMillis((clock.getAsLong() - batchStart) / 1_000_000);
+        workers.execute(() -> {
+            try {
+                run(task, handler);
+            } finally {
+                finish(task, summary, retries);
+                budget.release(task.reserved);
+            }
+        });
+    }
+
+    private void run(Task task, JobHandler handler) {
+        IngestResult result = task.result;
+        result.setAttempts(result.getAttempts() + 1);
+        long start = clock.getAsLong();
+        Path extracted = null;
+        try {
+            Job job;
+            try {
+                Path root = task.source;
+                if (isArchive(task.source)) {
+                    extracted = Files.createTempDirectory("odbpp-ingest");
+                    root = extract(task.source, extracted);
+                }
+                job = loader.load(root);
+                observe(task, job);
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                task.retry = result.getAttempts() < maxAttempts;
+                fail(result, e);
+                return;
+            }
+            try {
+                handler.accept(task.source, job);
+                result.setStatus(IngestResult.Status.OK);
+                result.setError(null);
+            } catch (IOException | RuntimeException e) {
+                fail(result, e);
+            }
+        } finally {
+            // Summed over attempts
+            result.setParseMillis(result.getParseMillis() + (clock.getAsLong() - start) / 1_000_000);
+            if (extracted != null) {
+                deleteQuietly(extracted);
+            }
+        }
+    }
+
+    private static void fail(IngestResult result, Throwable e) {
+        result.setStatus(IngestResult.Status.FAILED);
+        result.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+
+    private void observe(Task task, Job job) {
+        double expanded = expandedBytes(task);
+        if (expanded > 0) {
+            double observed = Math.max(1, JobCache.estimateWeight(job) * PARSE_OVERHEAD / expanded);
+            // Workers finish concurrently; a plain read-modify-write would lose observations
+            heapPerByte.updateAndGet(bits -> Double.doubleToLongBits(0.8 * Double.longBitsToDouble(bits) + 0.2 * observed));
+        }
+    }
+
+    private static double expandedBytes(Task task) {
+        return isArchive(task.source) ? task.diskBytes * ARCHIVE_EXPANSION : task.diskBytes;
+    }
+
+    private void finish(Task task, IngestSummary summary, List<Task> retries) {
+        synchronized (summary) {
+            if (task.retry) {
+                retries.add(task);
+                return;
+            }
+            IngestResult result = task.result;
+            summary.getResults().add(result);
+            if (result.getStatus() == IngestResult.Status.OK) {
+                summary.setSucceeded(summary.getSucceeded() + 1);
+            } else {
+                summary.setFailed(summary.getFailed() + 1);
+            }
+            if (result.getAttempts() > 1) {
+                summary.setRetried(summary.getRetried() + 1);
+            }
+            summary.setParseMillis(summary.getParseMillis() + result.getParseMillis());
+            listener.accept(result);
+        }
+    }
+
+    /**
+     * @return bytes on disk of a job directory or archive; compressed (.Z) files count as expanded
+     */
+    static long diskBytes(Path source) {
+        try {
+            if (!Files.isDirectory(source)) {
+                return Files.size(source);
+            }
+            long[] total = {0};
+            try (Stream<Path> files = Files.walk(source)) {
+                files.filter(Files::isRegularFile).forEach(file -> {
+                    try {
+                        long size = Files.size(file);
+                        total[0] += file.getFileName().toString().endsWith(".Z") ? (long) (size * ARCHIVE_EXPANSION) : size;
+                    } catch (IOException e) {
+                        // Unreadable files fail the parse, not the estimate
+                    }
+                });
+            }
+            return total[0];
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    static boolean isArchive(Path source) {
+        String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+        return !Files.isDirectory(source) && (name.endsWith(".tgz") || name.endsWith(".tar.gz") || name.endsWith(".tar"));
+    }
+
+    static boolean isJob(Path dir) {
+        return Files.isDirectory(dir.resolve("matrix")) || Files.isDirectory(dir.resolve("steps"));
+    }
+
+    /**
+     * @return the job itself if the path is a job directory or archive, otherwise the jobs and archives directly
+     *         inside the directory, ordered by name
+     */
+    public static List<Path> findJobs(Path path) throws IOException {
+        if (isJob(path) || isArchive(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> children = Files.list(path)) {
+            return children.filter(child -> isJob(child) || isArchive(child)).sorted().toList();
+        }
+    }
+
+    /**
+     * Extracts a tar archive and returns the job directory inside it
+     */
+    static Path extract(Path archive, Path target) throws IOException {
+        String name = archive.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(archive));
+             InputStream in = name.endsWith(".tar") ? file : new GzipCompressorInputStream(file);
+             TarArchiveInputStream tar = new TarArchiveInputStream(in)) {
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextEntry()) != null) {
+                Path out = target.resolve(entry.getName()).normalize();
+                if (!out.startsWith(target)) {
+                    throw new IOException("Archive entry outside the target directory: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(out);
+                } else if (entry.isFile()) {
+                    Files.createDirectories(out.getParent());
+                    Files.copy(tar, out);
+                }
+            }
+        }
+        try (Stream<Path> dirs = Files.walk(target, 3)) {
+            return dirs.filter(Files::isDirectory).filter(BatchIngest::isJob)
+                    .min(Comparator.comparingInt(Path::getNameCount))
+                    .orElseThrow(() -> new IOException("No job found in " + archive));
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    // Left for the temp directory cleanup
+                }
+            });
+        } catch (IOException e) {
+            // Left for the temp directory cleanup
+        }
+    }
+
+    /**
+     * Usage: BatchIngest [--threads n] [--budget-mb n] [--attempts n] path...
+     *
+     * Each path is a job directory, a job archive or a directory of those. Prints one line per job and a summary;
+     * exits with status 1 if a job failed.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        long budget = (long) (Runtime.getRuntime().maxMemory() * 0.6);
+        int attempts = 2;
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--budget-mb" -> budget = Long.parseLong(args[++i]) << 20;
+                case "--attempts" -> attempts = Integer.parseInt(args[++i]);
+                default -> sources.addAll(findJobs(Path.of(args[i])));
+            }
+        }
+        if (sources.isEmpty()) {
+            System.err.println("Usage: BatchIngest [--threads n] [--budget-mb n] [--attempts n] path...");
+            System.exit(2);
+        }
+        BatchIngest ingest = new BatchIngest(budget, threads);
+        ingest.setMaxAttempts(attempts);
+        ingest.setListener(result -> System.out.printf(Locale.ROOT, "%-6s %8d ms %9.1f MB  %d attempt(s)  %s%s%n",
+                result.getStatus(), result.getParseMillis(), result.getEstimatedBytes() / 1048576.0,
+                result.getAttempts(), result.getSource(), result.getError() == null ? "" : "  " + result.getError()));
+        IngestSummary summary = ingest.ingest(sources, (source, job) -> { });
+        System.out.printf(Locale.ROOT, "%d jobs: %d ok, %d failed, %d retried in %.1f s, %d threads, %.0f%% parallel efficiency%n",
+                summary.getResults().size(), summary.getSucceeded(), summary.getFailed(), summary.getRetried(),
+                summary.getElapsedMillis() / 1000.0, threads, summary.getParallelEfficiency() * 100);
+        if (summary.getFailed() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.odbpp.ingest;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome and timing of one job of a batch ingest.
+ */
+@Data
+public class IngestResult {
+    public enum Status {
+        OK,
+        FAILED
+    }
+
+    /**
+     * The job directory or archive as given to the ingest
+     */
+    private Path source;
+    private Status status;
+
+    /**
+     * Number of parse attempts, more than 1 if the job was retried
+     */
+    private int attempts;
+
+    /**
+     * Bytes of the job files on disk, or of the archive
+     */
+    private long diskBytes;
+
+    /**
+     * Heap the job was expected to need when it was scheduled
+     */
+    private long estimatedBytes;
+
+    /**
+     * Time between the start of the batch and the start of the last attempt
+     */
+    private long waitMillis;
+
+    /**
+     * Time of all attempts together, including archive extraction and the handler
+     */
+    private long parseMillis;
+
+    /**
+     * Message of the last failure, null if the job was ingested
+     */
+    private String error;
+}
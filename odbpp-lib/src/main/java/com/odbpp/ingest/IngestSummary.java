@@ -0,0 +1,36 @@
+package com.odbpp.ingest;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of a batch ingest, in the order the jobs completed.
+ */
+@Data
+public class IngestSummary {
+    private List<IngestResult> results = new ArrayList<>();
+    private int succeeded;
+    private int failed;
+
+    /**
+     * Jobs that needed more than one attempt
+     */
+    private int retried;
+
+    private int parallelism;
+    private long elapsedMillis;
+
+    /**
+     * Sum of the per-job parse times
+     */
+    private long parseMillis;
+
+    /**
+     * Share of the available worker time spent parsing: parseMillis / (elapsedMillis * parallelism)
+     */
+    public double getParallelEfficiency() {
+        return elapsedMillis == 0 || parallelism == 0 ? 0 : (double) parseMillis / ((double) elapsedMillis * parallelism);
+    }
+}
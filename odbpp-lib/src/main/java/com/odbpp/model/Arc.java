@@ -30,11 +30,7 @@ public class Arc extends Feature {
     // Clockwise direction: Y for clockwise, N for counter clockwise
     private String cw;
     
-    // Attribute number, referencing an attribute from the feature attribute names section
-    private int atr;
-    
-    // Attribute value that depends on the type of attribute
-    private String value;
+    // Attributes are kept in the FeatureAttributes of the layer
     
     // Unique identifier for the feature
     private String uniqueId;
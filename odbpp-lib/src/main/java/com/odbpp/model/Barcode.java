@@ -52,7 +52,8 @@ public class Barcode extends Feature {
     // Text string, enclosed in single quotes, centered on top or bottom of the barcode
     private String text;
     
-    // Attribute number, referencing an attribute from the feature attribute names section
+    // First attribute number of the record, referencing an attribute from the feature attribute names section.
+    // All attributes are kept in the FeatureAttributes of the layer.
     private int atr;
     
     // Attribute value that depends on the type of attribute
@@ -0,0 +1,122 @@
+package com.odbpp.model;
+
+/**
+ * Immutable axis-aligned bounding box in job units (inch or mm).
+ *
+ * An empty box contains no points; it is the identity for {@link #union(BoundingBox)}.
+ */
+public final class BoundingBox {
+    public static final BoundingBox EMPTY = new BoundingBox(
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    public BoundingBox(double minX, double minY, double maxX, double maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY;
+    }
+
+    public double getWidth() {
+        return isEmpty() ? 0 : maxX - minX;
+    }
+
+    public double getHeight() {
+        return isEmpty() ? 0 : maxY - minY;
+    }
+
+    public double getCenterX() {
+        return (minX + maxX) / 2;
+    }
+
+    public double getCenterY() {
+        return (minY + maxY) / 2;
+    }
+
+    public BoundingBox union(BoundingBox other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY));
+    }
+
+    /**
+     * @return this box grown by the given margin on every side
+     */
+    public BoundingBox expand(double margin) {
+        if (isEmpty()) {
+            return this;
+        }
+        return new BoundingBox(minX - margin, minY - margin, maxX + margin, maxY + margin);
+    }
+
+    public boolean contains(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    public boolean intersects(BoundingBox other) {
+        return !isEmpty() && !other.isEmpty()
+                && other.minX <= maxX && other.maxX >= minX && other.minY <= maxY && other.maxY >= minY;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BoundingBox)) {
+            return false;
+        }
+        BoundingBox other = (BoundingBox) o;
+        if (isEmpty() || other.isEmpty()) {
+            return isEmpty() && other.isEmpty();
+        }
+        return minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+    }
+
+    @Override
+    public int hashCode() {
+        if (isEmpty()) {
+            return 0;
+        }
+        int result = Double.hashCode(minX);
+        result = 31 * result + Double.hashCode(minY);
+        result = 31 * result + Double.hashCode(maxX);
+        result = 31 * result + Double.hashCode(maxY);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "BoundingBox(empty)"
+                : "BoundingBox(minX=" + minX + ", minY=" + minY + ", maxX=" + maxX + ", maxY=" + maxY + ")";
+    }
+}
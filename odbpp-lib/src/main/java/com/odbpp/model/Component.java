@@ -109,10 +109,8 @@ public class Component {
         }
         attributes.add(attribute);
         
-        // Also add to lookup table for quick access
-        if (attribute.getValue() != null) {
-            attributeLookupTable.put(attribute.getAttributeIndex(), attribute.getValue());
-        }
+        // Also add to lookup table for quick access; boolean attributes map to null
+        attributeLookupTable.put(attribute.getAttributeIndex(), attribute.getValue());
     }
     
     /**
@@ -156,7 +154,18 @@ public class Component {
      * @return true if the attribute is set, false otherwise
      */
     public boolean hasAttribute(int attributeIndex) {
-        return attributes.stream()
-                .anyMatch(attr -> attr.getAttributeIndex() == attributeIndex);
+        if (attributeLookupTable.containsKey(attributeIndex)) {
+            return true;
+        }
+        // Attributes added to the list directly are not in the lookup table
+        if (attributes.size() == attributeLookupTable.size()) {
+            return false;
+        }
+        for (ComponentAttribute attribute : attributes) {
+            if (attribute.getAttributeIndex() == attributeIndex) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -3,8 +3,49 @@ package com.odbpp.model;
 import lombok.Data;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Represents a components file (steps/<step>/layers/comp_+_top or comp_+_bot/components).
+ */
 @Data
 public class Components {
+    private String units;
+
+    /**
+     * Attribute names (@ records) and text attribute values (&amp; records) referenced by component attributes
+     */
+    private List<String> attributeNames = new ArrayList<>();
+    private List<String> attributeTextValues = new ArrayList<>();
+
     private List<Component> components = new ArrayList<>();
-}
\ No newline at end of file
+
+    /**
+     * Types the valued attribute assignments of the components with the attribute definitions of the job, as
+     * {@link FeatureAttributes#resolve(Job)} does for features. Assignments whose name has no definition stay
+     * untyped.
+     */
+    public void resolve(Job job) {
+        resolve(job.getSystemAttributes(), job.getUserAttributes());
+    }
+
+    public void resolve(Map<String, AttributeDefinition> systemAttributes, Map<String, AttributeDefinition> userAttributes) {
+        for (Component component : components) {
+            if (component.getAttributes() == null) {
+                continue;
+            }
+            for (ComponentAttribute attribute : component.getAttributes()) {
+                // Assignments without a value are BOOLEAN whatever the definitions say
+                if (attribute.getValue() == null) {
+                    continue;
+                }
+                int index = attribute.getAttributeIndex();
+                String name = index >= 0 && index < attributeNames.size() ? attributeNames.get(index) : null;
+                Map<String, AttributeDefinition> definitions = name == null ? null
+                        : name.startsWith(".") ? systemAttributes : userAttributes;
+                AttributeDefinition definition = definitions == null ? null : definitions.get(name);
+                attribute.setType(definition == null ? null : definition.getType());
+            }
+        }
+    }
+}
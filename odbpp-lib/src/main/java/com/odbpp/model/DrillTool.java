@@ -0,0 +1,72 @@
+package com.odbpp.model;
+
+import lombok.Data;
+
+/**
+ * Represents one TOOLS block of a drill layer tools file.
+ *
+ * Format:
+ * TOOLS {
+ *     NUM=<tool number>
+ *     TYPE=PLATED|NON_PLATED|VIA
+ *     TYPE2=STANDARD|PHOTO|LASER|PRESS_FIT
+ *     MIN_TOL=<tolerance>
+ *     MAX_TOL=<tolerance>
+ *     BIT=<drill bit>
+ *     FINISH_SIZE=<size>
+ *     DRILL_SIZE=<size>
+ * }
+ *
+ * Sizes and tolerances are in mils (imperial) or microns (metric).
+ */
+@Data
+public class DrillTool {
+    /**
+     * Tool number, referenced by the dcode field of the drill layer features
+     */
+    private int num;
+
+    private Type type;
+
+    /**
+     * Secondary tool type: STANDARD, PHOTO, LASER or PRESS_FIT
+     */
+    private String type2;
+
+    private double minTol;
+    private double maxTol;
+    private String bit;
+
+    /**
+     * Finished hole size after plating
+     */
+    private double finishSize;
+
+    /**
+     * Size of the drill bit
+     */
+    private double drillSize;
+
+    public enum Type {
+        PLATED,
+        NON_PLATED,
+        VIA,
+        UNKNOWN;
+
+        public static Type fromString(String value) {
+            if (value == null) {
+                return UNKNOWN;
+            }
+            switch (value.trim().toUpperCase()) {
+                case "PLATED":
+                    return PLATED;
+                case "NON_PLATED":
+                    return NON_PLATED;
+                case "VIA":
+                    return VIA;
+                default:
+                    return UNKNOWN;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.odbpp.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the tools file of a drill layer (steps/<step>/layers/<drill layer>/tools).
+ * This file is optional.
+ */
+@Data
+public class DrillTools {
+    private String units;
+
+    /**
+     * Board thickness, 0 if not defined
+     */
+    private double thickness;
+
+    private String userParams;
+    private List<DrillTool> tools = new ArrayList<>();
+
+    /**
+     * @param num the tool number (the dcode of drill features)
+     * @return the tool with the given number, or null if there is none
+     */
+    public DrillTool getTool(int num) {
+        for (DrillTool tool : tools) {
+            if (tool.getNum() == num) {
+                return tool;
+            }
+        }
+        return null;
+    }
+}
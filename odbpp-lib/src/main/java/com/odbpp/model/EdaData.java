@@ -1,58 +1,242 @@
 package com.odbpp.model;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Represents the EDA data from the eda/data file.
  * This file is optional.
+ *
+ * Feature references (FID records) are by far the most numerous records, so they are not stored as objects:
+ * all FIDs of the file are kept in parallel primitive arrays in file order. The FIDs of a subnet are the range
+ * [fidStart, fidStart + fidCount) of those arrays, and since subnets follow their net, the FIDs of net i are
+ * [netFidOffsets[i], netFidOffsets[i + 1]).
  */
 @Data
 public class EdaData {
     private String units;
     private String source;
+
+    /**
+     * Layer names from the LYR record; FID layer numbers index this list
+     */
     private List<String> layerNames;
+
+    /**
+     * Attribute names (@ records) and text attribute values (&amp; records)
+     */
     private List<String> attributeNames;
     private List<String> attributeTextValues;
+
     private List<NetRecord> netRecords;
     private Map<String, NetRecord> netRecordsByName;
     private List<PackageRecord> packageRecords;
     private Map<String, PackageRecord> packageRecordsByName;
 
+    /**
+     * Number of FID records and their columns: type, layer number and feature index in the layer
+     */
+    private int fidCount;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] fidTypes = new byte[0];
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int[] fidLayers = new int[0];
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int[] fidFeatures = new int[0];
+
+    /**
+     * CSR offsets of the FIDs of each net, netRecords.size() + 1 entries
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int[] netFidOffsets = new int[1];
+
+    public FidType getFidType(int fid) {
+        return FidType.values()[fidTypes[fid]];
+    }
+
+    /**
+     * @return the name of the layer a FID refers to, or null if the layer number is not in the LYR record
+     */
+    public String getFidLayerName(int fid) {
+        int layer = fidLayers[fid];
+        return layerNames != null && layer >= 0 && layer < layerNames.size() ? layerNames.get(layer) : null;
+    }
+
+    public enum FidType {
+        COPPER,
+        LAMINATE,
+        HOLE;
+
+        public static FidType fromCode(char code) {
+            switch (code) {
+                case 'C':
+                    return COPPER;
+                case 'L':
+                    return LAMINATE;
+                case 'H':
+                    return HOLE;
+                default:
+                    throw new IllegalArgumentException("Invalid FID type: " + code);
+            }
+        }
+    }
+
+    /**
+     * NET <name>;<attributes>;ID=<id>
+     */
     @Data
     public static class NetRecord {
         private String name;
         private int index;
+        private long id = -1;
         private List<SubnetRecord> subnetRecords;
+
+        /**
+         * Attribute values keyed by attribute name. Values of text attributes are indices into
+         * {@link EdaData#getAttributeTextValues()}
+         */
         private Map<String, String> attributes;
+        private List<PropertyRecord> propertyRecords = new ArrayList<>();
     }
 
+    /**
+     * SNT TOP|VIA|TRC|PLN ... followed by the FID records of the subnet
+     */
     @Data
     public static class SubnetRecord {
-        // Subnet properties
+        private Type type;
+        private int index;
+        private long id = -1;
+
+        /**
+         * TOP subnets: side and the component and toeprint numbers in the components file of that side
+         */
+        private BoardSide side = BoardSide.NONE;
+        private int componentNumber = -1;
+        private int toeprintNumber = -1;
+
+        /**
+         * PLN subnets: fill type (S solid, O outline), cutout type (C circle, R rectangle, O octagon, E exact)
+         * and fill size
+         */
+        private String fillType;
+        private String cutoutType;
+        private double fillSize;
+
+        /**
+         * Range of this subnet's FIDs in the FID columns of {@link EdaData}
+         */
+        private int fidStart;
+        private int fidCount;
+
+        public enum Type {
+            TOEPRINT,
+            VIA,
+            TRACE,
+            PLANE;
+
+            public static Type fromString(String value) {
+                switch (value) {
+                    case "TOP":
+                        return TOEPRINT;
+                    case "VIA":
+                        return VIA;
+                    case "TRC":
+                        return TRACE;
+                    case "PLN":
+                        return PLANE;
+                    default:
+                        throw new IllegalArgumentException("Invalid subnet type: " + value);
+                }
+            }
+        }
     }
 
+    /**
+     * PKG <name> <pitch> <xmin> <ymin> <xmax> <ymax>;<attributes>;ID=<id> followed by its outline and PIN records
+     */
     @Data
     public static class PackageRecord {
         private String name;
         private double pitch;
         private double xMin, yMin, xMax, yMax;
         private int index;
+        private long id = -1;
         private List<PinRecord> pinRecords;
         private Map<String, PinRecord> pinRecordsByName;
         private Map<String, String> attributes;
+        private List<Outline> outlines = new ArrayList<>();
+        private List<PropertyRecord> propertyRecords = new ArrayList<>();
     }
 
+    /**
+     * PIN <name> <type> <xc> <yc> <fhs> <etype> <mtype> ID=<id> followed by its outline records
+     */
     @Data
     public static class PinRecord {
         private String name;
+
+        /**
+         * T through hole, B blind, S surface
+         */
         private String type;
         private double xCenter;
         private double yCenter;
+
+        /**
+         * Finished hole size, 0 for surface pins
+         */
+        private double finishedHoleSize;
+
+        /**
+         * E electrical, M mechanical, U undefined
+         */
         private String electricalType;
+
+        /**
+         * S smt, R recommended smt, T through hole, P press fit, N non board, H hole, U undefined
+         */
         private String mountType;
-        private int id;
+        private int id = -1;
         private int index;
+        private List<Outline> outlines = new ArrayList<>();
+    }
+
+    /**
+     * Package or pin outline: RC (rectangle), CR (circle), SQ (square) or CT ... CE (contour)
+     */
+    @Data
+    public static class Outline {
+        private Type type;
+
+        /**
+         * Lower left corner for rectangles, center for circles and squares
+         */
+        private double x;
+        private double y;
+        private double width;
+        private double height;
+
+        /**
+         * Radius for circles, half side for squares
+         */
+        private double radius;
+        private List<ContourPolygon> polygons;
+
+        public enum Type {
+            RECTANGLE,
+            CIRCLE,
+            SQUARE,
+            CONTOUR
+        }
     }
 }
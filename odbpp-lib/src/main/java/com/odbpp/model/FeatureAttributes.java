@@ -0,0 +1,478 @@
+package com.odbpp.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attributes of all features of a layer, packed into int columns instead of one map per feature.
+ *
+ * The features file declares attribute names (@n name) and text values (&amp;n text) once in its header. Each
+ * feature record then assigns attributes by name index: ;n for a boolean, ;n=value otherwise. The assignments of
+ * feature f are entries getStart(f) to getStart(f + 1) of the name and value columns. Values are kept as
+ * indices into a pool of distinct value strings, -1 for booleans, so repeated values such as option numbers are
+ * stored once per layer.
+ *
+ * Feature indices are positions in the feature list of the layer. Types are unknown until {@link #resolve(Job)}
+ * has matched the names with the system and user attribute definitions of the job.
+ *
+ * Numeric unique IDs (;ID=n) are kept in a separate sparse column of (feature, ID) pairs ordered by feature.
+ *
+ * Lookup tables are built lazily on first use, without synchronization, so an unsealed instance must stay confined
+ * to one thread, readers included. {@link #seal()} builds them up front and rejects further writes, after which the
+ * attributes can be read from any number of threads once they have been safely published, e.g. through an executor
+ * or a concurrent collection.
+ */
+public class FeatureAttributes {
+    private final List<String> names = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+
+    private int featureCount;
+    private int[] start = new int[1];
+    private int size;
+    private int[] nameColumn = new int[0];
+    private int[] valueColumn = new int[0];
+
+    private int idCount;
+    private int[] idFeatures = new int[0];
+    private long[] ids = new long[0];
+
+    // Lookup tables, built on first use
+    private Map<String, Integer> valueIndex = new HashMap<>();
+    private Map<String, Integer> nameIndex;
+    private double[] numbers;
+    private AttributeDefinition[] definitions;
+    private boolean sealed;
+
+    /**
+     * @return the attribute names of the layer (@ records), indexed by name index
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @return the text values of the layer (&amp; records) referenced by TEXT attributes
+     */
+    public List<String> getTexts() {
+        return texts;
+    }
+
+    /**
+     * Sets entry index of the attribute name table, growing it as needed.
+     */
+    public void setName(int index, String name) {
+        checkWritable();
+        setEntry(names, index, name);
+        nameIndex = null;
+        definitions = null;
+    }
+
+    /**
+     * Sets entry index of the text value table, growing it as needed.
+     */
+    public void setText(int index, String text) {
+        checkWritable();
+        setEntry(texts, index, text);
+    }
+
+    private static void setEntry(List<String> table, int index, String value) {
+        while (table.size() <= index) {
+            table.add(null);
+        }
+        table.set(index, value);
+    }
+
+    /**
+     * Appends an attribute assignment. Features must be added in increasing order.
+     *
+     * @param value the raw value, null for a boolean attribute
+     */
+    public void add(int feature, int name, String value) {
+        if (feature < featureCount - 1) {
+            throw new IllegalArgumentException("Attributes of feature " + feature + " added after feature " + (featureCount - 1));
+        }
+        checkWritable();
+        ensureFeatures(feature + 1);
+        if (size == nameColumn.length) {
+            int capacity = Math.max(16, size * 2);
+            nameColumn = Arrays.copyOf(nameColumn, capacity);
+            valueColumn = Arrays.copyOf(valueColumn, capacity);
+        }
+        nameColumn[size] = name;
+        valueColumn[size] = value == null ? -1 : pool(value);
+        size++;
+        start[featureCount] = size;
+    }
+
+    private int pool(String value) {
+        if (valueIndex == null) {
+            valueIndex = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                valueIndex.put(values.get(i), i);
+            }
+        }
+        Integer index = valueIndex.get(value);
+        if (index == null) {
+            index = values.size();
+            values.add(value);
+            valueIndex.put(value, index);
+            numbers = null;
+        }
+        return index;
+    }
+
+    /**
+     * Records the numeric unique ID of a feature, replacing any earlier one.
+     */
+    public void setId(int feature, long id) {
+        checkWritable();
+        int position = idPosition(feature);
+        if (position >= 0) {
+            ids[position] = id;
+            return;
+        }
+        position = -position - 1;
+        if (idCount == ids.length) {
+            int capacity = Math.max(16, idCount * 2);
+            idFeatures = Arrays.copyOf(idFeatures, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        System.arraycopy(idFeatures, position, idFeatures, position + 1, idCount - position);
+        System.arraycopy(ids, position, ids, position + 1, idCount - position);
+        idFeatures[position] = feature;
+        ids[position] = id;
+        idCount++;
+    }
+
+    private int idPosition(int feature) {
+        // Features are parsed in order, so the common case is an append
+        if (idCount == 0 || idFeatures[idCount - 1] < feature) {
+            return -idCount - 1;
+        }
+        return Arrays.binarySearch(idFeatures, 0, idCount, feature);
+    }
+
+    /**
+     * @return the unique ID of the feature, or -1 if it has no numeric ID
+     */
+    public long getId(int feature) {
+        int position = idPosition(feature);
+        return position >= 0 ? ids[position] : -1;
+    }
+
+    /**
+     * @return the number of features with a numeric unique ID
+     */
+    public int getIdCount() {
+        return idCount;
+    }
+
+    /**
+     * @return the feature index of entry i of the ID column
+     */
+    public int getIdFeature(int i) {
+        return idFeatures[i];
+    }
+
+    /**
+     * @return the unique ID of entry i of the ID column
+     */
+    public long getIdAt(int i) {
+        return ids[i];
+    }
+
+    /**
+     * Makes features up to count - 1 addressable, without attributes unless added later.
+     */
+    public void ensureFeatures(int count) {
+        if (count <= featureCount) {
+            return;
+        }
+        checkWritable();
+        if (count + 1 > start.length) {
+            start = Arrays.copyOf(start, Math.max(count + 1, start.length * 2));
+        }
+        Arrays.fill(start, featureCount + 1, count + 1, size);
+        featureCount = count;
+    }
+
+    /**
+     * Drops the assignments, values and IDs of all features, keeping the name and text tables and the resolved
+     * definitions, so that a reader can decode one record after the other into the same store.
+     */
+    public void clearAssignments() {
+        checkWritable();
+        featureCount = 0;
+        start[0] = 0;
+        size = 0;
+        idCount = 0;
+        values.clear();
+        if (valueIndex != null) {
+            valueIndex.clear();
+        }
+        numbers = null;
+    }
+
+    /**
+     * @return a writable copy of the names, texts, values, assignments, IDs and resolved definitions
+     */
+    public FeatureAttributes copy() {
+        FeatureAttributes copy = new FeatureAttributes();
+        copy.names.addAll(names);
+        copy.texts.addAll(texts);
+        copy.values.addAll(values);
+        copy.valueIndex = null;
+        copy.featureCount = featureCount;
+        copy.start = Arrays.copyOf(start, start.length);
+        copy.size = size;
+        copy.nameColumn = Arrays.copyOf(nameColumn, nameColumn.length);
+        copy.valueColumn = Arrays.copyOf(valueColumn, valueColumn.length);
+        copy.idCount = idCount;
+        copy.idFeatures = Arrays.copyOf(idFeatures, idFeatures.length);
+        copy.ids = Arrays.copyOf(ids, ids.length);
+        copy.definitions = definitions;
+        return copy;
+    }
+
+    /**
+     * Releases spare capacity and the build-time value lookup once parsing is done.
+     */
+    public void trim() {
+        start = Arrays.copyOf(start, featureCount + 1);
+        nameColumn = Arrays.copyOf(nameColumn, size);
+        valueColumn = Arrays.copyOf(valueColumn, size);
+        idFeatures = Arrays.copyOf(idFeatures, idCount);
+        ids = Arrays.copyOf(ids, idCount);
+        valueIndex = null;
+    }
+
+    /**
+     * Trims the columns, builds the lookup tables and makes the attributes read-only. Further writes, including
+     * {@link #resolve(Job)}, throw IllegalStateException.
+     */
+    public void seal() {
+        if (sealed) {
+            return;
+        }
+        trim();
+        indexOf("");
+        if (!values.isEmpty()) {
+            number(0);
+        }
+        sealed = true;
+    }
+
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    private void checkWritable() {
+        if (sealed) {
+            throw new IllegalStateException("Attributes are sealed");
+        }
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * @return the total number of attribute assignments of the layer
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getStart(int feature) {
+        return feature < featureCount ? start[feature] : size;
+    }
+
+    public int getAttributeCount(int feature) {
+        return feature < featureCount ? start[feature + 1] - start[feature] : 0;
+    }
+
+    /**
+     * @return the name index of assignment entry
+     */
+    public int getNameIndex(int entry) {
+        return nameColumn[entry];
+    }
+
+    /**
+     * @return the raw value of assignment entry, null for a boolean attribute
+     */
+    public String getRawValue(int entry) {
+        int value = valueColumn[entry];
+        return value < 0 ? null : values.get(value);
+    }
+
+    /**
+     * @return the index of the attribute name in the name table, or -1 if the layer does not use it
+     */
+    public int indexOf(String name) {
+        Map<String, Integer> index = nameIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i) != null) {
+                    index.putIfAbsent(names.get(i), i);
+                }
+            }
+            nameIndex = index;
+        }
+        Integer result = index.get(name);
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * @return the assignment entry of the attribute on the feature, or -1 if the feature does not have it
+     */
+    public int find(int feature, int name) {
+        if (name < 0 || feature >= featureCount) {
+            return -1;
+        }
+        for (int entry = start[feature]; entry < start[feature + 1]; entry++) {
+            if (nameColumn[entry] == name) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    public boolean has(int feature, String name) {
+        return find(feature, indexOf(name)) >= 0;
+    }
+
+    /**
+     * @return the raw value of the attribute on the feature, "" for a boolean attribute and null if not set
+     */
+    public String getRawValue(int feature, String name) {
+        int entry = find(feature, indexOf(name));
+        if (entry < 0) {
+            return null;
+        }
+        String value = getRawValue(entry);
+        return value == null ? "" : value;
+    }
+
+    /**
+     * @return the indices of the features that carry the attribute, in increasing order
+     */
+    public int[] featuresWith(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return new int[0];
+        }
+        int[] result = new int[16];
+        int count = 0;
+        int feature = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (nameColumn[entry] != index) {
+                continue;
+            }
+            while (start[feature + 1] <= entry) {
+                feature++;
+            }
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = feature;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Matches the attribute names of the layer with the attribute definitions of the job, so that values can be
+     * read typed. Names without a definition stay untyped.
+     */
+    public void resolve(Job job) {
+        resolve(job.getSystemAttributes(), job.getUserAttributes());
+    }
+
+    public void resolve(Map<String, AttributeDefinition> systemAttributes, Map<String, AttributeDefinition> userAttributes) {
+        checkWritable();
+        AttributeDefinition[] resolved = new AttributeDefinition[names.size()];
+        for (int i = 0; i < resolved.length; i++) {
+            String name = names.get(i);
+            if (name == null) {
+                continue;
+            }
+            Map<String, AttributeDefinition> definitions = name.startsWith(".") ? systemAttributes : userAttributes;
+            resolved[i] = definitions == null ? null : definitions.get(name);
+        }
+        this.definitions = resolved;
+    }
+
+    /**
+     * @return the definition of the attribute name index, or null if unresolved or undefined
+     */
+    public AttributeDefinition getDefinition(int name) {
+        AttributeDefinition[] resolved = definitions;
+        return resolved == null || name < 0 || name >= resolved.length ? null : resolved[name];
+    }
+
+    /**
+     * @return the type of the attribute name index, or null if unresolved or undefined
+     */
+    public AttributeType getType(int name) {
+        AttributeDefinition definition = getDefinition(name);
+        return definition == null ? null : definition.getType();
+    }
+
+    /**
+     * @return the numeric value of the attribute on the feature, NaN if it is not set or not numeric
+     */
+    public double getNumber(int feature, String name) {
+        int entry = find(feature, indexOf(name));
+        return entry < 0 || valueColumn[entry] < 0 ? Double.NaN : number(valueColumn[entry]);
+    }
+
+    private double number(int value) {
+        double[] parsed = numbers;
+        if (parsed == null || parsed.length < values.size()) {
+            parsed = new double[values.size()];
+            for (int i = 0; i < parsed.length; i++) {
+                try {
+                    parsed[i] = Double.parseDouble(values.get(i));
+                } catch (NumberFormatException e) {
+                    parsed[i] = Double.NaN;
+                }
+            }
+            numbers = parsed;
+        }
+        return parsed[value];
+    }
+
+    /**
+     * Returns the value of the attribute as text: TEXT values are looked up in the text table and OPTION values
+     * in the option list of the definition. Other values are returned raw.
+     *
+     * @return the value, "" for a boolean attribute and null if not set
+     */
+    public String getText(int feature, String name) {
+        int index = indexOf(name);
+        int entry = find(feature, index);
+        if (entry < 0) {
+            return null;
+        }
+        String raw = getRawValue(entry);
+        if (raw == null) {
+            return "";
+        }
+        AttributeDefinition definition = getDefinition(index);
+        AttributeType type = definition == null ? null : definition.getType();
+        if (type == AttributeType.TEXT || type == AttributeType.OPTION) {
+            double number = number(valueColumn[entry]);
+            int reference = (int) number;
+            List<String> table = type == AttributeType.TEXT ? texts : definition.getOptions();
+            if (number == reference && table != null && reference >= 0 && reference < table.size()) {
+                return table.get(reference);
+            }
+        }
+        return raw;
+    }
+}
@@ -1,11 +1,176 @@
 package com.odbpp.model;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 @Data
 public class Features {
-    private List<Feature> features = new ArrayList<>();
-}
\ No newline at end of file
+    /**
+     * Units of the features file (INCH or MM), null if the file does not declare them
+     */
+    private String units;
+
+    /**
+     * Feature symbol names section: symbol serial number ($n) to symbol name, e.g. 0 -> "r10"
+     */
+    private Map<Integer, String> symbolNames = new HashMap<>();
+
+    /**
+     * Unit suffix of symbol table entries that declare one: symbol serial number to I (mils) or M (microns).
+     * Symbols without an entry use the units of the file.
+     */
+    private Map<Integer, String> symbolUnits = new HashMap<>();
+
+    /**
+     * The features in file order. The list counts its modifications, so cached results notice features that are
+     * added, removed or replaced through it.
+     */
+    private List<Feature> features = new FeatureList(new ArrayList<>());
+
+    /**
+     * Attribute name and text tables of the file and the attribute assignments of all features, by feature index
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private FeatureAttributes attributes = new FeatureAttributes();
+
+    /**
+     * Extents cached by {@link com.odbpp.geometry.ExtentsCalculator}, together with the modification count they
+     * were computed for. Not part of the feature data.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient BoundingBox cachedExtents;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient long cachedExtentsModification;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient long modifications;
+
+    /**
+     * Replaces the features. Later changes must be made through {@link #getFeatures()}; the list passed here is
+     * used as the backing store, so edits made directly to it are not counted.
+     */
+    public void setFeatures(List<Feature> features) {
+        this.features = features == null || features instanceof FeatureList ? features : new FeatureList(features);
+        invalidateExtents();
+    }
+
+    /**
+     * Adds a feature to this layer and invalidates cached results
+     *
+     * @param feature the feature to add
+     */
+    public void addFeature(Feature feature) {
+        features.add(feature);
+        invalidateExtents();
+    }
+
+    /**
+     * @return the number of changes made to the feature list and of explicit invalidations so far
+     */
+    public long getModificationCount() {
+        return modifications + (features instanceof FeatureList ? ((FeatureList) features).modifications : 0);
+    }
+
+    /**
+     * @return the cached extents, or null if none were computed or the features changed since
+     */
+    public BoundingBox getCachedExtents() {
+        BoundingBox extents = cachedExtents;
+        return extents != null && cachedExtentsModification == getModificationCount() ? extents : null;
+    }
+
+    /**
+     * Caches extents computed for the current features. Callers read {@link #getModificationCount()} before
+     * computing them and pass it here, so a change made meanwhile leaves the cache stale.
+     */
+    public void cacheExtents(BoundingBox extents, long modification) {
+        this.cachedExtentsModification = modification;
+        this.cachedExtents = extents;
+    }
+
+    public void cacheExtents(BoundingBox extents) {
+        cacheExtents(extents, getModificationCount());
+    }
+
+    /**
+     * Drops cached results. Call this after modifying a feature object in place; changes to the list itself are
+     * detected.
+     */
+    public void invalidateExtents() {
+        modifications++;
+        this.cachedExtents = null;
+    }
+
+    /**
+     * List view that counts additions, removals and replacements of its backing list
+     */
+    private static final class FeatureList extends AbstractList<Feature> implements RandomAccess {
+        private final List<Feature> list;
+        private long modifications;
+
+        FeatureList(List<Feature> list) {
+            this.list = list;
+        }
+
+        @Override
+        public Feature get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public Feature set(int index, Feature feature) {
+            Feature previous = list.set(index, feature);
+            modifications++;
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Feature feature) {
+            list.add(index, feature);
+            modCount++;
+            modifications++;
+        }
+
+        @Override
+        public Feature remove(int index) {
+            Feature removed = list.remove(index);
+            modCount++;
+            modifications++;
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            list.clear();
+            modCount++;
+            modifications++;
+        }
+    }
+}
@@ -0,0 +1,691 @@
+package com.odbpp.model;
+
+import com.odbpp.model.impedance.ImpedanceFile;
+import com.odbpp.model.stackup.StackupFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Read-only snapshot of a parsed job that any number of threads can query without locking.
+ *
+ * {@link #freeze(Job)} copies the job, its steps, layers and symbols with every collection replaced by a compact
+ * unmodifiable one (List.copyOf / Map.copyOf), and seals a copy of the packed feature attributes so that their
+ * lookup tables are built up front. The job, step, layer and features containers of a snapshot reject setters
+ * with UnsupportedOperationException. The snapshot holds the result in final fields, so it is safely published
+ * to other threads however the snapshot itself is handed over.
+ *
+ * Features, components and other records are shared with the source job, not copied: they must not be modified
+ * once the job is frozen. EDA data, netlists and the remaining step records are shared as they are.
+ *
+ * Hash codes are computed once per layer and step. {@link #toBuilder()} edits a snapshot copy-on-write: the new
+ * snapshot shares every step and layer that was not replaced, together with its hash.
+ */
+public final class JobSnapshot {
+
+    /**
+     * A frozen step with the hash codes of its layers
+     */
+    private static final class StepNode {
+        private final Step step;
+        private final int baseHash;
+        private final Map<String, Integer> layerHashes;
+        private final int hash;
+
+        StepNode(Step step, int baseHash, Map<String, Integer> layerHashes) {
+            this.step = step;
+            this.baseHash = baseHash;
+            this.layerHashes = layerHashes;
+            this.hash = 31 * baseHash + layerHashes.hashCode();
+        }
+
+        StepNode withLayers(Map<String, Layer> layers, Map<String, Integer> hashes) {
+            return new StepNode(new FrozenStep(step, Map.copyOf(layers)), baseHash, Map.copyOf(hashes));
+        }
+    }
+
+    /**
+     * Job whose setters throw once the snapshot has built it
+     */
+    private static final class FrozenJob extends Job {
+        private boolean frozen;
+
+        FrozenJob(Job job, Map<String, Step> steps) {
+            setMiscInfo(job.getMiscInfo());
+            setProductModelAttributes(job.getProductModelAttributes());
+            setLastSave(job.getLastSave());
+            setMetadata(job.getMetadata());
+            setMatrix(job.getMatrix());
+            setStackup(job.getStackup());
+            setStandardFont(job.getStandardFont());
+            setSymbols(job.getSymbols());
+            setWheels(job.getWheels());
+            setSystemAttributes(job.getSystemAttributes());
+            setUserAttributes(job.getUserAttributes());
+            setSteps(steps);
+            frozen = true;
+        }
+
+        private void checkWritable() {
+            if (frozen) {
+                throw new UnsupportedOperationException("Snapshot jobs are read-only");
+            }
+        }
+
+        @Override
+        public void setMiscInfo(MiscInfo miscInfo) {
+            checkWritable();
+            super.setMiscInfo(miscInfo);
+        }
+
+        @Override
+        public void setProductModelAttributes(AttrList productModelAttributes) {
+            checkWritable();
+            super.setProductModelAttributes(productModelAttributes);
+        }
+
+        @Override
+        public void setLastSave(String lastSave) {
+            checkWritable();
+            super.setLastSave(lastSave);
+        }
+
+        @Override
+        public void setMetadata(Metadata metadata) {
+            checkWritable();
+            super.setMetadata(metadata);
+        }
+
+        @Override
+        public void setMatrix(Matrix matrix) {
+            checkWritable();
+            super.setMatrix(matrix);
+        }
+
+        @Override
+        public void setStackup(StackupFile stackup) {
+            checkWritable();
+            super.setStackup(stackup);
+        }
+
+        @Override
+        public void setStandardFont(StandardFont standardFont) {
+            checkWritable();
+            super.setStandardFont(standardFont);
+        }
+
+        @Override
+        public void setSymbols(Map<String, Symbol> symbols) {
+            checkWritable();
+            super.setSymbols(symbols);
+        }
+
+        @Override
+        public void setWheels(Map<String, Wheel> wheels) {
+            checkWritable();
+            super.setWheels(wheels);
+        }
+
+        @Override
+        public void setSystemAttributes(Map<String, AttributeDefinition> systemAttributes) {
+            checkWritable();
+            super.setSystemAttributes(systemAttributes);
+        }
+
+        @Override
+        public void setUserAttributes(Map<String, AttributeDefinition> userAttributes) {
+            checkWritable();
+            super.setUserAttributes(userAttributes);
+        }
+
+        @Override
+        public void setSteps(Map<String, Step> steps) {
+            checkWritable();
+            super.setSteps(steps);
+        }
+    }
+
+    /**
+     * Step whose setters throw once it is frozen, so that snapshots can share it
+     */
+    private static final class FrozenStep extends Step {
+        private boolean frozen;
+
+        FrozenStep(Step step, Map<String, Layer> layers) {
+            setName(step.getName());
+            setLayersByName(layers);
+            setEdaData(step.getEdaData());
+            setNetlistsByName(step.getNetlistsByName());
+            setAttrList(step.getAttrList());
+            setProfile(step.getProfile());
+            setStepHdr(step.getStepHdr());
+            setBom(step.getBom());
+            setImpedance(step.getImpedance());
+            setZones(step.getZones());
+            setCol(step.getCol());
+            setId(step.getId());
+            frozen = true;
+        }
+
+        private void checkWritable() {
+            if (frozen) {
+                throw new UnsupportedOperationException("Snapshot steps are read-only");
+            }
+        }
+
+        @Override
+        public void setName(String name) {
+            checkWritable();
+            super.setName(name);
+        }
+
+        @Override
+        public void setLayersByName(Map<String, Layer> layersByName) {
+            checkWritable();
+            super.setLayersByName(layersByName);
+        }
+
+        @Override
+        public void setEdaData(EdaData edaData) {
+            checkWritable();
+            super.setEdaData(edaData);
+        }
+
+        @Override
+        public void setNetlistsByName(Map<String, Netlist> netlistsByName) {
+            checkWritable();
+            super.setNetlistsByName(netlistsByName);
+        }
+
+        @Override
+        public void setAttrList(AttrList attrList) {
+            checkWritable();
+            super.setAttrList(attrList);
+        }
+
+        @Override
+        public void setProfile(Features profile) {
+            checkWritable();
+            super.setProfile(profile);
+        }
+
+        @Override
+        public void setStepHdr(StepHdr stepHdr) {
+            checkWritable();
+            super.setStepHdr(stepHdr);
+        }
+
+        @Override
+        public void setBom(Bom bom) {
+            checkWritable();
+            super.setBom(bom);
+        }
+
+        @Override
+        public void setImpedance(ImpedanceFile impedance) {
+            checkWritable();
+            super.setImpedance(impedance);
+        }
+
+        @Override
+        public void setZones(List<Zone> zones) {
+            checkWritable();
+            super.setZones(zones);
+        }
+
+        @Override
+        public void setCol(int col) {
+            checkWritable();
+            super.setCol(col);
+        }
+
+        @Override
+        public void setId(int id) {
+            checkWritable();
+            super.setId(id);
+        }
+    }
+
+    /**
+     * Layer whose setters throw once it is frozen
+     */
+    private static final class FrozenLayer extends Layer {
+        private boolean frozen;
+
+        FrozenLayer(Layer layer, Components components, Features features, AttrList attrList, Profile profile,
+                    DrillTools tools) {
+            setName(layer.getName());
+            setPath(layer.getPath());
+            setComponents(components);
+            setFeatures(features);
+            setAttrList(attrList);
+            setProfile(profile);
+            setTools(tools);
+            frozen = true;
+        }
+
+        private void checkWritable() {
+            if (frozen) {
+                throw new UnsupportedOperationException("Snapshot layers are read-only");
+            }
+        }
+
+        @Override
+        public void setName(String name) {
+            checkWritable();
+            super.setName(name);
+        }
+
+        @Override
+        public void setPath(String path) {
+            checkWritable();
+            super.setPath(path);
+        }
+
+        @Override
+        public void setComponents(Components components) {
+            checkWritable();
+            super.setComponents(components);
+        }
+
+        @Override
+        public void setFeatures(Features features) {
+            checkWritable();
+            super.setFeatures(features);
+        }
+
+        @Override
+        public void setAttrList(AttrList attrList) {
+            checkWritable();
+            super.setAttrList(attrList);
+        }
+
+        @Override
+        public void setProfile(Profile profile) {
+            checkWritable();
+            super.setProfile(profile);
+        }
+
+        @Override
+        public void setTools(DrillTools tools) {
+            checkWritable();
+            super.setTools(tools);
+        }
+    }
+
+    /**
+     * Features whose containers cannot be replaced once frozen; the feature list itself is unmodifiable. The
+     * extents cache stays writable.
+     */
+    private static final class FrozenFeatures extends Features {
+        private boolean frozen;
+
+        FrozenFeatures(Features features, Job job) {
+            setUnits(features.getUnits());
+            setSymbolNames(freezeMap(features.getSymbolNames()));
+            setSymbolUnits(freezeMap(features.getSymbolUnits()));
+            setFeatures(freezeList(features.getFeatures()));
+            setAttributes(seal(features.getAttributes(), getFeatures().size(), job));
+            frozen = true;
+        }
+
+        private void checkWritable() {
+            if (frozen) {
+                throw new UnsupportedOperationException("Snapshot features are read-only");
+            }
+        }
+
+        @Override
+        public void setUnits(String units) {
+            checkWritable();
+            super.setUnits(units);
+        }
+
+        @Override
+        public void setSymbolNames(Map<Integer, String> symbolNames) {
+            checkWritable();
+            super.setSymbolNames(symbolNames);
+        }
+
+        @Override
+        public void setSymbolUnits(Map<Integer, String> symbolUnits) {
+            checkWritable();
+            super.setSymbolUnits(symbolUnits);
+        }
+
+        @Override
+        public void setFeatures(List<Feature> features) {
+            checkWritable();
+            super.setFeatures(features);
+        }
+
+        @Override
+        public void setAttributes(FeatureAttributes attributes) {
+            checkWritable();
+            super.setAttributes(attributes);
+        }
+    }
+
+    private final Job job;
+    private final Map<String, StepNode> steps;
+    private final int baseHash;
+    private final int hash;
+
+    private JobSnapshot(Job job, Map<String, StepNode> steps, int baseHash) {
+        Map<String, Step> frozenSteps = new HashMap<>();
+        int stepsHash = 0;
+        for (Map.Entry<String, StepNode> entry : steps.entrySet()) {
+            frozenSteps.put(entry.getKey(), entry.getValue().step);
+            stepsHash += entry.getKey().hashCode() ^ entry.getValue().hash;
+        }
+        this.job = new FrozenJob(job, Map.copyOf(frozenSteps));
+        this.steps = Map.copyOf(steps);
+        this.baseHash = baseHash;
+        this.hash = 31 * baseHash + stepsHash;
+    }
+
+    /**
+     * Freezes a parsed job. The snapshot's feature attributes are copies resolved against the attribute
+     * definitions of the job and sealed; those of the job itself are left unchanged.
+     */
+    public static JobSnapshot freeze(Job job) {
+        Job copy = new Job();
+        copy.setMiscInfo(job.getMiscInfo());
+        copy.setProductModelAttributes(freeze(job.getProductModelAttributes()));
+        copy.setLastSave(job.getLastSave());
+        copy.setMetadata(job.getMetadata());
+        copy.setMatrix(freeze(job.getMatrix()));
+        copy.setStackup(job.getStackup());
+        copy.setStandardFont(job.getStandardFont());
+        copy.setWheels(freezeMap(job.getWheels()));
+        copy.setSystemAttributes(freezeMap(job.getSystemAttributes()));
+        copy.setUserAttributes(freezeMap(job.getUserAttributes()));
+        if (job.getSymbols() != null) {
+            Map<String, Symbol> symbols = new HashMap<>();
+            for (Map.Entry<String, Symbol> entry : job.getSymbols().entrySet()) {
+                symbols.put(entry.getKey(), freeze(entry.getValue(), copy));
+            }
+            copy.setSymbols(freezeMap(symbols));
+        }
+        Map<String, StepNode> steps = new HashMap<>();
+        if (job.getSteps() != null) {
+            for (Map.Entry<String, Step> entry : job.getSteps().entrySet()) {
+                steps.put(entry.getKey(), freeze(entry.getValue(), copy));
+            }
+        }
+        return new JobSnapshot(copy, steps, baseHash(copy));
+    }
+
+    private static int baseHash(Job job) {
+        return Objects.hash(job.getMiscInfo(), job.getProductModelAttributes(), job.getLastSave(), job.getMetadata(),
+                job.getMatrix(), job.getStackup(), job.getStandardFont(), job.getSymbols(), job.getWheels(),
+                job.getSystemAttributes(), job.getUserAttributes());
+    }
+
+    private static StepNode freeze(Step step, Job job) {
+        Step copy = new Step();
+        copy.setName(step.getName());
+        copy.setEdaData(step.getEdaData());
+        copy.setNetlistsByName(freezeMap(step.getNetlistsByName()));
+        copy.setAttrList(freeze(step.getAttrList()));
+        copy.setProfile(freeze(step.getProfile(), job));
+        copy.setStepHdr(step.getStepHdr());
+        copy.setBom(freeze(step.getBom()));
+        copy.setImpedance(step.getImpedance());
+        copy.setZones(freezeList(step.getZones()));
+        copy.setCol(step.getCol());
+        copy.setId(step.getId());
+        Map<String, Layer> layers = new HashMap<>();
+        Map<String, Integer> hashes = new HashMap<>();
+        if (step.getLayersByName() != null) {
+            for (Map.Entry<String, Layer> entry : step.getLayersByName().entrySet()) {
+                Layer layer = freeze(entry.getValue(), job);
+                layers.put(entry.getKey(), layer);
+                hashes.put(entry.getKey(), layer.hashCode());
+            }
+        }
+        int baseHash = Objects.hash(copy.getName(), copy.getEdaData(), copy.getNetlistsByName(), copy.getAttrList(),
+                copy.getProfile(), copy.getStepHdr(), copy.getBom(), copy.getImpedance(), copy.getZones(),
+                copy.getCol(), copy.getId());
+        return new StepNode(new FrozenStep(copy, Map.copyOf(layers)), baseHash, Map.copyOf(hashes));
+    }
+
+    private static Layer freeze(Layer layer, Job job) {
+        return new FrozenLayer(layer, freeze(layer.getComponents()), freeze(layer.getFeatures(), job),
+                freeze(layer.getAttrList()), freeze(layer.getProfile(), job), freeze(layer.getTools()));
+    }
+
+    private static Symbol freeze(Symbol symbol, Job job) {
+        Symbol copy = new Symbol();
+        copy.setName(symbol.getName());
+        copy.setAttrList(freeze(symbol.getAttrList()));
+        copy.setFeatures(freeze(symbol.getFeatures(), job));
+        return copy;
+    }
+
+    private static Features freeze(Features features, Job job) {
+        return features == null ? null : new FrozenFeatures(features, job);
+    }
+
+    private static Profile freeze(Profile profile, Job job) {
+        if (profile == null) {
+            return null;
+        }
+        Profile copy = new Profile();
+        copy.setSurfaces(freezeList(profile.getSurfaces()));
+        copy.setAttributes(seal(profile.getAttributes(), copy.getSurfaces().size(), job));
+        return copy;
+    }
+
+    /**
+     * @return the attributes if already sealed, otherwise a sealed copy; the source job keeps its own store
+     */
+    private static FeatureAttributes seal(FeatureAttributes attributes, int featureCount, Job job) {
+        if (attributes == null || attributes.isSealed()) {
+            return attributes;
+        }
+        FeatureAttributes copy = attributes.copy();
+        copy.ensureFeatures(featureCount);
+        copy.resolve(job);
+        copy.seal();
+        return copy;
+    }
+
+    private static Components freeze(Components components) {
+        if (components == null) {
+            return null;
+        }
+        Components copy = new Components();
+        copy.setUnits(components.getUnits());
+        copy.setAttributeNames(freezeList(components.getAttributeNames()));
+        copy.setAttributeTextValues(freezeList(components.getAttributeTextValues()));
+        copy.setComponents(freezeList(components.getComponents()));
+        return copy;
+    }
+
+    private static DrillTools freeze(DrillTools tools) {
+        if (tools == null) {
+            return null;
+        }
+        DrillTools copy = new DrillTools();
+        copy.setUnits(tools.getUnits());
+        copy.setThickness(tools.getThickness());
+        copy.setUserParams(tools.getUserParams());
+        copy.setTools(freezeList(tools.getTools()));
+        return copy;
+    }
+
+    private static AttrList freeze(AttrList attrList) {
+        if (attrList == null) {
+            return null;
+        }
+        AttrList copy = new AttrList();
+        copy.setUnits(attrList.getUnits());
+        copy.setAttributes(freezeMap(attrList.getAttributes()));
+        return copy;
+    }
+
+    private static Matrix freeze(Matrix matrix) {
+        if (matrix == null) {
+            return null;
+        }
+        Matrix copy = new Matrix();
+        copy.setLayers(freezeList(matrix.getLayers()));
+        copy.setSteps(freezeList(matrix.getSteps()));
+        return copy;
+    }
+
+    private static Bom freeze(Bom bom) {
+        if (bom == null) {
+            return null;
+        }
+        Bom copy = new Bom();
+        copy.setName(bom.getName());
+        copy.setItems(freezeList(bom.getItems()));
+        return copy;
+    }
+
+    private static <T> List<T> freezeList(List<T> list) {
+        if (list == null) {
+            return null;
+        }
+        // List.copyOf rejects null elements, which sparse name tables contain
+        return list.contains(null) ? Collections.unmodifiableList(new ArrayList<>(list)) : List.copyOf(list);
+    }
+
+    private static <K, V> Map<K, V> freezeMap(Map<K, V> map) {
+        if (map == null) {
+            return null;
+        }
+        return map.containsKey(null) || map.containsValue(null)
+                ? Collections.unmodifiableMap(new HashMap<>(map)) : Map.copyOf(map);
+    }
+
+    /**
+     * @return the frozen job; its collections are unmodifiable
+     */
+    public Job getJob() {
+        return job;
+    }
+
+    public Set<String> getStepNames() {
+        return steps.keySet();
+    }
+
+    /**
+     * @return the frozen step, or null if the job has no step with that name
+     */
+    public Step getStep(String name) {
+        StepNode node = steps.get(name);
+        return node == null ? null : node.step;
+    }
+
+    /**
+     * @return the frozen layer, or null if the step or layer does not exist
+     */
+    public Layer getLayer(String stepName, String layerName) {
+        Step step = getStep(stepName);
+        return step == null ? null : step.getLayersByName().get(layerName);
+    }
+
+    /**
+     * @return a builder for an edited copy of this snapshot
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JobSnapshot)) {
+            return false;
+        }
+        JobSnapshot other = (JobSnapshot) o;
+        return hash == other.hash && job.equals(other.job);
+    }
+
+    /**
+     * Copy-on-write editor of a snapshot. Replaced steps and layers are frozen when they are added; everything
+     * else is shared with the source snapshot, which is left unchanged.
+     */
+    public static final class Builder {
+        private final JobSnapshot source;
+        private final Map<String, StepNode> steps;
+        private final Map<String, Map<String, Layer>> editedLayers = new HashMap<>();
+        private final Map<String, Map<String, Integer>> editedHashes = new HashMap<>();
+
+        private Builder(JobSnapshot source) {
+            this.source = source;
+            this.steps = new HashMap<>(source.steps);
+        }
+
+        /**
+         * Adds or replaces a step. The step is frozen, so it must not be modified afterwards.
+         */
+        public Builder putStep(Step step) {
+            editedLayers.remove(step.getName());
+            editedHashes.remove(step.getName());
+            steps.put(step.getName(), freeze(step, source.job));
+            return this;
+        }
+
+        public Builder removeStep(String stepName) {
+            editedLayers.remove(stepName);
+            editedHashes.remove(stepName);
+            steps.remove(stepName);
+            return this;
+        }
+
+        /**
+         * Adds or replaces a layer of an existing step. The layer is frozen, so it must not be modified afterwards.
+         */
+        public Builder putLayer(String stepName, Layer layer) {
+            Layer frozen = freeze(layer, source.job);
+            layers(stepName).put(layer.getName(), frozen);
+            editedHashes.get(stepName).put(layer.getName(), frozen.hashCode());
+            return this;
+        }
+
+        public Builder removeLayer(String stepName, String layerName) {
+            layers(stepName).remove(layerName);
+            editedHashes.get(stepName).remove(layerName);
+            return this;
+        }
+
+        private Map<String, Layer> layers(String stepName) {
+            Map<String, Layer> layers = editedLayers.get(stepName);
+            if (layers == null) {
+                StepNode node = steps.get(stepName);
+                if (node == null) {
+                    throw new IllegalArgumentException("Unknown step " + stepName);
+                }
+                layers = new HashMap<>(node.step.getLayersByName());
+                editedLayers.put(stepName, layers);
+                editedHashes.put(stepName, new HashMap<>(node.layerHashes));
+            }
+            return layers;
+        }
+
+        public JobSnapshot build() {
+            Map<String, StepNode> built = new HashMap<>(steps);
+            for (Map.Entry<String, Map<String, Layer>> entry : editedLayers.entrySet()) {
+                StepNode node = built.get(entry.getKey());
+                built.put(entry.getKey(), node.withLayers(entry.getValue(), editedHashes.get(entry.getKey())));
+            }
+            return new JobSnapshot(source.job, built, source.baseHash);
+        }
+    }
+}
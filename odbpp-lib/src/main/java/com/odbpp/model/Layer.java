@@ -10,4 +10,5 @@ public class Layer {
     private Features features;
     private AttrList attrList;
     private Profile profile;
+    private DrillTools tools;
 }
@@ -23,11 +23,7 @@ public class Line extends Feature {
     // Gerber dcode number or Excellon tool number (0 if not defined)
     private int dcode;
     
-    // Attribute number, referencing an attribute from the feature attribute names section
-    private Integer attributeNumber;
-    
-    // Attribute value that depends on the type of attribute
-    private String attributeValue;
+    // Attributes are kept in the FeatureAttributes of the layer
     
     // Unique identifier for the feature
     private String uniqueId;
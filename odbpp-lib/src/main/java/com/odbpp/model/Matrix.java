@@ -11,4 +11,33 @@ import java.util.List;
 public class Matrix {
     private List<MatrixLayer> layers;
     private List<Step> steps;
+
+    /**
+     * @return the matrix layer with the given name, or null
+     */
+    public MatrixLayer getLayer(String name) {
+        if (layers == null || name == null) {
+            return null;
+        }
+        for (MatrixLayer layer : layers) {
+            if (name.equals(layer.getName())) {
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the drill span (START_NAME..END_NAME) of the drill layer covers the given layer; a drill
+     *         layer without a span covers every layer
+     */
+    public boolean spans(MatrixLayer drill, MatrixLayer layer) {
+        MatrixLayer start = getLayer(drill.getStartName());
+        MatrixLayer end = getLayer(drill.getEndName());
+        if (start == null || end == null) {
+            return true;
+        }
+        return layer.getRow() >= Math.min(start.getRow(), end.getRow())
+                && layer.getRow() <= Math.max(start.getRow(), end.getRow());
+    }
 }
@@ -21,4 +21,19 @@ public class MatrixLayer {
     private int ref; // Optional
     private int color; // Optional
     private int id; // Optional
+
+    /**
+     * @return true for board layers that carry copper: SIGNAL, POWER_GROUND and MIXED
+     */
+    public boolean isCopper() {
+        return "BOARD".equals(context)
+                && ("SIGNAL".equals(type) || "POWER_GROUND".equals(type) || "MIXED".equals(type));
+    }
+
+    /**
+     * @return true for board drill layers
+     */
+    public boolean isDrill() {
+        return "BOARD".equals(context) && "DRILL".equals(type);
+    }
 }
@@ -0,0 +1,118 @@
+package com.odbpp.model;
+
+import java.util.Arrays;
+
+/**
+ * Net points of a netlist file in primitive columns, one entry per point.
+ *
+ * Record: &lt;net_num&gt; &lt;radius&gt; &lt;x&gt; &lt;y&gt; &lt;side&gt; [&lt;w&gt; &lt;h&gt;] &lt;epoint&gt; &lt;exp&gt; ...
+ * Side is T (top), D (down), B (both) or I (inner); epoint is e for an end point and m for a mid point; exp is
+ * the exposure, e.g. e (exposed), c (covered) or p/s (partially exposed). Width and height are NaN for round
+ * points.
+ */
+public class NetPoints {
+    private int size;
+    private int[] net = new int[16];
+    private double[] radius = new double[16];
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+    private double[] width = new double[16];
+    private double[] height = new double[16];
+    private char[] side = new char[16];
+    private boolean[] endPoint = new boolean[16];
+    private char[] exposure = new char[16];
+
+    public void add(int netNumber, double pointRadius, double pointX, double pointY, char pointSide,
+                    double pointWidth, double pointHeight, boolean isEndPoint, char pointExposure) {
+        if (size == net.length) {
+            int capacity = size * 2;
+            net = Arrays.copyOf(net, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            width = Arrays.copyOf(width, capacity);
+            height = Arrays.copyOf(height, capacity);
+            side = Arrays.copyOf(side, capacity);
+            endPoint = Arrays.copyOf(endPoint, capacity);
+            exposure = Arrays.copyOf(exposure, capacity);
+        }
+        net[size] = netNumber;
+        radius[size] = pointRadius;
+        x[size] = pointX;
+        y[size] = pointY;
+        width[size] = pointWidth;
+        height[size] = pointHeight;
+        side[size] = pointSide;
+        endPoint[size] = isEndPoint;
+        exposure[size] = pointExposure;
+        size++;
+    }
+
+    /**
+     * Releases spare capacity once all points are added.
+     */
+    public void trim() {
+        net = Arrays.copyOf(net, size);
+        radius = Arrays.copyOf(radius, size);
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        width = Arrays.copyOf(width, size);
+        height = Arrays.copyOf(height, size);
+        side = Arrays.copyOf(side, size);
+        endPoint = Arrays.copyOf(endPoint, size);
+        exposure = Arrays.copyOf(exposure, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNet(int point) {
+        return net[point];
+    }
+
+    public double getRadius(int point) {
+        return radius[point];
+    }
+
+    public double getX(int point) {
+        return x[point];
+    }
+
+    public double getY(int point) {
+        return y[point];
+    }
+
+    public double getWidth(int point) {
+        return width[point];
+    }
+
+    public double getHeight(int point) {
+        return height[point];
+    }
+
+    public char getSide(int point) {
+        return side[point];
+    }
+
+    public boolean isEndPoint(int point) {
+        return endPoint[point];
+    }
+
+    public char getExposure(int point) {
+        return exposure[point];
+    }
+
+    /**
+     * Materializes a point, e.g. to hand a single result to code using the object model.
+     */
+    public Netlist.NetPoint toNetPoint(int point) {
+        Netlist.NetPoint netPoint = new Netlist.NetPoint();
+        netPoint.setNetNum(net[point]);
+        netPoint.setRadius(radius[point]);
+        netPoint.setX(x[point]);
+        netPoint.setY(y[point]);
+        netPoint.setSide(String.valueOf(side[point]));
+        return netPoint;
+    }
+}
@@ -1,6 +1,7 @@
 package com.odbpp.model;
 
 import lombok.Data;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -9,11 +10,40 @@ import java.util.List;
  */
 @Data
 public class Netlist {
+    /**
+     * Units of the netlist file (INCH or MM), null if the file does not declare them
+     */
+    private String units;
+
     private boolean optimized;
     private boolean staggered;
-    private List<Net> nets;
+    private List<Net> nets = new ArrayList<>();
+
+    /**
+     * Points as objects, for netlists built by hand. Parsed netlists keep their points in {@link #points}.
+     */
     private List<NetPoint> netPoints;
 
+    /**
+     * Points of a parsed netlist in primitive columns
+     */
+    private NetPoints points = new NetPoints();
+
+    /**
+     * @return the name of the net with the serial number, or null if the netlist does not declare it
+     */
+    public String getNetName(int serialNum) {
+        if (serialNum >= 0 && serialNum < nets.size() && nets.get(serialNum).getSerialNum() == serialNum) {
+            return nets.get(serialNum).getName();
+        }
+        for (Net net : nets) {
+            if (net.getSerialNum() == serialNum) {
+                return net.getName();
+            }
+        }
+        return null;
+    }
+
     @Data
     public static class Net {
         private int serialNum;
@@ -26,12 +26,27 @@ public class Pad extends Feature {
     private int orientationType; // 0-9
     private Double customRotation; // null for legacy values, otherwise the rotation angle
     
-    // atr - attribute number referencing feature attribute names section
-    private Integer attributeNumber;
-    
-    // value - attribute value (depends on attribute type)
-    private String attributeValue;
+    // Attributes are kept in the FeatureAttributes of the layer
     
     // ID - unique identifier (inherited from Feature class)
     // The id field is already available from the parent Feature class
+
+    /**
+     * Rotation of the pad in degrees, clockwise, resolved from the orientation definition
+     *
+     * @return the rotation angle
+     */
+    public double getRotation() {
+        if (orientationType >= 8) {
+            return customRotation == null ? 0 : customRotation;
+        }
+        return (orientationType % 4) * 90;
+    }
+
+    /**
+     * @return true if the orientation definition mirrors the pad
+     */
+    public boolean isMirrored() {
+        return orientationType == 9 || (orientationType >= 4 && orientationType <= 7);
+    }
 }
\ No newline at end of file
@@ -8,4 +8,9 @@ import java.util.List;
 @Data
 public class Profile {
     private List<Surface> surfaces = new ArrayList<>();
+
+    /**
+     * Attributes of the profile surfaces, by surface index
+     */
+    private FeatureAttributes attributes = new FeatureAttributes();
 }
\ No newline at end of file
@@ -19,6 +19,11 @@ public class StepHdr {
     private boolean affectingBomChanged;
     private List<StepRepeat> stepRepeats;
 
+    /**
+     * Places an NX by NY array of a child step: its datum goes to (X, Y), repeated every DX and DY. ANGLE is a
+     * clockwise rotation in degrees, MIRROR mirrors the child in X and FLIP turns it over (mirrored, with the
+     * layer order reversed).
+     */
     @Data
     public static class StepRepeat {
         private String name;
@@ -26,8 +31,8 @@ public class StepHdr {
         private double y;
         private double dx;
         private double dy;
-        private int nx;
-        private int ny;
+        private int nx = 1;
+        private int ny = 1;
         private double angle;
         private boolean flip;
         private boolean mirror;
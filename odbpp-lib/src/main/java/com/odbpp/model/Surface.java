@@ -4,9 +4,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents a surface definition in ODB++ format.
@@ -33,6 +31,8 @@ import java.util.Map;
  * OE
  * 
  * The last OS or OC coordinate should be the same as the OB coordinate.
+ *
+ * Attributes are kept in the {@link FeatureAttributes} of the layer or profile.
  */
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -47,17 +47,6 @@ public class Surface extends Feature {
      */
     private int dcode;
     
-    /**
-     * Map of attribute numbers to their values
-     * Key: attribute number (referencing an attribute from the feature attribute names section)
-     * Value: attribute value that depends on the type of attribute:
-     *   - BOOLEAN: No value is necessary. If the index of the attribute is listed, the attribute is set to TRUE.
-     *   - FLOAT or INTEGER: A number.
-     *   - OPTION: An option number.
-     *   - TEXT: A number referencing the feature attribute text strings section of the lookup table.
-     */
-    private Map<Integer, String> attributes = new HashMap<>();
-    
     /**
      * Unique identifier for the feature (ID=<id>)
      */
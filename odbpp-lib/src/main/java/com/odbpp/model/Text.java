@@ -66,9 +66,5 @@ public class Text extends Feature {
     // 1 - Lower left corner of widest character coincides with insertion point
     private int version;
     
-    // Attribute number, referencing an attribute from the feature attribute names section
-    private Integer atr;
-    
-    // Attribute value that depends on the type of attribute
-    private String value;
+    // Attributes are kept in the FeatureAttributes of the layer
 }
\ No newline at end of file
@@ -1,44 +1,295 @@
 package com.odbpp.parser;
 
 import com.odbpp.model.Component;
+import com.odbpp.model.ComponentAttribute;
 import com.odbpp.model.Components;
+import com.odbpp.model.MirrorType;
+import com.odbpp.model.PropertyRecord;
+import com.odbpp.model.ToeprintRecord;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
+/**
+ * Single-pass parser for components files.
+ *
+ * Format:
+ * CMP <pkg_ref> <x> <y> <rot> <mirror> <comp_name> <part_name>;<attributes>;ID=<id>
+ * PRP <name> '<value>' <float values>
+ * TOP <pin_num> <x> <y> <rot> <mirror> <net_num> <subnet_num> <toeprint_name>
+ *
+ * Attributes without a value are BOOLEAN. Valued attributes are left untyped: OPTION, TEXT, INTEGER and FLOAT
+ * values can only be told apart with the attribute definitions of the job, see {@link Components#resolve}.
+ * Malformed records and attribute assignments are skipped; a skipped CMP record takes its PRP and TOP records with it.
+ */
 public class ComponentsParser {
-    private static final Pattern CMP_PATTERN = Pattern.compile(
-            "^CMP\\s+\\d+\\s+([\\d.]+)\\s+([\\d.]+)\\s+([\\d.]+)\\s+(N|Y)\\s+([\\w\\d]+)\\s+([\\w\\d-]+)");
-    private static final Pattern PRP_PATTERN = Pattern.compile("^PRP\\s+([\\w_]+)\\s+'(.*)'");
+
+    /**
+     * Decides from the fields of a CMP record whether to parse it together with its PRP and TOP records
+     */
+    @FunctionalInterface
+    public interface ComponentFilter {
+        boolean accept(double x, double y, String compName, String partName);
+    }
+
+    private static final ComponentFilter ALL = (x, y, compName, partName) -> true;
 
     public Components parse(Path componentsFile) throws IOException {
         Components components = new Components();
-        List<String> lines = Files.readAllLines(componentsFile, StandardCharsets.ISO_8859_1);
-        Component currentComponent = null;
-
-        for (String line : lines) {
-            Matcher cmpMatcher = CMP_PATTERN.matcher(line);
-            if (cmpMatcher.find()) {
-                currentComponent = new Component();
-                currentComponent.setX(Double.parseDouble(cmpMatcher.group(1)));
-                currentComponent.setY(Double.parseDouble(cmpMatcher.group(2)));
-                currentComponent.setRotation(Double.parseDouble(cmpMatcher.group(3)));
-                currentComponent.setMirror(cmpMatcher.group(4).equals("Y"));
-                currentComponent.setName(cmpMatcher.group(5));
-                currentComponent.setPartName(cmpMatcher.group(6));
-                components.getComponents().add(currentComponent);
+        parse(componentsFile, components, ALL, components.getComponents()::add);
+        return components;
+    }
+
+    /**
+     * Streams the components of the file to the consumer without keeping them in a list.
+     *
+     * @return the header of the file (units and attribute tables) with an empty component list
+     */
+    public Components parse(Path componentsFile, Consumer<Component> consumer) throws IOException {
+        return parse(componentsFile, ALL, consumer);
+    }
+
+    /**
+     * Streams the components the filter accepts; the records of the others are skipped after tokenizing the CMP
+     * line.
+     */
+    public Components parse(Path componentsFile, ComponentFilter filter, Consumer<Component> consumer) throws IOException {
+        Components components = new Components();
+        parse(componentsFile, components, filter, consumer);
+        return components;
+    }
+
+    /**
+     * Parse a components file from a Reader - useful for testing with StringReader
+     */
+    public Components parse(Reader reader) throws IOException {
+        Components components = new Components();
+        parse(toBuffered(reader), components, ALL, components.getComponents()::add);
+        return components;
+    }
+
+    private void parse(Path componentsFile, Components header, ComponentFilter filter, Consumer<Component> consumer)
+            throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(componentsFile, StandardCharsets.ISO_8859_1)) {
+            parse(reader, header, filter, consumer);
+        }
+    }
+
+    private static BufferedReader toBuffered(Reader reader) {
+        return reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    private void parse(BufferedReader reader, Components header, ComponentFilter filter, Consumer<Component> consumer)
+            throws IOException {
+        LineTokenizer tokens = new LineTokenizer();
+        Component current = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            if (line.startsWith("CMP ")) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                // PRP and TOP records of a skipped or malformed component are dropped with it
+                try {
+                    current = parseComponent(line, tokens, filter);
+                } catch (NumberFormatException e) {
+                    current = null;
+                }
+            } else if (line.startsWith("TOP ")) {
+                if (current != null) {
+                    ToeprintRecord toeprint = parseToeprint(line, tokens);
+                    if (toeprint != null) {
+                        current.addToeprintRecord(toeprint);
+                    }
+                }
+            } else if (line.startsWith("PRP ")) {
+                if (current != null) {
+                    PropertyRecord property = parseProperty(line, tokens);
+                    if (property != null) {
+                        current.addPropertyRecord(property);
+                    }
+                }
+            } else if (line.charAt(0) == '@') {
+                tableEntry(line, header.getAttributeNames());
+            } else if (line.charAt(0) == '&') {
+                tableEntry(line, header.getAttributeTextValues());
+            } else if (line.startsWith("UNITS")) {
+                header.setUnits(line.substring(5).replace("=", "").trim());
             }
+        }
+        if (current != null) {
+            consumer.accept(current);
+        }
+    }
 
-            Matcher prpMatcher = PRP_PATTERN.matcher(line);
-            if (prpMatcher.find() && currentComponent != null) {
-                currentComponent.getProperties().put(prpMatcher.group(1), prpMatcher.group(2));
+    /**
+     * @return the component, or null if the filter rejects it
+     */
+    private Component parseComponent(String line, LineTokenizer tokens, ComponentFilter filter) {
+        int semicolon = line.indexOf(';');
+        int count = tokens.tokenize(line, 4, semicolon < 0 ? line.length() : semicolon);
+        // The filter needs the location and both names
+        if (filter != ALL) {
+            if (count < 7 || !filter.accept(tokens.getDouble(1), tokens.getDouble(2), tokens.get(5), tokens.get(6))) {
+                return null;
             }
         }
-        return components;
+        Component component = new Component();
+        if (tokens.count() >= 5) {
+            component.setPkgRef(tokens.getInt(0));
+            component.setX(tokens.getDouble(1));
+            component.setY(tokens.getDouble(2));
+            component.setRotation(tokens.getDouble(3));
+            component.setMirror(parseMirror(tokens.get(4)));
+        }
+        if (tokens.count() >= 6) {
+            component.setCompName(tokens.get(5));
+        }
+        if (tokens.count() >= 7) {
+            component.setPartName(tokens.getInterned(6));
+        }
+        if (semicolon >= 0) {
+            parseAttributes(line, semicolon, component, tokens);
+        }
+        return component;
+    }
+
+    // ;<attr>,<attr>=<value>,...;ID=<id>
+    private void parseAttributes(String line, int semicolon, Component component, LineTokenizer tokens) {
+        int start = semicolon;
+        while (start < line.length()) {
+            int end = line.indexOf(';', start + 1);
+            if (end < 0) {
+                end = line.length();
+            }
+            String section = line.substring(start + 1, end).trim();
+            if (section.startsWith("ID=")) {
+                component.setUniqueId(section.substring(3).trim());
+            } else if (!section.isEmpty()) {
+                int from = 0;
+                while (from <= section.length()) {
+                    int comma = section.indexOf(',', from);
+                    if (comma < 0) {
+                        comma = section.length();
+                    }
+                    String assignment = section.substring(from, comma).trim();
+                    ComponentAttribute attribute = assignment.isEmpty() ? null : parseAttribute(assignment, tokens);
+                    if (attribute != null) {
+                        component.addAttribute(attribute);
+                    }
+                    from = comma + 1;
+                }
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * @return the attribute, or null if its index is not a number
+     */
+    private ComponentAttribute parseAttribute(String assignment, LineTokenizer tokens) {
+        int equals = assignment.indexOf('=');
+        int index = parseIndex(equals < 0 ? assignment : assignment.substring(0, equals).trim());
+        if (index < 0) {
+            return null;
+        }
+        if (equals < 0) {
+            return ComponentAttribute.createBoolean(index);
+        }
+        ComponentAttribute attribute = new ComponentAttribute();
+        attribute.setAttributeIndex(index);
+        String value = tokens.intern(assignment.substring(equals + 1).trim());
+        attribute.setValue(value);
+        return attribute;
+    }
+
+    /**
+     * @return the toeprint, or null if the record is short or malformed
+     */
+    private ToeprintRecord parseToeprint(String line, LineTokenizer tokens) {
+        if (tokens.tokenize(line, 4, line.length()) < 7) {
+            return null;
+        }
+        ToeprintRecord toeprint = new ToeprintRecord();
+        try {
+            toeprint.setPinNumber(tokens.getInt(0));
+            toeprint.setX(tokens.getDouble(1));
+            toeprint.setY(tokens.getDouble(2));
+            toeprint.setRotation(tokens.getDouble(3));
+            toeprint.setNetNumber(tokens.getInt(5));
+            toeprint.setSubnetNumber(tokens.getInt(6));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        toeprint.setMirror(parseMirror(tokens.get(4)));
+        if (tokens.count() >= 8) {
+            toeprint.setName(tokens.getInterned(7));
+        }
+        return toeprint;
+    }
+
+    /**
+     * @return the property, or null if one of its float values is malformed
+     */
+    private PropertyRecord parseProperty(String line, LineTokenizer tokens) {
+        PropertyRecord property = new PropertyRecord();
+        int open = line.indexOf('\'', 4);
+        int close = open < 0 ? -1 : line.lastIndexOf('\'');
+        if (open < 0 || close <= open) {
+            tokens.tokenize(line, 4, line.length());
+            property.setName(tokens.getOrNull(0));
+            property.setValue(tokens.getOrNull(1));
+            return property;
+        }
+        property.setName(tokens.intern(line.substring(4, open).trim()));
+        property.setValue(line.substring(open + 1, close));
+        tokens.tokenize(line, close + 1, line.length());
+        try {
+            for (int i = 0; i < tokens.count(); i++) {
+                property.addFloatValue(tokens.getDouble(i));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return property;
+    }
+
+    // Older files use Y/N for the mirror flag
+    private static MirrorType parseMirror(String value) {
+        return "M".equals(value) || "Y".equals(value) ? MirrorType.MIRRORED : MirrorType.NOT_MIRRORED;
+    }
+
+    // @<index> <name> or &<index> <text>
+    private static void tableEntry(String line, List<String> table) {
+        int space = 1;
+        while (space < line.length() && !Character.isWhitespace(line.charAt(space))) {
+            space++;
+        }
+        int index = parseIndex(line.substring(1, space));
+        if (index < 0) {
+            return;
+        }
+        while (table.size() <= index) {
+            table.add(null);
+        }
+        table.set(index, line.substring(space).trim());
+    }
+
+    /**
+     * @return the table index, or -1 if it is not a non-negative int
+     */
+    private static int parseIndex(String index) {
+        long value = FeaturesFileParser.parseId(index);
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
     }
 }
@@ -0,0 +1,285 @@
+package com.odbpp.parser;
+
+import com.odbpp.geometry.StandardSymbol;
+import com.odbpp.model.AttributeDefinition;
+import com.odbpp.model.DrillTool;
+import com.odbpp.model.DrillTools;
+import com.odbpp.model.Feature;
+import com.odbpp.model.FeatureAttributes;
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Line;
+import com.odbpp.model.Pad;
+import com.odbpp.model.Polarity;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the holes of a drill layer features file without building the feature list.
+ *
+ * Each positive pad is reported as a hole and each positive line as a routed slot. The hole size is the diameter
+ * of the pad symbol in job units. Plating is taken from the .drill attribute of the record when present,
+ * otherwise from the tool whose number matches the record's dcode, otherwise from the tool whose finish size
+ * matches the hole size.
+ */
+public class DrillFeaturesReader {
+    private static final String DRILL_ATTRIBUTE = ".drill";
+
+    /**
+     * Default options of the .drill system attribute, in option index order
+     */
+    public static final List<String> DEFAULT_DRILL_OPTIONS = List.of("plated", "non_plated", "via");
+
+    /**
+     * Receives the holes of a drill layer. Coordinates and sizes are in job units.
+     */
+    public interface DrillVisitor {
+        void hole(double x, double y, double size, int tool, DrillTool.Type type);
+
+        default void slot(double xs, double ys, double xe, double ye, double size, int tool, DrillTool.Type type) {
+        }
+    }
+
+    private final DrillTools tools;
+    private final List<String> drillOptions;
+
+    /**
+     * @param tools        the tools file of the layer; may be null
+     * @param drillOptions options of the .drill attribute from the job's sysattr; null for the defaults
+     */
+    public DrillFeaturesReader(DrillTools tools, List<String> drillOptions) {
+        this.tools = tools;
+        this.drillOptions = drillOptions == null ? DEFAULT_DRILL_OPTIONS : drillOptions;
+    }
+
+    /**
+     * @return a reader using the tools file of the layer and the .drill options of the job; job may be null
+     */
+    public static DrillFeaturesReader forLayer(Layer layer, Job job) {
+        Map<String, AttributeDefinition> systemAttributes = job == null ? null : job.getSystemAttributes();
+        AttributeDefinition definition = systemAttributes == null ? null : systemAttributes.get(DRILL_ATTRIBUTE);
+        List<String> options = definition == null || definition.getOptions() == null || definition.getOptions().isEmpty()
+                ? null : definition.getOptions();
+        return new DrillFeaturesReader(layer.getTools(), options);
+    }
+
+    /**
+     * Streams the features file in the layer directory when it is known, otherwise reports the loaded features.
+     */
+    public void read(Layer layer, DrillVisitor visitor) throws IOException {
+        Path featuresFile = layer.getPath() == null ? null : Path.of(layer.getPath(), "features");
+        if (featuresFile != null && Files.exists(featuresFile)) {
+            read(featuresFile, visitor);
+        } else if (layer.getFeatures() != null) {
+            read(layer.getFeatures(), visitor);
+        }
+    }
+
+    public void read(Path featuresFile, DrillVisitor visitor) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(featuresFile, StandardCharsets.ISO_8859_1)) {
+            read(reader, visitor);
+        }
+    }
+
+    /**
+     * Read a features file from a Reader - useful for testing with StringReader
+     */
+    public void read(Reader reader, DrillVisitor visitor) throws IOException {
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        Map<Integer, Double> symbolSizes = new HashMap<>();
+        String units = null;
+        int drillAttribute = -1;
+        LineTokenizer tokens = new LineTokenizer();
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            char type = line.charAt(0);
+            if (type == '$') {
+                int count = tokens.tokenize(line, 1, line.length());
+                if (count >= 2) {
+                    symbolSizes.put(tokens.getInt(0), symbolSize(tokens.get(1), count > 2 ? tokens.get(2) : null, units));
+                }
+            } else if (line.startsWith("UNITS=") || line.startsWith("U ")) {
+                units = line.substring(line.startsWith("U ") ? 2 : 6).trim();
+            } else if (type == '@') {
+                if (tokens.tokenize(line, 1, line.length()) >= 2 && DRILL_ATTRIBUTE.equals(tokens.get(1))) {
+                    drillAttribute = tokens.getInt(0);
+                }
+            } else if (type == 'P' || type == 'L') {
+                int semicolon = line.indexOf(';');
+                DrillTool.Type attributeType = semicolon < 0 || drillAttribute < 0
+                        ? null : attributeType(line.substring(semicolon + 1), drillAttribute);
+                tokens.tokenize(line, 1, semicolon < 0 ? line.length() : semicolon);
+                if (type == 'P') {
+                    readPad(tokens, symbolSizes, attributeType, visitor);
+                } else {
+                    readLine(tokens, symbolSizes, attributeType, visitor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the holes of features that are already loaded, taking plating from the .drill attribute in the
+     * attribute store of the features like the streaming reader does.
+     */
+    public void read(Features features, DrillVisitor visitor) {
+        Map<Integer, String> names = features.getSymbolNames();
+        FeatureAttributes attributes = features.getAttributes();
+        int drillAttribute = attributes == null ? -1 : attributes.indexOf(DRILL_ATTRIBUTE);
+        int index = -1;
+        Map<Integer, String> symbolUnits = features.getSymbolUnits() == null ? Map.of() : features.getSymbolUnits();
+        for (Feature feature : features.getFeatures()) {
+            index++;
+            if (feature instanceof Pad) {
+                Pad pad = (Pad) feature;
+                if ("N".equals(pad.getPolarity())) {
+                    continue;
+                }
+                double size = names == null ? 0 : symbolSize(names.get(pad.getSymbolNumber()),
+                        symbolUnits.get(pad.getSymbolNumber()), features.getUnits());
+                if (pad.getResizeFactor() != null) {
+                    size *= pad.getResizeFactor();
+                }
+                int tool = pad.getDcode();
+                visitor.hole(pad.getX(), pad.getY(), size, tool,
+                        classify(attributeType(attributes, index, drillAttribute), tool, size));
+            } else if (feature instanceof Line) {
+                Line line = (Line) feature;
+                if (line.getPolarity() == Polarity.NEGATIVE) {
+                    continue;
+                }
+                double size = names == null ? 0 : symbolSize(names.get(line.getSymbolNumber()),
+                        symbolUnits.get(line.getSymbolNumber()), features.getUnits());
+                int tool = line.getDcode();
+                visitor.slot(line.getXs(), line.getYs(), line.getXe(), line.getYe(), size, tool,
+                        classify(attributeType(attributes, index, drillAttribute), tool, size));
+            }
+        }
+    }
+
+    // P <x> <y> <apt_def> <polarity> <dcode> <orient_def>, apt_def is <sym_num> or -1 <sym_num> <resize_factor>
+    private void readPad(LineTokenizer tokens, Map<Integer, Double> symbolSizes, DrillTool.Type attributeType,
+                         DrillVisitor visitor) {
+        if (tokens.count() < 5) {
+            return;
+        }
+        int next = 2;
+        double size;
+        if (tokens.get(next).equals("-1")) {
+            size = symbolSizes.getOrDefault(tokens.getInt(next + 1), 0.0) * tokens.getDouble(next + 2);
+            next += 3;
+        } else {
+            size = symbolSizes.getOrDefault(tokens.getInt(next), 0.0);
+            next++;
+        }
+        if (next + 1 >= tokens.count() || tokens.get(next).equals("N")) {
+            return;
+        }
+        int tool = tokens.getInt(next + 1);
+        visitor.hole(tokens.getDouble(0), tokens.getDouble(1), size, tool, classify(attributeType, tool, size));
+    }
+
+    // L <xs> <ys> <xe> <ye> <sym_num> <polarity> <dcode>
+    private void readLine(LineTokenizer tokens, Map<Integer, Double> symbolSizes, DrillTool.Type attributeType,
+                          DrillVisitor visitor) {
+        int count = tokens.count();
+        if (count < 5 || (count > 5 && tokens.get(5).equals("N"))) {
+            return;
+        }
+        double size = symbolSizes.getOrDefault(tokens.getInt(4), 0.0);
+        int tool = count > 6 ? tokens.getInt(6) : 0;
+        visitor.slot(tokens.getDouble(0), tokens.getDouble(1), tokens.getDouble(2), tokens.getDouble(3), size, tool,
+                classify(attributeType, tool, size));
+    }
+
+    private DrillTool.Type classify(DrillTool.Type attributeType, int toolNumber, double size) {
+        if (attributeType != null) {
+            return attributeType;
+        }
+        if (tools == null) {
+            return DrillTool.Type.UNKNOWN;
+        }
+        DrillTool tool = tools.getTool(toolNumber);
+        if (tool != null) {
+            return tool.getType();
+        }
+        double symbolSize = size * StandardSymbol.SYMBOL_UNITS_PER_JOB_UNIT;
+        for (DrillTool candidate : tools.getTools()) {
+            if (Math.abs(candidate.getFinishSize() - symbolSize) < 0.5) {
+                return candidate.getType();
+            }
+        }
+        return DrillTool.Type.UNKNOWN;
+    }
+
+    // Attribute assignments: <attr_num>=<value>,<attr_num>=<value>,... optionally followed by ;ID=<id>
+    private DrillTool.Type attributeType(String attributes, int drillAttribute) {
+        int start = 0;
+        while (start < attributes.length()) {
+            int end = attributes.indexOf(',', start);
+            if (end < 0) {
+                end = attributes.indexOf(';', start);
+            }
+            if (end < 0) {
+                end = attributes.length();
+            }
+            int equals = attributes.indexOf('=', start);
+            if (equals > start && equals < end && isNumber(attributes, start, equals)
+                    && Integer.parseInt(attributes, start, equals, 10) == drillAttribute) {
+                return drillType(attributes.substring(equals + 1, end).trim());
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    private DrillTool.Type attributeType(FeatureAttributes attributes, int feature, int drillAttribute) {
+        int entry = drillAttribute < 0 ? -1 : attributes.find(feature, drillAttribute);
+        String value = entry < 0 ? null : attributes.getRawValue(entry);
+        return value == null ? null : drillType(value.trim());
+    }
+
+    /**
+     * @param value the option index or option name of a .drill assignment
+     */
+    private DrillTool.Type drillType(String value) {
+        if (isNumber(value, 0, value.length())) {
+            int option = Integer.parseInt(value);
+            return option < drillOptions.size() ? DrillTool.Type.fromString(drillOptions.get(option)) : DrillTool.Type.UNKNOWN;
+        }
+        return DrillTool.Type.fromString(value);
+    }
+
+    private static boolean isNumber(String s, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param symbolUnits the I or M suffix of the symbol table entry, or null
+     * @return the hole diameter of a drill symbol in job units, 0 if it is not a standard symbol
+     */
+    private static double symbolSize(String name, String symbolUnits, String units) {
+        StandardSymbol symbol = name == null ? null : StandardSymbol.parse(name);
+        return symbol == null ? 0 : symbol.getWidth() * StandardSymbol.scale(symbolUnits, units);
+    }
+}
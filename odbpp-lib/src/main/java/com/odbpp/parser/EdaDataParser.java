@@ -1,40 +1,528 @@
 package com.odbpp.parser;
 
+import com.odbpp.model.BoardSide;
+import com.odbpp.model.ContourPolygon;
 import com.odbpp.model.EdaData;
+import com.odbpp.model.PropertyRecord;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Single-pass parser for eda/data.
+ *
+ * Records are tokenized without regular expressions and repeated strings (pin names, types, attribute values)
+ * are interned per file. FID records go straight into the primitive FID columns of {@link EdaData}.
+ * Feature group (FGR) records and their FIDs are skipped. Records of unknown type are ignored, and a malformed
+ * record is skipped together with the records that belong to it (the FIDs of a subnet, the pins of a package),
+ * so that one bad line does not fail the whole file.
+ */
 public class EdaDataParser {
+
     public EdaData parse(Path dataFile) throws IOException {
-        EdaData edaData = new EdaData();
-        edaData.setNetRecords(new ArrayList<>());
-        edaData.setPackageRecords(new ArrayList<>());
-        edaData.setNetRecordsByName(new HashMap<>());
-        edaData.setPackageRecordsByName(new HashMap<>());
+        try (BufferedReader reader = Files.newBufferedReader(dataFile, StandardCharsets.ISO_8859_1)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Parse eda/data from a Reader - useful for testing with StringReader
+     */
+    public EdaData parse(Reader reader) throws IOException {
+        return new State().parse(reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader));
+    }
+
+    /**
+     * Parser state for one file
+     */
+    private static final class State {
+        private final EdaData edaData = new EdaData();
+        private final LineTokenizer tokens = new LineTokenizer();
+
+        private EdaData.NetRecord net;
+        private EdaData.SubnetRecord subnet;
+        private EdaData.PackageRecord pkg;
+        private EdaData.PinRecord pin;
+        private List<PropertyRecord> properties;
+        private EdaData.Outline contour;
+        private ContourPolygon polygon;
+        private boolean inFeatureGroup;
+
+        private int fidCount;
+        private byte[] fidTypes = new byte[1024];
+        private int[] fidLayers = new int[1024];
+        private int[] fidFeatures = new int[1024];
+        private int[] netFidStarts = new int[64];
+
+        EdaData parse(BufferedReader reader) throws IOException {
+            edaData.setLayerNames(new ArrayList<>());
+            edaData.setAttributeNames(new ArrayList<>());
+            edaData.setAttributeTextValues(new ArrayList<>());
+            edaData.setNetRecords(new ArrayList<>());
+            edaData.setPackageRecords(new ArrayList<>());
+            edaData.setNetRecordsByName(new HashMap<>());
+            edaData.setPackageRecordsByName(new HashMap<>());
 
-        try (BufferedReader reader = Files.newBufferedReader(dataFile)) {
             String line;
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
-                if (line.startsWith("NET ")) {
-                    // Simplified parsing
-                    EdaData.NetRecord net = new EdaData.NetRecord();
-                    net.setName(line.split(" ")[1]);
-                    edaData.getNetRecords().add(net);
-                    edaData.getNetRecordsByName().put(net.getName(), net);
-                } else if (line.startsWith("PKG ")) {
-                    // Simplified parsing
-                    EdaData.PackageRecord pkg = new EdaData.PackageRecord();
-                    pkg.setName(line.split(" ")[1]);
-                    edaData.getPackageRecords().add(pkg);
-                    edaData.getPackageRecordsByName().put(pkg.getName(), pkg);
-                }
-            }
-        }
-        return edaData;
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                parseLine(line);
+            }
+            finish();
+            return edaData;
+        }
+
+        private void parseLine(String line) {
+            switch (line.charAt(0)) {
+                case '@':
+                    tableEntry(line, edaData.getAttributeNames());
+                    return;
+                case '&':
+                    tableEntry(line, edaData.getAttributeTextValues());
+                    return;
+                default:
+            }
+            int space = recordEnd(line);
+            String record = line.substring(0, space);
+            try {
+                parseRecord(record, line, space);
+            } catch (RuntimeException e) {
+                // Malformed numbers, unknown subnet or FID types and missing tokens
+                skip(record);
+            }
+        }
+
+        private void parseRecord(String record, String line, int space) {
+            switch (record) {
+                case "HDR":
+                    edaData.setSource(line.substring(space).trim());
+                    break;
+                case "UNITS":
+                case "U":
+                    edaData.setUnits(line.substring(space).replace("=", "").trim());
+                    break;
+                case "LYR":
+                    tokens.tokenize(line, space, line.length());
+                    for (int i = 0; i < tokens.count(); i++) {
+                        edaData.getLayerNames().add(tokens.get(i));
+                    }
+                    break;
+                case "NET":
+                    parseNet(line, space);
+                    break;
+                case "SNT":
+                    parseSubnet(line, space);
+                    break;
+                case "FID":
+                    parseFid(line, space);
+                    break;
+                case "FGR":
+                    inFeatureGroup = true;
+                    subnet = null;
+                    properties = null;
+                    break;
+                case "PKG":
+                    parsePackage(line, space);
+                    break;
+                case "PIN":
+                    parsePin(line, space);
+                    break;
+                case "PRP":
+                    parseProperty(line, space);
+                    break;
+                case "RC":
+                case "CR":
+                case "SQ":
+                    parseOutline(record, line, space);
+                    break;
+                case "CT":
+                    contour = new EdaData.Outline();
+                    contour.setType(EdaData.Outline.Type.CONTOUR);
+                    contour.setPolygons(new ArrayList<>());
+                    break;
+                case "OB":
+                case "OS":
+                case "OC":
+                case "OE":
+                    parseContourRecord(record, line, space);
+                    break;
+                case "CE":
+                    if (contour != null) {
+                        addOutline(contour);
+                        contour = null;
+                    }
+                    break;
+                default:
+                    // Unknown or unsupported record
+            }
+        }
+
+        /**
+         * Drops the partly read record, so that the records that belong to it are skipped too
+         */
+        private void skip(String record) {
+            switch (record) {
+                case "NET":
+                    net = null;
+                    subnet = null;
+                    properties = null;
+                    break;
+                case "SNT":
+                    subnet = null;
+                    break;
+                case "PKG":
+                    pkg = null;
+                    pin = null;
+                    properties = null;
+                    break;
+                case "PIN":
+                    pin = null;
+                    break;
+                case "CT":
+                    contour = null;
+                    polygon = null;
+                    break;
+                case "OB":
+                    polygon = null;
+                    break;
+                default:
+            }
+        }
+
+        // NET <name>;<attributes>;ID=<id>
+        private void parseNet(String line, int space) {
+            int semicolon = line.indexOf(';');
+            tokens.tokenize(line, space, semicolon < 0 ? line.length() : semicolon);
+            net = new EdaData.NetRecord();
+            net.setName(tokens.count() > 0 ? tokens.get(0) : "");
+            net.setIndex(edaData.getNetRecords().size());
+            net.setSubnetRecords(new ArrayList<>());
+            net.setAttributes(new HashMap<>());
+            net.setId(parseAttributes(line, semicolon, net.getAttributes()));
+
+            if (net.getIndex() == netFidStarts.length) {
+                netFidStarts = Arrays.copyOf(netFidStarts, net.getIndex() * 2);
+            }
+            netFidStarts[net.getIndex()] = fidCount;
+            edaData.getNetRecords().add(net);
+            edaData.getNetRecordsByName().put(net.getName(), net);
+            properties = net.getPropertyRecords();
+            pkg = null;
+            pin = null;
+            subnet = null;
+            inFeatureGroup = false;
+        }
+
+        // SNT TOP <T|B> <comp_num> <toep_num> | SNT VIA | SNT TRC | SNT PLN <fill_type> <cutout_type> <fill_size>
+        private void parseSubnet(String line, int space) {
+            if (net == null) {
+                return;
+            }
+            int semicolon = line.indexOf(';');
+            tokens.tokenize(line, space, semicolon < 0 ? line.length() : semicolon);
+            if (tokens.count() == 0) {
+                return;
+            }
+            subnet = new EdaData.SubnetRecord();
+            subnet.setType(EdaData.SubnetRecord.Type.fromString(tokens.get(0)));
+            subnet.setIndex(net.getSubnetRecords().size());
+            subnet.setFidStart(fidCount);
+            subnet.setId(parseAttributes(line, semicolon, null));
+            switch (subnet.getType()) {
+                case TOEPRINT:
+                    if (tokens.count() >= 4) {
+                        subnet.setSide("B".equals(tokens.get(1)) ? BoardSide.BOTTOM : BoardSide.TOP);
+                        subnet.setComponentNumber(tokens.getInt(2));
+                        subnet.setToeprintNumber(tokens.getInt(3));
+                    }
+                    break;
+                case PLANE:
+                    if (tokens.count() >= 4) {
+                        subnet.setFillType(tokens.getInterned(1));
+                        subnet.setCutoutType(tokens.getInterned(2));
+                        subnet.setFillSize(tokens.getDouble(3));
+                    }
+                    break;
+                default:
+            }
+            net.getSubnetRecords().add(subnet);
+            inFeatureGroup = false;
+        }
+
+        // FID <type> <lyr_num> <f_num>
+        private void parseFid(String line, int space) {
+            if (subnet == null || inFeatureGroup) {
+                return;
+            }
+            if (tokens.tokenize(line, space, line.length()) < 3) {
+                return;
+            }
+            if (fidCount == fidLayers.length) {
+                fidTypes = Arrays.copyOf(fidTypes, fidCount * 2);
+                fidLayers = Arrays.copyOf(fidLayers, fidCount * 2);
+                fidFeatures = Arrays.copyOf(fidFeatures, fidCount * 2);
+            }
+            fidTypes[fidCount] = (byte) EdaData.FidType.fromCode(tokens.get(0).charAt(0)).ordinal();
+            fidLayers[fidCount] = tokens.getInt(1);
+            fidFeatures[fidCount] = tokens.getInt(2);
+            fidCount++;
+            subnet.setFidCount(subnet.getFidCount() + 1);
+        }
+
+        // PKG <name> <pitch> <xmin> <ymin> <xmax> <ymax>;<attributes>;ID=<id>
+        private void parsePackage(String line, int space) {
+            int semicolon = line.indexOf(';');
+            tokens.tokenize(line, space, semicolon < 0 ? line.length() : semicolon);
+            pkg = new EdaData.PackageRecord();
+            pkg.setName(tokens.count() > 0 ? tokens.get(0) : "");
+            if (tokens.count() >= 6) {
+                pkg.setPitch(tokens.getDouble(1));
+                pkg.setXMin(tokens.getDouble(2));
+                pkg.setYMin(tokens.getDouble(3));
+                pkg.setXMax(tokens.getDouble(4));
+                pkg.setYMax(tokens.getDouble(5));
+            }
+            pkg.setIndex(edaData.getPackageRecords().size());
+            pkg.setPinRecords(new ArrayList<>());
+            pkg.setPinRecordsByName(new HashMap<>());
+            pkg.setAttributes(new HashMap<>());
+            pkg.setId(parseAttributes(line, semicolon, pkg.getAttributes()));
+            edaData.getPackageRecords().add(pkg);
+            edaData.getPackageRecordsByName().put(pkg.getName(), pkg);
+            properties = pkg.getPropertyRecords();
+            net = null;
+            subnet = null;
+            pin = null;
+            inFeatureGroup = false;
+        }
+
+        // PIN <name> <type> <xc> <yc> <fhs> <etype> <mtype> ID=<id>
+        private void parsePin(String line, int space) {
+            if (pkg == null) {
+                return;
+            }
+            int semicolon = line.indexOf(';');
+            tokens.tokenize(line, space, semicolon < 0 ? line.length() : semicolon);
+            pin = new EdaData.PinRecord();
+            pin.setIndex(pkg.getPinRecords().size());
+            int count = tokens.count();
+            for (int i = 0; i < count; i++) {
+                String token = tokens.get(i);
+                if (token.startsWith("ID=")) {
+                    long id = FeaturesFileParser.parseId(token.substring(3));
+                    if (id >= 0 && id <= Integer.MAX_VALUE) {
+                        pin.setId((int) id);
+                    }
+                    count = i;
+                    break;
+                }
+            }
+            if (count > 0) {
+                pin.setName(tokens.getInterned(0));
+            }
+            if (count >= 5) {
+                pin.setType(tokens.getInterned(1));
+                pin.setXCenter(tokens.getDouble(2));
+                pin.setYCenter(tokens.getDouble(3));
+                pin.setFinishedHoleSize(tokens.getDouble(4));
+            }
+            if (count >= 7) {
+                pin.setElectricalType(tokens.getInterned(5));
+                pin.setMountType(tokens.getInterned(6));
+            }
+            if (semicolon >= 0) {
+                long id = parseAttributes(line, semicolon, null);
+                if (id >= 0) {
+                    pin.setId((int) id);
+                }
+            }
+            pkg.getPinRecords().add(pin);
+            pkg.getPinRecordsByName().put(pin.getName(), pin);
+        }
+
+        // PRP <name> '<value>' <float values>
+        private void parseProperty(String line, int space) {
+            if (properties == null) {
+                return;
+            }
+            int open = line.indexOf('\'', space);
+            int close = open < 0 ? -1 : line.lastIndexOf('\'');
+            PropertyRecord property = new PropertyRecord();
+            if (open < 0 || close <= open) {
+                tokens.tokenize(line, space, line.length());
+                property.setName(tokens.getOrNull(0));
+                property.setValue(tokens.getOrNull(1));
+            } else {
+                property.setName(line.substring(space, open).trim());
+                property.setValue(line.substring(open + 1, close));
+                tokens.tokenize(line, close + 1, line.length());
+                for (int i = 0; i < tokens.count(); i++) {
+                    property.addFloatValue(tokens.getDouble(i));
+                }
+            }
+            properties.add(property);
+        }
+
+        // RC <llx> <lly> <width> <height> | CR <xc> <yc> <radius> | SQ <xc> <yc> <half_side>
+        private void parseOutline(String record, String line, int space) {
+            tokens.tokenize(line, space, line.length());
+            EdaData.Outline outline = new EdaData.Outline();
+            if (record.equals("RC") && tokens.count() >= 4) {
+                outline.setType(EdaData.Outline.Type.RECTANGLE);
+                outline.setX(tokens.getDouble(0));
+                outline.setY(tokens.getDouble(1));
+                outline.setWidth(tokens.getDouble(2));
+                outline.setHeight(tokens.getDouble(3));
+            } else if (tokens.count() >= 3) {
+                outline.setType(record.equals("CR") ? EdaData.Outline.Type.CIRCLE : EdaData.Outline.Type.SQUARE);
+                outline.setX(tokens.getDouble(0));
+                outline.setY(tokens.getDouble(1));
+                outline.setRadius(tokens.getDouble(2));
+                outline.setWidth(2 * outline.getRadius());
+                outline.setHeight(2 * outline.getRadius());
+            } else {
+                return;
+            }
+            addOutline(outline);
+        }
+
+        private void parseContourRecord(String record, String line, int space) {
+            if (contour == null) {
+                return;
+            }
+            tokens.tokenize(line, space, line.length());
+            switch (record) {
+                case "OB":
+                    polygon = new ContourPolygon();
+                    polygon.setXStart(tokens.getDouble(0));
+                    polygon.setYStart(tokens.getDouble(1));
+                    polygon.setType(ContourPolygon.Type.fromString(tokens.get(2)));
+                    break;
+                case "OS":
+                    if (polygon != null) {
+                        ContourPolygon.PolygonPart segment = new ContourPolygon.PolygonPart();
+                        segment.setType(ContourPolygon.PolygonPart.Type.SEGMENT);
+                        segment.setEndX(tokens.getDouble(0));
+                        segment.setEndY(tokens.getDouble(1));
+                        polygon.getPolygonParts().add(segment);
+                    }
+                    break;
+                case "OC":
+                    if (polygon != null) {
+                        ContourPolygon.PolygonPart arc = new ContourPolygon.PolygonPart();
+                        arc.setType(ContourPolygon.PolygonPart.Type.ARC);
+                        arc.setEndX(tokens.getDouble(0));
+                        arc.setEndY(tokens.getDouble(1));
+                        arc.setXCenter(tokens.getDouble(2));
+                        arc.setYCenter(tokens.getDouble(3));
+                        arc.setClockwise("Y".equalsIgnoreCase(tokens.get(4)));
+                        polygon.getPolygonParts().add(arc);
+                    }
+                    break;
+                case "OE":
+                    if (polygon != null) {
+                        contour.getPolygons().add(polygon);
+                        polygon = null;
+                    }
+                    break;
+                default:
+            }
+        }
+
+        private void addOutline(EdaData.Outline outline) {
+            if (pin != null) {
+                pin.getOutlines().add(outline);
+            } else if (pkg != null) {
+                pkg.getOutlines().add(outline);
+            }
+        }
+
+        // @<index> <name> or &<index> <text>
+        private void tableEntry(String line, List<String> table) {
+            int space = recordEnd(line);
+            long index = FeaturesFileParser.parseId(line.substring(1, space));
+            if (index < 0 || index >= Integer.MAX_VALUE) {
+                return;
+            }
+            while (table.size() <= index) {
+                table.add(null);
+            }
+            table.set((int) index, line.substring(space).trim());
+        }
+
+        /**
+         * Parses ;<attr>=<value>,<attr>,...;ID=<id> after the record
+         *
+         * @param attributes receives attribute values by name; may be null to skip them
+         * @return the ID, or -1 if there is none
+         */
+        private long parseAttributes(String line, int semicolon, Map<String, String> attributes) {
+            long id = -1;
+            int start = semicolon;
+            while (start >= 0 && start < line.length()) {
+                int end = line.indexOf(';', start + 1);
+                if (end < 0) {
+                    end = line.length();
+                }
+                String section = line.substring(start + 1, end).trim();
+                if (section.startsWith("ID=")) {
+                    id = FeaturesFileParser.parseId(section.substring(3).trim());
+                } else if (attributes != null && !section.isEmpty()) {
+                    for (String assignment : section.split(",")) {
+                        int equals = assignment.indexOf('=');
+                        String number = (equals < 0 ? assignment : assignment.substring(0, equals)).trim();
+                        String value = equals < 0 ? "" : tokens.intern(assignment.substring(equals + 1).trim());
+                        attributes.put(attributeName(number), value);
+                    }
+                }
+                start = end;
+            }
+            return id;
+        }
+
+        private String attributeName(String number) {
+            List<String> names = edaData.getAttributeNames();
+            try {
+                int index = Integer.parseInt(number);
+                if (index < names.size() && names.get(index) != null) {
+                    return names.get(index);
+                }
+            } catch (NumberFormatException e) {
+                // Not an attribute number, keep the raw key
+            }
+            return number;
+        }
+
+        private static int recordEnd(String line) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (Character.isWhitespace(c) || c == '=') {
+                    return i;
+                }
+            }
+            return line.length();
+        }
+
+        private void finish() {
+            edaData.setFidCount(fidCount);
+            edaData.setFidTypes(Arrays.copyOf(fidTypes, fidCount));
+            edaData.setFidLayers(Arrays.copyOf(fidLayers, fidCount));
+            edaData.setFidFeatures(Arrays.copyOf(fidFeatures, fidCount));
+            int netCount = edaData.getNetRecords().size();
+            int[] offsets = Arrays.copyOf(netFidStarts, netCount + 1);
+            offsets[netCount] = fidCount;
+            edaData.setNetFidOffsets(offsets);
+        }
     }
 }
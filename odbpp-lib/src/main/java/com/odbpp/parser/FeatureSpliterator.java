@@ -0,0 +1,294 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.Feature;
+import com.odbpp.model.FeatureAttributes;
+import com.odbpp.model.Features;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Reads the features of a file over a byte range that splits at record boundaries, so that a parallel stream
+ * parses the parts of one file on several cores.
+ *
+ * The header (units, symbol names, attribute tables) is read once, before the first split or feature. A split
+ * is made at the first line after the middle of the range that starts a record; lines inside a surface never
+ * start a record, so a surface always stays whole in the split that holds its S line. Each part reads the file
+ * with positional reads on one shared channel and parses its records as FeaturesFileParser does. Attribute
+ * assignments are decoded into a scratch store of each part that is cleared at every record, so a part holds
+ * the assignments of one record at a time; unique IDs are kept on the features.
+ *
+ * The number of records is not known before reading, so the spliterator is not SIZED; estimates assume
+ * {@value #ESTIMATED_RECORD_BYTES} bytes per record. {@link #close()} closes the file for all parts.
+ */
+public final class FeatureSpliterator implements Spliterator<Feature>, Closeable {
+    static final long DEFAULT_MIN_SPLIT_BYTES = 256 * 1024;
+    static final int ESTIMATED_RECORD_BYTES = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * State shared by all parts of one file
+     */
+    private static final class Shared {
+        final FeaturesFileParser parser;
+        final FileChannel channel;
+        final long minSplitBytes;
+        Features header;
+        long recordsStart;
+
+        Shared(FeaturesFileParser parser, FileChannel channel, long minSplitBytes) {
+            this.parser = parser;
+            this.channel = channel;
+            this.minSplitBytes = minSplitBytes;
+        }
+
+        /**
+         * Reads the header lines up to the first record, once
+         */
+        synchronized void readHeader() throws IOException {
+            if (header != null) {
+                return;
+            }
+            Features features = new Features();
+            RangeReader reader = new RangeReader(channel, 0);
+            String line;
+            while ((line = reader.readLine()) != null && !FeaturesFileParser.isRecordStart(line)) {
+                parser.parseRecord(line, reader, features, 0);
+            }
+            recordsStart = line == null ? reader.position() : reader.lineStart();
+            header = features;
+        }
+    }
+
+    private final Shared shared;
+    private long start;
+    private final long end;
+
+    // Set once traversal starts
+    private RangeReader reader;
+    private Features header;
+
+    FeatureSpliterator(FeaturesFileParser parser, Path featuresFile, long minSplitBytes) throws IOException {
+        FileChannel channel = FileChannel.open(featuresFile, StandardOpenOption.READ);
+        this.shared = new Shared(parser, channel, Math.max(1, minSplitBytes));
+        this.start = -1;
+        this.end = channel.size();
+    }
+
+    private FeatureSpliterator(Shared shared, long start, long end) {
+        this.shared = shared;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Positions the root part at the first record
+     */
+    private void init() {
+        if (start < 0) {
+            try {
+                shared.readHeader();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            start = shared.recordsStart;
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Feature> action) {
+        init();
+        try {
+            if (reader == null) {
+                reader = new RangeReader(shared.channel, start);
+                header = copyHeader(shared.header);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Records starting at or past the end belong to the next part
+                if (reader.lineStart() >= end && FeaturesFileParser.isRecordStart(line)) {
+                    reader.skipToEnd();
+                    return false;
+                }
+                if (FeaturesFileParser.isRecordStart(line)) {
+                    header.getAttributes().clearAssignments();
+                }
+                Feature feature = shared.parser.parseRecord(line, reader, header, 0);
+                if (feature != null) {
+                    action.accept(feature);
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return a copy of the header tables, so that parts decode attributes independently
+     */
+    private static Features copyHeader(Features source) {
+        Features copy = new Features();
+        copy.setUnits(source.getUnits());
+        copy.setSymbolNames(new HashMap<>(source.getSymbolNames()));
+        copy.setSymbolUnits(new HashMap<>(source.getSymbolUnits()));
+        FeatureAttributes attributes = source.getAttributes();
+        for (int i = 0; i < attributes.getNames().size(); i++) {
+            if (attributes.getNames().get(i) != null) {
+                copy.getAttributes().setName(i, attributes.getNames().get(i));
+            }
+        }
+        for (int i = 0; i < attributes.getTexts().size(); i++) {
+            if (attributes.getTexts().get(i) != null) {
+                copy.getAttributes().setText(i, attributes.getTexts().get(i));
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public Spliterator<Feature> trySplit() {
+        init();
+        if (reader != null || end - start < 2 * shared.minSplitBytes) {
+            return null;
+        }
+        try {
+            long boundary = nextRecordStart(start + (end - start) / 2);
+            if (boundary <= start || boundary >= end) {
+                return null;
+            }
+            FeatureSpliterator prefix = new FeatureSpliterator(shared, start, boundary);
+            start = boundary;
+            return prefix;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the offset of the first line starting after from that starts a record, or the end of the file
+     */
+    private long nextRecordStart(long from) throws IOException {
+        RangeReader scan = new RangeReader(shared.channel, from);
+        // The line holding from belongs to the first part
+        scan.readLine();
+        String line;
+        while ((line = scan.readLine()) != null) {
+            if (FeaturesFileParser.isRecordStart(line)) {
+                return scan.lineStart();
+            }
+            if (scan.lineStart() >= end) {
+                break;
+            }
+        }
+        return end;
+    }
+
+    @Override
+    public long estimateSize() {
+        long from = reader != null ? reader.position() : Math.max(0, start);
+        return Math.max(0, end - from) / ESTIMATED_RECORD_BYTES;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    @Override
+    public void close() {
+        try {
+            shared.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads ISO-8859-1 lines from an offset of the file, keeping track of line offsets
+     */
+    private static final class RangeReader implements FeaturesFileParser.LineSource {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long position;
+        private long lineStart;
+        private byte[] line = new byte[256];
+        private boolean eof;
+
+        RangeReader(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+            buffer.flip();
+        }
+
+        /**
+         * @return the offset of the last line read
+         */
+        long lineStart() {
+            return lineStart;
+        }
+
+        /**
+         * @return the offset of the next unread byte
+         */
+        long position() {
+            return position - buffer.remaining();
+        }
+
+        void skipToEnd() {
+            eof = true;
+            buffer.clear().flip();
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            lineStart = position();
+            int length = 0;
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    if (eof || !fill()) {
+                        return length == 0 ? null : decode(length);
+                    }
+                }
+                byte b = buffer.get();
+                if (b == '\n') {
+                    return decode(length);
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+        }
+
+        private String decode(int length) {
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+        }
+
+        private boolean fill() throws IOException {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            buffer.flip();
+            if (read <= 0) {
+                eof = true;
+                return false;
+            }
+            position += read;
+            return true;
+        }
+    }
+}
@@ -2,77 +2,324 @@ package com.odbpp.parser;
 
 import com.odbpp.model.*;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class FeaturesFileParser {
+    private static final String NUMBER = "(-?[\\d.]+(?:[eE][-+]?\\d+)?)";
     private static final Pattern PAD_PATTERN = Pattern.compile(
-            "^P\\s+([\\d.]+)\\s+([\\d.]+)\\s+(\\d+)\\s+(P|N)\\s+(\\d+)\\s*");
+            "^P\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+(?:-1\\s+(\\d+)\\s+" + NUMBER + "|(\\d+))\\s+(P|N)\\s+(\\d+)(?:\\s+(\\d)(?:\\s+" + NUMBER + ")?)?");
     private static final Pattern LINE_PATTERN = Pattern.compile(
-            "^L\\s+([\\d.]+)\\s+([\\d.]+)\\s+([\\d.]+)\\s+([\\d.]+)\\s+(\\d+)\\s*");
+            "^L\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+(\\d+)(?:\\s+(P|N)\\s+(\\d+))?");
     private static final Pattern ARC_PATTERN = Pattern.compile(
-            "^A\\s+([\\d.]+)\\s+([\\d.]+)\\s+([\\d.]+)\\s+([\\d.]+)\\s+([\\d.]+)\\s+([\\d.]+)\\s+(\\d+)\\s*");
+            "^A\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+" + NUMBER
+                    + "\\s+(\\d+)(?:\\s+(P|N)\\s+(\\d+)\\s+(Y|N))?");
     private static final Pattern TEXT_PATTERN = Pattern.compile(
-            "^T\\s+([\\d.]+)\\s+([\\d.]+)\\s+'(.*)'\\s+(\\d+)\\s+(\\d+)\\s+(Y|N)\\s*");
+            "^T\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+(\\S+)\\s+(P|N)\\s+(\\d(?:\\s+" + NUMBER + ")?)\\s+" + NUMBER + "\\s+" + NUMBER + "\\s+" + NUMBER
+                    + "\\s+'(.*)'\\s+(\\d+)");
     private static final Pattern BARCODE_PATTERN = Pattern.compile(
-            "^B\\s+([\\d.]+)\\s+([\\d.]+)\\s+(\\S+)\\s+(\\S+)\\s+(P|N)\\s+(\\d+)(?:\\s+([\\d.]+))?\\s+E\\s+([\\d.]+)\\s+([\\d.]+)\\s+(Y|N)\\s+(Y|N)\\s+(Y|N)\\s+(Y|N)\\s+(T|B)\\s+'(.*?)'(?:;(\\d+)=(.*?))?(?:;ID=(.*?))?\\s*$");
+            "^B\\s+([\\d.]+)\\s+([\\d.]+)\\s+(\\S+)\\s+(\\S+)\\s+(P|N)\\s+(\\d+)(?:\\s+([\\d.]+))?\\s+E\\s+([\\d.]+)\\s+([\\d.]+)\\s+(Y|N)\\s+(Y|N)\\s+(Y|N)\\s+(Y|N)\\s+(T|B)\\s+'(.*?)'(?:;.*)?\\s*$");
     private static final Pattern SURFACE_PATTERN = Pattern.compile(
-            "^S\\s+(P|N)\\s+(\\d+)(?:;(\\d+)=(.*?))?(?:;ID=(.*?))?\\s*$");
+            "^S\\s+(P|N)\\s+(\\d+)");
 
     private final SurfaceParser surfaceParser = new SurfaceParser();
 
     public Features parse(Path featuresFile) throws IOException {
-        Features features = new Features();
-        Map<Integer, String> symbolMap = new HashMap<>();
-        List<String> lines = Files.readAllLines(featuresFile, StandardCharsets.ISO_8859_1);
-
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            if (line.startsWith("$")) {
-                parseSymbolDefinition(line, symbolMap);
-            } else if (line.startsWith("P")) {
-                parsePad(line, features);
-            } else if (line.startsWith("L")) {
-                parseLine(line, features);
-            } else if (line.startsWith("A")) {
-                parseArc(line, features);
-            } else if (line.startsWith("S")) {
-                parseSurface(line, features, lines, i);
-            } else if (line.startsWith("T")) {
-                parseText(line, features);
-            } else if (line.startsWith("B")) {
-                parseBarcode(line, features);
+        try (FeaturesReader reader = new FeaturesReader(this, Files.newBufferedReader(featuresFile, StandardCharsets.ISO_8859_1), null, true)) {
+            Features features = reader.getHeader();
+            for (Feature feature = reader.next(); feature != null; feature = reader.next()) {
+                features.getFeatures().add(feature);
             }
+            features.getAttributes().ensureFeatures(features.getFeatures().size());
+            features.getAttributes().trim();
+            return features;
         }
-        return features;
     }
 
-    private void parseSymbolDefinition(String line, Map<Integer, String> symbolMap) {
-        String[] parts = line.substring(1).split("\\s+", 2);
-        symbolMap.put(Integer.parseInt(parts[0]), parts[1]);
+    /**
+     * Opens a features file for reading one record at a time. Only the attributes of the current record are
+     * kept, see {@link FeaturesReader}.
+     */
+    public FeaturesReader open(Path featuresFile) throws IOException {
+        return open(featuresFile, null);
     }
 
-    private void parsePad(String line, Features features) {
+    /**
+     * Opens a features file for reading only the records the filter selects. Skipped records are not built; they
+     * count as features if they match the record syntax, so indices match those of {@link #parse(Path)}.
+     */
+    public FeaturesReader open(Path featuresFile, RecordFilter filter) throws IOException {
+        return new FeaturesReader(this, Files.newBufferedReader(featuresFile, StandardCharsets.ISO_8859_1), filter);
+    }
+
+    public FeaturesReader open(Reader reader) {
+        return new FeaturesReader(this, reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader), null);
+    }
+
+    /**
+     * Splits a features file for parallel streams, see {@link FeatureSpliterator}
+     */
+    public FeatureSpliterator spliterator(Path featuresFile) throws IOException {
+        return new FeatureSpliterator(this, featuresFile, FeatureSpliterator.DEFAULT_MIN_SPLIT_BYTES);
+    }
+
+    /**
+     * Streams the features of a file without loading them all. Close the stream to close the file.
+     */
+    public Stream<Feature> stream(Path featuresFile) throws IOException {
+        FeatureSpliterator spliterator = spliterator(featuresFile);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * Lines of a features file
+     */
+    @FunctionalInterface
+    interface LineSource {
+        /**
+         * @return the next line without its terminator, or null at the end
+         */
+        String readLine() throws IOException;
+    }
+
+    /**
+     * @return true if the line starts a feature record rather than a header line or a line inside a surface
+     */
+    static boolean isRecordStart(String line) {
+        if (line.isEmpty()) {
+            return false;
+        }
+        char type = line.charAt(0);
+        if (type == 'S') {
+            return line.length() > 1 && Character.isWhitespace(line.charAt(1));
+        }
+        return type == 'P' || type == 'L' || type == 'A' || type == 'T' || type == 'B';
+    }
+
+    /**
+     * @return true if the record line would parse to a feature, checked without building it
+     */
+    static boolean isFeature(String line) {
+        Pattern pattern;
+        switch (line.isEmpty() ? ' ' : line.charAt(0)) {
+            case 'P':
+                pattern = PAD_PATTERN;
+                break;
+            case 'L':
+                pattern = LINE_PATTERN;
+                break;
+            case 'A':
+                pattern = ARC_PATTERN;
+                break;
+            case 'S':
+                pattern = SURFACE_PATTERN;
+                break;
+            case 'T':
+                pattern = TEXT_PATTERN;
+                break;
+            case 'B':
+                pattern = BARCODE_PATTERN;
+                break;
+            default:
+                return false;
+        }
+        return pattern.matcher(line).find();
+    }
+
+    /**
+     * Parses one line of a features file. Header lines go into the header; the lines of a surface are read from
+     * the source up to its SE line.
+     *
+     * @param index the index of the record among the features of the file
+     * @return the feature of the line, with its attributes decoded at index, or null if the line is not a feature
+     */
+    Feature parseRecord(String line, LineSource reader, Features header, int index) throws IOException {
+        FeatureAttributes attributes = header.getAttributes();
+        Feature feature = null;
+        if (line.startsWith("$")) {
+            parseSymbolDefinition(line, header);
+        } else if (line.startsWith("@")) {
+            parseTableEntry(line, attributes, true);
+        } else if (line.startsWith("&")) {
+            parseTableEntry(line, attributes, false);
+        } else if (line.startsWith("UNITS=") || line.startsWith("U ")) {
+            header.setUnits(line.substring(line.startsWith("U ") ? 2 : 6).trim());
+        } else if (line.startsWith("P")) {
+            feature = parsePad(line);
+        } else if (line.startsWith("L")) {
+            feature = parseLine(line);
+        } else if (line.startsWith("A")) {
+            feature = parseArc(line);
+        } else if (line.startsWith("S")) {
+            feature = parseSurface(line, reader);
+        } else if (line.startsWith("T")) {
+            feature = parseText(line);
+        } else if (line.startsWith("B")) {
+            feature = parseBarcode(line);
+        }
+        if (feature != null) {
+            boolean quoted = feature instanceof Text || feature instanceof Barcode;
+            String id = parseAttributes(line, attributeSection(line, quoted), attributes, index);
+            applyAttributes(feature, id, attributes, index);
+        }
+        return feature;
+    }
+
+    // @<index> <name> or &<index> <text>
+    static void parseTableEntry(String line, FeatureAttributes attributes, boolean names) {
+        int space = 1;
+        while (space < line.length() && !Character.isWhitespace(line.charAt(space))) {
+            space++;
+        }
+        int index = Integer.parseInt(line.substring(1, space));
+        String value = line.substring(space).trim();
+        if (names) {
+            attributes.setName(index, value);
+        } else {
+            attributes.setText(index, value);
+        }
+    }
+
+    /**
+     * @return the index of the ';' that starts the attribute section, past any quoted text, or -1
+     */
+    static int attributeSection(String line, boolean quoted) {
+        int from = quoted ? Math.max(0, line.lastIndexOf('\'')) : 0;
+        return line.indexOf(';', from);
+    }
+
+    /**
+     * Decodes the ;<atr>[=<value>],...;ID=<id> sections of a record into the attribute store.
+     *
+     * @return the unique ID of the record, or null if it has none
+     */
+    static String parseAttributes(String line, int semicolon, FeatureAttributes attributes, int feature) {
+        String id = null;
+        int start = semicolon;
+        while (start >= 0 && start < line.length()) {
+            int end = line.indexOf(';', start + 1);
+            if (end < 0) {
+                end = line.length();
+            }
+            int from = start + 1;
+            while (from < end && Character.isWhitespace(line.charAt(from))) {
+                from++;
+            }
+            if (line.startsWith("ID=", from)) {
+                id = line.substring(from + 3, end).trim();
+            } else {
+                while (from < end) {
+                    int comma = line.indexOf(',', from);
+                    if (comma < 0 || comma > end) {
+                        comma = end;
+                    }
+                    int equals = line.indexOf('=', from);
+                    String name = line.substring(from, equals < 0 || equals > comma ? comma : equals).trim();
+                    // A name index that is not a number is skipped with its value
+                    long index = parseId(name);
+                    if (index >= 0 && index <= Integer.MAX_VALUE) {
+                        String value = equals < 0 || equals > comma ? null : line.substring(equals + 1, comma).trim();
+                        attributes.add(feature, (int) index, value);
+                    }
+                    from = comma + 1;
+                }
+            }
+            start = end;
+        }
+        return id;
+    }
+
+    /**
+     * @return the ID as a number, or -1 if it is not a non-negative integer
+     */
+    static long parseId(String id) {
+        if (id == null || id.isEmpty() || id.length() > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void applyAttributes(Feature feature, String id, FeatureAttributes attributes, int index) {
+        if (id != null) {
+            if (feature instanceof Line) {
+                ((Line) feature).setUniqueId(id);
+            } else if (feature instanceof Arc) {
+                ((Arc) feature).setUniqueId(id);
+            } else if (feature instanceof Surface) {
+                ((Surface) feature).setUniqueId(id);
+            } else if (feature instanceof Barcode) {
+                ((Barcode) feature).setUniqueId(id);
+            }
+            long numericId = parseId(id);
+            if (numericId >= 0) {
+                attributes.setId(index, numericId);
+                if (numericId <= Integer.MAX_VALUE) {
+                    feature.setId((int) numericId);
+                }
+            }
+        }
+        if (feature instanceof Barcode && attributes.getAttributeCount(index) > 0) {
+            int entry = attributes.getStart(index);
+            ((Barcode) feature).setAtr(attributes.getNameIndex(entry));
+            ((Barcode) feature).setValue(attributes.getRawValue(entry));
+        }
+    }
+
+    private void parseSymbolDefinition(String line, Features header) {
+        // $<serial> <name> [I|M]; the unit suffix overrides the units of the file for this symbol
+        String[] parts = line.substring(1).trim().split("\\s+");
+        int serial = Integer.parseInt(parts[0]);
+        header.getSymbolNames().put(serial, parts[1]);
+        if (parts.length > 2 && (parts[2].equals("I") || parts[2].equals("M"))) {
+            header.getSymbolUnits().put(serial, parts[2]);
+        }
+    }
+
+    private Pad parsePad(String line) {
         Matcher matcher = PAD_PATTERN.matcher(line);
         if (matcher.find()) {
             Pad pad = new Pad();
             pad.setX(Double.parseDouble(matcher.group(1)));
             pad.setY(Double.parseDouble(matcher.group(2)));
-            pad.setSymbolNumber(Integer.parseInt(matcher.group(3)));
-            // Polarity is in group 4, but we are not using it yet
-            pad.setRotation(Double.parseDouble(matcher.group(5)));
-            features.getFeatures().add(pad);
+            if (matcher.group(3) != null) {
+                // Resized symbol: -1 <sym_num> <resize_factor>
+                pad.setSymbolNumber(Integer.parseInt(matcher.group(3)));
+                pad.setResizeFactor(Double.parseDouble(matcher.group(4)));
+            } else {
+                pad.setSymbolNumber(Integer.parseInt(matcher.group(5)));
+            }
+            pad.setPolarity(matcher.group(6));
+            pad.setDcode(Integer.parseInt(matcher.group(7)));
+            if (matcher.group(8) != null) {
+                pad.setOrientationType(Integer.parseInt(matcher.group(8)));
+            }
+            if (matcher.group(9) != null) {
+                pad.setCustomRotation(Double.parseDouble(matcher.group(9)));
+            }
+            return pad;
         }
+        return null;
     }
 
-    private void parseLine(String line, Features features) {
+    private Line parseLine(String line) {
         Matcher matcher = LINE_PATTERN.matcher(line);
         if (matcher.find()) {
             Line lineFeature = new Line();
@@ -81,11 +328,16 @@ public class FeaturesFileParser {
             lineFeature.setXe(Double.parseDouble(matcher.group(3)));
             lineFeature.setYe(Double.parseDouble(matcher.group(4)));
             lineFeature.setSymbolNumber(Integer.parseInt(matcher.group(5)));
-            features.getFeatures().add(lineFeature);
+            if (matcher.group(6) != null) {
+                lineFeature.setPolarity(Polarity.fromString(matcher.group(6)));
+                lineFeature.setDcode(Integer.parseInt(matcher.group(7)));
+            }
+            return lineFeature;
         }
+        return null;
     }
 
-    private void parseArc(String line, Features features) {
+    private Arc parseArc(String line) {
         Matcher matcher = ARC_PATTERN.matcher(line);
         if (matcher.find()) {
             Arc arc = new Arc();
@@ -96,11 +348,17 @@ public class FeaturesFileParser {
             arc.setXc(Double.parseDouble(matcher.group(5)));
             arc.setYc(Double.parseDouble(matcher.group(6)));
             arc.setSymbolNumber(Integer.parseInt(matcher.group(7)));
-            features.getFeatures().add(arc);
+            if (matcher.group(8) != null) {
+                arc.setPolarity(Polarity.fromString(matcher.group(8)));
+                arc.setDcode(Integer.parseInt(matcher.group(9)));
+                arc.setCw(matcher.group(10));
+            }
+            return arc;
         }
+        return null;
     }
 
-    private void parseSurface(String line, Features features, List<String> lines, int currentIndex) {
+    private Surface parseSurface(String line, LineSource reader) throws IOException {
         Matcher matcher = SURFACE_PATTERN.matcher(line);
         if (matcher.find()) {
             Surface surface = new Surface();
@@ -113,38 +371,48 @@ public class FeaturesFileParser {
             int dcode = Integer.parseInt(matcher.group(2));
             surface.setDcode(dcode);
             
-            // Parse attributes if present
-            if (matcher.group(3) != null && matcher.group(4) != null) {
-                int attrNumber = Integer.parseInt(matcher.group(3));
-                String attrValue = matcher.group(4);
-                surface.getAttributes().put(attrNumber, attrValue);
-            }
-            
-            // Parse unique ID if present
-            if (matcher.group(5) != null) {
-                surface.setUniqueId(matcher.group(5));
+            surfaceParser.parse(readSurfaceBlock(line, reader), 0, surface);
+            return surface;
+        }
+        return null;
+    }
+
+    /**
+     * @return the S line of a surface followed by its lines up to and including SE
+     */
+    static List<String> readSurfaceBlock(String line, LineSource reader) throws IOException {
+        List<String> block = new ArrayList<>();
+        block.add(line);
+        String next;
+        while ((next = reader.readLine()) != null) {
+            block.add(next);
+            if (next.startsWith("SE")) {
+                break;
             }
-            
-            features.getFeatures().add(surface);
-            surfaceParser.parse(lines, currentIndex, surface);
         }
+        return block;
     }
 
-    private void parseText(String line, Features features) {
+    private Text parseText(String line) {
         Matcher matcher = TEXT_PATTERN.matcher(line);
         if (matcher.find()) {
             Text text = new Text();
             text.setX(Double.parseDouble(matcher.group(1)));
             text.setY(Double.parseDouble(matcher.group(2)));
-            text.setValue(matcher.group(3));
-            text.setSymbolNumber(Integer.parseInt(matcher.group(4)));
-            text.setRotation(Double.parseDouble(matcher.group(5)));
-            text.setMirror("Y".equals(matcher.group(6)));
-            features.getFeatures().add(text);
+            text.setFont(matcher.group(3));
+            text.setPolarity(Polarity.fromString(matcher.group(4)));
+            text.setOrientDef(matcher.group(5));
+            text.setXsize(Double.parseDouble(matcher.group(7)));
+            text.setYsize(Double.parseDouble(matcher.group(8)));
+            text.setWidthFactor(Double.parseDouble(matcher.group(9)));
+            text.setText(matcher.group(10));
+            text.setVersion(Integer.parseInt(matcher.group(11)));
+            return text;
         }
+        return null;
     }
 
-    private void parseBarcode(String line, Features features) {
+    private Barcode parseBarcode(String line) {
         Matcher matcher = BARCODE_PATTERN.matcher(line);
         if (matcher.find()) {
             Barcode barcode = new Barcode();
@@ -187,20 +455,8 @@ public class FeaturesFileParser {
             // Parse text string
             barcode.setText(matcher.group(15));
             
-            // Parse attributes if present
-            if (matcher.group(16) != null && matcher.group(17) != null) {
-                int attrNumber = Integer.parseInt(matcher.group(16));
-                String attrValue = matcher.group(17);
-                barcode.setAtr(attrNumber);
-                barcode.setValue(attrValue);
-            }
-            
-            // Parse unique ID if present
-            if (matcher.group(18) != null) {
-                barcode.setUniqueId(matcher.group(18));
-            }
-            
-            features.getFeatures().add(barcode);
+            return barcode;
         }
+        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.Feature;
+import com.odbpp.model.Features;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the records of a features file one at a time, see {@link FeaturesFileParser#open(java.nio.file.Path)}.
+ *
+ * The header collects the units, symbol names and attribute tables as they are read; its feature list stays
+ * empty. Symbol names and attribute tables precede the records in a features file, so they are complete by the
+ * time the first feature is returned. The attribute store of the header holds the assignments and unique ID of
+ * the last returned feature only, as feature 0, and is cleared at the next record; earlier records are not
+ * kept. With a {@link RecordFilter}, records it rejects are skipped before parsing. Not thread-safe.
+ */
+public final class FeaturesReader implements Closeable {
+    private final FeaturesFileParser parser;
+    private final BufferedReader reader;
+    private final FeaturesFileParser.LineSource lines;
+    private final Features header = new Features();
+    private final RecordFilter filter;
+    private final boolean retainAttributes;
+    private RecordFilter.Matcher matcher;
+    private int count;
+    private int index = -1;
+    private boolean closed;
+
+    FeaturesReader(FeaturesFileParser parser, BufferedReader reader, RecordFilter filter) {
+        this(parser, reader, filter, false);
+    }
+
+    /**
+     * @param retainAttributes keep the assignments of all records in the header by feature index, for
+     *                         {@link FeaturesFileParser#parse(java.nio.file.Path)}
+     */
+    FeaturesReader(FeaturesFileParser parser, BufferedReader reader, RecordFilter filter, boolean retainAttributes) {
+        this.parser = parser;
+        this.reader = reader;
+        this.lines = reader::readLine;
+        this.filter = filter == null || filter.isEmpty() ? null : filter;
+        this.retainAttributes = retainAttributes;
+    }
+
+    /**
+     * @return the next feature, or null at the end of the file
+     */
+    public Feature next() throws IOException {
+        if (closed) {
+            return null;
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            FeaturesFileParser.LineSource source = lines;
+            boolean record = FeaturesFileParser.isRecordStart(line);
+            if (filter != null && record) {
+                if (matcher == null) {
+                    matcher = filter.compile(header);
+                }
+                if (matcher.rejectsAll()) {
+                    return null;
+                }
+                List<String> surface = line.charAt(0) == 'S' ? FeaturesFileParser.readSurfaceBlock(line, lines) : null;
+                if (!matcher.accept(line, surface)) {
+                    // Counted as parse() would: malformed records are not features
+                    if (FeaturesFileParser.isFeature(line)) {
+                        count++;
+                    }
+                    continue;
+                }
+                if (surface != null) {
+                    Iterator<String> rest = surface.listIterator(1);
+                    source = () -> rest.hasNext() ? rest.next() : null;
+                }
+            }
+            if (record && !retainAttributes) {
+                header.getAttributes().clearAssignments();
+            }
+            Feature feature = parser.parseRecord(line, source, header, retainAttributes ? count : 0);
+            if (feature != null) {
+                index = count++;
+                return feature;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of features read so far, including those the filter skipped
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the index of the last returned feature among all features of the file, -1 before the first
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the header tables, with the attributes of the last returned feature at index 0 of its attribute
+     *         store
+     */
+    public Features getHeader() {
+        return header;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            reader.close();
+        }
+    }
+}
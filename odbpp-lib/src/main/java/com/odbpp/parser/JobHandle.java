@@ -0,0 +1,235 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Matrix;
+import com.odbpp.model.MiscInfo;
+import com.odbpp.model.Step;
+import com.odbpp.model.Symbol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A job being parsed in the background, see {@link OdbParser#parseAsync(java.nio.file.Path)}.
+ *
+ * Each part of the job has a future that completes as soon as the part is parsed: misc info and matrix first,
+ * then the layout (step names with their layer names) together with the step profiles, then layers, symbols and
+ * steps in the order the parse scheduler finishes them (largest files first), and finally the whole job. Futures
+ * can be requested before the part is known; names that turn out not to exist fail with NoSuchElementException
+ * once the steps are listed, and layers that fail to parse fail with IOException when their step is done.
+ *
+ * Futures complete on the parse threads. Dependent stages that do real work should use the *Async variants of
+ * CompletableFuture so that they do not delay the parse.
+ */
+public final class JobHandle implements OdbParser.Listener {
+    private final ParseScheduler scheduler;
+    private final CompletableFuture<Job> job = new CompletableFuture<>();
+    private final CompletableFuture<MiscInfo> misc = new CompletableFuture<>();
+    private final CompletableFuture<Matrix> matrix = new CompletableFuture<>();
+    private final CompletableFuture<Map<String, List<String>>> layout = new CompletableFuture<>();
+    private final Map<String, CompletableFuture<Step>> steps = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Features>> profiles = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Layer>> layers = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Symbol>> symbols = new ConcurrentHashMap<>();
+
+    // Step name to layer names, filled while the steps are listed
+    private final Map<String, List<String>> listed = new ConcurrentHashMap<>();
+    private final Set<String> parsedSteps = ConcurrentHashMap.newKeySet();
+    private volatile boolean symbolsDone;
+    private volatile double progress;
+
+    JobHandle(ParseScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return the parsed job, complete once every part is parsed
+     */
+    public CompletableFuture<Job> job() {
+        return job;
+    }
+
+    public CompletableFuture<MiscInfo> misc() {
+        return misc;
+    }
+
+    public CompletableFuture<Matrix> matrix() {
+        return matrix;
+    }
+
+    /**
+     * @return step names with their layer names, both sorted, complete once all steps are listed
+     */
+    public CompletableFuture<Map<String, List<String>>> layout() {
+        return layout;
+    }
+
+    /**
+     * @return the step, complete once all its layers, netlists and EDA data are parsed
+     */
+    public CompletableFuture<Step> step(String stepName) {
+        return future(steps, stepName, layout.isDone() && !listed.containsKey(stepName), "step " + stepName);
+    }
+
+    /**
+     * @return the profile of the step, null if it has none
+     */
+    public CompletableFuture<Features> profile(String stepName) {
+        return future(profiles, stepName, layout.isDone() && !listed.containsKey(stepName), "step " + stepName);
+    }
+
+    public CompletableFuture<Layer> layer(String stepName, String layerName) {
+        boolean missing = layout.isDone() && !listed.getOrDefault(stepName, List.of()).contains(layerName);
+        CompletableFuture<Layer> future = future(layers, key(stepName, layerName), missing,
+                "layer " + stepName + "/" + layerName);
+        // Layers complete before their step, so a pending layer of a parsed step has failed
+        if (parsedSteps.contains(stepName) && !future.isDone()) {
+            failLayer(future, stepName, layerName);
+        }
+        return future;
+    }
+
+    /**
+     * @return the user-defined symbol; symbol names are known only once all symbols are parsed
+     */
+    public CompletableFuture<Symbol> symbol(String name) {
+        return future(symbols, name, symbolsDone, "symbol " + name);
+    }
+
+    private <T> CompletableFuture<T> future(Map<String, CompletableFuture<T>> futures, String key, boolean missing,
+                                            String description) {
+        CompletableFuture<T> future = futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+        if (scheduler.isCancelled()) {
+            future.cancel(false);
+        } else if (job.isCompletedExceptionally()) {
+            job.exceptionally(e -> {
+                future.completeExceptionally(e);
+                return null;
+            });
+        } else if (missing || job.isDone() && !future.isDone()) {
+            future.completeExceptionally(new NoSuchElementException("No " + description));
+        }
+        return future;
+    }
+
+    private static String key(String stepName, String layerName) {
+        return stepName + "/" + layerName;
+    }
+
+    private static void failLayer(CompletableFuture<Layer> future, String stepName, String layerName) {
+        future.completeExceptionally(new IOException("Layer " + key(stepName, layerName) + " could not be parsed"));
+    }
+
+    /**
+     * @return the fraction of symbol, layer, netlist and EDA data files parsed so far
+     */
+    public double getProgress() {
+        return job.isDone() ? 1 : progress;
+    }
+
+    void taskDone(int done, int total) {
+        progress = total == 0 ? 1 : (double) done / total;
+    }
+
+    /**
+     * Stops the parse: files being parsed are finished, the rest are skipped and all pending futures are
+     * cancelled.
+     */
+    public void cancel() {
+        scheduler.cancel();
+        job.cancel(false);
+        for (CompletableFuture<?> future : pending()) {
+            future.cancel(false);
+        }
+    }
+
+    public boolean isCancelled() {
+        return scheduler.isCancelled();
+    }
+
+    private List<CompletableFuture<?>> pending() {
+        List<CompletableFuture<?>> futures = new ArrayList<>(List.of(misc, matrix, layout));
+        futures.addAll(steps.values());
+        futures.addAll(profiles.values());
+        futures.addAll(layers.values());
+        futures.addAll(symbols.values());
+        return futures;
+    }
+
+    @Override
+    public void miscParsed(Job parsed) {
+        misc.complete(parsed.getMiscInfo());
+    }
+
+    @Override
+    public void matrixParsed(Job parsed) {
+        matrix.complete(parsed.getMatrix());
+    }
+
+    @Override
+    public void stepListed(Step step, List<String> layerNames) {
+        listed.put(step.getName(), layerNames);
+        future(profiles, step.getName(), false, null).complete(step.getProfile());
+    }
+
+    @Override
+    public void stepsListed(Job parsed) {
+        Map<String, List<String>> sorted = new TreeMap<>();
+        listed.forEach((step, names) -> sorted.put(step, names.stream().sorted().toList()));
+        layout.complete(sorted);
+        // Fail futures requested for parts that do not exist
+        steps.forEach((name, future) -> step(name));
+        profiles.forEach((name, future) -> profile(name));
+        for (String key : layers.keySet()) {
+            int slash = key.indexOf('/');
+            layer(key.substring(0, slash), key.substring(slash + 1));
+        }
+    }
+
+    @Override
+    public void symbolParsed(Symbol symbol) {
+        future(symbols, symbol.getName(), false, null).complete(symbol);
+    }
+
+    @Override
+    public void layerParsed(Step step, Layer layer) {
+        future(layers, key(step.getName(), layer.getName()), false, null).complete(layer);
+    }
+
+    @Override
+    public void stepParsed(Step step) {
+        parsedSteps.add(step.getName());
+        for (String layerName : listed.getOrDefault(step.getName(), List.of())) {
+            CompletableFuture<Layer> future = layers.get(key(step.getName(), layerName));
+            if (future != null && !future.isDone()) {
+                failLayer(future, step.getName(), layerName);
+            }
+        }
+        future(steps, step.getName(), false, null).complete(step);
+    }
+
+    void complete(Job parsed) {
+        symbolsDone = true;
+        job.complete(parsed);
+        // Parts of steps that could not be parsed at all
+        for (CompletableFuture<?> future : pending()) {
+            future.completeExceptionally(new NoSuchElementException("Not in job"));
+        }
+    }
+
+    void fail(Throwable e) {
+        job.completeExceptionally(e);
+        for (CompletableFuture<?> future : pending()) {
+            future.completeExceptionally(e);
+        }
+    }
+}
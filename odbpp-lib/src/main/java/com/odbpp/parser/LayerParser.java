@@ -10,10 +10,12 @@ public class LayerParser {
     private final FeaturesFileParser featuresFileParser = new FeaturesFileParser();
     private final ComponentsParser componentsParser = new ComponentsParser();
     private final ProfileParser profileParser = new ProfileParser();
+    private final ToolsParser toolsParser = new ToolsParser();
 
     public Layer parse(Path layerDir) throws IOException {
         Layer layer = new Layer();
         layer.setName(layerDir.getFileName().toString());
+        layer.setPath(layerDir.toString());
 
         Path attrlistFile = layerDir.resolve("attrlist");
         if (Files.exists(attrlistFile)) {
@@ -34,8 +36,13 @@ public class LayerParser {
         if (Files.exists(profileFile)) {
             layer.setProfile(profileParser.parse(profileFile));
         }
-        
-        // TODO: dimensions, notes, tools
+
+        Path toolsFile = layerDir.resolve("tools");
+        if (Files.exists(toolsFile)) {
+            layer.setTools(toolsParser.parse(toolsFile));
+        }
+
+        // TODO: dimensions, notes
         return layer;
     }
 }
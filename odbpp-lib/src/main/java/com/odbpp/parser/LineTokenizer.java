@@ -0,0 +1,84 @@
+package com.odbpp.parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits record lines on whitespace into a reusable token array, without regular expressions.
+ *
+ * Repeated tokens can be interned per parser run, so that millions of records share one String instance per
+ * distinct value (pin names, electrical types, attribute values) instead of one per record. Not thread-safe;
+ * use one instance per parse.
+ */
+final class LineTokenizer {
+    private String[] tokens = new String[16];
+    private int count;
+    private final Map<String, String> interned = new HashMap<>();
+
+    /**
+     * Tokenizes line[from, to).
+     *
+     * @return the number of tokens
+     */
+    int tokenize(String line, int from, int to) {
+        count = 0;
+        int i = from;
+        while (i < to) {
+            while (i < to && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == to) {
+                break;
+            }
+            int start = i;
+            while (i < to && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (count == tokens.length) {
+                tokens = Arrays.copyOf(tokens, count * 2);
+            }
+            tokens[count++] = line.substring(start, i);
+        }
+        return count;
+    }
+
+    int tokenize(String line) {
+        return tokenize(line, 0, line.length());
+    }
+
+    int count() {
+        return count;
+    }
+
+    String get(int index) {
+        return tokens[index];
+    }
+
+    /**
+     * @return the token, or null if the line had fewer tokens
+     */
+    String getOrNull(int index) {
+        return index < count ? tokens[index] : null;
+    }
+
+    int getInt(int index) {
+        return Integer.parseInt(tokens[index]);
+    }
+
+    double getDouble(int index) {
+        return Double.parseDouble(tokens[index]);
+    }
+
+    /**
+     * @return the token as a shared instance
+     */
+    String getInterned(int index) {
+        return intern(tokens[index]);
+    }
+
+    String intern(String value) {
+        String existing = interned.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+}
@@ -0,0 +1,101 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.NetPoints;
+import com.odbpp.model.Netlist;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streaming parser for netlist files (steps/<step>/netlists/<name>/netlist).
+ *
+ * Format:
+ * H optimize <y|n> [staggered <y|n>]
+ * $<serial_num> <net_name>
+ * <net_num> <radius> <x> <y> <side> [<w> <h>] <epoint> <exp> ...
+ *
+ * Points go straight into the columns of {@link NetPoints}; no object is created per point.
+ */
+public class NetlistParser {
+
+    public Netlist parse(Path netlistFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(netlistFile, StandardCharsets.ISO_8859_1)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Parse a netlist file from a Reader - useful for testing with StringReader
+     */
+    public Netlist parse(Reader reader) throws IOException {
+        Netlist netlist = new Netlist();
+        NetPoints points = netlist.getPoints();
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        LineTokenizer tokens = new LineTokenizer();
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            char first = line.charAt(0);
+            if ((first >= '0' && first <= '9') || first == '-') {
+                parsePoint(line, tokens, points);
+            } else if (first == '$') {
+                // $<serial> <net name>; the name is the rest of the line and may contain spaces
+                int serialEnd = 1;
+                while (serialEnd < line.length() && !Character.isWhitespace(line.charAt(serialEnd))) {
+                    serialEnd++;
+                }
+                tokens.tokenize(line, 1, serialEnd);
+                Netlist.Net net = new Netlist.Net();
+                net.setSerialNum(tokens.getInt(0));
+                net.setName(line.substring(serialEnd).trim());
+                netlist.getNets().add(net);
+            } else if (line.startsWith("H ")) {
+                tokens.tokenize(line, 2, line.length());
+                for (int i = 0; i + 1 < tokens.count(); i += 2) {
+                    boolean value = tokens.get(i + 1).equalsIgnoreCase("y");
+                    if (tokens.get(i).equalsIgnoreCase("optimize")) {
+                        netlist.setOptimized(value);
+                    } else if (tokens.get(i).equalsIgnoreCase("staggered")) {
+                        netlist.setStaggered(value);
+                    }
+                }
+            } else if (line.startsWith("UNITS")) {
+                netlist.setUnits(line.substring(5).replace("=", "").trim());
+            }
+        }
+        points.trim();
+        return netlist;
+    }
+
+    private static void parsePoint(String line, LineTokenizer tokens, NetPoints points) {
+        int count = tokens.tokenize(line);
+        if (count < 5) {
+            return;
+        }
+        int next = 5;
+        double width = Double.NaN;
+        double height = Double.NaN;
+        // Rectangular points carry width and height after the side
+        if (count > 6 && isNumber(tokens.get(5))) {
+            width = tokens.getDouble(5);
+            height = tokens.getDouble(6);
+            next = 7;
+        }
+        boolean endPoint = next >= count || !tokens.get(next).equals("m");
+        char exposure = next + 1 < count ? tokens.get(next + 1).charAt(0) : 'e';
+        points.add(tokens.getInt(0), tokens.getDouble(1), tokens.getDouble(2), tokens.getDouble(3),
+                tokens.get(4).charAt(0), width, height, endPoint, exposure);
+    }
+
+    private static boolean isNumber(String token) {
+        char c = token.charAt(0);
+        return (c >= '0' && c <= '9') || c == '-' || c == '.';
+    }
+}
@@ -6,10 +6,35 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Stream;
 
 public class OdbParser {
 
+    /**
+     * Notified as the parts of a job become available, see {@link JobHandle}
+     */
+    interface Listener extends StepParser.Listener {
+        default void miscParsed(Job job) {
+        }
+
+        default void matrixParsed(Job job) {
+        }
+
+        /**
+         * Every step is listed; symbols, layers and EDA data are about to be parsed
+         */
+        default void stepsListed(Job job) {
+        }
+
+        default void symbolParsed(Symbol symbol) {
+        }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
     private final MiscInfoParser miscInfoParser = new MiscInfoParser();
     private final AttrListParser attrListParser = new AttrListParser();
     private final MatrixParser matrixParser = new MatrixParser();
@@ -20,8 +45,71 @@ public class OdbParser {
     private final StackupParser stackupParser = new StackupParser();
     private final DCodeParser dCodeParser = new DCodeParser();
     private final StepParser stepParser = new StepParser();
+    private final int parallelism;
+    private volatile ParseScheduler.Report lastReport;
+
+    public OdbParser() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the number of threads parsing the symbols, layers and EDA data of a job
+     */
+    public OdbParser(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the scheduling of the file tasks of the last parsed job, or null before the first parse
+     */
+    public ParseScheduler.Report getLastReport() {
+        return lastReport;
+    }
 
     public Job parse(Path odbRootPath) throws IOException {
+        ParseScheduler scheduler = new ParseScheduler(parallelism);
+        Job job = parse(odbRootPath, scheduler, NO_LISTENER);
+        lastReport = scheduler.run();
+        return job;
+    }
+
+    /**
+     * Starts parsing a job in the background and returns at once. The handle has futures for the parts of the
+     * job that complete as soon as each part is parsed.
+     */
+    public JobHandle parseAsync(Path odbRootPath) {
+        return parseAsync(odbRootPath, (done, total) -> { });
+    }
+
+    /**
+     * @param progress called after each symbol, layer, netlist and EDA data file
+     */
+    public JobHandle parseAsync(Path odbRootPath, ParseScheduler.ProgressListener progress) {
+        ParseScheduler scheduler = new ParseScheduler(parallelism);
+        JobHandle handle = new JobHandle(scheduler);
+        scheduler.setProgressListener((done, total) -> {
+            handle.taskDone(done, total);
+            progress.taskDone(done, total);
+        });
+        Thread.ofPlatform().daemon().name("odbpp-job-" + odbRootPath.getFileName()).start(() -> {
+            try {
+                Job job = parse(odbRootPath, scheduler, handle);
+                lastReport = scheduler.run();
+                handle.complete(job);
+            } catch (Throwable e) {
+                // Errors too, or the handle would never complete
+                handle.fail(e);
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Parses the small files of the job and adds the symbols and the layers, netlists and EDA data of all steps
+     * as tasks to the scheduler. Symbols, step layers and EDA data are thus parsed together, largest file first,
+     * when the scheduler runs.
+     */
+    private Job parse(Path odbRootPath, ParseScheduler scheduler, Listener listener) throws IOException {
         Job job = new Job();
 
         // misc directory
@@ -63,6 +151,9 @@ public class OdbParser {
             }
         }
 
+        listener.miscParsed(job);
+        checkCancelled(scheduler);
+
         // matrix directory
         Path matrixDir = odbRootPath.resolve("matrix");
         if (Files.exists(matrixDir)) {
@@ -73,6 +164,9 @@ public class OdbParser {
             }
         }
 
+        listener.matrixParsed(job);
+        checkCancelled(scheduler);
+
         // fonts directory
         Path fontsDir = odbRootPath.resolve("fonts");
         if (Files.exists(fontsDir)) {
@@ -87,7 +181,7 @@ public class OdbParser {
         if (Files.exists(symbolsDir)) {
             job.setSymbols(new HashMap<>());
             try (Stream<Path> symbolDirs = Files.list(symbolsDir)) {
-                symbolDirs.filter(Files::isDirectory).forEach(symbolDir -> {
+                symbolDirs.filter(Files::isDirectory).forEach(symbolDir -> scheduler.add(symbolDir, () -> {
                     try {
                         Symbol symbol = new Symbol();
                         symbol.setName(symbolDir.getFileName().toString());
@@ -98,12 +192,16 @@ public class OdbParser {
                         Path featuresFile = symbolDir.resolve("features");
                         if (Files.exists(featuresFile)) {
                             symbol.setFeatures(featuresFileParser.parse(featuresFile));
+                            symbol.getFeatures().getAttributes().resolve(job);
+                        }
+                        synchronized (job) {
+                            job.getSymbols().put(symbol.getName(), symbol);
                         }
-                        job.getSymbols().put(symbol.getName(), symbol);
+                        listener.symbolParsed(symbol);
                     } catch (IOException e) {
                         // Handle exception
                     }
-                });
+                }));
             }
         }
         
@@ -132,6 +230,33 @@ public class OdbParser {
             }
         }
 
+        // Feature and component attributes are typed as soon as a layer is parsed
+        StepParser.Listener stepListener = new StepParser.Listener() {
+            @Override
+            public void stepListed(Step step, List<String> layerNames) {
+                listener.stepListed(step, layerNames);
+            }
+
+            @Override
+            public void layerParsed(Step step, Layer layer) {
+                if (layer.getFeatures() != null) {
+                    layer.getFeatures().getAttributes().resolve(job);
+                }
+                if (layer.getProfile() != null) {
+                    layer.getProfile().getAttributes().resolve(job);
+                }
+                if (layer.getComponents() != null) {
+                    layer.getComponents().resolve(job);
+                }
+                listener.layerParsed(step, layer);
+            }
+
+            @Override
+            public void stepParsed(Step step) {
+                listener.stepParsed(step);
+            }
+        };
+
         // steps directory
         Path stepsDir = odbRootPath.resolve("steps");
         if (Files.exists(stepsDir)) {
@@ -139,7 +264,7 @@ public class OdbParser {
             try (Stream<Path> stepDirs = Files.list(stepsDir)) {
                 stepDirs.filter(Files::isDirectory).forEach(stepDir -> {
                     try {
-                        job.getSteps().put(stepDir.getFileName().toString(), stepParser.parse(stepDir));
+                        job.getSteps().put(stepDir.getFileName().toString(), stepParser.parse(stepDir, scheduler, stepListener));
                     } catch (IOException e) {
                         // Handle exception
                     }
@@ -147,6 +272,14 @@ public class OdbParser {
             }
         }
 
+        listener.stepsListed(job);
+        checkCancelled(scheduler);
         return job;
     }
-}
\ No newline at end of file
+
+    private static void checkCancelled(ParseScheduler scheduler) {
+        if (scheduler.isCancelled()) {
+            throw new CancellationException("Parse cancelled");
+        }
+    }
+}
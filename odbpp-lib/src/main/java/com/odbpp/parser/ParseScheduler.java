@@ -0,0 +1,263 @@
+package com.odbpp.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs the file parse tasks of a job on several threads, largest first.
+ *
+ * Tasks are weighed by the size of the files they read and dispatched in decreasing order of size
+ * (longest-processing-time first): each worker takes the largest remaining task when it becomes free. The big
+ * features files start immediately and the small ones fill the gaps at the end, so the wall time comes close to
+ * max(largest task, total / workers) instead of depending on directory order.
+ *
+ * Files are scheduled whole. The parsers read a file in one pass and build one model object, so an oversized file
+ * is not split into chunks here and bounds the wall time on its own; a caller that only needs the features of
+ * such a file can read it in parallel through {@link com.odbpp.stream.FeatureStreams}.
+ *
+ * Tasks must only touch their own results; shared maps are filled under their own lock. A failed task does not
+ * stop the others, whether it threw an exception or an Error such as OutOfMemoryError; the first failure is
+ * thrown once all tasks are done. {@link #cancel()} lets running tasks
+ * finish and skips the rest.
+ */
+public final class ParseScheduler {
+
+    @FunctionalInterface
+    public interface ParseTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * Called from the worker threads after each task
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void taskDone(int done, int total);
+    }
+
+    /**
+     * Timing of one scheduler run
+     */
+    public static final class Report {
+        private final int taskCount;
+        private final int workers;
+        private final long wallNanos;
+        private final long busyNanos;
+        private final long largestTaskNanos;
+
+        Report(int taskCount, int workers, long wallNanos, long busyNanos, long largestTaskNanos) {
+            this.taskCount = taskCount;
+            this.workers = workers;
+            this.wallNanos = wallNanos;
+            this.busyNanos = busyNanos;
+            this.largestTaskNanos = largestTaskNanos;
+        }
+
+        public int getTaskCount() {
+            return taskCount;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return the summed run time of all tasks
+         */
+        public long getBusyNanos() {
+            return busyNanos;
+        }
+
+        public long getLargestTaskNanos() {
+            return largestTaskNanos;
+        }
+
+        /**
+         * @return busy time over available worker time, 1 when no worker was ever idle
+         */
+        public double getParallelEfficiency() {
+            return wallNanos == 0 ? 1 : Math.min(1, (double) busyNanos / ((double) wallNanos * workers));
+        }
+
+        /**
+         * @return the wall time no schedule can beat, max(largest task, busy time / workers), over the achieved
+         *         wall time
+         */
+        public double getScheduleEfficiency() {
+            long bound = Math.max(largestTaskNanos, busyNanos / workers);
+            return wallNanos == 0 ? 1 : Math.min(1, (double) bound / wallNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tasks on %d workers in %.1f ms, %.0f%% parallel efficiency", taskCount, workers,
+                    wallNanos / 1e6, getParallelEfficiency() * 100);
+        }
+    }
+
+    private static final class Task {
+        private final long size;
+        private final ParseTask task;
+        private long nanos;
+        private Throwable failure;
+
+        Task(long size, ParseTask task) {
+            this.size = size;
+            this.task = task;
+        }
+    }
+
+    private final int parallelism;
+    private final List<Task> tasks = new ArrayList<>();
+    private volatile ProgressListener progressListener = (done, total) -> { };
+    private volatile boolean cancelled;
+
+    public ParseScheduler(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Adds a task weighed by the given number of bytes
+     */
+    public synchronized void add(long size, ParseTask task) {
+        tasks.add(new Task(size, task));
+    }
+
+    /**
+     * Adds a task weighed by the size of a file, or of the files directly inside a directory
+     */
+    public void add(Path path, ParseTask task) {
+        add(sizeOf(path), task);
+    }
+
+    public synchronized int size() {
+        return tasks.size();
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Skips the tasks that have not started. {@link #run()} then throws CancellationException.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    static long sizeOf(Path path) {
+        try {
+            if (!Files.isDirectory(path)) {
+                return Files.exists(path) ? Files.size(path) : 0;
+            }
+            try (Stream<Path> files = Files.list(path)) {
+                return files.filter(Files::isRegularFile).mapToLong(file -> {
+                    try {
+                        return Files.size(file);
+                    } catch (IOException e) {
+                        return 0;
+                    }
+                }).sum();
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Runs all added tasks and clears them. The calling thread works as one of the workers.
+     */
+    public Report run() throws IOException {
+        List<Task> queue;
+        synchronized (this) {
+            queue = new ArrayList<>(tasks);
+            tasks.clear();
+        }
+        queue.sort(Comparator.comparingLong((Task task) -> task.size).reversed());
+        int workers = Math.min(parallelism, Math.max(1, queue.size()));
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < queue.size() && !cancelled; i = next.getAndIncrement()) {
+                Task task = queue.get(i);
+                long start = System.nanoTime();
+                try {
+                    task.task.run();
+                } catch (Throwable e) {
+                    task.failure = e;
+                }
+                task.nanos = System.nanoTime() - start;
+                try {
+                    progressListener.taskDone(done.incrementAndGet(), queue.size());
+                } catch (Throwable e) {
+                    if (task.failure == null) {
+                        task.failure = e;
+                    } else {
+                        task.failure.addSuppressed(e);
+                    }
+                }
+            }
+        };
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 1; i < workers; i++) {
+            threads.add(Thread.ofPlatform().name("odbpp-parse-" + i).start(worker));
+        }
+        worker.run();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while parsing", e);
+            }
+        }
+        long wall = System.nanoTime() - start;
+        if (cancelled) {
+            throw new CancellationException("Parse cancelled");
+        }
+
+        long busy = 0;
+        long largest = 0;
+        Throwable failure = null;
+        for (Task task : queue) {
+            busy += task.nanos;
+            largest = Math.max(largest, task.nanos);
+            if (task.failure != null) {
+                if (failure == null) {
+                    failure = task.failure;
+                } else {
+                    failure.addSuppressed(task.failure);
+                }
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+        return new Report(queue.size(), workers, wall, busy, largest);
+    }
+}
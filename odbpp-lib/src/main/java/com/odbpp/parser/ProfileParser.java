@@ -14,7 +14,7 @@ import java.util.regex.Pattern;
 
 public class ProfileParser {
     private static final Pattern SURFACE_PATTERN = Pattern.compile(
-            "^S\\s+(P|N)\\s+(\\d+)(?:;(\\d+)=(.*?))?(?:;ID=(.*?))?\\s*$");
+            "^S\\s+(P|N)\\s+(\\d+)");
     
     private final SurfaceParser surfaceParser = new SurfaceParser();
 
@@ -23,7 +23,11 @@ public class ProfileParser {
         List<String> lines = Files.readAllLines(profileFile, StandardCharsets.ISO_8859_1);
         for (int i = 0; i < lines.size(); i++) {
             String line = lines.get(i);
-            if (line.startsWith("S")) {
+            if (line.startsWith("@")) {
+                FeaturesFileParser.parseTableEntry(line, profile.getAttributes(), true);
+            } else if (line.startsWith("&")) {
+                FeaturesFileParser.parseTableEntry(line, profile.getAttributes(), false);
+            } else if (line.startsWith("S")) {
                 Matcher matcher = SURFACE_PATTERN.matcher(line);
                 if (matcher.find()) {
                     Surface surface = new Surface();
@@ -36,16 +40,12 @@ public class ProfileParser {
                     int dcode = Integer.parseInt(matcher.group(2));
                     surface.setDcode(dcode);
                     
-                    // Parse attributes if present
-                    if (matcher.group(3) != null && matcher.group(4) != null) {
-                        int attrNumber = Integer.parseInt(matcher.group(3));
-                        String attrValue = matcher.group(4);
-                        surface.getAttributes().put(attrNumber, attrValue);
-                    }
-                    
-                    // Parse unique ID if present
-                    if (matcher.group(5) != null) {
-                        surface.setUniqueId(matcher.group(5));
+                    // Parse attributes and unique ID if present
+                    String id = FeaturesFileParser.parseAttributes(line, line.indexOf(';'),
+                            profile.getAttributes(), profile.getSurfaces().size());
+                    surface.setUniqueId(id);
+                    if (FeaturesFileParser.parseId(id) >= 0) {
+                        profile.getAttributes().setId(profile.getSurfaces().size(), FeaturesFileParser.parseId(id));
                     }
                     
                     profile.getSurfaces().add(surface);
@@ -53,6 +53,8 @@ public class ProfileParser {
                 }
             }
         }
+        profile.getAttributes().ensureFeatures(profile.getSurfaces().size());
+        profile.getAttributes().trim();
         return profile;
     }
 }
\ No newline at end of file
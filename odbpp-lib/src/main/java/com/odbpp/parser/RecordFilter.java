@@ -0,0 +1,342 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.AttributeDefinition;
+import com.odbpp.model.AttributeType;
+import com.odbpp.model.FeatureAttributes;
+import com.odbpp.model.Features;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Selects feature records from their raw line before they are parsed, see
+ * {@link FeaturesFileParser#open(java.nio.file.Path, RecordFilter)}.
+ *
+ * Conditions are checked in order of cost on the tokens of the record: kind (first character), symbol name
+ * (by symbol number), window and attribute values. A record that fails is skipped without building a feature.
+ * All conditions must hold.
+ *
+ * The window test uses the geometry of the record without its symbol: pad, text and barcode anchor points, the
+ * bounding box of line end points, and the circles of arcs and surface contour arcs. Features that only reach
+ * the window through their symbol size are not selected; widen the window by the largest symbol to include
+ * them.
+ *
+ * Attribute values are compared as written in the file, and for OPTION and TEXT attributes also by option name
+ * or text when the attribute definitions are set. If the file does not declare a required attribute name, no
+ * record can match and the reader stops at the first record.
+ */
+public final class RecordFilter {
+
+    public enum Kind {
+        PAD('P'), LINE('L'), ARC('A'), SURFACE('S'), TEXT('T'), BARCODE('B');
+
+        private final char type;
+
+        Kind(char type) {
+            this.type = type;
+        }
+
+        public char getType() {
+            return type;
+        }
+
+        /**
+         * @return the kind of a record type character, or null
+         */
+        public static Kind of(char type) {
+            for (Kind kind : values()) {
+                if (kind.type == type) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Conditions found on a record are tracked in an int mask
+    private static final int MAX_ATTRIBUTES = 31;
+
+    private final Set<Kind> kinds = EnumSet.allOf(Kind.class);
+    private Predicate<String> symbols;
+    private double[] window;
+    private final Map<String, String> attributes = new HashMap<>();
+    private Map<String, AttributeDefinition> systemAttributes;
+    private Map<String, AttributeDefinition> userAttributes;
+
+    public RecordFilter kinds(Set<Kind> kinds) {
+        this.kinds.retainAll(kinds);
+        return this;
+    }
+
+    /**
+     * Selects pads, lines and arcs whose symbol name matches
+     */
+    public RecordFilter symbols(Predicate<String> symbolNames) {
+        this.symbols = symbolNames;
+        return this;
+    }
+
+    public RecordFilter window(double minX, double minY, double maxX, double maxY) {
+        this.window = new double[]{Math.min(minX, maxX), Math.min(minY, maxY), Math.max(minX, maxX), Math.max(minY, maxY)};
+        return this;
+    }
+
+    /**
+     * Requires the attribute to be set
+     */
+    public RecordFilter attribute(String name) {
+        return attribute(name, null);
+    }
+
+    /**
+     * Requires the attribute to have the value
+     */
+    public RecordFilter attribute(String name, String value) {
+        if (!attributes.containsKey(name) && attributes.size() == MAX_ATTRIBUTES) {
+            throw new IllegalArgumentException("At most " + MAX_ATTRIBUTES + " attribute conditions");
+        }
+        attributes.put(name, value);
+        return this;
+    }
+
+    /**
+     * Sets the attribute definitions used to compare OPTION and TEXT values by name
+     */
+    public RecordFilter definitions(Map<String, AttributeDefinition> systemAttributes,
+                                    Map<String, AttributeDefinition> userAttributes) {
+        this.systemAttributes = systemAttributes;
+        this.userAttributes = userAttributes;
+        return this;
+    }
+
+    public Set<Kind> getKinds() {
+        return EnumSet.copyOf(kinds);
+    }
+
+    /**
+     * @return true if the filter accepts every record
+     */
+    public boolean isEmpty() {
+        return kinds.size() == Kind.values().length && symbols == null && window == null && attributes.isEmpty();
+    }
+
+    /**
+     * Binds the filter to the header of one file; the header must be complete
+     */
+    Matcher compile(Features header) {
+        return new Matcher(header);
+    }
+
+    /**
+     * The filter bound to the symbol and attribute tables of one file. Not thread-safe.
+     */
+    final class Matcher {
+        private final Features header;
+        private final LineTokenizer tokens = new LineTokenizer();
+        private final Map<Integer, Boolean> symbolMatches = new HashMap<>();
+        // Name index and accepted raw values (null for any value) of each required attribute
+        private final int[] attributeNames;
+        private final List<Set<String>> attributeValues = new ArrayList<>();
+        private boolean rejectsAll;
+
+        Matcher(Features header) {
+            this.header = header;
+            FeatureAttributes table = header.getAttributes();
+            attributeNames = new int[attributes.size()];
+            int i = 0;
+            for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                attributeNames[i] = table.getNames().indexOf(entry.getKey());
+                if (attributeNames[i] < 0) {
+                    rejectsAll = true;
+                }
+                attributeValues.add(entry.getValue() == null ? null : rawValues(entry.getKey(), entry.getValue(), table));
+                i++;
+            }
+            if (kinds.isEmpty()) {
+                rejectsAll = true;
+            }
+        }
+
+        private Set<String> rawValues(String name, String value, FeatureAttributes table) {
+            Set<String> raw = new HashSet<>();
+            raw.add(value);
+            Map<String, AttributeDefinition> definitions = name.startsWith(".") ? systemAttributes : userAttributes;
+            AttributeDefinition definition = definitions == null ? null : definitions.get(name);
+            AttributeType type = definition == null ? null : definition.getType();
+            List<String> names = type == AttributeType.TEXT ? table.getTexts()
+                    : type == AttributeType.OPTION ? definition.getOptions() : null;
+            if (names != null) {
+                for (int i = 0; i < names.size(); i++) {
+                    if (value.equals(names.get(i))) {
+                        raw.add(String.valueOf(i));
+                    }
+                }
+            }
+            return raw;
+        }
+
+        /**
+         * @return true if no record of the file can match
+         */
+        boolean rejectsAll() {
+            return rejectsAll;
+        }
+
+        /**
+         * @param surface the lines of the surface starting with the S line, null for other records
+         */
+        boolean accept(String line, List<String> surface) {
+            Kind kind = Kind.of(line.charAt(0));
+            if (kind == null || !kinds.contains(kind)) {
+                return false;
+            }
+            boolean quoted = kind == Kind.TEXT || kind == Kind.BARCODE;
+            int semicolon = FeaturesFileParser.attributeSection(line, quoted);
+            int count = tokens.tokenize(line, 1, semicolon < 0 ? line.length() : semicolon);
+            try {
+                if (symbols != null && !acceptSymbol(kind, count)) {
+                    return false;
+                }
+                if (window != null && !acceptWindow(kind, count, surface)) {
+                    return false;
+                }
+            } catch (NumberFormatException e) {
+                // Malformed records are left to the parser
+                return true;
+            }
+            return attributeNames.length == 0 || acceptAttributes(line, semicolon);
+        }
+
+        private boolean acceptSymbol(Kind kind, int count) {
+            int symbol;
+            if (kind == Kind.PAD && count > 3) {
+                symbol = tokens.get(2).equals("-1") ? tokens.getInt(3) : tokens.getInt(2);
+            } else if (kind == Kind.LINE && count > 4) {
+                symbol = tokens.getInt(4);
+            } else if (kind == Kind.ARC && count > 6) {
+                symbol = tokens.getInt(6);
+            } else {
+                return false;
+            }
+            return symbolMatches.computeIfAbsent(symbol, number -> {
+                String name = header.getSymbolNames().get(number);
+                return name != null && symbols.test(name);
+            });
+        }
+
+        private boolean acceptWindow(Kind kind, int count, List<String> surface) {
+            switch (kind) {
+                case LINE:
+                    return count > 3 && overlaps(Math.min(tokens.getDouble(0), tokens.getDouble(2)),
+                            Math.min(tokens.getDouble(1), tokens.getDouble(3)),
+                            Math.max(tokens.getDouble(0), tokens.getDouble(2)),
+                            Math.max(tokens.getDouble(1), tokens.getDouble(3)));
+                case ARC:
+                    return count > 5 && overlapsCircle(tokens.getDouble(4), tokens.getDouble(5),
+                            tokens.getDouble(0), tokens.getDouble(1));
+                case SURFACE:
+                    return surface != null && acceptSurface(surface);
+                default:
+                    return count > 1 && overlaps(tokens.getDouble(0), tokens.getDouble(1),
+                            tokens.getDouble(0), tokens.getDouble(1));
+            }
+        }
+
+        // OB <x> <y> <I|H>, OS <x> <y>, OC <xe> <ye> <xc> <yc> <cw>
+        private boolean acceptSurface(List<String> surface) {
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (String line : surface) {
+                if (!line.startsWith("O") || tokens.tokenize(line, 2, line.length()) < 2) {
+                    continue;
+                }
+                double x = tokens.getDouble(0);
+                double y = tokens.getDouble(1);
+                if (line.startsWith("OC") && tokens.count() > 3) {
+                    double xc = tokens.getDouble(2);
+                    double yc = tokens.getDouble(3);
+                    double radius = Math.hypot(x - xc, y - yc);
+                    minX = Math.min(minX, xc - radius);
+                    minY = Math.min(minY, yc - radius);
+                    maxX = Math.max(maxX, xc + radius);
+                    maxY = Math.max(maxY, yc + radius);
+                } else {
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+            return minX <= maxX && overlaps(minX, minY, maxX, maxY);
+        }
+
+        private boolean overlapsCircle(double xc, double yc, double x, double y) {
+            double radius = Math.hypot(x - xc, y - yc);
+            return overlaps(xc - radius, yc - radius, xc + radius, yc + radius);
+        }
+
+        private boolean overlaps(double minX, double minY, double maxX, double maxY) {
+            return maxX >= window[0] && minX <= window[2] && maxY >= window[1] && minY <= window[3];
+        }
+
+        // ;<n>[=<value>],...;ID=<id>
+        private boolean acceptAttributes(String line, int semicolon) {
+            if (semicolon < 0) {
+                return false;
+            }
+            int found = 0;
+            int start = semicolon + 1;
+            while (start < line.length()) {
+                int end = start;
+                while (end < line.length() && line.charAt(end) != ',' && line.charAt(end) != ';') {
+                    end++;
+                }
+                int equals = line.indexOf('=', start);
+                int nameEnd = equals < 0 || equals > end ? end : equals;
+                int name = parseIndex(line, start, nameEnd);
+                for (int i = 0; i < attributeNames.length; i++) {
+                    if (attributeNames[i] == name && (found & (1 << i)) == 0) {
+                        Set<String> values = attributeValues.get(i);
+                        if (values == null || nameEnd < end && values.contains(line.substring(nameEnd + 1, end).trim())) {
+                            found |= 1 << i;
+                        }
+                    }
+                }
+                start = end + 1;
+            }
+            return Integer.bitCount(found) == attributeNames.length;
+        }
+
+        /**
+         * @return the attribute name index of line[start, end), or -1
+         */
+        private int parseIndex(String line, int start, int end) {
+            while (start < end && Character.isWhitespace(line.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+                end--;
+            }
+            if (start == end || end - start > 9) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                char c = line.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+    }
+}
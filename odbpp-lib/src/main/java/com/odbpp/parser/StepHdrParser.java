@@ -46,6 +46,18 @@ public class StepHdrParser {
             case "ID":
                 stepHdr.setId(Integer.parseInt(value));
                 break;
+            case "X_ORIGIN":
+                stepHdr.setXOrigin(Double.parseDouble(value));
+                break;
+            case "Y_ORIGIN":
+                stepHdr.setYOrigin(Double.parseDouble(value));
+                break;
+            case "AFFECTING_BOM":
+                stepHdr.setAffectingBom(value);
+                break;
+            case "AFFECTING_BOM_CHANGED":
+                stepHdr.setAffectingBomChanged(parseBoolean(value));
+                break;
             // Add other simple properties here
         }
     }
@@ -77,7 +89,32 @@ public class StepHdrParser {
             case "Y":
                 stepRepeat.setY(Double.parseDouble(value));
                 break;
+            case "DX":
+                stepRepeat.setDx(Double.parseDouble(value));
+                break;
+            case "DY":
+                stepRepeat.setDy(Double.parseDouble(value));
+                break;
+            case "NX":
+                stepRepeat.setNx(Integer.parseInt(value));
+                break;
+            case "NY":
+                stepRepeat.setNy(Integer.parseInt(value));
+                break;
+            case "ANGLE":
+                stepRepeat.setAngle(Double.parseDouble(value));
+                break;
+            case "FLIP":
+                stepRepeat.setFlip(parseBoolean(value));
+                break;
+            case "MIRROR":
+                stepRepeat.setMirror(parseBoolean(value));
+                break;
             // Add other step repeat properties here
         }
     }
+
+    private boolean parseBoolean(String value) {
+        return value.equalsIgnoreCase("YES") || value.equals("1") || value.equalsIgnoreCase("TRUE");
+    }
 }
@@ -1,12 +1,42 @@
 package com.odbpp.parser;
 
+import com.odbpp.model.Layer;
+import com.odbpp.model.Netlist;
 import com.odbpp.model.Step;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class StepParser {
+
+    /**
+     * Notified as the parts of a step become available. Calls after {@link #stepListed(Step, List)} come from
+     * the scheduler threads.
+     */
+    public interface Listener {
+        /**
+         * The small files of the step are parsed and its layer names are known; layers are not parsed yet
+         */
+        default void stepListed(Step step, List<String> layerNames) {
+        }
+
+        default void layerParsed(Step step, Layer layer) {
+        }
+
+        /**
+         * All tasks of the step are done, including layers that failed to parse
+         */
+        default void stepParsed(Step step) {
+        }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
     private final StepHdrParser stepHdrParser = new StepHdrParser();
     private final AttrListParser attrListParser = new AttrListParser();
     private final EdaDataParser edaDataParser = new EdaDataParser();
@@ -15,9 +45,39 @@ public class StepParser {
     private final ImpedanceParser impedanceParser = new ImpedanceParser();
     private final ZonesParser zonesParser = new ZonesParser();
     private final LayerParser layerParser = new LayerParser();
+    private final NetlistParser netlistParser = new NetlistParser();
+    private final int parallelism;
+
+    public StepParser() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the number of threads parsing the layers of a step
+     */
+    public StepParser(int parallelism) {
+        this.parallelism = parallelism;
+    }
 
     public Step parse(Path stepDir) throws IOException {
+        ParseScheduler scheduler = new ParseScheduler(parallelism);
+        Step step = parse(stepDir, scheduler);
+        scheduler.run();
+        return step;
+    }
+
+    /**
+     * Parses the small files of the step and adds the EDA data, netlists and layers as tasks to the scheduler.
+     * The step is complete once the scheduler has run.
+     */
+    public Step parse(Path stepDir, ParseScheduler scheduler) throws IOException {
+        return parse(stepDir, scheduler, NO_LISTENER);
+    }
+
+    public Step parse(Path stepDir, ParseScheduler scheduler, Listener listener) throws IOException {
         Step step = new Step();
+        List<Path> taskFiles = new ArrayList<>();
+        List<ParseScheduler.ParseTask> tasks = new ArrayList<>();
         step.setName(stepDir.getFileName().toString());
 
         Path stepHdrFile = stepDir.resolve("stephdr");
@@ -34,7 +94,14 @@ public class StepParser {
         if (Files.exists(edaDir)) {
             Path dataFile = edaDir.resolve("data");
             if (Files.exists(dataFile)) {
-                step.setEdaData(edaDataParser.parse(dataFile));
+                taskFiles.add(dataFile);
+                tasks.add(() -> {
+                    try {
+                        step.setEdaData(edaDataParser.parse(dataFile));
+                    } catch (IOException e) {
+                        // Handle exception
+                    }
+                });
             }
         }
 
@@ -67,20 +134,69 @@ public class StepParser {
             step.setZones(zonesParser.parse(zonesFile));
         }
 
+        Path netlistsDir = stepDir.resolve("netlists");
+        if (Files.exists(netlistsDir)) {
+            step.setNetlistsByName(new HashMap<>());
+            try (var stream = Files.list(netlistsDir)) {
+                stream.filter(Files::isDirectory).forEach(netlistDir -> {
+                    Path netlistFile = netlistDir.resolve("netlist");
+                    if (Files.exists(netlistFile)) {
+                        taskFiles.add(netlistFile);
+                        tasks.add(() -> {
+                            try {
+                                Netlist netlist = netlistParser.parse(netlistFile);
+                                synchronized (step) {
+                                    step.getNetlistsByName().put(netlistDir.getFileName().toString(), netlist);
+                                }
+                            } catch (IOException e) {
+                                // Handle exception
+                            }
+                        });
+                    }
+                });
+            }
+        }
+
+        List<String> layerNames = new ArrayList<>();
         Path layersDir = stepDir.resolve("layers");
         if (Files.exists(layersDir)) {
             step.setLayersByName(new HashMap<>());
             try (var stream = Files.list(layersDir)) {
                 stream.filter(Files::isDirectory).forEach(layerDir -> {
-                    try {
-                        step.getLayersByName().put(layerDir.getFileName().toString(), layerParser.parse(layerDir));
-                    } catch (IOException e) {
-                        // Handle exception
-                    }
+                    layerNames.add(layerDir.getFileName().toString());
+                    taskFiles.add(layerDir);
+                    tasks.add(() -> {
+                        try {
+                            Layer layer = layerParser.parse(layerDir);
+                            synchronized (step) {
+                                step.getLayersByName().put(layerDir.getFileName().toString(), layer);
+                            }
+                            listener.layerParsed(step, layer);
+                        } catch (IOException e) {
+                            // Handle exception
+                        }
+                    });
                 });
             }
         }
 
+        listener.stepListed(step, layerNames);
+        if (tasks.isEmpty()) {
+            listener.stepParsed(step);
+        }
+        AtomicInteger remaining = new AtomicInteger(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            ParseScheduler.ParseTask task = tasks.get(i);
+            scheduler.add(taskFiles.get(i), () -> {
+                try {
+                    task.run();
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        listener.stepParsed(step);
+                    }
+                }
+            });
+        }
         return step;
     }
 }
@@ -0,0 +1,104 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.DrillTool;
+import com.odbpp.model.DrillTools;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ToolsParser {
+
+    public DrillTools parse(Path toolsFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(toolsFile, StandardCharsets.ISO_8859_1)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Parse a tools file from a Reader - useful for testing with StringReader
+     */
+    public DrillTools parse(Reader reader) throws IOException {
+        DrillTools drillTools = new DrillTools();
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith("TOOLS {") || line.equals("TOOLS{")) {
+                drillTools.getTools().add(parseTool(bufferedReader));
+            } else {
+                String[] parts = line.split("=", 2);
+                if (parts.length == 2) {
+                    setToolsProperty(drillTools, parts[0].trim(), parts[1].trim());
+                }
+            }
+        }
+        return drillTools;
+    }
+
+    private void setToolsProperty(DrillTools drillTools, String key, String value) {
+        switch (key) {
+            case "UNITS":
+                drillTools.setUnits(value);
+                break;
+            case "THICKNESS":
+                drillTools.setThickness(parseDouble(value));
+                break;
+            case "USER_PARAMS":
+                drillTools.setUserParams(value);
+                break;
+        }
+    }
+
+    private DrillTool parseTool(BufferedReader reader) throws IOException {
+        DrillTool tool = new DrillTool();
+        tool.setType(DrillTool.Type.UNKNOWN);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.equals("}")) {
+                break;
+            }
+            String[] parts = line.split("=", 2);
+            if (parts.length == 2) {
+                setToolProperty(tool, parts[0].trim(), parts[1].trim());
+            }
+        }
+        return tool;
+    }
+
+    private void setToolProperty(DrillTool tool, String key, String value) {
+        switch (key) {
+            case "NUM":
+                tool.setNum(Integer.parseInt(value));
+                break;
+            case "TYPE":
+                tool.setType(DrillTool.Type.fromString(value));
+                break;
+            case "TYPE2":
+                tool.setType2(value);
+                break;
+            case "MIN_TOL":
+                tool.setMinTol(parseDouble(value));
+                break;
+            case "MAX_TOL":
+                tool.setMaxTol(parseDouble(value));
+                break;
+            case "BIT":
+                tool.setBit(value);
+                break;
+            case "FINISH_SIZE":
+                tool.setFinishSize(parseDouble(value));
+                break;
+            case "DRILL_SIZE":
+                tool.setDrillSize(parseDouble(value));
+                break;
+        }
+    }
+
+    private double parseDouble(String value) {
+        return value.isEmpty() ? 0 : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,174 @@
+package com.odbpp.query;
+
+import com.odbpp.model.BoardSide;
+import com.odbpp.model.Component;
+import com.odbpp.model.Matrix;
+import com.odbpp.model.MatrixLayer;
+import com.odbpp.parser.ComponentsParser;
+import com.odbpp.parser.MatrixParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Selects the components of a job by side, part name, reference designator and window.
+ *
+ * <pre>
+ * List&lt;Component&gt; caps = ComponentQuery.select().side(BoardSide.BOTTOM).parts("CAP*").run(jobDir);
+ * </pre>
+ *
+ * Only the components files of the selected sides are read. Within a file the conditions are checked on the
+ * tokens of each CMP line, and the records of other components are skipped without building them. The window
+ * is tested against the component location. Part and reference designator patterns use * and ? and are case
+ * sensitive.
+ */
+public final class ComponentQuery {
+
+    /**
+     * Receives the selected components
+     */
+    @FunctionalInterface
+    public interface ComponentConsumer {
+        void accept(String step, BoardSide side, Component component);
+    }
+
+    private Predicate<String> stepNames = name -> true;
+    private Predicate<String> partNames;
+    private Predicate<String> refdes;
+    private double[] window;
+    private BoardSide side = BoardSide.NONE;
+
+    private ComponentQuery() {
+    }
+
+    public static ComponentQuery select() {
+        return new ComponentQuery();
+    }
+
+    public ComponentQuery steps(String... globs) {
+        stepNames = Glob.compile(Arrays.asList(globs), true);
+        return this;
+    }
+
+    /**
+     * @param side TOP or BOTTOM; NONE, the default, selects both
+     */
+    public ComponentQuery side(BoardSide side) {
+        this.side = side;
+        return this;
+    }
+
+    public ComponentQuery parts(String... globs) {
+        partNames = Glob.compile(Arrays.asList(globs), false);
+        return this;
+    }
+
+    public ComponentQuery refdes(String... globs) {
+        refdes = Glob.compile(Arrays.asList(globs), false);
+        return this;
+    }
+
+    /**
+     * Selects components located inside the window, edges included. Like {@link FeatureQuery#window}, the window
+     * is in the raw units of each components file and is not converted.
+     */
+    public ComponentQuery window(double minX, double minY, double maxX, double maxY) {
+        this.window = new double[]{Math.min(minX, maxX), Math.min(minY, maxY), Math.max(minX, maxX), Math.max(minY, maxY)};
+        return this;
+    }
+
+    public List<Component> run(Path odbRoot) throws IOException {
+        List<Component> results = new ArrayList<>();
+        forEach(odbRoot, (step, componentSide, component) -> results.add(component));
+        return results;
+    }
+
+    public void forEach(Path odbRoot, ComponentConsumer consumer) throws IOException {
+        Path matrixFile = odbRoot.resolve("matrix/matrix");
+        Matrix matrix = Files.exists(matrixFile) ? new MatrixParser().parse(matrixFile) : null;
+        String top = componentLayer(matrix, BoardSide.TOP);
+        String bottom = componentLayer(matrix, BoardSide.BOTTOM);
+        Path stepsDir = odbRoot.resolve("steps");
+        if (!Files.isDirectory(stepsDir)) {
+            return;
+        }
+        ComponentsParser parser = new ComponentsParser();
+        ComponentsParser.ComponentFilter filter = this::accept;
+        List<Path> stepDirs;
+        try (Stream<Path> paths = Files.list(stepsDir)) {
+            stepDirs = paths.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+        for (Path stepDir : stepDirs) {
+            String step = stepDir.getFileName().toString();
+            if (!stepNames.test(step)) {
+                continue;
+            }
+            for (BoardSide componentSide : new BoardSide[]{BoardSide.TOP, BoardSide.BOTTOM}) {
+                if (side != BoardSide.NONE && side != componentSide) {
+                    continue;
+                }
+                String layer = componentSide == BoardSide.TOP ? top : bottom;
+                if (layer == null) {
+                    continue;
+                }
+                Path componentsFile = stepDir.resolve("layers").resolve(layer).resolve("components");
+                if (Files.exists(componentsFile)) {
+                    parser.parse(componentsFile, filter, component -> consumer.accept(step, componentSide, component));
+                }
+            }
+        }
+    }
+
+    private boolean accept(double x, double y, String compName, String partName) {
+        return (partNames == null || partNames.test(partName))
+                && (refdes == null || refdes.test(compName))
+                && (window == null || x >= window[0] && x <= window[2] && y >= window[1] && y <= window[3]);
+    }
+
+    /**
+     * @return the component layer of the side: the first COMPONENT layer of the matrix for TOP and the last for
+     *         BOTTOM, the standard name if the matrix has none, and null for the side without one if it has only
+     *         one
+     */
+    private static String componentLayer(Matrix matrix, BoardSide side) {
+        List<MatrixLayer> layers = matrix == null || matrix.getLayers() == null ? List.of() : matrix.getLayers().stream()
+                .filter(layer -> "COMPONENT".equals(layer.getType()))
+                .sorted(Comparator.comparingInt(MatrixLayer::getRow))
+                .collect(Collectors.toList());
+        if (layers.isEmpty()) {
+            return side == BoardSide.TOP ? "comp_+_top" : "comp_+_bot";
+        }
+        if (layers.size() == 1) {
+            MatrixLayer layer = layers.get(0);
+            return side(matrix, layer) == side ? layer.getName() : null;
+        }
+        return layers.get(side == BoardSide.TOP ? 0 : layers.size() - 1).getName();
+    }
+
+    /**
+     * @return the side of a component layer: BOTTOM if it follows the copper layers of the matrix, TOP if it
+     *         precedes them, and otherwise BOTTOM only if its name ends with _bot
+     */
+    private static BoardSide side(Matrix matrix, MatrixLayer layer) {
+        List<MatrixLayer> copper = matrix.getLayers().stream()
+                .filter(MatrixLayer::isCopper)
+                .sorted(Comparator.comparingInt(MatrixLayer::getRow))
+                .collect(Collectors.toList());
+        if (!copper.isEmpty() && layer.getRow() > copper.get(copper.size() - 1).getRow()) {
+            return BoardSide.BOTTOM;
+        }
+        if (!copper.isEmpty() && layer.getRow() < copper.get(0).getRow()) {
+            return BoardSide.TOP;
+        }
+        String name = layer.getName() == null ? "" : layer.getName().toLowerCase();
+        return name.endsWith("_bot") ? BoardSide.BOTTOM : BoardSide.TOP;
+    }
+}
@@ -0,0 +1,275 @@
+package com.odbpp.query;
+
+import com.odbpp.model.AttributeDefinition;
+import com.odbpp.model.BoardSide;
+import com.odbpp.model.Feature;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Matrix;
+import com.odbpp.model.MatrixLayer;
+import com.odbpp.model.Step;
+import com.odbpp.parser.AttributeDefinitionParser;
+import com.odbpp.parser.FeaturesFileParser;
+import com.odbpp.parser.FeaturesReader;
+import com.odbpp.parser.MatrixParser;
+import com.odbpp.parser.RecordFilter;
+import com.odbpp.stream.LayerFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Selects features of a job by step, layer, record kind, symbol, attributes and window, reading only what
+ * matches.
+ *
+ * <pre>
+ * List&lt;LayerFeature&gt; pads = FeatureQuery.select()
+ *         .outerCopper(BoardSide.TOP)
+ *         .kinds(RecordFilter.Kind.PAD)
+ *         .symbols("r*")
+ *         .window(0, 0, 2, 2)
+ *         .run(jobDir);
+ * </pre>
+ *
+ * Layers are chosen from the matrix before any features file is opened, so layers whose name or type cannot
+ * match are never read. Within a layer the remaining conditions are pushed into the features reader as a
+ * {@link RecordFilter}: records are skipped on their tokens, before a feature is built, and a layer that does
+ * not declare a required attribute is abandoned at its first record. Names are matched with * and ? patterns;
+ * step and layer names ignore case, symbol names do not.
+ */
+public final class FeatureQuery {
+    private final FeaturesFileParser parser = new FeaturesFileParser();
+    private final RecordFilter filter = new RecordFilter();
+    private final List<String> steps = new ArrayList<>();
+    private final List<String> layers = new ArrayList<>();
+    private Predicate<String> stepNames = name -> true;
+    private Predicate<String> layerNames = name -> true;
+    private final Set<String> layerTypes = new HashSet<>();
+    private BoardSide outerCopper;
+    private boolean needsDefinitions;
+
+    private FeatureQuery() {
+    }
+
+    public static FeatureQuery select() {
+        return new FeatureQuery();
+    }
+
+    public FeatureQuery steps(String... globs) {
+        steps.addAll(Arrays.asList(globs));
+        stepNames = Glob.compile(steps, true);
+        return this;
+    }
+
+    public FeatureQuery layers(String... globs) {
+        layers.addAll(Arrays.asList(globs));
+        layerNames = Glob.compile(layers, true);
+        return this;
+    }
+
+    /**
+     * Selects layers by matrix type, e.g. SIGNAL, SOLDER_MASK or DRILL
+     */
+    public FeatureQuery layerTypes(String... types) {
+        for (String type : types) {
+            layerTypes.add(type.toUpperCase());
+        }
+        return this;
+    }
+
+    /**
+     * Selects the outermost copper layer of the side: the first copper layer of the matrix for TOP, the last for
+     * BOTTOM
+     */
+    public FeatureQuery outerCopper(BoardSide side) {
+        this.outerCopper = side;
+        return this;
+    }
+
+    public FeatureQuery kinds(RecordFilter.Kind... kinds) {
+        Set<RecordFilter.Kind> selected = EnumSet.noneOf(RecordFilter.Kind.class);
+        selected.addAll(Arrays.asList(kinds));
+        filter.kinds(selected);
+        return this;
+    }
+
+    public FeatureQuery symbols(String... globs) {
+        filter.symbols(Glob.compile(Arrays.asList(globs), false));
+        return this;
+    }
+
+    public FeatureQuery attribute(String name) {
+        filter.attribute(name);
+        return this;
+    }
+
+    /**
+     * @param value the raw value, or the option name or text of OPTION and TEXT attributes
+     */
+    public FeatureQuery attribute(String name, String value) {
+        filter.attribute(name, value);
+        needsDefinitions = true;
+        return this;
+    }
+
+    /**
+     * Selects records inside the window, see {@link RecordFilter}. The window is in the raw units of each features
+     * file (UNITS=INCH or MM) and is not converted, so a job mixing units needs one query per unit.
+     */
+    public FeatureQuery window(double minX, double minY, double maxX, double maxY) {
+        filter.window(minX, minY, maxX, maxY);
+        return this;
+    }
+
+    /**
+     * Runs the query on a job directory, reading the matrix and the selected features files only
+     */
+    public List<LayerFeature> run(Path odbRoot) throws IOException {
+        List<LayerFeature> results = new ArrayList<>();
+        forEach(odbRoot, results::add);
+        return results;
+    }
+
+    public void forEach(Path odbRoot, Consumer<LayerFeature> consumer) throws IOException {
+        Path matrixFile = odbRoot.resolve("matrix/matrix");
+        Matrix matrix = Files.exists(matrixFile) ? new MatrixParser().parse(matrixFile) : null;
+        if (needsDefinitions) {
+            filter.definitions(readSystemAttributes(odbRoot.resolve("misc")), readUserAttributes(odbRoot.resolve("misc")));
+        }
+        Path stepsDir = odbRoot.resolve("steps");
+        if (!Files.isDirectory(stepsDir)) {
+            return;
+        }
+        for (Path stepDir : list(stepsDir)) {
+            String step = stepDir.getFileName().toString();
+            if (!stepNames.test(step)) {
+                continue;
+            }
+            Map<String, Path> layerDirs = new TreeMap<>();
+            Path layersDir = stepDir.resolve("layers");
+            if (Files.isDirectory(layersDir)) {
+                for (Path layerDir : list(layersDir)) {
+                    layerDirs.put(layerDir.getFileName().toString(), layerDir);
+                }
+            }
+            for (String layer : selectLayers(matrix, layerDirs.keySet())) {
+                read(step, layer, layerDirs.get(layer).resolve("features"), consumer);
+            }
+        }
+    }
+
+    /**
+     * Runs the query on the features files of a parsed job; loaded features are not used, so it also works on
+     * jobs whose features were dropped
+     */
+    public List<LayerFeature> run(Job job) throws IOException {
+        List<LayerFeature> results = new ArrayList<>();
+        forEach(job, results::add);
+        return results;
+    }
+
+    public void forEach(Job job, Consumer<LayerFeature> consumer) throws IOException {
+        if (needsDefinitions) {
+            filter.definitions(job.getSystemAttributes(), job.getUserAttributes());
+        }
+        if (job.getSteps() == null) {
+            return;
+        }
+        for (Step step : new TreeMap<>(job.getSteps()).values()) {
+            if (!stepNames.test(step.getName()) || step.getLayersByName() == null) {
+                continue;
+            }
+            for (String name : selectLayers(job.getMatrix(), new TreeMap<>(step.getLayersByName()).keySet())) {
+                Layer layer = step.getLayersByName().get(name);
+                if (layer.getPath() != null) {
+                    read(step.getName(), name, Path.of(layer.getPath(), "features"), consumer);
+                }
+            }
+        }
+    }
+
+    private void read(String step, String layer, Path featuresFile, Consumer<LayerFeature> consumer) throws IOException {
+        if (!Files.exists(featuresFile)) {
+            return;
+        }
+        try (FeaturesReader reader = parser.open(featuresFile, filter)) {
+            for (Feature feature = reader.next(); feature != null; feature = reader.next()) {
+                consumer.accept(new LayerFeature(step, layer, reader.getIndex(), feature));
+            }
+        }
+    }
+
+    /**
+     * @return the names of the layers the name, type and side selectors accept, in name order
+     */
+    private List<String> selectLayers(Matrix matrix, Set<String> names) {
+        Set<String> outer = outerCopper == null ? null : outerCopperLayers(matrix);
+        List<String> selected = new ArrayList<>();
+        for (String name : names) {
+            MatrixLayer matrixLayer = matrix == null ? null : matrix.getLayer(name);
+            if (!layerNames.test(name)) {
+                continue;
+            }
+            if (!layerTypes.isEmpty() && (matrixLayer == null || !layerTypes.contains(matrixLayer.getType()))) {
+                continue;
+            }
+            if (outer != null && !outer.contains(name)) {
+                continue;
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    private Set<String> outerCopperLayers(Matrix matrix) {
+        if (matrix == null || matrix.getLayers() == null) {
+            return Set.of();
+        }
+        List<MatrixLayer> copper = matrix.getLayers().stream()
+                .filter(MatrixLayer::isCopper)
+                .sorted(Comparator.comparingInt(MatrixLayer::getRow))
+                .collect(Collectors.toList());
+        if (copper.isEmpty() || outerCopper == BoardSide.NONE) {
+            return Set.of();
+        }
+        return Set.of(copper.get(outerCopper == BoardSide.TOP ? 0 : copper.size() - 1).getName());
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static Map<String, AttributeDefinition> readSystemAttributes(Path miscDir) throws IOException {
+        Map<String, AttributeDefinition> definitions = new HashMap<>();
+        if (Files.isDirectory(miscDir)) {
+            try (Stream<Path> files = Files.list(miscDir)) {
+                for (Path file : files.filter(p -> p.getFileName().toString().startsWith("sysattr")).collect(Collectors.toList())) {
+                    definitions.putAll(new AttributeDefinitionParser().parse(file));
+                }
+            }
+        }
+        return definitions;
+    }
+
+    private static Map<String, AttributeDefinition> readUserAttributes(Path miscDir) throws IOException {
+        Path userAttrFile = miscDir.resolve("userattr");
+        return Files.exists(userAttrFile) ? new AttributeDefinitionParser().parse(userAttrFile) : Map.of();
+    }
+}
@@ -0,0 +1,48 @@
+package com.odbpp.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Name patterns with * for any characters and ? for one character
+ */
+final class Glob {
+
+    private Glob() {
+    }
+
+    /**
+     * @return a predicate matching any of the patterns
+     */
+    static Predicate<String> compile(List<String> globs, boolean ignoreCase) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String glob : globs) {
+            StringBuilder regex = new StringBuilder();
+            int literal = 0;
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (literal < i) {
+                        regex.append(Pattern.quote(glob.substring(literal, i)));
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                    literal = i + 1;
+                }
+            }
+            if (literal < glob.length()) {
+                regex.append(Pattern.quote(glob.substring(literal)));
+            }
+            patterns.add(Pattern.compile(regex.toString(), ignoreCase ? Pattern.CASE_INSENSITIVE : 0));
+        }
+        return name -> {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(name).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
@@ -0,0 +1,330 @@
+package com.odbpp.stream;
+
+import com.odbpp.model.Feature;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Step;
+import com.odbpp.parser.FeaturesFileParser;
+import com.odbpp.parser.FeaturesReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the features of a layer, or of every layer of a job, straight from the features files.
+ *
+ * Each subscription opens its own files when the first item is requested and reads only as many records as the
+ * subscriber has requested, so a slow subscriber holds one record per outstanding request instead of the whole
+ * layer. Records are read and delivered on the executor in chunks: one task emits up to {@code chunkSize}
+ * records before handing the thread back, and later requests add to the demand of the running task instead of
+ * starting another. Cancelling stops the reading after the current record and closes the open file. Read
+ * errors are signalled with onError.
+ *
+ * Layers without a features file on disk are published from their loaded features.
+ */
+public final class FeaturePublisher<T> implements Flow.Publisher<T> {
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().name("odbpp-publisher").start(task);
+
+    /**
+     * Items of one subscription, opened on the first request
+     */
+    interface Source<T> extends Closeable {
+        /**
+         * @return the next item, or null at the end
+         */
+        T next() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface SourceFactory<T> {
+        Source<T> open() throws IOException;
+    }
+
+    private final SourceFactory<T> sources;
+    private Executor executor = VIRTUAL_THREADS;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    FeaturePublisher(SourceFactory<T> sources) {
+        this.sources = sources;
+    }
+
+    public static FeaturePublisher<Feature> ofLayer(Layer layer) {
+        return new FeaturePublisher<>(() -> layerSource(layer));
+    }
+
+    public static FeaturePublisher<Feature> ofFile(Path featuresFile) {
+        return new FeaturePublisher<>(() -> fileSource(featuresFile));
+    }
+
+    /**
+     * Publishes the features of all layers of all steps, steps and layers in name order
+     */
+    public static FeaturePublisher<LayerFeature> ofJob(Job job) {
+        List<String[]> names = new ArrayList<>();
+        List<Layer> layers = new ArrayList<>();
+        if (job.getSteps() != null) {
+            for (Step step : new TreeMap<>(job.getSteps()).values()) {
+                if (step.getLayersByName() == null) {
+                    continue;
+                }
+                for (Layer layer : new TreeMap<>(step.getLayersByName()).values()) {
+                    names.add(new String[]{step.getName(), layer.getName()});
+                    layers.add(layer);
+                }
+            }
+        }
+        return new FeaturePublisher<>(() -> new JobSource(names, layers));
+    }
+
+    /**
+     * @param executor runs the reading and the calls to the subscriber; a new virtual thread per chunk by default.
+     *                 An executor that runs tasks in the calling thread recurses once per chunk.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param chunkSize the number of records one task emits before giving up its thread
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        Subscription subscription = new Subscription(subscriber, executor, chunkSize);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private static Source<Feature> layerSource(Layer layer) throws IOException {
+        Path featuresFile = layer.getPath() == null ? null : Path.of(layer.getPath(), "features");
+        if (featuresFile != null && Files.exists(featuresFile)) {
+            return fileSource(featuresFile);
+        }
+        Iterator<Feature> features = layer.getFeatures() == null
+                ? List.<Feature>of().iterator() : layer.getFeatures().getFeatures().iterator();
+        return new Source<>() {
+            @Override
+            public Feature next() {
+                return features.hasNext() ? features.next() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static Source<Feature> fileSource(Path featuresFile) throws IOException {
+        FeaturesReader reader = new FeaturesFileParser().open(featuresFile);
+        return new Source<>() {
+            @Override
+            public Feature next() throws IOException {
+                return reader.next();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * Opens the layers one after the other, closing each before the next
+     */
+    private static final class JobSource implements Source<LayerFeature> {
+        private final List<String[]> names;
+        private final List<Layer> layers;
+        private int layer = -1;
+        private int index;
+        private Source<Feature> current;
+
+        JobSource(List<String[]> names, List<Layer> layers) {
+            this.names = names;
+            this.layers = layers;
+        }
+
+        @Override
+        public LayerFeature next() throws IOException {
+            while (true) {
+                if (current != null) {
+                    Feature feature = current.next();
+                    if (feature != null) {
+                        String[] name = names.get(layer);
+                        return new LayerFeature(name[0], name[1], index++, feature);
+                    }
+                    current.close();
+                    current = null;
+                }
+                if (++layer >= layers.size()) {
+                    return null;
+                }
+                current = layerSource(layers.get(layer));
+                index = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Demand and cancellation come from any thread; reading and signalling run in one task at a time, which
+     * the work counter serializes.
+     */
+    private final class Subscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Executor executor;
+        private final int chunkSize;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException badRequest;
+
+        // Touched by the running task only
+        private Source<T> source;
+        private boolean done;
+
+        Subscription(Flow.Subscriber<? super T> subscriber, Executor executor, int chunkSize) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("Requested " + n + " items, must be positive");
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (work.getAndIncrement() == 0) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                cancelled = true;
+                closeSource();
+                subscriber.onError(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                if (!done && drain()) {
+                    // A full chunk was emitted and more is wanted: continue in a new task
+                    submit();
+                    return;
+                }
+                missed = work.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return true if a full chunk was emitted and demand remains
+         */
+        private boolean drain() {
+            if (cancelled) {
+                finish();
+                return false;
+            }
+            if (badRequest != null) {
+                finish();
+                subscriber.onError(badRequest);
+                return false;
+            }
+            long requested = demand.get();
+            long limit = Math.min(requested, chunkSize);
+            long emitted = 0;
+            try {
+                if (limit > 0 && source == null) {
+                    source = sources.open();
+                }
+                while (emitted < limit && !cancelled) {
+                    T item = source.next();
+                    if (item == null) {
+                        finish();
+                        subscriber.onComplete();
+                        return false;
+                    }
+                    subscriber.onNext(item);
+                    emitted++;
+                }
+            } catch (IOException | RuntimeException e) {
+                finish();
+                subscriber.onError(e);
+                return false;
+            }
+            if (cancelled) {
+                finish();
+                return false;
+            }
+            if (requested != Long.MAX_VALUE) {
+                requested = demand.addAndGet(-emitted);
+            }
+            return emitted == chunkSize && requested > 0;
+        }
+
+        private void finish() {
+            done = true;
+            cancelled = true;
+            closeSource();
+        }
+
+        private void closeSource() {
+            if (source != null) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    // Nothing more is read from it
+                }
+                source = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.odbpp.stream;
+
+import com.odbpp.model.Feature;
+import com.odbpp.model.Layer;
+import com.odbpp.parser.FeaturesFileParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Streams of features read straight from the features files.
+ *
+ * The streams split the file itself, so {@code features(layer).parallel()} parses the parts of one layer on
+ * several cores without building the feature list first. Like {@link Files#lines(Path)} they hold the file open
+ * until closed; use them in try-with-resources.
+ *
+ * The streamed features carry their unique IDs but not their other attributes: each part of a stream decodes
+ * the assignments of one record at a time and drops them at the next, so that memory does not grow with the
+ * layer. Use {@link FeaturesFileParser#parse(Path)} or a {@link com.odbpp.parser.FeaturesReader} to read
+ * attributes.
+ */
+public final class FeatureStreams {
+    private static final FeaturesFileParser PARSER = new FeaturesFileParser();
+
+    private FeatureStreams() {
+    }
+
+    /**
+     * @return the features of the layer from its features file, or its loaded features if it has no file on disk
+     */
+    public static Stream<Feature> features(Layer layer) throws IOException {
+        Path featuresFile = layer.getPath() == null ? null : Path.of(layer.getPath(), "features");
+        if (featuresFile != null && Files.exists(featuresFile)) {
+            return features(featuresFile);
+        }
+        return layer.getFeatures() == null ? Stream.empty() : layer.getFeatures().getFeatures().stream();
+    }
+
+    public static Stream<Feature> features(Path featuresFile) throws IOException {
+        return PARSER.stream(featuresFile);
+    }
+}
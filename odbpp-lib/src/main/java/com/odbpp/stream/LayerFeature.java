@@ -0,0 +1,44 @@
+package com.odbpp.stream;
+
+import com.odbpp.model.Feature;
+
+/**
+ * A feature of a job tagged with the step and layer it belongs to
+ */
+public final class LayerFeature {
+    private final String step;
+    private final String layer;
+    private final int index;
+    private final Feature feature;
+
+    public LayerFeature(String step, String layer, int index, Feature feature) {
+        this.step = step;
+        this.layer = layer;
+        this.index = index;
+        this.feature = feature;
+    }
+
+    public String getStep() {
+        return step;
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+
+    /**
+     * @return the position of the feature in the features file of the layer
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Feature getFeature() {
+        return feature;
+    }
+
+    @Override
+    public String toString() {
+        return step + "/" + layer + "#" + index + " " + feature;
+    }
+}
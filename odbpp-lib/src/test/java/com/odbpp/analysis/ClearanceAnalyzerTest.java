@@ -0,0 +1,73 @@
+package com.odbpp.analysis;
+
+import com.odbpp.model.Features;
+import com.odbpp.parser.FeaturesFileParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClearanceAnalyzerTest {
+
+    @TempDir
+    Path dir;
+
+    private Features features(String... lines) throws IOException {
+        Path file = dir.resolve("features");
+        Files.write(file, List.of(lines));
+        return new FeaturesFileParser().parse(file);
+    }
+
+    @Test
+    void testReportsTheViolatingPair() throws IOException {
+        Features features = features("UNITS=INCH", "$0 r20",
+                // Clear pair: 0.08 apart
+                "P 0 0 0 P 0 0",
+                "P 0.1 0 0 P 0 0",
+                // Violating pair: a track and a pad 0.03 apart
+                "L 1 0 2 0 0 P 0",
+                "P 1.5 0.05 0 P 0 0",
+                // Touching pads form one conductor and are not a gap
+                "P 3 0 0 P 0 0",
+                "P 3.015 0 0 P 0 0");
+        ClearanceResult result = new ClearanceAnalyzer(null).analyze("top", features, null, 0.05);
+        assertNotNull(result);
+        assertEquals("top", result.getLayerName());
+        assertEquals(0.03, result.getClearance(), 1e-9);
+        assertEquals(2, result.getFeatureIndexA());
+        assertEquals(3, result.getFeatureIndexB());
+        assertSame(features.getFeatures().get(3), result.getFeatureB());
+        assertEquals(1.5, result.getX(), 1e-9);
+        assertEquals(0.025, result.getY(), 1e-9);
+    }
+
+    @Test
+    void testClearLayer() throws IOException {
+        Features features = features("UNITS=INCH", "$0 r20",
+                "P 0 0 0 P 0 0",
+                "P 0.1 0 0 P 0 0",
+                "P 3 0 0 P 0 0",
+                "P 3.015 0 0 P 0 0");
+        assertNull(new ClearanceAnalyzer(null).analyze("top", features, null, 0.05));
+        // With a wider range the 0.08 gap is the closest one
+        assertEquals(0.08, new ClearanceAnalyzer(null).analyze("top", features, null, 0.1).getClearance(), 1e-9);
+    }
+
+    @Test
+    void testSkipsShapesOfTheSameNet() throws IOException {
+        Features features = features("UNITS=INCH", "$0 r20",
+                "L 1 0 2 0 0 P 0",
+                "P 1.5 0.05 0 P 0 0",
+                "P 5 0 0 P 0 0",
+                "P 5.1 0 0 P 0 0");
+        ClearanceResult result = new ClearanceAnalyzer(null).analyze("top", features, new int[]{7, 7, -1, 8}, 0.1);
+        assertEquals(0.08, result.getClearance(), 1e-9);
+        assertEquals(2, result.getFeatureIndexA());
+        assertEquals(3, result.getFeatureIndexB());
+    }
+}
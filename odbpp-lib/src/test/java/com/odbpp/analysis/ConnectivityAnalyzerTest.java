@@ -0,0 +1,108 @@
+package com.odbpp.analysis;
+
+import com.odbpp.index.NetFeatureIndex;
+import com.odbpp.model.Job;
+import com.odbpp.model.Step;
+import com.odbpp.parser.OdbParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectivityAnalyzerTest {
+
+    @TempDir
+    Path root;
+
+    private void write(String path, String... lines) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, List.of(lines));
+    }
+
+    private static List<String> matrixLayer(int row, String type, String name) {
+        return List.of("LAYER {", "ROW=" + row, "CONTEXT=BOARD", "TYPE=" + type, "NAME=" + name,
+                "POLARITY=POSITIVE", "START_NAME=top", "END_NAME=bottom", "}");
+    }
+
+    private Job writeJob(String... edaNets) throws IOException {
+        List<String> matrix = new ArrayList<>();
+        matrix.addAll(matrixLayer(1, "SIGNAL", "top"));
+        matrix.addAll(matrixLayer(2, "DRILL", "drill"));
+        matrix.addAll(matrixLayer(3, "SIGNAL", "bottom"));
+        Files.createDirectories(root.resolve("matrix"));
+        Files.write(root.resolve("matrix/matrix"), matrix);
+        write("steps/pcb/layers/top/features", "UNITS=INCH", "$0 r40", "$1 r10",
+                "P 0 0 0 P 0 0",
+                "L 0 0 1 0 1 P 0",
+                "P 1 0 0 P 0 0",
+                "P 3 0 0 P 0 0",
+                // Overlaps the pad at (1, 0)
+                "P 1.03 0 0 P 0 0",
+                "T 5 5 standard P 0 0.1 0.1 1 'X' 1");
+        write("steps/pcb/layers/bottom/features", "UNITS=INCH", "$0 r40", "P 0 0 0 P 0 0", "P 3 0 0 P 0 0");
+        // A plated hole joins the pads at (0, 0); nothing joins those at (3, 0)
+        write("steps/pcb/layers/drill/features", "UNITS=INCH", "$0 r20", "P 0 0 0 P 0 0");
+        List<String> eda = new ArrayList<>(List.of("HDR test", "UNITS=INCH", "LYR top bottom drill"));
+        eda.addAll(List.of(edaNets));
+        Files.createDirectories(root.resolve("steps/pcb/eda"));
+        Files.write(root.resolve("steps/pcb/eda/data"), eda);
+        return new OdbParser().parse(root);
+    }
+
+    @Test
+    void testDerivedNets() throws IOException {
+        Job job = writeJob();
+        Connectivity connectivity = new ConnectivityAnalyzer(job).analyze(job.getSteps().get("pcb"));
+        assertEquals(List.of("top", "bottom"), connectivity.getLayerNames());
+        assertEquals(3, connectivity.getNetCount());
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0, -1}, connectivity.getFeatureNets("top"));
+        assertArrayEquals(new int[]{0, 2}, connectivity.getFeatureNets("bottom"));
+        assertEquals(0, connectivity.getHoleNet("drill", 0));
+        assertEquals(6, connectivity.getMemberCount(0));
+    }
+
+    @Test
+    void testMatchesEdaNets() throws IOException {
+        Job job = writeJob(
+                "NET A", "SNT TRC", "FID C 0 0", "FID C 0 1", "FID C 0 2", "FID C 0 4", "FID C 1 0",
+                "NET B", "SNT TRC", "FID C 0 3", "SNT TRC", "FID C 1 1");
+        Step step = job.getSteps().get("pcb");
+        Connectivity connectivity = new ConnectivityAnalyzer(job).analyze(step);
+        NetlistComparison comparison = ConnectivityAnalyzer.compareWithEda(connectivity, new NetFeatureIndex(step));
+        // B is open: its pads at (3, 0) are not joined by any hole
+        assertEquals(1, comparison.getOpens().size());
+        assertEquals("B", comparison.getOpens().get(0).getNet());
+        assertEquals(List.of("$1", "$2"), comparison.getOpens().get(0).getNets());
+        assertTrue(comparison.getShorts().isEmpty());
+        assertEquals(7, comparison.getMatchedPointCount());
+        assertEquals(0, comparison.getUnmatchedOtherPoints().length);
+        assertFalse(comparison.isEquivalent());
+    }
+
+    @Test
+    void testReportsShortsAndUnreferencedCopper() throws IOException {
+        // The overlapping pad belongs to B in the EDA data but touches A's copper; the text is not copper
+        Job job = writeJob(
+                "NET A", "SNT TRC", "FID C 0 0", "FID C 0 1", "FID C 0 2", "FID C 1 0",
+                "NET B", "SNT TRC", "FID C 0 4", "FID C 0 5");
+        Step step = job.getSteps().get("pcb");
+        Connectivity connectivity = new ConnectivityAnalyzer(job).analyze(step);
+        NetlistComparison comparison = ConnectivityAnalyzer.compareWithEda(connectivity, new NetFeatureIndex(step));
+        assertEquals(1, comparison.getShorts().size());
+        assertEquals("$0", comparison.getShorts().get(0).getNet());
+        assertEquals(List.of("A", "B"), comparison.getShorts().get(0).getNets());
+        assertTrue(comparison.getOpens().isEmpty());
+        assertEquals(6, comparison.getReferencePointCount());
+        assertEquals(5, comparison.getMatchedPointCount());
+        // The text is referenced but has no copper shape; the pads at (3, 0) are copper without a net
+        assertArrayEquals(new int[]{5}, comparison.getUnmatchedReferencePoints());
+        assertArrayEquals(new int[]{3, 7}, comparison.getUnmatchedOtherPoints());
+    }
+}
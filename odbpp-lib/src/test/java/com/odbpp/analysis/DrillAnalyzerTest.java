@@ -0,0 +1,144 @@
+package com.odbpp.analysis;
+
+import com.odbpp.model.DrillTool;
+import com.odbpp.model.Job;
+import com.odbpp.model.Step;
+import com.odbpp.parser.OdbParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrillAnalyzerTest {
+
+    @TempDir
+    Path root;
+
+    private void write(String path, List<String> lines) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, lines);
+    }
+
+    private static List<String> matrixLayer(int row, String type, String name) {
+        return List.of("LAYER {", "ROW=" + row, "CONTEXT=BOARD", "TYPE=" + type, "NAME=" + name, "POLARITY=POSITIVE", "}");
+    }
+
+    private static List<String> tool(int num, String type, int finishSize) {
+        return List.of("TOOLS {", "NUM=" + num, "TYPE=" + type, "FINISH_SIZE=" + finishSize, "DRILL_SIZE=" + finishSize, "}");
+    }
+
+    private Job writeJob(String thickness) throws IOException {
+        List<String> matrix = new ArrayList<>();
+        matrix.addAll(matrixLayer(1, "SIGNAL", "top"));
+        matrix.addAll(matrixLayer(2, "DRILL", "drill"));
+        matrix.addAll(matrixLayer(3, "DRILL", "laser"));
+        matrix.addAll(matrixLayer(4, "SIGNAL", "bottom"));
+        write("matrix/matrix", matrix);
+
+        List<String> tools = new ArrayList<>(List.of("UNITS=INCH", "THICKNESS=" + thickness));
+        tools.addAll(tool(1, "PLATED", 12));
+        tools.addAll(tool(2, "NON_PLATED", 125));
+        write("steps/pcb/layers/drill/tools", tools);
+        write("steps/pcb/layers/drill/features", List.of("UNITS=INCH", "$0 r12", "$1 r125", "@0 .drill",
+                "P 1 1 0 P 1 0",
+                "P 2 1 0 P 1 0",
+                "P 3 1 1 P 2 0",
+                "P 4 1 0 P 9 0;0=2",
+                "P 5 1 0 N 1 0",
+                "L 0 0 1 0 1 P 2"));
+        // Short units form, and a tool file without a thickness
+        write("steps/pcb/layers/laser/tools", List.of("U INCH"));
+        write("steps/pcb/layers/laser/features", List.of("U INCH", "$0 r4", "P 6 1 0 P 0 0", "P 7 1 0 P 0 0"));
+        return new OdbParser().parse(root);
+    }
+
+    @Test
+    void testStatisticsPerLayer() throws IOException {
+        Job job = writeJob("62");
+        Map<String, DrillStatistics> layers = new DrillAnalyzer(job).analyzeLayers(job.getSteps().get("pcb"), 0);
+        assertEquals(List.of("drill", "laser"), new ArrayList<>(layers.keySet()));
+
+        DrillStatistics drill = layers.get("drill");
+        assertEquals("drill", drill.getLayerName());
+        assertEquals(4, drill.getHoleCount());
+        assertEquals(1, drill.getSlotCount());
+        assertEquals(2, drill.getPlatedCount());
+        // The slot takes its type from tool 2
+        assertEquals(2, drill.getNonPlatedCount());
+        assertEquals(1, drill.getViaCount());
+        assertEquals(0.012, drill.getMinDrill(), 1e-9);
+        assertEquals(0.125, drill.getMaxDrill(), 1e-9);
+        assertEquals(Long.valueOf(3), drill.getHolesBySize().get(0.012));
+
+        DrillStatistics laser = layers.get("laser");
+        assertEquals(2, laser.getHoleCount());
+        assertEquals(0.004, laser.getMinDrill(), 1e-9);
+        assertEquals(2, laser.getUnknownCount());
+    }
+
+    @Test
+    void testThicknessFromToolsFileIsConvertedToJobUnits() throws IOException {
+        Job job = writeJob("62");
+        DrillStatistics total = new DrillAnalyzer(job).analyze(job.getSteps().get("pcb"));
+        assertEquals(6, total.getHoleCount());
+        assertEquals(0.004, total.getMinDrill(), 1e-9);
+        // 62 mils is 0.062 inch, 15.5 times the 4 mil laser drill
+        assertEquals(0.062, total.getBoardThickness(), 1e-9);
+        assertEquals(15.5, total.getAspectRatio(), 1e-9);
+    }
+
+    @Test
+    void testThicknessFromAttributesAndArgument() throws IOException {
+        writeJob("62");
+        write("steps/pcb/attrlist", List.of(".board_thickness=0.1"));
+        Job job = new OdbParser().parse(root);
+        Step step = job.getSteps().get("pcb");
+        assertEquals(0.1, new DrillAnalyzer(job).analyze(step).getBoardThickness(), 1e-9);
+        assertEquals(0.2, new DrillAnalyzer(job).analyze(step, 0.2).getBoardThickness(), 1e-9);
+        assertEquals(50, new DrillAnalyzer(job).analyze(step, 0.2).getAspectRatio(), 1e-9);
+    }
+
+    @Test
+    void testMetricToolsFileThickness() throws IOException {
+        writeJob("0");
+        write("steps/pcb/layers/laser/tools", List.of("UNITS=MM", "THICKNESS=2540"));
+        Job job = new OdbParser().parse(root);
+        // 2540 microns is 0.1 inch, the units of the laser features
+        assertEquals(0.1, new DrillAnalyzer(job).analyze(job.getSteps().get("pcb")).getBoardThickness(), 1e-9);
+    }
+
+    @Test
+    void testMergeAndThickness() {
+        DrillStatistics a = new DrillStatistics();
+        a.addHole(0.02, null);
+        a.addHole(0.01, DrillTool.Type.PLATED);
+        DrillStatistics b = new DrillStatistics();
+        b.addHole(0.05, DrillTool.Type.VIA);
+        b.addSlot(DrillTool.Type.NON_PLATED);
+        DrillStatistics empty = new DrillStatistics();
+
+        DrillStatistics total = new DrillStatistics();
+        total.merge(empty);
+        total.merge(b);
+        total.merge(a);
+        assertEquals(3, total.getHoleCount());
+        assertEquals(1, total.getSlotCount());
+        assertEquals(0.01, total.getMinDrill(), 1e-12);
+        assertEquals(0.05, total.getMaxDrill(), 1e-12);
+        assertEquals(List.of(0.01, 0.02, 0.05), new ArrayList<>(total.getHolesBySize().keySet()));
+        assertEquals(1, total.getUnknownCount());
+
+        total.applyThickness(0.1);
+        assertEquals(10, total.getAspectRatio(), 1e-9);
+        empty.applyThickness(0.1);
+        assertEquals(0, empty.getAspectRatio());
+    }
+}
@@ -0,0 +1,119 @@
+package com.odbpp.analysis;
+
+import com.odbpp.model.DrillTool;
+import com.odbpp.model.Job;
+import com.odbpp.parser.OdbParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrillCopperAnalyzerTest {
+
+    @TempDir
+    Path root;
+
+    private void write(String path, List<String> lines) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, lines);
+    }
+
+    private static List<String> matrixLayer(int row, String type, String name, String... span) {
+        List<String> lines = new ArrayList<>(List.of("LAYER {", "ROW=" + row, "CONTEXT=BOARD", "TYPE=" + type,
+                "NAME=" + name, "POLARITY=POSITIVE"));
+        if (span.length == 2) {
+            lines.add("START_NAME=" + span[0]);
+            lines.add("END_NAME=" + span[1]);
+        }
+        lines.add("}");
+        return lines;
+    }
+
+    private Job writeJob() throws IOException {
+        List<String> matrix = new ArrayList<>();
+        matrix.addAll(matrixLayer(1, "COMPONENT", "comp_+_top"));
+        matrix.addAll(matrixLayer(2, "SIGNAL", "top"));
+        matrix.addAll(matrixLayer(3, "DRILL", "drill", "top", "bottom"));
+        matrix.addAll(matrixLayer(4, "SIGNAL", "bottom"));
+        write("matrix/matrix", matrix);
+
+        write("steps/pcb/layers/top/features", List.of("UNITS=INCH", "$0 r40", "$1 rect60x40",
+                // Plated hole centered in its pad
+                "P 1 1 0 P 0 0",
+                // Hole off center, breaking out of the pad
+                "P 2 1 0 P 0 0",
+                // SMD pad of U1 pin 1
+                "P 3 1 1 P 0 0"));
+        write("steps/pcb/layers/bottom/features", List.of("UNITS=INCH", "$0 r40", "P 1 1 0 P 0 0"));
+        write("steps/pcb/layers/drill/features", List.of("UNITS=INCH", "$0 r20", "$1 r10", "@0 .drill",
+                "P 1 1 0 P 0 0;0=0",
+                "P 2.015 1 0 P 0 0;0=0",
+                "P 3.01 1 1 P 0 0;0=2"));
+        write("steps/pcb/layers/comp_+_top/components", List.of("UNITS=INCH",
+                "CMP 0 3 1 0 N U1 IC;;ID=1", "TOP 0 3 1 0 N 0 0 1"));
+        return new OdbParser().parse(root);
+    }
+
+    @Test
+    void testAnnularRingsAndViaInPad() throws IOException {
+        Job job = writeJob();
+        Map<String, DrillCopperResult> results = new DrillCopperAnalyzer(job).analyze(job.getSteps().get("pcb"));
+        assertEquals(List.of("bottom", "top"), new ArrayList<>(results.keySet()));
+
+        DrillCopperResult top = results.get("top");
+        assertEquals(3, top.getHoleCount());
+        assertEquals(3, top.getHolesOnPad());
+        // The breakout: 0.005 of the pad left beside the hole center, minus the 0.01 hole radius
+        assertEquals(-0.005, top.getMinAnnularRing(), 1e-9);
+        assertEquals("drill", top.getMinAnnularRingDrillLayer());
+        assertEquals(1, top.getMinAnnularRingPadIndex());
+        assertEquals(2.015, top.getX(), 1e-9);
+        assertEquals(0.02, top.getDrillSize(), 1e-9);
+
+        assertEquals(1, top.getViasInPad().size());
+        ViaInPad via = top.getViasInPad().get(0);
+        assertEquals("U1", via.getComponentName());
+        assertEquals("1", via.getPinName());
+        assertEquals(2, via.getPadFeatureIndex());
+        assertEquals("top", via.getCopperLayerName());
+        assertEquals("drill", via.getDrillLayerName());
+        assertEquals(DrillTool.Type.VIA, via.getDrillType());
+        assertEquals(3.01, via.getX(), 1e-9);
+        assertEquals(0.01, via.getDrillSize(), 1e-9);
+
+        // No component layer faces the bottom side, so only the ring of the plated hole is reported there
+        DrillCopperResult bottom = results.get("bottom");
+        assertEquals(3, bottom.getHoleCount());
+        assertEquals(1, bottom.getHolesOnPad());
+        assertEquals(0.01, bottom.getMinAnnularRing(), 1e-9);
+        assertTrue(bottom.getViasInPad().isEmpty());
+    }
+
+    @Test
+    void testViaInOverlappingPadsIsReportedOnce() throws IOException {
+        writeJob();
+        // A second pad of U1 pin 1 on top of the first
+        write("steps/pcb/layers/top/features", List.of("UNITS=INCH", "$0 r40", "$1 rect60x40",
+                "P 1 1 0 P 0 0", "P 2 1 0 P 0 0", "P 3 1 1 P 0 0", "P 3 1 0 P 0 0"));
+        Job job = new OdbParser().parse(root);
+        DrillCopperResult top = new DrillCopperAnalyzer(job).analyze(job.getSteps().get("pcb")).get("top");
+        assertEquals(1, top.getViasInPad().size());
+        assertEquals(2, top.getViasInPad().get(0).getPadFeatureIndex());
+        assertEquals(3, top.getHolesOnPad());
+    }
+
+    @Test
+    void testNoDrillLayers() throws IOException {
+        Job job = writeJob();
+        job.getMatrix().getLayers().removeIf(layer -> layer.isDrill());
+        assertTrue(new DrillCopperAnalyzer(job).analyze(job.getSteps().get("pcb")).isEmpty());
+    }
+}
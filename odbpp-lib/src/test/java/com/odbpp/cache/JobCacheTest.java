@@ -0,0 +1,170 @@
+package com.odbpp.cache;
+
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.parser.OdbParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobCacheTest {
+
+    private static Path job(Path root, String name, int pads) throws IOException {
+        Path layer = root.resolve(name).resolve("steps/pcb/layers/top");
+        Files.createDirectories(layer);
+        List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "$0 r10"));
+        for (int i = 0; i < pads; i++) {
+            lines.add("P " + i + " 0 0 P 0 0");
+        }
+        Files.write(layer.resolve("features"), lines);
+        return root.resolve(name);
+    }
+
+    private static Layer top(Job job) {
+        return job.getSteps().get("pcb").getLayersByName().get("top");
+    }
+
+    @Test
+    void testCoalescesConcurrentLoads(@TempDir Path tempDir) throws Exception {
+        Path dir = job(tempDir, "a", 3);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        JobCache cache = new JobCache(Long.MAX_VALUE, jobDir -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return new OdbParser().parse(jobDir);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Job>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get(dir)));
+            started.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.get(dir)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+            Job first = results.get(0).get();
+            for (Future<Job> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(3, top(cache.get(dir)).getFeatures().getFeatures().size());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testReloadsChangedJob(@TempDir Path tempDir) throws IOException {
+        Path dir = job(tempDir, "a", 2);
+        JobCache cache = new JobCache(Long.MAX_VALUE, jobDir -> new OdbParser().parse(jobDir), 0);
+        Job first = cache.get(dir);
+        assertSame(first, cache.get(dir));
+
+        Path features = job(tempDir, "a", 5).resolve("steps/pcb/layers/top/features");
+        Files.setLastModifiedTime(features, FileTime.fromMillis(Files.getLastModifiedTime(features).toMillis() + 2000));
+        Job second = cache.get(dir);
+        assertNotSame(first, second);
+        assertEquals(5, top(second).getFeatures().getFeatures().size());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testServesCheckedJobWithoutFingerprintingUntilInvalidated(@TempDir Path tempDir) throws IOException {
+        Path dir = job(tempDir, "a", 2);
+        JobCache cache = new JobCache(Long.MAX_VALUE, jobDir -> new OdbParser().parse(jobDir), 60_000);
+        Job first = cache.get(dir);
+
+        Path features = job(tempDir, "a", 5).resolve("steps/pcb/layers/top/features");
+        Files.setLastModifiedTime(features, FileTime.fromMillis(Files.getLastModifiedTime(features).toMillis() + 2000));
+        // Within the recheck interval the change is not looked for
+        assertSame(first, cache.get(dir));
+        assertEquals(1, cache.getHitCount());
+
+        cache.invalidate(dir);
+        Job second = cache.get(dir);
+        assertNotSame(first, second);
+        assertEquals(5, top(second).getFeatures().getFeatures().size());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testEvictsFeaturesBeforeJobs(@TempDir Path tempDir) throws IOException {
+        Path a = job(tempDir, "a", 100);
+        Path b = job(tempDir, "b", 100);
+        Job probe = new OdbParser().parse(a);
+        long jobWeight = JobCache.estimateWeight(probe);
+        long featuresWeight = JobCache.estimateWeight(top(probe).getFeatures());
+
+        // Room for one full job and the structure of another
+        JobCache cache = new JobCache(2 * jobWeight - featuresWeight / 2);
+        Job jobA = cache.get(a);
+        Features featuresA = top(jobA).getFeatures();
+        Job jobB = cache.get(b);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getFeatureEvictionCount());
+        assertTrue(cache.getWeight() <= cache.getMaxWeight());
+        // The job handed out is left as it was; the cache serves a copy without the evicted features
+        assertSame(featuresA, top(jobA).getFeatures());
+        Job evictedA = cache.get(a);
+        assertNotSame(jobA, evictedA);
+        assertNull(top(evictedA).getFeatures());
+        assertSame(jobA.getMatrix(), evictedA.getMatrix());
+        assertNotNull(top(jobB).getFeatures());
+
+        Features reloaded = cache.getFeatures(a, "pcb", "top");
+        assertEquals(100, reloaded.getFeatures().size());
+        assertSame(reloaded, top(cache.get(a)).getFeatures());
+        assertSame(featuresA, top(jobA).getFeatures());
+        // Reloading a pushed b's features out in turn, without touching the job b was handed out as
+        assertNotNull(top(jobB).getFeatures());
+        assertNull(top(cache.get(b)).getFeatures());
+        assertEquals(0, cache.getEvictionCount());
+
+        // A budget below the structure of two jobs evicts the older job
+        JobCache small = new JobCache(jobWeight);
+        List<String> removed = new ArrayList<>();
+        small.addEvictionListener(new JobCache.EvictionListener() {
+            @Override
+            public void jobRemoved(Path jobDir) {
+                removed.add(jobDir.getFileName().toString());
+            }
+
+            @Override
+            public void featuresRemoved(Path jobDir, String stepName, String layerName) {
+                removed.add(jobDir.getFileName() + "/" + stepName + "/" + layerName);
+            }
+        });
+        small.get(a);
+        small.get(b);
+        assertEquals(1, small.size());
+        assertEquals(1, small.getEvictionCount());
+        // The features of a go first, then the job
+        assertEquals(List.of("a/pcb/top", "a"), removed);
+        small.invalidate(b);
+        assertEquals(List.of("a/pcb/top", "a", "b"), removed);
+    }
+}
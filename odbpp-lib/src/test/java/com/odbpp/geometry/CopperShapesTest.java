@@ -0,0 +1,88 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.parser.FeaturesFileParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CopperShapesTest {
+
+    @TempDir
+    Path dir;
+
+    private CopperShapes shapes(String... lines) throws IOException {
+        Path file = dir.resolve("features");
+        Files.write(file, List.of(lines));
+        Features features = new FeaturesFileParser().parse(file);
+        return CopperShapes.of(features, new SymbolResolver((Job) null));
+    }
+
+    @Test
+    void testCapsules() throws IOException {
+        CopperShapes shapes = shapes("UNITS=INCH", "$0 r20", "$1 s40", "$2 oval60x20",
+                "P 0 0 0 P 0 0",
+                "L 1 0 2 0 0 P 0",
+                "P 5 5 0 N 0 0",
+                "P 3 0 1 P 0 0",
+                "P 4 0 2 P 0 0");
+        // Round pad: a point with the pad radius
+        assertEquals(0, shapes.getFirstCapsule(0));
+        assertEquals(1, shapes.getFirstCapsule(1));
+        assertEquals(0.01, shapes.getRadius(0), 1e-12);
+        // Line: one capsule of half the symbol width
+        assertEquals(1, shapes.getX1(1), 1e-12);
+        assertEquals(2, shapes.getX2(1), 1e-12);
+        assertEquals(0.01, shapes.getRadius(1), 1e-12);
+        // Negative pads are not copper
+        assertEquals(shapes.getFirstCapsule(2), shapes.getFirstCapsule(3));
+        assertEquals(Double.NEGATIVE_INFINITY, shapes.boundaryDistance(2, 5, 5));
+        // Square pad: a closed outline with a fill
+        assertNotNull(shapes.getFill(3));
+        assertNull(shapes.getFill(0));
+        // Oval: a capsule along the long axis
+        int oval = shapes.getFirstCapsule(4);
+        assertEquals(1, shapes.getFirstCapsule(5) - oval);
+        assertEquals(0.01, shapes.getRadius(oval), 1e-12);
+        assertEquals(0.04, Math.abs(shapes.getX2(oval) - shapes.getX1(oval)), 1e-12);
+    }
+
+    @Test
+    void testBoundaryDistance() throws IOException {
+        CopperShapes shapes = shapes("UNITS=INCH", "$0 r20", "$1 s40", "P 0 0 0 P 0 0", "P 1 0 1 P 0 0");
+        assertEquals(0.01, shapes.boundaryDistance(0, 0, 0), 1e-12);
+        assertEquals(-0.01, shapes.boundaryDistance(0, 0.02, 0), 1e-12);
+        assertEquals(0.02, shapes.boundaryDistance(1, 1, 0), 1e-12);
+        assertEquals(0.005, shapes.boundaryDistance(1, 1.015, 0), 1e-12);
+        assertEquals(-0.01, shapes.boundaryDistance(1, 1.03, 0), 1e-12);
+    }
+
+    @Test
+    void testTouchingPairs() throws IOException {
+        CopperShapes shapes = shapes("UNITS=INCH", "$0 r20",
+                "P 0 0 0 P 0 0",
+                // Line ending on the pad
+                "L 0.015 0 1 0 0 P 0",
+                // Pad far away from everything
+                "P 5 5 0 P 0 0",
+                // Surface with a pad completely inside it
+                "S P 0", "OB 10 10 I", "OS 11 10", "OS 11 11", "OS 10 11", "OS 10 10", "OE", "SE",
+                "P 10.5 10.5 0 P 0 0");
+        shapes.addHoles(new double[]{1}, new double[]{0}, new double[]{0.01}, 1);
+        assertEquals(6, shapes.getShapeCount());
+
+        Set<String> pairs = new HashSet<>();
+        shapes.forEachTouchingPair(0, (a, b) -> pairs.add(Math.min(a, b) + "-" + Math.max(a, b)));
+        // 0-1 pad and line, 3-4 pad inside the surface, 1-5 the hole at the end of the line
+        assertEquals(Set.of("0-1", "3-4", "1-5"), pairs);
+    }
+}
@@ -0,0 +1,97 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.BoundingBox;
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Pad;
+import com.odbpp.parser.FeaturesFileParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtentsCalculatorTest {
+
+    @TempDir
+    Path dir;
+
+    private final ExtentsCalculator calculator = new ExtentsCalculator((Job) null);
+
+    private Features parse(String... lines) throws IOException {
+        Path file = dir.resolve("features");
+        Files.write(file, List.of(lines));
+        return new FeaturesFileParser().parse(file);
+    }
+
+    private static void assertBox(double minX, double minY, double maxX, double maxY, BoundingBox box) {
+        assertEquals(minX, box.getMinX(), 1e-9);
+        assertEquals(minY, box.getMinY(), 1e-9);
+        assertEquals(maxX, box.getMaxX(), 1e-9);
+        assertEquals(maxY, box.getMaxY(), 1e-9);
+    }
+
+    @Test
+    void testPadsAndLinesGrowBySymbol() throws IOException {
+        Features features = parse("UNITS=INCH", "$0 r10", "$1 rect20x10",
+                "P 1 1 0 P 0 0",
+                "P 2 2 1 P 0 1",
+                "L 3 0 4 0 0 P 0");
+        assertBox(0.995, 0.995, 1.005, 1.005, calculator.extents(features, features.getFeatures().get(0)));
+        // rect20x10 rotated by 90 degrees stands upright
+        assertBox(1.995, 1.99, 2.005, 2.01, calculator.extents(features, features.getFeatures().get(1)));
+        assertBox(2.995, -0.005, 4.005, 0.005, calculator.extents(features, features.getFeatures().get(2)));
+        assertBox(0.995, -0.005, 4.005, 2.01, calculator.extents(features));
+    }
+
+    @Test
+    void testArcExtentsFollowSweep() {
+        // Counter-clockwise quarter from (1, 0) to (0, 1) stays in the first quadrant
+        assertBox(0, 0, 1, 1, ExtentsCalculator.arcExtents(1, 0, 0, 1, 0, 0, false));
+        // Clockwise the other way round passes through the three other axis extremes
+        assertBox(-1, -1, 1, 1, ExtentsCalculator.arcExtents(1, 0, 0, 1, 0, 0, true));
+        // Equal start and end is a full circle
+        assertBox(-2, -2, 2, 2, ExtentsCalculator.arcExtents(2, 0, 2, 0, 0, 0, true));
+    }
+
+    @Test
+    void testSymbolUnitSuffix() throws IOException {
+        // A 10 mil pad in a metric file is 0.254 mm wide; a 100 micron pad in the same file is 0.1 mm wide
+        Features features = parse("UNITS=MM", "$0 r10 I", "$1 r100", "P 0 0 0 P 0 0", "P 5 0 1 P 0 0");
+        assertBox(-0.127, -0.127, 0.127, 0.127, calculator.extents(features, features.getFeatures().get(0)));
+        assertBox(4.95, -0.05, 5.05, 0.05, calculator.extents(features, features.getFeatures().get(1)));
+        assertEquals("I", features.getSymbolUnits().get(0));
+        assertNull(features.getSymbolUnits().get(1));
+    }
+
+    @Test
+    void testCachedExtentsFollowChanges() throws IOException {
+        Features features = parse("UNITS=INCH", "$0 r10", "P 0 0 0 P 0 0", "P 1 1 0 P 0 0");
+        BoundingBox first = calculator.extents(features);
+        assertSame(first, calculator.extents(features));
+        assertSame(first, features.getCachedExtents());
+
+        // Replacing a feature keeps the count but must not reuse the old result
+        Pad moved = (Pad) parse("UNITS=INCH", "$0 r10", "P 5 5 0 P 0 0").getFeatures().get(0);
+        features.getFeatures().set(1, moved);
+        assertNull(features.getCachedExtents());
+        assertBox(-0.005, -0.005, 5.005, 5.005, calculator.extents(features));
+
+        features.getFeatures().remove(1);
+        assertNull(features.getCachedExtents());
+        assertBox(-0.005, -0.005, 0.005, 0.005, calculator.extents(features));
+
+        // Edits to a feature object are reported explicitly
+        ((Pad) features.getFeatures().get(0)).setX(-3);
+        features.invalidateExtents();
+        assertBox(-3.005, -0.005, -2.995, 0.005, calculator.extents(features));
+
+        features.setFeatures(new ArrayList<>());
+        assertTrue(calculator.extents(features).isEmpty());
+    }
+}
@@ -0,0 +1,175 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.Component;
+import com.odbpp.model.Components;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Matrix;
+import com.odbpp.model.MatrixLayer;
+import com.odbpp.model.Step;
+import com.odbpp.model.StepHdr;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlattenedStepTest {
+    private Job job;
+
+    private static MatrixLayer matrixLayer(int row, String type, String name) {
+        MatrixLayer layer = new MatrixLayer();
+        layer.setRow(row);
+        layer.setContext("BOARD");
+        layer.setType(type);
+        layer.setName(name);
+        return layer;
+    }
+
+    private static Component component(String name, double x, double y, double rotation) {
+        Component component = new Component();
+        component.setCompName(name);
+        component.setX(x);
+        component.setY(y);
+        component.setRotation(rotation);
+        return component;
+    }
+
+    private static Layer componentLayer(String name, Component... components) {
+        Layer layer = new Layer();
+        layer.setName(name);
+        layer.setComponents(new Components());
+        layer.getComponents().getComponents().addAll(List.of(components));
+        return layer;
+    }
+
+    private static StepHdr.StepRepeat repeat(String name, double x, double y) {
+        StepHdr.StepRepeat repeat = new StepHdr.StepRepeat();
+        repeat.setName(name);
+        repeat.setX(x);
+        repeat.setY(y);
+        return repeat;
+    }
+
+    private Step step(String name, StepHdr.StepRepeat... repeats) {
+        Step step = new Step();
+        step.setName(name);
+        step.setLayersByName(new HashMap<>());
+        step.setStepHdr(new StepHdr());
+        step.getStepHdr().setStepRepeats(new ArrayList<>(List.of(repeats)));
+        job.getSteps().put(name, step);
+        return step;
+    }
+
+    @BeforeEach
+    void buildJob() {
+        job = new Job();
+        job.setSteps(new HashMap<>());
+        job.setMatrix(new Matrix());
+        job.getMatrix().setLayers(new ArrayList<>(List.of(matrixLayer(1, "COMPONENT", "comp_+_top"),
+                matrixLayer(2, "SIGNAL", "top"), matrixLayer(3, "SIGNAL", "bottom"),
+                matrixLayer(4, "COMPONENT", "comp_+_bot"))));
+
+        Step pcb = step("pcb");
+        pcb.getStepHdr().setXDatum(0.5);
+        pcb.getStepHdr().setYDatum(0.5);
+        pcb.getLayersByName().put("comp_+_top", componentLayer("comp_+_top", component("C1", 1, 0, 10)));
+        pcb.getLayersByName().put("comp_+_bot", componentLayer("comp_+_bot",
+                component("R1", 2, 0, 30), component("R2", 3, 0, 0)));
+
+        StepHdr.StepRepeat grid = repeat("pcb", 1, 2);
+        grid.setDx(10);
+        grid.setDy(20);
+        grid.setNx(2);
+        grid.setNy(3);
+        step("array", grid);
+
+        StepHdr.StepRepeat turned = repeat("array", 100, 0);
+        turned.setAngle(90);
+        StepHdr.StepRepeat flipped = repeat("pcb", 0, 0);
+        flipped.setFlip(true);
+        step("panel", turned, flipped);
+    }
+
+    @Test
+    void testExpandsNestedStepRepeats() {
+        FlattenedStep panel = new FlattenedStep(job, job.getSteps().get("panel"));
+        List<StepInstance> instances = panel.getInstances();
+        assertEquals(9, instances.size());
+        assertEquals("panel", instances.get(0).getPath());
+        assertEquals(0, instances.get(0).getDepth());
+        assertEquals("panel/array[0,0]", instances.get(1).getPath());
+        // Columns vary fastest, rows follow
+        assertEquals(List.of("pcb[0,0]", "pcb[1,0]", "pcb[0,1]", "pcb[1,1]", "pcb[0,2]", "pcb[1,2]"),
+                instances.subList(2, 8).stream().map(i -> i.getPath().substring("panel/array[0,0]/".length()))
+                        .collect(Collectors.toList()));
+        StepInstance last = instances.get(7);
+        assertEquals(1, last.getColumn());
+        assertEquals(2, last.getRow());
+        assertEquals(2, last.getDepth());
+        assertSame(instances.get(1), last.getParent());
+        assertSame(job.getSteps().get("pcb"), last.getStep());
+        assertFalse(last.isFlipped());
+        assertTrue(instances.get(8).isFlipped());
+
+        // The datum (0.5, 0.5) of pcb[1,2] lands at (1 + 10, 2 + 40) in the array, which is turned clockwise
+        // and moved by (100, 0) in the panel
+        Transform transform = last.getTransform();
+        assertEquals(142, transform.applyX(0.5, 0.5), 1e-12);
+        assertEquals(-11, transform.applyY(0.5, 0.5), 1e-12);
+        assertEquals(90, transform.getRotation(), 1e-12);
+    }
+
+    @Test
+    void testComponentsOfFlippedInstancesChangeSide() {
+        FlattenedStep panel = new FlattenedStep(job, job.getSteps().get("panel"));
+        // Six unflipped boards with one top component, one flipped board with two bottom components
+        assertEquals(8, panel.componentCount("comp_+_top"));
+        assertEquals(13, panel.componentCount("comp_+_bot"));
+
+        List<Placement> top = panel.placements("comp_+_top");
+        assertEquals(8, top.size());
+        Placement c1 = top.get(5);
+        assertEquals("C1", c1.getCompName());
+        assertEquals("panel/array[0,0]/pcb[1,2]", c1.getInstancePath());
+        assertEquals(141.5, c1.getX(), 1e-12);
+        assertEquals(-11.5, c1.getY(), 1e-12);
+        assertEquals(100, c1.getRotation(), 1e-12);
+        assertFalse(c1.isMirrored());
+
+        Placement r1 = top.get(6);
+        assertEquals("R1", r1.getCompName());
+        assertEquals(-1.5, r1.getX(), 1e-12);
+        assertEquals(-0.5, r1.getY(), 1e-12);
+        assertEquals(330, r1.getRotation(), 1e-12);
+        assertTrue(r1.isMirrored());
+        assertEquals("R2", top.get(7).getCompName());
+    }
+
+    @Test
+    void testMirrorAndFlipCancel() {
+        StepHdr.StepRepeat both = repeat("pcb", 0, 0);
+        both.setFlip(true);
+        both.setMirror(true);
+        Transform transform = FlattenedStep.placement(both, job.getSteps().get("pcb"), 0, 0);
+        assertFalse(transform.isMirrored());
+        assertEquals(0.5, transform.applyX(1, 0), 1e-12);
+
+        StepHdr.StepRepeat mirror = repeat("pcb", 0, 0);
+        mirror.setMirror(true);
+        assertTrue(FlattenedStep.placement(mirror, job.getSteps().get("pcb"), 0, 0).isMirrored());
+    }
+
+    @Test
+    void testCycleIsReported() {
+        job.getSteps().get("pcb").getStepHdr().getStepRepeats().add(repeat("panel", 0, 0));
+        FlattenedStep panel = new FlattenedStep(job, job.getSteps().get("panel"));
+        IllegalStateException e = assertThrows(IllegalStateException.class, panel::getInstances);
+        assertTrue(e.getMessage().contains("panel -> array -> pcb -> panel"), e.getMessage());
+        assertThrows(IllegalStateException.class, () -> panel.componentCount("comp_+_top"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.odbpp.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StandardSymbolTest {
+
+    @Test
+    void testParseShapes() {
+        StandardSymbol round = StandardSymbol.parse("r10");
+        assertEquals(StandardSymbol.Shape.ROUND, round.getShape());
+        assertEquals(10, round.getWidth());
+        assertEquals(10, round.getHeight());
+        assertTrue(round.isRound());
+
+        StandardSymbol rect = StandardSymbol.parse("rect20x10xr2");
+        assertEquals(StandardSymbol.Shape.RECTANGLE, rect.getShape());
+        assertEquals(20, rect.getWidth());
+        assertEquals(10, rect.getHeight());
+        assertEquals(2, rect.getParameter(2));
+
+        StandardSymbol donut = StandardSymbol.parse("donut_r30x20");
+        assertEquals(StandardSymbol.Shape.ROUND_DONUT, donut.getShape());
+        assertEquals(30, donut.getWidth());
+        assertEquals(20, donut.getParameter(1));
+
+        assertEquals(StandardSymbol.Shape.OVAL, StandardSymbol.parse("oval40x20").getShape());
+        assertEquals(12.5, StandardSymbol.parse("s12.5").getWidth());
+    }
+
+    @Test
+    void testNonStandardNames() {
+        assertNull(StandardSymbol.parse(null));
+        assertNull(StandardSymbol.parse(""));
+        assertNull(StandardSymbol.parse("rect"));
+        assertNull(StandardSymbol.parse("my_logo"));
+        assertNull(StandardSymbol.parse("pad10_custom"));
+    }
+
+    @Test
+    void testUnitSuffixScale() {
+        // No suffix: mils in inch files, microns in mm files
+        assertEquals(0.001, StandardSymbol.scale(null, "INCH"), 1e-12);
+        assertEquals(0.001, StandardSymbol.scale(null, "MM"), 1e-12);
+        assertEquals(0.001, StandardSymbol.scale(null, null), 1e-12);
+        assertEquals(0.001, StandardSymbol.scale("I", "INCH"), 1e-12);
+        assertEquals(0.001, StandardSymbol.scale("M", "MM"), 1e-12);
+        // Mils in a metric file, microns in an imperial file
+        assertEquals(0.0254, StandardSymbol.scale("I", "MM"), 1e-12);
+        assertEquals(1 / 25400.0, StandardSymbol.scale("M", "INCH"), 1e-12);
+    }
+}
@@ -0,0 +1,119 @@
+package com.odbpp.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SweepLineTest {
+
+    private static Set<Long> pairs(SweepLine sweep, double range) {
+        Set<Long> pairs = new HashSet<>();
+        sweep.forEachPair(range, (a, b) -> assertTrue(pairs.add(key(a, b)), "pair visited twice"));
+        return pairs;
+    }
+
+    private static long key(int a, int b) {
+        return (long) Math.min(a, b) << 32 | Math.max(a, b);
+    }
+
+    @Test
+    void testPairsMatchBruteForce() {
+        Random random = new Random(7);
+        int n = 1500;
+        double[] minX = new double[n];
+        double[] minY = new double[n];
+        double[] maxX = new double[n];
+        double[] maxY = new double[n];
+        for (int i = 0; i < n; i++) {
+            minX[i] = random.nextDouble() * 100;
+            minY[i] = random.nextDouble() * 100;
+            // Mostly small boxes, a few long ones in either direction
+            maxX[i] = minX[i] + (i % 97 == 0 ? 60 : random.nextDouble() * 2);
+            maxY[i] = minY[i] + (i % 89 == 0 ? 80 : random.nextDouble() * 2);
+        }
+        for (double range : new double[]{0, 0.5, 3}) {
+            Set<Long> expected = new HashSet<>();
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    if (minX[b] - maxX[a] <= range && minX[a] - maxX[b] <= range
+                            && minY[b] - maxY[a] <= range && minY[a] - maxY[b] <= range) {
+                        expected.add(key(a, b));
+                    }
+                }
+            }
+            assertEquals(expected, pairs(new SweepLine(minX, minY, maxX, maxY), range));
+        }
+    }
+
+    @Test
+    void testColumnOfPadsAtSameX() {
+        // Every box stays active for the whole sweep; only neighbours in y may be compared
+        int n = 200_000;
+        double[] minX = new double[n];
+        double[] minY = new double[n];
+        double[] maxX = new double[n];
+        double[] maxY = new double[n];
+        for (int i = 0; i < n; i++) {
+            minX[i] = -0.5;
+            maxX[i] = 0.5;
+            minY[i] = i - 0.4;
+            maxY[i] = i + 0.4;
+        }
+        AtomicLong count = new AtomicLong();
+        new SweepLine(minX, minY, maxX, maxY).forEachPair(0.25, (a, b) -> {
+            assertEquals(1, Math.abs(a - b));
+            count.incrementAndGet();
+        });
+        assertEquals(n - 1, count.get());
+
+        count.set(0);
+        new SweepLine(minX, minY, maxX, maxY).forEachPair(0.1, (a, b) -> count.incrementAndGet());
+        assertEquals(0, count.get());
+    }
+
+    @Test
+    void testMostlyFlatBoxes() {
+        // 97% zero-height boxes in one column; the others must not all be treated as tall
+        int n = 200_000;
+        double[] minX = new double[n];
+        double[] minY = new double[n];
+        double[] maxX = new double[n];
+        double[] maxY = new double[n];
+        for (int i = 0; i < n; i++) {
+            minX[i] = -0.5;
+            maxX[i] = 0.5;
+            minY[i] = i;
+            maxY[i] = i + (i % 33 == 0 ? 0.8 : 0);
+        }
+        AtomicLong count = new AtomicLong();
+        new SweepLine(minX, minY, maxX, maxY).forEachPair(0.1, (a, b) -> count.incrementAndGet());
+        assertEquals(0, count.get());
+        new SweepLine(minX, minY, maxX, maxY).forEachPair(0.5, (a, b) -> {
+            assertEquals(1, Math.abs(a - b));
+            count.incrementAndGet();
+        });
+        // Only the gaps of 0.2 above the taller boxes are in range
+        assertEquals((n + 32) / 33, count.get());
+    }
+
+    @Test
+    void testShrinkingRange() {
+        double[] minX = {0, 1, 2, 10};
+        double[] minY = {0, 0, 0, 0};
+        double[] maxX = {0.5, 1.5, 2.5, 10.5};
+        double[] maxY = {0.5, 0.5, 0.5, 0.5};
+        double[] range = {100};
+        Set<Long> pairs = new HashSet<>();
+        new SweepLine(minX, minY, maxX, maxY).forEachPair(() -> range[0], (a, b) -> {
+            pairs.add(key(a, b));
+            range[0] = 0.6;
+        });
+        // After the first pair the range no longer reaches box 3
+        assertEquals(Set.of(key(0, 1), key(1, 2)), pairs);
+    }
+}
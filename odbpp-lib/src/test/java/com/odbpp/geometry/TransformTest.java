@@ -0,0 +1,62 @@
+package com.odbpp.geometry;
+
+import com.odbpp.model.BoundingBox;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformTest {
+
+    private static void assertPoint(double x, double y, Transform transform, double px, double py) {
+        assertEquals(x, transform.applyX(px, py), 1e-12);
+        assertEquals(y, transform.applyY(px, py), 1e-12);
+    }
+
+    @Test
+    void testRotationIsClockwise() {
+        Transform quarter = Transform.rotation(90);
+        assertPoint(0, -1, quarter, 1, 0);
+        assertPoint(1, 0, quarter, 0, 1);
+        assertEquals(90, quarter.getRotation(), 1e-12);
+        assertFalse(quarter.isMirrored());
+
+        // Right angles are snapped to exact coordinates
+        assertEquals(-1, Transform.rotation(270).applyX(0, 1), 0);
+        assertEquals(0, Transform.rotation(270).applyY(0, 1), 0);
+        Transform eighth = Transform.rotation(45);
+        assertPoint(Math.sqrt(0.5), -Math.sqrt(0.5), eighth, 1, 0);
+        assertEquals(45, eighth.getRotation(), 1e-12);
+        assertEquals(315, Transform.rotation(-45).getRotation(), 1e-12);
+    }
+
+    @Test
+    void testMirrorRotateTranslateOrder() {
+        // concat applies the inner transform first: mirror, then rotate, then translate
+        Transform transform = Transform.translation(10, 0)
+                .concat(Transform.rotation(90))
+                .concat(Transform.mirrorX());
+        // (1, 0) mirrors to (-1, 0), turns clockwise to (0, 1) and moves to (10, 1)
+        assertPoint(10, 1, transform, 1, 0);
+        assertTrue(transform.isMirrored());
+        assertEquals(90, transform.getRotation(), 1e-12);
+        assertEquals(10, transform.getTranslateX());
+        assertEquals(0, transform.getTranslateY());
+
+        // The other order gives another point
+        Transform reversed = Transform.mirrorX().concat(Transform.rotation(90)).concat(Transform.translation(10, 0));
+        assertPoint(0, -11, reversed, 1, 0);
+    }
+
+    @Test
+    void testBulkAndBoxes() {
+        Transform transform = Transform.translation(1, 2).concat(Transform.rotation(90));
+        double[] points = {1, 0, 0, 1};
+        transform.apply(points, 0, points, 0, 2);
+        assertArrayEquals(new double[]{1, 1, 2, 2}, points, 1e-12);
+
+        BoundingBox box = transform.apply(new BoundingBox(0, 0, 2, 1));
+        assertEquals(new BoundingBox(1, 0, 2, 2), box);
+        assertSame(BoundingBox.EMPTY, transform.apply(BoundingBox.EMPTY));
+        assertPoint(3, 4, Transform.IDENTITY, 3, 4);
+    }
+}
@@ -0,0 +1,86 @@
+package com.odbpp.index;
+
+import com.odbpp.model.BoardSide;
+import com.odbpp.model.Bom;
+import com.odbpp.model.BomItem;
+import com.odbpp.model.ChosenStatus;
+import com.odbpp.model.Component;
+import com.odbpp.model.Components;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssemblyIndexTest {
+
+    private static Components components(String... refdesAndPart) {
+        Components components = new Components();
+        for (int i = 0; i < refdesAndPart.length; i += 2) {
+            Component component = new Component();
+            component.setCompName(refdesAndPart[i]);
+            component.setPartName(refdesAndPart[i + 1]);
+            components.getComponents().add(component);
+        }
+        return components;
+    }
+
+    private static BomItem item(String cpn, String mpn, int priority, ChosenStatus chosen) {
+        BomItem item = new BomItem();
+        item.setCpn(cpn);
+        item.setMpn(mpn);
+        item.setPriority(priority);
+        item.setChosenStatus(chosen);
+        return item;
+    }
+
+    private static Bom bom(BomItem... items) {
+        Bom bom = new Bom();
+        bom.setItems(new ArrayList<>(List.of(items)));
+        return bom;
+    }
+
+    @Test
+    void testJoinsBomLinesWithPlacements() {
+        Map<String, ComponentTable> tables = Map.of(
+                "comp_+_top", new ComponentTable(components("R1", "RES-10K", "U1", "MCU", "J1", "CONN")),
+                "comp_+_bot", new ComponentTable(components("R2", "RES-10K")));
+        AssemblyIndex index = new AssemblyIndex(tables, bom(
+                item("RES-10K", "RC0402", 2, ChosenStatus.NOT_CHOSEN),
+                item("RES-10K", "ERJ-2", 1, ChosenStatus.CHOSEN),
+                item("P-100", "MCU", 1, ChosenStatus.CHOSEN),
+                item("CAP-1U", "GRM155", 1, ChosenStatus.CHOSEN)));
+
+        AssemblyIndex.BomLine resistors = index.getLine("RES-10K");
+        assertEquals(2, resistors.getPlacementCount());
+        assertEquals(List.of("R2", "R1"), resistors.getRefdes());
+        assertEquals(Set.of(BoardSide.TOP, BoardSide.BOTTOM), resistors.getSides());
+        assertEquals("ERJ-2", resistors.getChosen().getMpn());
+        assertEquals(1, index.getPlacements("RES-10K").getTopCount());
+
+        // Matched through the MPN of the line
+        assertEquals(List.of("U1"), index.getLine("P-100").getRefdes());
+        assertEquals(List.of("CAP-1U"), index.getUnplacedLines().stream().map(AssemblyIndex.BomLine::getCpn).toList());
+        assertEquals(List.of("CONN"), index.getUnmatchedParts().stream().map(AssemblyIndex.Placements::getPartName).toList());
+        assertEquals(Map.of("CONN", 1, "MCU", 1, "RES-10K", 2), index.getPartCounts());
+    }
+
+    @Test
+    void testRefreshKeepsUnchangedLines() {
+        Map<String, ComponentTable> tables = Map.of(
+                "comp_+_top", new ComponentTable(components("R1", "RES-10K", "J1", "CONN")));
+        BomItem resistor = item("RES-10K", "ERJ-2", 1, ChosenStatus.CHOSEN);
+        AssemblyIndex index = new AssemblyIndex(tables, bom(resistor));
+        AssemblyIndex.BomLine before = index.getLine("RES-10K");
+
+        index.refresh(bom(resistor, item("CONN", "HDR", 1, ChosenStatus.CHOSEN)));
+
+        assertSame(before, index.getLine("RES-10K"));
+        assertEquals(1, index.getReusedLineCount());
+        assertEquals(List.of("J1"), index.getLine("CONN").getRefdes());
+        assertTrue(index.getUnmatchedParts().isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package com.odbpp.index;
+
+import com.odbpp.model.Component;
+import com.odbpp.model.ComponentAttribute;
+import com.odbpp.model.Components;
+import com.odbpp.model.FeatureAttributes;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttributeIndexTest {
+
+    private static FeatureAttributes features() {
+        FeatureAttributes attributes = new FeatureAttributes();
+        attributes.setName(0, ".smd");
+        attributes.setName(1, ".pad_usage");
+        attributes.setName(2, ".drc_max_height");
+        for (int feature = 0; feature < 1000; feature++) {
+            if (feature % 2 == 0) {
+                attributes.add(feature, 0, null);
+            }
+            attributes.add(feature, 1, String.valueOf(feature % 3));
+            if (feature % 10 == 0) {
+                attributes.add(feature, 2, feature % 20 == 0 ? String.valueOf(feature / 10) : "n/a");
+            }
+        }
+        attributes.ensureFeatures(1005);
+        return attributes;
+    }
+
+    private static int[] rows(int size, IntPredicate member) {
+        return IntStream.range(0, size).filter(member).toArray();
+    }
+
+    @Test
+    void testPresence() {
+        AttributeIndex index = new AttributeIndex(features());
+        assertEquals(1005, index.size());
+        assertArrayEquals(rows(1000, f -> f % 2 == 0), index.has(".smd").toArray());
+        assertEquals(1000, index.has(".pad_usage").cardinality());
+        // Rows past the last assignment have no attributes
+        assertFalse(index.has(".pad_usage").contains(1002));
+        // Presence counts values that are not numbers
+        assertEquals(100, index.has(".drc_max_height").cardinality());
+        assertTrue(index.has(".missing").isEmpty());
+        // Answered from the same index the second time
+        assertSame(index.has(".smd"), index.has(".smd"));
+    }
+
+    @Test
+    void testValues() {
+        AttributeIndex index = new AttributeIndex(features());
+        assertArrayEquals(rows(1000, f -> f % 3 == 1), index.equalTo(".pad_usage", "1").toArray());
+        assertArrayEquals(rows(1000, f -> f % 10 == 0 && f % 20 != 0), index.equalTo(".drc_max_height", "n/a").toArray());
+        // Values are raw strings
+        assertTrue(index.equalTo(".pad_usage", "1.0").isEmpty());
+        assertTrue(index.equalTo(".pad_usage", "7").isEmpty());
+        assertTrue(index.equalTo(".smd", "1").isEmpty());
+        assertTrue(index.equalTo(".missing", "1").isEmpty());
+        assertArrayEquals(rows(1000, f -> f % 6 == 2),
+                index.has(".smd").and(index.equalTo(".pad_usage", "2")).toArray());
+    }
+
+    @Test
+    void testNumbersSkipNonNumericValues() {
+        AttributeIndex index = new AttributeIndex(features());
+        NumericIndex heights = index.numeric(".drc_max_height");
+        assertEquals(50, heights.size());
+        assertEquals(0, heights.getMin());
+        assertEquals(98, heights.getMax());
+        assertArrayEquals(new int[]{20, 40, 60}, index.between(".drc_max_height", 2, 6).toArray());
+        assertArrayEquals(new int[]{0}, index.lessThan(".drc_max_height", 2).toArray());
+        assertArrayEquals(new int[]{980}, index.greaterThan(".drc_max_height", 96).toArray());
+        assertEquals(0, index.numeric(".missing").size());
+        assertTrue(index.between(".missing", 0, 1).isEmpty());
+    }
+
+    @Test
+    void testComponents() {
+        Components components = new Components();
+        components.setAttributeNames(Arrays.asList(".comp_height", null, "supplier"));
+        for (int i = 0; i < 4; i++) {
+            Component component = new Component();
+            component.setCompName("U" + i);
+            if (i != 2) {
+                ComponentAttribute height = new ComponentAttribute();
+                height.setAttributeIndex(0);
+                height.setValue(String.valueOf(0.5 * i));
+                component.addAttribute(height);
+            }
+            if (i % 2 == 1) {
+                component.addAttribute(ComponentAttribute.createBoolean(2));
+            }
+            components.getComponents().add(component);
+        }
+        AttributeIndex index = AttributeIndex.forComponents(components);
+        assertEquals(4, index.size());
+        assertArrayEquals(new int[]{0, 1, 3}, index.has(".comp_height").toArray());
+        assertArrayEquals(new int[]{1, 3}, index.has("supplier").toArray());
+        assertArrayEquals(new int[]{3}, index.equalTo(".comp_height", "1.5").toArray());
+        assertArrayEquals(new int[]{1, 3}, index.greaterThan(".comp_height", 0).toArray());
+        assertTrue(index.has("").isEmpty());
+    }
+}
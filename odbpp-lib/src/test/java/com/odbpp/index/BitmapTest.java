@@ -0,0 +1,73 @@
+package com.odbpp.index;
+
+import com.odbpp.model.FeatureAttributes;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitmapTest {
+
+    private static Bitmap bitmap(int size, IntPredicate member) {
+        return Bitmap.of(IntStream.range(0, size).filter(member).toArray());
+    }
+
+    private static BitSet bitSet(int size, IntPredicate member) {
+        BitSet set = new BitSet();
+        IntStream.range(0, size).filter(member).forEach(set::set);
+        return set;
+    }
+
+    @Test
+    void testSetOperationsMatchBitSet() {
+        int size = 300_000;
+        Random random = new Random(7);
+        long[] seeds = {random.nextLong(), random.nextLong()};
+        // Sparse, dense and mixed chunks
+        IntPredicate a = i -> i % 3 == 0 || (i > 200_000 && Long.hashCode(i * seeds[0]) % 50 == 0);
+        IntPredicate b = i -> (i / 1000) % 2 == 0 || i % 977 == 0;
+
+        Bitmap x = bitmap(size, a);
+        Bitmap y = bitmap(size, b);
+        BitSet expectedAnd = bitSet(size, a);
+        expectedAnd.and(bitSet(size, b));
+        BitSet expectedOr = bitSet(size, a);
+        expectedOr.or(bitSet(size, b));
+        BitSet expectedAndNot = bitSet(size, a);
+        expectedAndNot.andNot(bitSet(size, b));
+
+        assertArrayEquals(expectedAnd.stream().toArray(), x.and(y).toArray());
+        assertArrayEquals(expectedOr.stream().toArray(), x.or(y).toArray());
+        assertArrayEquals(expectedAndNot.stream().toArray(), x.andNot(y).toArray());
+        assertEquals(expectedOr.cardinality(), x.or(y).cardinality());
+        assertTrue(x.contains(3));
+        assertFalse(x.contains(4));
+        assertTrue(x.and(Bitmap.empty()).isEmpty());
+    }
+
+    @Test
+    void testAttributeIndexOverFeatures() {
+        FeatureAttributes attributes = new FeatureAttributes();
+        attributes.setName(0, ".smd");
+        attributes.setName(1, ".comp_height");
+        attributes.add(0, 0, null);
+        attributes.add(1, 1, "0.5");
+        attributes.add(2, 0, null);
+        attributes.add(2, 1, "2");
+        attributes.add(4, 1, "5.5");
+        attributes.ensureFeatures(6);
+        AttributeIndex index = new AttributeIndex(attributes);
+
+        assertArrayEquals(new int[]{0, 2}, index.has(".smd").toArray());
+        assertArrayEquals(new int[]{2, 4}, index.greaterThan(".comp_height", 1).toArray());
+        assertArrayEquals(new int[]{1, 2}, index.between(".comp_height", 0.5, 2).toArray());
+        assertArrayEquals(new int[]{2}, index.has(".smd").and(index.lessThan(".comp_height", 3)).toArray());
+        assertArrayEquals(new int[]{4}, index.equalTo(".comp_height", "5.5").toArray());
+        assertArrayEquals(new int[]{1, 3, 4, 5}, index.all().andNot(index.has(".smd")).toArray());
+        assertTrue(index.has(".missing").isEmpty());
+    }
+}
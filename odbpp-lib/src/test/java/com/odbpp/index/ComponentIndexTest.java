@@ -0,0 +1,98 @@
+package com.odbpp.index;
+
+import com.odbpp.model.Component;
+import com.odbpp.model.Components;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Step;
+import com.odbpp.model.ToeprintRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentIndexTest {
+
+    // Components at (10 * i, 0), each with pins at x - 1 and x + 1
+    private static Components components(int count, int pins) {
+        Components components = new Components();
+        for (int i = 0; i < count; i++) {
+            Component component = new Component();
+            component.setCompName("R" + i);
+            component.setX(10 * i);
+            for (int pin = 0; pin < pins; pin++) {
+                ToeprintRecord toeprint = new ToeprintRecord();
+                toeprint.setPinNumber(pin);
+                toeprint.setX(10 * i + (pin == 0 ? -1 : 1));
+                component.addToeprintRecord(toeprint);
+            }
+            components.getComponents().add(component);
+        }
+        return components;
+    }
+
+    @Test
+    void testComponentLookups() {
+        ComponentIndex index = new ComponentIndex(components(20, 2));
+        assertEquals(20, index.getComponentCount());
+        assertEquals(7, index.nearestComponent(68, 3));
+        assertEquals("R7", index.getComponent(index.nearestComponent(68, 3)).getCompName());
+        assertArrayEquals(new int[]{3, 4}, index.nearestComponents(33, 0, 2));
+
+        int[] within = index.componentsWithin(50, 0, 10);
+        Arrays.sort(within);
+        assertArrayEquals(new int[]{4, 5, 6}, within);
+
+        assertArrayEquals(new int[]{0, 19}, index.nearestComponents(new double[]{-5, 500}, new double[]{0, 0}));
+        assertEquals(1, index.componentsWithin(new double[]{0, 95}, new double[]{0, 0}, 1)[0].length);
+        assertEquals(0, index.componentsWithin(new double[]{0, 95}, new double[]{0, 0}, 1)[1].length);
+    }
+
+    @Test
+    void testToeprintsResolveToTheirOwner() {
+        ComponentIndex index = new ComponentIndex(components(20, 2));
+        assertEquals(40, index.getToeprintCount());
+
+        int toeprint = index.nearestToeprint(71.2, 0);
+        assertEquals(7, index.getToeprintOwner(toeprint));
+        assertEquals(1, index.getToeprint(toeprint).getPinNumber());
+        assertEquals(71, index.getToeprint(toeprint).getX());
+
+        int[] within = index.toeprintsWithin(30, 0, 1);
+        assertEquals(2, within.length);
+        for (int pin : within) {
+            assertEquals(3, index.getToeprintOwner(pin));
+        }
+        assertEquals(4, index.nearestToeprints(40, 0, 4).length);
+    }
+
+    @Test
+    void testEmptyLayers() {
+        ComponentIndex index = new ComponentIndex(components(3, 0));
+        assertEquals(0, index.getToeprintCount());
+        assertEquals(-1, index.nearestToeprint(0, 0));
+        assertEquals(-1, new ComponentIndex(new Components()).nearestComponent(0, 0));
+    }
+
+    @Test
+    void testForStepIndexesComponentLayers() {
+        Map<String, Layer> layers = new HashMap<>();
+        for (String name : new String[]{"comp_+_top", "comp_+_bot", "top"}) {
+            Layer layer = new Layer();
+            layer.setName(name);
+            if (name.startsWith("comp")) {
+                layer.setComponents(components(name.endsWith("top") ? 4 : 2, 1));
+            }
+            layers.put(name, layer);
+        }
+        Step step = new Step();
+        step.setLayersByName(layers);
+
+        Map<String, ComponentIndex> indexes = ComponentIndex.forStep(step);
+        assertEquals(2, indexes.size());
+        assertEquals(4, indexes.get("comp_+_top").getComponentCount());
+        assertEquals(2, indexes.get("comp_+_bot").getToeprintCount());
+    }
+}
@@ -0,0 +1,124 @@
+package com.odbpp.index;
+
+import com.odbpp.model.AttributeType;
+import com.odbpp.model.Component;
+import com.odbpp.model.ComponentAttribute;
+import com.odbpp.model.Components;
+import com.odbpp.model.MirrorType;
+import com.odbpp.model.ToeprintRecord;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentTableTest {
+
+    private static Component component(String refdes, String part, int pkgRef, int pins) {
+        Component component = new Component();
+        component.setCompName(refdes);
+        component.setPartName(part);
+        component.setPkgRef(pkgRef);
+        component.setX(pkgRef);
+        component.setMirror(MirrorType.NOT_MIRRORED);
+        for (int pin = 0; pin < pins; pin++) {
+            ToeprintRecord toeprint = new ToeprintRecord();
+            toeprint.setPinNumber(pin);
+            toeprint.setX(pin);
+            toeprint.setNetNumber(10 + pin);
+            toeprint.setName(String.valueOf(pin + 1));
+            component.addToeprintRecord(toeprint);
+        }
+        return component;
+    }
+
+    private static ComponentAttribute attribute(int index, String value) {
+        ComponentAttribute attribute = new ComponentAttribute();
+        attribute.setAttributeIndex(index);
+        attribute.setType(value == null ? AttributeType.BOOLEAN : AttributeType.TEXT);
+        attribute.setValue(value);
+        return attribute;
+    }
+
+    private static Components components() {
+        Components components = new Components();
+        for (int i = 0; i < 500; i++) {
+            components.getComponents().add(component("R" + i, i % 2 == 0 ? "RES-10K" : "RES-1K", 0, 2));
+        }
+        Component u1 = component("U1", "MCU", 3, 8);
+        u1.setMirror(MirrorType.MIRRORED);
+        u1.addAttribute(attribute(0, null));
+        u1.addAttribute(attribute(2, "QFN"));
+        components.getComponents().add(u1);
+        components.getComponents().add(component("C1", null, -1, 2));
+        return components;
+    }
+
+    @Test
+    void testRefdesIndex() {
+        ComponentTable table = new ComponentTable(components());
+        assertEquals(502, table.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, table.indexOf("R" + i));
+        }
+        int u1 = table.indexOf("U1");
+        assertEquals(500, u1);
+        assertEquals("MCU", table.getPartName(u1));
+        assertTrue(table.isMirrored(u1));
+        assertEquals(8, table.getToeprintCount(u1));
+        int pin = table.getFirstToeprint(u1) + 3;
+        assertEquals("4", table.getToeprintName(pin));
+        assertEquals(13, table.getToeprintNet(pin));
+        assertEquals(-1, table.indexOf("R500"));
+        assertEquals(-1, table.indexOf(null));
+    }
+
+    @Test
+    void testPartAndPackageIndexes() {
+        ComponentTable table = new ComponentTable(components());
+        int[] tenK = table.rowsOfPart("RES-10K");
+        assertEquals(250, tenK.length);
+        for (int i = 0; i < tenK.length; i++) {
+            assertEquals(2 * i, tenK[i]);
+        }
+        assertArrayEquals(new int[]{500}, table.rowsOfPart("MCU"));
+        assertEquals(0, table.rowsOfPart("CAP").length);
+
+        assertEquals(500, table.rowsOfPackage(0).length);
+        assertArrayEquals(new int[]{500}, table.rowsOfPackage(3));
+        assertEquals(0, table.rowsOfPackage(1).length);
+        // Components without a package are not grouped
+        assertEquals(0, table.rowsOfPackage(-1).length);
+        assertEquals(0, table.rowsOfPackage(99).length);
+    }
+
+    @Test
+    void testAttributesAndRoundTrip() {
+        ComponentTable table = new ComponentTable(components());
+        int u1 = table.indexOf("U1");
+        assertTrue(table.hasAttribute(u1, 0));
+        assertNull(table.getAttributeValue(u1, 0));
+        assertEquals("QFN", table.getAttributeValue(u1, 2));
+        assertFalse(table.hasAttribute(u1, 1));
+
+        Component copy = table.toComponent(u1);
+        assertEquals("U1", copy.getCompName());
+        assertEquals(8, copy.getToeprintRecords().size());
+        assertTrue(copy.hasAttribute(2));
+        assertEquals("QFN", copy.getAttributeValue(2));
+    }
+
+    @Test
+    void testHasAttributeScansListAddedAttributes() {
+        Component component = new Component();
+        component.addAttribute(attribute(1, "a"));
+        assertTrue(component.hasAttribute(1));
+        // List and lookup table agree: absent attributes are answered from the table
+        assertFalse(component.hasAttribute(4));
+
+        // Added to the list directly, so only a scan finds it
+        component.getAttributes().add(attribute(4, null));
+        assertTrue(component.hasAttribute(4));
+        assertTrue(component.hasAttribute(1));
+        assertFalse(component.hasAttribute(5));
+        assertNull(component.getAttributeValue(4));
+    }
+}
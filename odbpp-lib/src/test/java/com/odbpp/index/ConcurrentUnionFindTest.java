@@ -0,0 +1,88 @@
+package com.odbpp.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentUnionFindTest {
+
+    @Test
+    void testSingleThreaded() {
+        ConcurrentUnionFind sets = new ConcurrentUnionFind(6);
+        assertTrue(sets.union(4, 2));
+        assertTrue(sets.union(2, 5));
+        assertFalse(sets.union(5, 4));
+        assertTrue(sets.connected(4, 5));
+        assertFalse(sets.connected(0, 4));
+        assertEquals(2, sets.find(5));
+
+        int[] labels = new int[6];
+        assertEquals(4, sets.label(labels));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 2, 2}, labels);
+    }
+
+    @Test
+    void testConcurrentUnionsMatchSequentialResult() throws InterruptedException {
+        int size = 200_000;
+        int threads = 8;
+        Random random = new Random(11);
+        int[][] pairs = new int[threads][];
+        ConcurrentUnionFind expected = new ConcurrentUnionFind(size);
+        for (int t = 0; t < threads; t++) {
+            pairs[t] = new int[2 * 40_000];
+            for (int i = 0; i < pairs[t].length; i += 2) {
+                pairs[t][i] = random.nextInt(size);
+                pairs[t][i + 1] = random.nextInt(size);
+                expected.union(pairs[t][i], pairs[t][i + 1]);
+            }
+        }
+
+        ConcurrentUnionFind actual = new ConcurrentUnionFind(size);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        int[] merged = new int[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < pairs[thread].length; i += 2) {
+                    if (actual.union(pairs[thread][i], pairs[thread][i + 1])) {
+                        merged[thread]++;
+                    }
+                    // Finds compress paths while other threads link roots
+                    actual.find(pairs[thread][(i + 7) % pairs[thread].length]);
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int[] expectedLabels = new int[size];
+        int[] actualLabels = new int[size];
+        int expectedSets = expected.label(expectedLabels);
+        assertEquals(expectedSets, actual.label(actualLabels));
+        assertArrayEquals(expectedLabels, actualLabels);
+        // Every successful union removed exactly one set
+        int unions = 0;
+        for (int count : merged) {
+            unions += count;
+        }
+        assertEquals(size - expectedSets, unions);
+        // Roots are the smallest elements of their sets
+        for (int i = 0; i < size; i++) {
+            assertTrue(actual.find(i) <= i);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.odbpp.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KdTreeTest {
+
+    @Test
+    void testNearestMatchesLinearScan() {
+        Random random = new Random(42);
+        double[] xs = new double[2000];
+        double[] ys = new double[2000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * 10;
+            ys[i] = random.nextDouble() * 10;
+        }
+        KdTree tree = new KdTree(xs, ys);
+
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextDouble() * 10;
+            double y = random.nextDouble() * 10;
+            int expected = IntStream.range(0, xs.length).boxed()
+                    .min(Comparator.comparingDouble(i -> distance(xs, ys, i, x, y)))
+                    .get();
+            assertEquals(expected, tree.nearest(x, y));
+        }
+    }
+
+    @Test
+    void testKNearestIsSortedByDistance() {
+        double[] xs = {0, 1, 2, 3, 4};
+        double[] ys = {0, 0, 0, 0, 0};
+        KdTree tree = new KdTree(xs, ys);
+
+        assertArrayEquals(new int[]{3, 4, 2}, tree.nearest(3.4, 0, 3));
+        assertEquals(5, tree.nearest(0, 0, 10).length);
+    }
+
+    @Test
+    void testWithinRadius() {
+        Random random = new Random(7);
+        double[] xs = new double[500];
+        double[] ys = new double[500];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+        }
+        KdTree tree = new KdTree(xs, ys);
+
+        int[] found = tree.withinRadius(0.5, 0.5, 0.2);
+        Arrays.sort(found);
+        int[] expected = IntStream.range(0, xs.length)
+                .filter(i -> distance(xs, ys, i, 0.5, 0.5) <= 0.2)
+                .toArray();
+        assertArrayEquals(expected, found);
+    }
+
+    @Test
+    void testBulkNearest() {
+        double[] xs = {0, 10, 20};
+        double[] ys = {0, 10, 20};
+        KdTree tree = new KdTree(xs, ys);
+
+        assertArrayEquals(new int[]{0, 2, 1}, tree.nearest(new double[]{1, 19, 9}, new double[]{-1, 22, 11}));
+    }
+
+    @Test
+    void testEmptyTree() {
+        KdTree tree = new KdTree(new double[0], new double[0]);
+        assertEquals(-1, tree.nearest(1, 1));
+        assertEquals(0, tree.nearest(1, 1, 3).length);
+        assertEquals(0, tree.withinRadius(1, 1, 3).length);
+    }
+
+    private static double distance(double[] xs, double[] ys, int i, double x, double y) {
+        return Math.hypot(xs[i] - x, ys[i] - y);
+    }
+}
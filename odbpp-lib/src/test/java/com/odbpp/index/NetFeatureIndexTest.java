@@ -0,0 +1,92 @@
+package com.odbpp.index;
+
+import com.odbpp.model.EdaData;
+import com.odbpp.parser.EdaDataParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetFeatureIndexTest {
+
+    private static final String DATA = String.join("\n",
+            "HDR test",
+            "UNITS=INCH",
+            "LYR top bottom drill",
+            "NET GND",
+            "SNT TOP T 3 1",
+            "FID C 0 12",
+            "SNT VIA",
+            "FID C 0 40",
+            "FID H 2 5",
+            "FID C 1 7",
+            "NET VCC",
+            "SNT TRC",
+            "FID C 0 41",
+            "FID C 1 0",
+            "NET NC");
+
+    private static NetFeatureIndex index() throws IOException {
+        EdaData eda = new EdaDataParser().parse(new StringReader(DATA));
+        return new NetFeatureIndex(eda, null);
+    }
+
+    @Test
+    void testNetToFeaturesRoundTrip() throws IOException {
+        NetFeatureIndex index = index();
+        EdaData eda = index.getEdaData();
+        for (int net = 0; net < eda.getNetRecords().size(); net++) {
+            List<String> features = new ArrayList<>();
+            int expected = net;
+            index.forEachFeature(net, (layer, feature) -> {
+                features.add(layer + ":" + feature);
+                assertEquals(expected, index.getNet(layer, feature));
+            });
+            assertEquals(index.getFeatureCount(net), features.size());
+        }
+        List<String> gnd = new ArrayList<>();
+        index.forEachFeature("GND", (layer, feature) -> gnd.add(layer + ":" + feature));
+        assertEquals(List.of("top:12", "top:40", "drill:5", "bottom:7"), gnd);
+        assertEquals(0, index.getFeatureCount(2));
+    }
+
+    @Test
+    void testFeatureToNetsRoundTrip() throws IOException {
+        NetFeatureIndex index = index();
+        Set<String> referenced = new HashSet<>();
+        for (String layer : List.of("top", "bottom", "drill")) {
+            int[] nets = index.getFeatureNets(layer);
+            for (int feature = 0; feature < nets.length; feature++) {
+                if (nets[feature] < 0) {
+                    continue;
+                }
+                referenced.add(layer + ":" + feature);
+                Set<String> ofNet = new HashSet<>();
+                index.forEachFeature(nets[feature], (l, f) -> ofNet.add(l + ":" + f));
+                assertTrue(ofNet.contains(layer + ":" + feature));
+            }
+        }
+        assertEquals(Set.of("top:12", "top:40", "top:41", "bottom:0", "bottom:7", "drill:5"), referenced);
+        assertEquals("VCC", index.getNetRecord("bottom", 0).getName());
+        assertEquals(-1, index.getNet("top", 13));
+        assertEquals(-1, index.getNet("top", 1000));
+        assertNull(index.getFeatureNets("inner"));
+        assertEquals(-1, index.getNet("inner", 0));
+    }
+
+    @Test
+    void testWithoutEdaData() {
+        NetFeatureIndex index = new NetFeatureIndex(null, null);
+        assertEquals(0, index.getFeatureCount(0));
+        index.forEachFeature(0, (layer, feature) -> fail("no features without EDA data"));
+        index.forEachFeature("GND", (layer, feature) -> fail("no features without EDA data"));
+        assertEquals(-1, index.getNet("top", 0));
+        assertNull(index.getNetRecord("top", 0));
+    }
+}
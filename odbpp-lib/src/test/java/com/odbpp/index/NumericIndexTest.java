@@ -0,0 +1,74 @@
+package com.odbpp.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericIndexTest {
+
+    // Rows 0..7 with duplicates, an unsorted order and a NaN value
+    private static NumericIndex index() {
+        return new NumericIndex(new int[]{7, 1, 4, 0, 6, 2, 5, 3},
+                new double[]{3, 1, 2, Double.NaN, 2, -1, 5, 2});
+    }
+
+    @Test
+    void testInclusiveBetween() {
+        NumericIndex index = index();
+        assertEquals(7, index.size());
+        assertEquals(-1, index.getMin());
+        assertEquals(5, index.getMax());
+        assertArrayEquals(new int[]{3, 4, 6, 7}, index.between(2, 3).toArray());
+        assertArrayEquals(new int[]{3, 4, 6}, index.between(2, 2).toArray());
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7}, index.between(-1, 5).toArray());
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7},
+                index.between(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY).toArray());
+    }
+
+    @Test
+    void testExclusiveEnds() {
+        NumericIndex index = index();
+        assertArrayEquals(new int[]{5, 7}, index.greaterThan(2).toArray());
+        assertArrayEquals(new int[]{1, 2}, index.lessThan(2).toArray());
+        assertArrayEquals(new int[]{5}, index.greaterThan(3).toArray());
+        assertTrue(index.greaterThan(5).isEmpty());
+        assertTrue(index.lessThan(-1).isEmpty());
+        assertEquals(7, index.greaterThan(-2).cardinality());
+    }
+
+    @Test
+    void testEmptyRanges() {
+        NumericIndex index = index();
+        assertTrue(index.between(3, 2).isEmpty());
+        assertTrue(index.between(2.1, 2.9).isEmpty());
+        assertTrue(index.between(6, 10).isEmpty());
+
+        NumericIndex empty = new NumericIndex(new int[0], new double[0]);
+        assertEquals(0, empty.size());
+        assertTrue(Double.isNaN(empty.getMin()));
+        assertTrue(empty.between(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY).isEmpty());
+        assertTrue(empty.greaterThan(0).isEmpty());
+    }
+
+    @Test
+    void testNaN() {
+        NumericIndex index = index();
+        // The NaN value of row 0 is never selected
+        assertFalse(index.between(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY).contains(0));
+        assertFalse(index.greaterThan(Double.NEGATIVE_INFINITY).contains(0));
+        // NaN bounds select nothing
+        assertTrue(index.between(Double.NaN, 5).isEmpty());
+        assertTrue(index.between(-1, Double.NaN).isEmpty());
+        assertTrue(index.greaterThan(Double.NaN).isEmpty());
+        assertTrue(index.lessThan(Double.NaN).isEmpty());
+
+        NumericIndex allNaN = new NumericIndex(new int[]{0, 1}, new double[]{Double.NaN, Double.NaN});
+        assertEquals(0, allNaN.size());
+        assertTrue(allNaN.lessThan(Double.POSITIVE_INFINITY).isEmpty());
+    }
+
+    @Test
+    void testMismatchedLengths() {
+        assertThrows(IllegalArgumentException.class, () -> new NumericIndex(new int[]{0}, new double[0]));
+    }
+}
@@ -0,0 +1,115 @@
+package com.odbpp.index;
+
+import com.odbpp.model.Component;
+import com.odbpp.model.Components;
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Pad;
+import com.odbpp.model.Step;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniqueIdIndexTest {
+
+    private static Step step(String name, long padId, String componentId) {
+        Features features = new Features();
+        features.addFeature(new Pad());
+        features.addFeature(new Pad());
+        features.getAttributes().setId(1, padId);
+        Layer top = new Layer();
+        top.setName("top");
+        top.setFeatures(features);
+
+        Component component = new Component();
+        component.setCompName("U1");
+        component.setUniqueId(componentId);
+        Components components = new Components();
+        components.getComponents().add(component);
+        Layer comp = new Layer();
+        comp.setName("comp_+_top");
+        comp.setComponents(components);
+
+        Step step = new Step();
+        step.setName(name);
+        step.setLayersByName(new HashMap<>(Map.of("top", top, "comp_+_top", comp)));
+        return step;
+    }
+
+    @Test
+    void testResolvesFeatureAndComponentIds() {
+        Job job = new Job();
+        job.setSteps(new HashMap<>(Map.of("pcb", step("pcb", 1001, "2001"))));
+        UniqueIdIndex index = UniqueIdIndex.build(job);
+
+        assertEquals(2, index.size());
+        UniqueIdIndex.Location pad = index.get(1001);
+        assertEquals("pcb", pad.getStepName());
+        assertEquals("top", pad.getLayerName());
+        assertEquals(UniqueIdIndex.Kind.FEATURE, pad.getKind());
+        assertEquals(1, pad.getIndex());
+        assertSame(job.getSteps().get("pcb").getLayersByName().get("top").getFeatures().getFeatures().get(1), pad.resolve(job));
+
+        UniqueIdIndex.Location component = index.get("2001");
+        assertEquals(UniqueIdIndex.Kind.COMPONENT, component.getKind());
+        assertEquals("U1", ((Component) component.resolve(job)).getCompName());
+        assertNull(index.get(3001));
+    }
+
+    @Test
+    void testAddsLayersLoadedLaterAndKeepsDuplicates() {
+        Job job = new Job();
+        job.setSteps(new HashMap<>(Map.of("pcb", step("pcb", 1001, "x"))));
+        UniqueIdIndex index = UniqueIdIndex.build(job);
+        assertEquals(1, index.size());
+
+        Step panel = step("panel", 1001, "2002");
+        index.addLayer("panel", panel.getLayersByName().get("top"));
+        assertEquals(2, index.getAll(1001).size());
+        assertEquals("pcb", index.get(1001).getStepName());
+        assertEquals("panel", index.getAll(1001).get(1).getStepName());
+        assertEquals(1, index.getDuplicateCount());
+
+        LongIntHashMap map = new LongIntHashMap(-1);
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key * 7919, (int) key);
+        }
+        assertEquals(10_000, map.size());
+        assertEquals(1234, map.get(1234L * 7919));
+        assertEquals(-1, map.get(1));
+    }
+
+    @Test
+    void testManyOccurrencesOfOneIdStayInOrder() {
+        // Panelised copies repeat IDs; appending must not walk the chain for each occurrence
+        Components components = new Components();
+        for (int i = 0; i < 100_000; i++) {
+            Component component = new Component();
+            component.setUniqueId(i % 2 == 0 ? "7" : String.valueOf(1_000_000 + i));
+            components.getComponents().add(component);
+        }
+        Layer comp = new Layer();
+        comp.setName("comp_+_top");
+        comp.setComponents(components);
+        UniqueIdIndex index = new UniqueIdIndex();
+        index.addLayer("panel", comp);
+        index.addLayer("array", comp);
+
+        assertEquals(200_000, index.size());
+        assertEquals(100_000 - 1 + 50_000, index.getDuplicateCount());
+        List<UniqueIdIndex.Location> sevens = index.getAll(7);
+        assertEquals(100_000, sevens.size());
+        for (int i = 0; i < 50_000; i++) {
+            assertEquals("panel", sevens.get(i).getStepName());
+            assertEquals(2 * i, sevens.get(i).getIndex());
+            assertEquals("array", sevens.get(50_000 + i).getStepName());
+            assertEquals(2 * i, sevens.get(50_000 + i).getIndex());
+        }
+        assertEquals(List.of(1, 1), index.getAll(1_000_001).stream().map(UniqueIdIndex.Location::getIndex).toList());
+    }
+}
@@ -0,0 +1,162 @@
+package com.odbpp.ingest;
+
+import com.odbpp.model.Job;
+import com.odbpp.parser.OdbParser;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchIngestTest {
+
+    private static List<String> features(int pads) {
+        List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "$0 r10"));
+        for (int i = 0; i < pads; i++) {
+            lines.add("P " + i + " 0 0 P 0 0");
+        }
+        return lines;
+    }
+
+    private static Path job(Path root, String name, int pads) throws IOException {
+        Path layer = root.resolve(name).resolve("steps/pcb/layers/top");
+        Files.createDirectories(layer);
+        Files.write(layer.resolve("features"), features(pads));
+        return root.resolve(name);
+    }
+
+    private static int padCount(Job job) {
+        return job.getSteps().get("pcb").getLayersByName().get("top").getFeatures().getFeatures().size();
+    }
+
+    @Test
+    void testIngestsDirectoriesAndArchives(@TempDir Path tempDir) throws Exception {
+        Path jobs = tempDir.resolve("jobs");
+        job(jobs, "a", 2);
+        job(jobs, "b", 3);
+        try (OutputStream out = new GzipCompressorOutputStream(Files.newOutputStream(jobs.resolve("c.tgz")));
+             TarArchiveOutputStream tar = new TarArchiveOutputStream(out)) {
+            byte[] data = String.join("\n", features(4)).getBytes(StandardCharsets.UTF_8);
+            TarArchiveEntry entry = new TarArchiveEntry("odb/steps/pcb/layers/top/features");
+            entry.setSize(data.length);
+            tar.putArchiveEntry(entry);
+            tar.write(data);
+            tar.closeArchiveEntry();
+        }
+        Files.createDirectories(jobs.resolve("not-a-job"));
+
+        List<Path> sources = BatchIngest.findJobs(jobs);
+        assertEquals(3, sources.size());
+
+        Map<String, Integer> pads = new ConcurrentHashMap<>();
+        IngestSummary summary = new BatchIngest(1L << 30, 4)
+                .ingest(sources, (source, job) -> pads.put(source.getFileName().toString(), padCount(job)));
+        assertEquals(3, summary.getSucceeded());
+        assertEquals(0, summary.getFailed());
+        assertEquals(Map.of("a", 2, "b", 3, "c.tgz", 4), pads);
+        for (IngestResult result : summary.getResults()) {
+            assertTrue(result.getDiskBytes() > 0);
+            assertTrue(result.getEstimatedBytes() > 0);
+        }
+    }
+
+    @Test
+    void testBudgetLimitsConcurrentJobs(@TempDir Path tempDir) throws Exception {
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            sources.add(job(tempDir, "job" + i, 50));
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        BatchIngest ingest = new BatchIngest(1, 4, jobDir -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return new OdbParser().parse(jobDir);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        IngestSummary summary = ingest.ingest(sources, (source, job) -> { });
+        assertEquals(6, summary.getSucceeded());
+        // Every job exceeds a one byte budget, so each runs alone
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void testRetriesFailedJobAlone(@TempDir Path tempDir) throws Exception {
+        Path flaky = job(tempDir, "flaky", 1);
+        Path good = job(tempDir, "good", 1);
+        Path broken = job(tempDir, "broken", 1);
+        AtomicInteger flakyAttempts = new AtomicInteger();
+        BatchIngest ingest = new BatchIngest(1L << 30, 4, jobDir -> {
+            if (jobDir.endsWith("broken") || jobDir.endsWith("flaky") && flakyAttempts.incrementAndGet() == 1) {
+                throw new IOException("simulated failure");
+            }
+            return new OdbParser().parse(jobDir);
+        });
+        List<IngestResult> reported = new ArrayList<>();
+        ingest.setListener(reported::add);
+        IngestSummary summary = ingest.ingest(List.of(flaky, good, broken), (source, job) -> { });
+
+        assertEquals(2, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertEquals(2, summary.getRetried());
+        assertEquals(3, reported.size());
+        for (IngestResult result : summary.getResults()) {
+            if (result.getSource().equals(good)) {
+                assertEquals(1, result.getAttempts());
+            } else {
+                assertEquals(2, result.getAttempts());
+                assertEquals(result.getSource().equals(flaky) ? IngestResult.Status.OK : IngestResult.Status.FAILED,
+                        result.getStatus());
+            }
+        }
+        assertNotNull(summary.getResults().stream().filter(r -> r.getSource().equals(broken)).findFirst().get().getError());
+    }
+
+    @Test
+    void testParseTimeIsSummedOverAttempts(@TempDir Path tempDir) throws Exception {
+        Path flaky = job(tempDir, "flaky", 1);
+        Path good = job(tempDir, "good", 1);
+        // The clock only moves inside the loader, by 30 ms on a failed attempt and 20 ms on a parse
+        AtomicLong nanos = new AtomicLong();
+        AtomicInteger flakyAttempts = new AtomicInteger();
+        BatchIngest ingest = new BatchIngest(1L << 30, 1, jobDir -> {
+            if (jobDir.endsWith("flaky") && flakyAttempts.incrementAndGet() == 1) {
+                nanos.addAndGet(30_000_000);
+                throw new IOException("simulated failure");
+            }
+            nanos.addAndGet(20_000_000);
+            return new OdbParser().parse(jobDir);
+        });
+        ingest.setClock(nanos::get);
+        IngestSummary summary = ingest.ingest(List.of(flaky, good), (source, job) -> { });
+
+        Map<Path, IngestResult> results = new HashMap<>();
+        summary.getResults().forEach(result -> results.put(result.getSource(), result));
+        assertEquals(50, results.get(flaky).getParseMillis());
+        assertEquals(20, results.get(good).getParseMillis());
+        assertEquals(70, summary.getParseMillis());
+        assertEquals(70, summary.getElapsedMillis());
+        // The retry starts once the first round is done
+        assertEquals(50, results.get(flaky).getWaitMillis());
+    }
+}
@@ -0,0 +1,122 @@
+package com.odbpp.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobSnapshotTest {
+
+    private static Layer layer(String name, int pads) {
+        Features features = new Features();
+        for (int i = 0; i < pads; i++) {
+            features.addFeature(new Pad());
+        }
+        features.getAttributes().setName(0, ".smd");
+        features.getAttributes().add(0, 0, null);
+        Layer layer = new Layer();
+        layer.setName(name);
+        layer.setFeatures(features);
+        return layer;
+    }
+
+    private static Job job() {
+        Step step = new Step();
+        step.setName("pcb");
+        step.setLayersByName(new HashMap<>(Map.of("top", layer("top", 2), "bottom", layer("bottom", 1))));
+        Job job = new Job();
+        job.setSteps(new HashMap<>(Map.of("pcb", step)));
+        return job;
+    }
+
+    @Test
+    void testFreezeMakesCollectionsUnmodifiable() {
+        Job job = job();
+        JobSnapshot snapshot = JobSnapshot.freeze(job);
+
+        Layer top = snapshot.getLayer("pcb", "top");
+        assertEquals(2, top.getFeatures().getFeatures().size());
+        assertSame(job.getSteps().get("pcb").getLayersByName().get("top").getFeatures().getFeatures().get(0),
+                top.getFeatures().getFeatures().get(0));
+        assertThrows(UnsupportedOperationException.class, () -> top.getFeatures().getFeatures().add(new Pad()));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getJob().getSteps().remove("pcb"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getStep("pcb").getLayersByName().clear());
+
+        FeatureAttributes attributes = top.getFeatures().getAttributes();
+        assertTrue(attributes.isSealed());
+        assertTrue(attributes.has(0, ".smd"));
+        assertThrows(IllegalStateException.class, () -> attributes.add(1, 0, null));
+    }
+
+    @Test
+    void testBuilderSharesUnchangedLayers() {
+        JobSnapshot snapshot = JobSnapshot.freeze(job());
+        JobSnapshot edited = snapshot.toBuilder()
+                .putLayer("pcb", layer("inner", 3))
+                .removeLayer("pcb", "top")
+                .build();
+
+        assertSame(snapshot.getLayer("pcb", "bottom"), edited.getLayer("pcb", "bottom"));
+        assertEquals(3, edited.getLayer("pcb", "inner").getFeatures().getFeatures().size());
+        assertNull(edited.getLayer("pcb", "top"));
+        assertNotNull(snapshot.getLayer("pcb", "top"));
+        assertNull(snapshot.getLayer("pcb", "inner"));
+        assertSame(edited.getStep("pcb"), edited.getJob().getSteps().get("pcb"));
+
+        assertThrows(IllegalArgumentException.class, () -> snapshot.toBuilder().putLayer("panel", layer("top", 1)));
+    }
+
+    @Test
+    void testUnchangedSnapshotKeepsHash() {
+        JobSnapshot snapshot = JobSnapshot.freeze(job());
+        JobSnapshot rebuilt = snapshot.toBuilder().build();
+        assertEquals(snapshot.hashCode(), rebuilt.hashCode());
+        assertSame(snapshot.getStep("pcb"), rebuilt.getStep("pcb"));
+    }
+
+    @Test
+    void testContainersRejectSetters() {
+        Job job = job();
+        JobSnapshot snapshot = JobSnapshot.freeze(job);
+        Step step = snapshot.getStep("pcb");
+        Layer top = snapshot.getLayer("pcb", "top");
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getJob().setSteps(new HashMap<>()));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getJob().setMatrix(new Matrix()));
+        assertThrows(UnsupportedOperationException.class, () -> step.setLayersByName(new HashMap<>()));
+        assertThrows(UnsupportedOperationException.class, () -> step.setName("panel"));
+        assertThrows(UnsupportedOperationException.class, () -> top.setFeatures(null));
+        assertThrows(UnsupportedOperationException.class, () -> top.getFeatures().setFeatures(new ArrayList<>()));
+        assertThrows(UnsupportedOperationException.class, () -> top.getFeatures().addFeature(new Pad()));
+        assertEquals("pcb", step.getName());
+        assertNotNull(top.getFeatures());
+
+        // Steps shared through toBuilder stay frozen in both snapshots
+        JobSnapshot edited = snapshot.toBuilder().putLayer("pcb", layer("inner", 1)).build();
+        assertThrows(UnsupportedOperationException.class, () -> edited.getStep("pcb").setLayersByName(new HashMap<>()));
+        assertThrows(UnsupportedOperationException.class, () -> edited.getLayer("pcb", "top").setFeatures(null));
+        assertEquals(2, snapshot.getStep("pcb").getLayersByName().size());
+        assertEquals(3, edited.getStep("pcb").getLayersByName().size());
+    }
+
+    @Test
+    void testSealsACopyOfTheAttributes() {
+        Job job = job();
+        FeatureAttributes source = job.getSteps().get("pcb").getLayersByName().get("top").getFeatures().getAttributes();
+        JobSnapshot snapshot = JobSnapshot.freeze(job);
+        FeatureAttributes sealed = snapshot.getLayer("pcb", "top").getFeatures().getAttributes();
+
+        assertNotSame(source, sealed);
+        assertTrue(sealed.isSealed());
+        assertFalse(source.isSealed());
+        // The source job can still be edited; the snapshot does not see it
+        source.add(1, 0, null);
+        assertTrue(source.has(1, ".smd"));
+        assertFalse(sealed.has(1, ".smd"));
+        assertTrue(sealed.has(0, ".smd"));
+        assertEquals(2, sealed.getFeatureCount());
+    }
+}
@@ -0,0 +1,168 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.AttributeDefinition;
+import com.odbpp.model.AttributeType;
+import com.odbpp.model.Component;
+import com.odbpp.model.ComponentAttribute;
+import com.odbpp.model.Components;
+import com.odbpp.model.MirrorType;
+import com.odbpp.model.PropertyRecord;
+import com.odbpp.model.ToeprintRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentsParserTest {
+
+    private static final String DATA = String.join("\n",
+            "UNITS=INCH",
+            "#",
+            "@0 .comp_height",
+            "@1 .no_pop",
+            "&0 some text",
+            "#",
+            "# CMP 0",
+            "CMP 3 1.25 -0.5 90 N U1 SOIC8_PART;0=0.062,1;ID=42",
+            "PRP VALUE '10 k' 1.5 2",
+            "TOP 0 1.2 -0.45 90 N 4 2 1",
+            "TOP 1 1.3 -0.45 90 N 5 0 2",
+            "#",
+            "CMP 1 0 0 0 M R7 RES_0402",
+            "TOP 0 0.01 0 0 M 6 1 A");
+
+    @Test
+    void parsesComponentsPropertiesAndToeprints() throws IOException {
+        Components components = new ComponentsParser().parse(new StringReader(DATA));
+
+        assertEquals("INCH", components.getUnits());
+        assertEquals(List.of(".comp_height", ".no_pop"), components.getAttributeNames());
+        assertEquals("some text", components.getAttributeTextValues().get(0));
+        assertEquals(2, components.getComponents().size());
+
+        Component u1 = components.getComponents().get(0);
+        assertEquals(3, u1.getPkgRef());
+        assertEquals(1.25, u1.getX());
+        assertEquals(-0.5, u1.getY());
+        assertEquals(90, u1.getRotation());
+        assertEquals(MirrorType.NOT_MIRRORED, u1.getMirror());
+        assertEquals("U1", u1.getCompName());
+        assertEquals("SOIC8_PART", u1.getPartName());
+        assertEquals("42", u1.getUniqueId());
+        assertEquals("0.062", u1.getAttributeValue(0));
+        // Untyped until resolved with the attribute definitions
+        assertNull(u1.getAttributes().get(0).getType());
+        assertTrue(u1.hasAttribute(1));
+        assertEquals(AttributeType.BOOLEAN, u1.getAttributes().get(1).getType());
+
+        PropertyRecord property = u1.getPropertyRecords().get(0);
+        assertEquals("VALUE", property.getName());
+        assertEquals("10 k", property.getValue());
+        assertEquals(List.of(1.5, 2.0), property.getFloatValues());
+
+        assertEquals(2, u1.getToeprintRecords().size());
+        ToeprintRecord pin = u1.getToeprintRecords().get(1);
+        assertEquals(1, pin.getPinNumber());
+        assertEquals(1.3, pin.getX());
+        assertEquals(5, pin.getNetNumber());
+        assertEquals("2", pin.getName());
+
+        Component r7 = components.getComponents().get(1);
+        assertEquals(MirrorType.MIRRORED, r7.getMirror());
+        assertNull(r7.getUniqueId());
+        assertEquals(1, r7.getToeprintRecords().size());
+        assertEquals("A", r7.getToeprintRecords().get(0).getName());
+    }
+
+    @Test
+    void resolvesAttributeTypesFromDefinitions() throws IOException {
+        Components components = new ComponentsParser().parse(new StringReader(String.join("\n",
+                "@0 .comp_height", "@1 .no_pop", "@2 .comp_mount_type", "@3 supplier", "&0 ACME",
+                "CMP 0 0 0 0 N U1 PART;0=2,1,2=1,3=0")));
+        AttributeDefinition height = new AttributeDefinition();
+        height.setType(AttributeType.FLOAT);
+        AttributeDefinition mountType = new AttributeDefinition();
+        mountType.setType(AttributeType.OPTION);
+        mountType.setOptions(List.of("other", "smt", "thmt"));
+        components.resolve(Map.of(".comp_height", height, ".comp_mount_type", mountType), Map.of());
+
+        List<ComponentAttribute> attributes = components.getComponents().get(0).getAttributes();
+        // An integer-looking value is still FLOAT when the definition says so
+        assertEquals(AttributeType.FLOAT, attributes.get(0).getType());
+        assertEquals("2", attributes.get(0).getValue());
+        assertEquals(AttributeType.BOOLEAN, attributes.get(1).getType());
+        assertEquals(AttributeType.OPTION, attributes.get(2).getType());
+        // No user attribute definition: left untyped rather than guessed
+        assertNull(attributes.get(3).getType());
+        assertEquals("0", attributes.get(3).getValue());
+    }
+
+    @Test
+    void streamsComponentsToVisitor() throws IOException {
+        Path file = Files.createTempFile("components", "");
+        try {
+            Files.writeString(file, DATA, StandardCharsets.ISO_8859_1);
+            List<String> names = new ArrayList<>();
+            List<Integer> toeprints = new ArrayList<>();
+            Components header = new ComponentsParser().parse(file, component -> {
+                names.add(component.getCompName());
+                toeprints.add(component.getToeprintRecords().size());
+            });
+
+            assertEquals(List.of("U1", "R7"), names);
+            assertEquals(List.of(2, 1), toeprints);
+            assertTrue(header.getComponents().isEmpty());
+            assertEquals("INCH", header.getUnits());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void skipsMalformedRecordsAndAttributes() throws IOException {
+        String data = String.join("\n",
+                "UNITS=INCH",
+                "@x bad",
+                "@0 .comp_height",
+                "CMP 0 1 1 0 N U1 PART;0=0.1,x,1.5=2,,1;ID=7",
+                "PRP VALUE '1k' 1 oops",
+                "TOP 0 1 1 0 N 2 0 1",
+                "TOP 1 one 1 0 N 3 0 2",
+                "CMP 0 two 1 0 N U2 PART",
+                "TOP 0 2 1 0 N 4 0 1",
+                "CMP 0 3 1 0 N U3",
+                "CMP 0 4 1 0 N U4 PART");
+        Components components = new ComponentsParser().parse(new StringReader(data));
+        assertEquals(List.of(".comp_height"), components.getAttributeNames());
+        assertEquals(3, components.getComponents().size());
+
+        Component u1 = components.getComponents().get(0);
+        assertEquals("U1", u1.getCompName());
+        assertEquals(2, u1.getAttributes().size());
+        assertEquals(0, u1.getAttributes().get(0).getAttributeIndex());
+        assertEquals(1, u1.getAttributes().get(1).getAttributeIndex());
+        assertEquals("7", u1.getUniqueId());
+        assertTrue(u1.getPropertyRecords().isEmpty());
+        assertEquals(1, u1.getToeprintRecords().size());
+        assertEquals("U3", components.getComponents().get(1).getCompName());
+
+        // The filter skips the short U3 record instead of reading past its tokens
+        List<String> names = new ArrayList<>();
+        Path file = Files.createTempFile("components", "");
+        try {
+            Files.writeString(file, data, StandardCharsets.ISO_8859_1);
+            new ComponentsParser().parse(file, (x, y, compName, partName) -> x > 0, c -> names.add(c.getCompName()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        assertEquals(List.of("U1", "U4"), names);
+    }
+}
@@ -0,0 +1,173 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.BoardSide;
+import com.odbpp.model.EdaData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdaDataParserTest {
+
+    private static final String DATA = String.join("\n",
+            "HDR Mentor",
+            "UNITS=INCH",
+            "LYR top bottom drill",
+            "#",
+            "@0 .no_tie",
+            "@1 .comp_height",
+            "&0 some text",
+            "#",
+            "# NET 0",
+            "NET GND;0;ID=17",
+            "PRP NET_CLASS 'power plane' 1.5",
+            "SNT TOP T 3 1;ID=18",
+            "FID C 0 12",
+            "SNT VIA",
+            "FID C 0 40",
+            "FID H 2 5",
+            "FID C 1 7",
+            "SNT PLN S C 0.01",
+            "FID C 1 2",
+            "FGR TEXT",
+            "FID C 0 99",
+            "NET VCC",
+            "SNT TRC",
+            "FID C 0 41",
+            "PKG SOIC8 0.05 -0.1 -0.2 0.1 0.2;1=0.06;ID=30",
+            "RC -0.1 -0.2 0.2 0.4",
+            "PIN 1 S -0.075 0.1 0 E S ID=31",
+            "CR -0.075 0.1 0.01",
+            "PIN 2 S -0.025 0.1 0 E S ID=32",
+            "CT",
+            "OB 0 0 I",
+            "OS 1 0",
+            "OC 0 0 0.5 0 Y",
+            "OE",
+            "CE");
+
+    private EdaDataParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new EdaDataParser();
+    }
+
+    @Test
+    void testParseHeaderAndTables() throws IOException {
+        EdaData eda = parser.parse(new StringReader(DATA));
+
+        assertEquals("Mentor", eda.getSource());
+        assertEquals("INCH", eda.getUnits());
+        assertEquals(3, eda.getLayerNames().size());
+        assertEquals(".comp_height", eda.getAttributeNames().get(1));
+        assertEquals("some text", eda.getAttributeTextValues().get(0));
+    }
+
+    @Test
+    void testParseNetsSubnetsAndFids() throws IOException {
+        EdaData eda = parser.parse(new StringReader(DATA));
+
+        assertEquals(2, eda.getNetRecords().size());
+        EdaData.NetRecord gnd = eda.getNetRecordsByName().get("GND");
+        assertEquals(17, gnd.getId());
+        assertTrue(gnd.getAttributes().containsKey(".no_tie"));
+        assertEquals("power plane", gnd.getPropertyRecords().get(0).getValue());
+        assertEquals(1.5, gnd.getPropertyRecords().get(0).getFloatValues().get(0), 1e-9);
+
+        assertEquals(3, gnd.getSubnetRecords().size());
+        EdaData.SubnetRecord toeprint = gnd.getSubnetRecords().get(0);
+        assertEquals(EdaData.SubnetRecord.Type.TOEPRINT, toeprint.getType());
+        assertEquals(BoardSide.TOP, toeprint.getSide());
+        assertEquals(3, toeprint.getComponentNumber());
+        assertEquals(1, toeprint.getToeprintNumber());
+        assertEquals(18, toeprint.getId());
+
+        EdaData.SubnetRecord via = gnd.getSubnetRecords().get(1);
+        assertEquals(3, via.getFidCount());
+        assertEquals(EdaData.FidType.HOLE, eda.getFidType(via.getFidStart() + 1));
+        assertEquals("drill", eda.getFidLayerName(via.getFidStart() + 1));
+        assertEquals(5, eda.getFidFeatures()[via.getFidStart() + 1]);
+
+        EdaData.SubnetRecord plane = gnd.getSubnetRecords().get(2);
+        assertEquals("S", plane.getFillType());
+        assertEquals(0.01, plane.getFillSize(), 1e-9);
+
+        // The feature group FID is not part of any subnet
+        assertEquals(6, eda.getFidCount());
+        assertArrayEquals(new int[]{0, 5, 6}, eda.getNetFidOffsets());
+    }
+
+    @Test
+    void testParsePackagesPinsAndOutlines() throws IOException {
+        EdaData eda = parser.parse(new StringReader(DATA));
+
+        EdaData.PackageRecord soic = eda.getPackageRecordsByName().get("SOIC8");
+        assertEquals(0.05, soic.getPitch(), 1e-9);
+        assertEquals(0.2, soic.getYMax(), 1e-9);
+        assertEquals(30, soic.getId());
+        assertEquals("0.06", soic.getAttributes().get(".comp_height"));
+        assertEquals(EdaData.Outline.Type.RECTANGLE, soic.getOutlines().get(0).getType());
+
+        assertEquals(2, soic.getPinRecords().size());
+        EdaData.PinRecord pin1 = soic.getPinRecordsByName().get("1");
+        assertEquals("S", pin1.getType());
+        assertEquals(-0.075, pin1.getXCenter(), 1e-9);
+        assertEquals("E", pin1.getElectricalType());
+        assertEquals(31, pin1.getId());
+        assertEquals(EdaData.Outline.Type.CIRCLE, pin1.getOutlines().get(0).getType());
+
+        EdaData.Outline contour = soic.getPinRecords().get(1).getOutlines().get(0);
+        assertEquals(EdaData.Outline.Type.CONTOUR, contour.getType());
+        assertEquals(2, contour.getPolygons().get(0).getPolygonParts().size());
+    }
+
+    @Test
+    void testSkipsUnknownAndMalformedRecords() throws IOException {
+        EdaData eda = parser.parse(new StringReader(String.join("\n",
+                "HDR Mentor",
+                "U MM",
+                "LYR top",
+                "@x .bad_index",
+                "@0 .no_tie",
+                "NET GND;ID=abc",
+                "SNT XYZ 1 2",
+                "FID C 0 1",
+                "SNT TOP T x 1",
+                "FID C 0 2",
+                "SNT VIA",
+                "FID Q 0 3",
+                "FID C 0 x",
+                "FID C 0 4",
+                "PKG BAD 0.05 a b c d",
+                "PIN 1 S 0 0 0 E S ID=1",
+                "PKG GOOD 0.05 -0.1 -0.2 0.1 0.2",
+                "PIN 1 S 0 0 0 E S ID=x",
+                "PIN 2 S 0 y 0 E S ID=3",
+                "PIN 3 S 0 0 0 E S ID=4")));
+        assertEquals("MM", eda.getUnits());
+        assertEquals(List.of(".no_tie"), eda.getAttributeNames());
+
+        EdaData.NetRecord gnd = eda.getNetRecordsByName().get("GND");
+        assertEquals(-1, gnd.getId());
+        // The unknown and the malformed subnet are dropped with their FIDs; of the VIA, bad FIDs are skipped
+        assertEquals(1, gnd.getSubnetRecords().size());
+        EdaData.SubnetRecord via = gnd.getSubnetRecords().get(0);
+        assertEquals(EdaData.SubnetRecord.Type.VIA, via.getType());
+        assertEquals(1, via.getFidCount());
+        assertEquals(1, eda.getFidCount());
+        assertEquals(4, eda.getFidFeatures()[via.getFidStart()]);
+
+        assertEquals(1, eda.getPackageRecords().size());
+        EdaData.PackageRecord good = eda.getPackageRecords().get(0);
+        assertEquals("GOOD", good.getName());
+        assertEquals(List.of("1", "3"), good.getPinRecords().stream().map(EdaData.PinRecord::getName)
+                .collect(Collectors.toList()));
+        assertEquals(4, good.getPinRecordsByName().get("3").getId());
+    }
+}
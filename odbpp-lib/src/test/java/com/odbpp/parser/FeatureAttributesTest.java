@@ -0,0 +1,84 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.AttributeDefinition;
+import com.odbpp.model.AttributeType;
+import com.odbpp.model.FeatureAttributes;
+import com.odbpp.model.Features;
+import com.odbpp.model.Line;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureAttributesTest {
+
+    private static final List<String> DATA = List.of(
+            "UNITS=INCH",
+            "$0 r10",
+            "@0 .smd",
+            "@1 .geometry",
+            "@2 .fiducial",
+            "@3 .string",
+            "&0 pad_geometry",
+            "P 1 1 0 P 0 0;0,1=0",
+            "L 0 0 1 1 0 P 0;ID=77",
+            "P 2 2 0 P 0 0;2,3=0;ID=78",
+            "P 3 3 0 P 0 0;0,1=0");
+
+    @Test
+    void decodesAllAssignmentsIntoLayerStore(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("features");
+        Files.write(file, DATA);
+        Features features = new FeaturesFileParser().parse(file);
+        FeatureAttributes attributes = features.getAttributes();
+
+        assertEquals(4, attributes.getFeatureCount());
+        assertEquals(List.of(".smd", ".geometry", ".fiducial", ".string"), attributes.getNames());
+        assertEquals(2, attributes.getAttributeCount(0));
+        assertEquals(0, attributes.getAttributeCount(1));
+        assertArrayEquals(new int[]{0, 3}, attributes.featuresWith(".smd"));
+        assertArrayEquals(new int[]{2}, attributes.featuresWith(".fiducial"));
+        assertEquals(0, attributes.featuresWith(".missing").length);
+        assertEquals("", attributes.getRawValue(0, ".smd"));
+        assertNull(attributes.getRawValue(1, ".smd"));
+        assertEquals("77", ((Line) features.getFeatures().get(1)).getUniqueId());
+        assertEquals(78, features.getFeatures().get(2).getId());
+        assertEquals(77, attributes.getId(1));
+        assertEquals(-1, attributes.getId(0));
+
+        AttributeDefinition geometry = new AttributeDefinition();
+        geometry.setType(AttributeType.OPTION);
+        geometry.setOptions(List.of("round", "square"));
+        AttributeDefinition string = new AttributeDefinition();
+        string.setType(AttributeType.TEXT);
+        attributes.resolve(Map.of(".geometry", geometry, ".string", string), null);
+
+        assertEquals(AttributeType.OPTION, attributes.getType(1));
+        assertNull(attributes.getType(0));
+        assertEquals("round", attributes.getText(0, ".geometry"));
+        assertEquals("pad_geometry", attributes.getText(2, ".string"));
+        assertEquals(0.0, attributes.getNumber(3, ".geometry"));
+        assertTrue(Double.isNaN(attributes.getNumber(3, ".smd")));
+    }
+
+    @Test
+    void skipsMalformedAssignments(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("features");
+        Files.write(file, List.of("UNITS=INCH", "$0 r10", "@0 .smd", "@1 .string",
+                "P 1 1 0 P 0 0;x,0,1.5=a,-1,99999999999,1=v",
+                "P 2 2 0 P 0 0;=3,,0"));
+        Features features = new FeaturesFileParser().parse(file);
+        assertEquals(2, features.getFeatures().size());
+        FeatureAttributes attributes = features.getAttributes();
+        assertEquals(2, attributes.getAttributeCount(0));
+        assertEquals("", attributes.getRawValue(0, ".smd"));
+        assertEquals("v", attributes.getRawValue(0, ".string"));
+        assertArrayEquals(new int[]{0, 1}, attributes.featuresWith(".smd"));
+    }
+}
@@ -0,0 +1,122 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.Barcode;
+import com.odbpp.model.Feature;
+import com.odbpp.model.Features;
+import com.odbpp.model.Pad;
+import com.odbpp.model.Surface;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureSpliteratorTest {
+
+    // Pads and multi-line surfaces, with attributes and IDs
+    private static Path writeFeatures(Path dir, int records) throws IOException {
+        List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "$0 r10", "@0 .smd", "&0 text"));
+        for (int i = 0; i < records; i++) {
+            if (i % 10 == 0) {
+                lines.addAll(List.of("S P 0;0;ID=" + i, "OB 0 0 I", "OS 1 0", "OS 1 1", "OS 0 1", "OE", "SE"));
+            } else {
+                lines.add("P " + i + " 0 0 P 0 0;0;ID=" + i);
+            }
+        }
+        Path file = dir.resolve("features");
+        Files.write(file, lines);
+        return file;
+    }
+
+    @Test
+    void testMatchesParser(@TempDir Path tempDir) throws IOException {
+        Path file = writeFeatures(tempDir, 500);
+        Features parsed = new FeaturesFileParser().parse(file);
+        try (Stream<Feature> stream = new FeaturesFileParser().stream(file)) {
+            List<Feature> streamed = stream.collect(Collectors.toList());
+            assertEquals(parsed.getFeatures().size(), streamed.size());
+            for (int i = 0; i < streamed.size(); i++) {
+                assertSame(parsed.getFeatures().get(i).getClass(), streamed.get(i).getClass());
+                assertEquals(parsed.getFeatures().get(i).getId(), streamed.get(i).getId());
+            }
+            assertEquals(3.0, ((Pad) streamed.get(3)).getX());
+        }
+    }
+
+    @Test
+    void testSplitsAtRecordBoundaries(@TempDir Path tempDir) throws IOException {
+        Path file = writeFeatures(tempDir, 5000);
+        FeaturesFileParser parser = new FeaturesFileParser();
+        FeatureSpliterator spliterator = new FeatureSpliterator(parser, file, 1024);
+        try {
+            List<Spliterator<Feature>> parts = new ArrayList<>(List.of(spliterator));
+            for (int round = 0; round < 4; round++) {
+                List<Spliterator<Feature>> next = new ArrayList<>();
+                for (Spliterator<Feature> part : parts) {
+                    Spliterator<Feature> prefix = part.trySplit();
+                    if (prefix != null) {
+                        next.add(prefix);
+                    }
+                    next.add(part);
+                }
+                parts = next;
+            }
+            assertEquals(16, parts.size());
+
+            List<Feature> features = new ArrayList<>();
+            for (Spliterator<Feature> part : parts) {
+                part.forEachRemaining(features::add);
+            }
+            assertEquals(5000, features.size());
+            for (int i = 0; i < features.size(); i++) {
+                assertEquals(i, features.get(i).getId());
+                assertEquals(i % 10 == 0, features.get(i) instanceof Surface);
+            }
+            assertEquals(3, ((Surface) features.get(4990)).getPolygons().get(0).getPolygonParts().size());
+        } finally {
+            spliterator.close();
+        }
+    }
+
+    @Test
+    void testParallelStream(@TempDir Path tempDir) throws IOException {
+        Path file = writeFeatures(tempDir, 20000);
+        FeatureSpliterator spliterator = new FeatureSpliterator(new FeaturesFileParser(), file, 4096);
+        try (Stream<Feature> stream = StreamSupport.stream(spliterator, true).onClose(spliterator::close)) {
+            List<Feature> pads = stream.filter(f -> f instanceof Pad).collect(Collectors.toList());
+            assertEquals(18000, pads.size());
+            assertEquals(1, ((Pad) pads.get(0)).getX());
+            assertEquals(19999, ((Pad) pads.get(pads.size() - 1)).getX());
+        }
+    }
+
+    @Test
+    void testDecodesTheAttributesOfEachRecord(@TempDir Path tempDir) throws IOException {
+        List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "@0 .smd", "@1 .string"));
+        for (int i = 0; i < 3000; i++) {
+            lines.add("B " + i + " 0 UPC39 standard P 0 E 1 1 Y N Y N T 'X';" + (i % 2) + "=v" + i + ";ID=" + i);
+        }
+        Path file = tempDir.resolve("features");
+        Files.write(file, lines);
+        FeatureSpliterator spliterator = new FeatureSpliterator(new FeaturesFileParser(), file, 4096);
+        try (Stream<Feature> stream = StreamSupport.stream(spliterator, true).onClose(spliterator::close)) {
+            List<Feature> barcodes = stream.collect(Collectors.toList());
+            assertEquals(3000, barcodes.size());
+            for (int i = 0; i < barcodes.size(); i++) {
+                Barcode barcode = (Barcode) barcodes.get(i);
+                assertEquals(i, barcode.getId());
+                assertEquals(i % 2, barcode.getAtr());
+                assertEquals("v" + i, barcode.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.Feature;
+import com.odbpp.model.FeatureAttributes;
+import com.odbpp.model.Features;
+import com.odbpp.model.Pad;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeaturesReaderTest {
+
+    private static Path writeFeatures(Path dir, int records) throws IOException {
+        List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "$0 r10", "@0 .smd", "@1 .string"));
+        for (int i = 0; i < records; i++) {
+            lines.add("P " + i + " 0 0 P 0 0;0,1=v" + i + ";ID=" + (100 + i));
+        }
+        Path file = dir.resolve("features");
+        Files.write(file, lines);
+        return file;
+    }
+
+    @Test
+    void testKeepsOnlyTheCurrentRecordsAttributes(@TempDir Path tempDir) throws IOException {
+        Path file = writeFeatures(tempDir, 1000);
+        try (FeaturesReader reader = new FeaturesFileParser().open(file)) {
+            FeatureAttributes attributes = reader.getHeader().getAttributes();
+            int read = 0;
+            for (Feature feature = reader.next(); feature != null; feature = reader.next()) {
+                assertEquals(read, reader.getIndex());
+                assertEquals(1, attributes.getFeatureCount());
+                assertEquals(2, attributes.size());
+                assertTrue(attributes.has(0, ".smd"));
+                assertEquals("v" + read, attributes.getRawValue(0, ".string"));
+                assertEquals(100 + read, attributes.getId(0));
+                assertEquals(1, attributes.getIdCount());
+                read++;
+            }
+            assertEquals(1000, read);
+            assertEquals(List.of(".smd", ".string"), attributes.getNames());
+        }
+    }
+
+    @Test
+    void testParseKeepsAllAttributes(@TempDir Path tempDir) throws IOException {
+        Features features = new FeaturesFileParser().parse(writeFeatures(tempDir, 50));
+        FeatureAttributes attributes = features.getAttributes();
+        assertEquals(50, attributes.getFeatureCount());
+        assertEquals(100, attributes.size());
+        assertEquals("v42", attributes.getRawValue(42, ".string"));
+        assertEquals(142, attributes.getId(42));
+    }
+
+    @Test
+    void testFilteredIndicesMatchParse(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("features");
+        Files.write(file, List.of("UNITS=INCH", "$0 r10", "$1 s20",
+                "P 0 0 1 P 0 0", "P bad", "L 0 0 1 1 1 P 0", "P 1 0 0 P 0 0", "L broken", "P 2 0 0 P 0 0"));
+        Features parsed = new FeaturesFileParser().parse(file);
+        assertEquals(4, parsed.getFeatures().size());
+
+        RecordFilter filter = new RecordFilter().kinds(EnumSet.of(RecordFilter.Kind.PAD)).symbols("r10"::equals);
+        List<Integer> indices = new ArrayList<>();
+        try (FeaturesReader reader = new FeaturesFileParser().open(file, filter)) {
+            for (Feature feature = reader.next(); feature != null; feature = reader.next()) {
+                assertSame(Pad.class, feature.getClass());
+                assertEquals(((Pad) feature).getX(), ((Pad) parsed.getFeatures().get(reader.getIndex())).getX());
+                indices.add(reader.getIndex());
+            }
+            assertEquals(4, reader.getCount());
+        }
+        assertEquals(List.of(2, 3), indices);
+    }
+}
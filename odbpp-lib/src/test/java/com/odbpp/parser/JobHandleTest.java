@@ -0,0 +1,100 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobHandleTest {
+
+    private static void writeJob(Path root, int layers) throws IOException {
+        for (int layer = 0; layer < layers; layer++) {
+            Path dir = root.resolve("steps/pcb/layers/l" + layer);
+            Files.createDirectories(dir);
+            List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "$0 r10"));
+            for (int i = 0; i < 10; i++) {
+                lines.add("P " + i + " 0 0 P 0 0");
+            }
+            Files.write(dir.resolve("features"), lines);
+        }
+    }
+
+    @Test
+    void testCompletesLayersAndJob(@TempDir Path tempDir) throws Exception {
+        writeJob(tempDir, 3);
+        AtomicInteger tasks = new AtomicInteger();
+        JobHandle handle = new OdbParser(2).parseAsync(tempDir, (done, total) -> tasks.incrementAndGet());
+
+        CompletableFuture<Layer> layer = handle.layer("pcb", "l1");
+        assertEquals(10, layer.get(10, TimeUnit.SECONDS).getFeatures().getFeatures().size());
+        Job job = handle.job().get(10, TimeUnit.SECONDS);
+        assertSame(layer.get(), job.getSteps().get("pcb").getLayersByName().get("l1"));
+        assertSame(job.getSteps().get("pcb"), handle.step("pcb").get());
+        assertEquals(List.of("l0", "l1", "l2"), handle.layout().get().get("pcb"));
+        assertEquals(3, tasks.get());
+        assertEquals(1, handle.getProgress());
+    }
+
+    @Test
+    void testUnknownPartsFail(@TempDir Path tempDir) throws Exception {
+        writeJob(tempDir, 1);
+        JobHandle handle = new OdbParser(1).parseAsync(tempDir);
+        CompletableFuture<Layer> missing = handle.layer("pcb", "nope");
+        handle.job().get(10, TimeUnit.SECONDS);
+
+        ExecutionException e = assertThrows(ExecutionException.class, missing::get);
+        assertInstanceOf(NoSuchElementException.class, e.getCause());
+        assertTrue(handle.step("panel").isCompletedExceptionally());
+        assertTrue(handle.symbol("r10").isCompletedExceptionally());
+    }
+
+    @Test
+    void testCancelSkipsRemainingLayers(@TempDir Path tempDir) throws Exception {
+        writeJob(tempDir, 20);
+        AtomicInteger tasks = new AtomicInteger();
+        JobHandle[] handle = new JobHandle[1];
+        CompletableFuture<Void> started = new CompletableFuture<>();
+        CountDownLatch cancelled = new CountDownLatch(1);
+        handle[0] = new OdbParser(1).parseAsync(tempDir, (done, total) -> {
+            tasks.incrementAndGet();
+            started.join();
+            handle[0].cancel();
+            cancelled.countDown();
+        });
+        started.complete(null);
+
+        assertThrows(CancellationException.class, () -> handle[0].job().get(10, TimeUnit.SECONDS));
+        assertTrue(handle[0].isCancelled());
+        assertTrue(handle[0].step("pcb").isCancelled());
+        // The single worker checks for cancellation before each task, so none starts after the first
+        assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        assertEquals(1, tasks.get());
+    }
+
+    @Test
+    void testErrorFailsTheHandle(@TempDir Path tempDir) throws Exception {
+        writeJob(tempDir, 3);
+        JobHandle handle = new OdbParser(1).parseAsync(tempDir, (done, total) -> {
+            throw new StackOverflowError("simulated");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> handle.job().get(10, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, e.getCause());
+        assertTrue(handle.step("pcb").isDone());
+    }
+}
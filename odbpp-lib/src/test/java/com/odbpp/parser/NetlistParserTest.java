@@ -0,0 +1,93 @@
+package com.odbpp.parser;
+
+import com.odbpp.analysis.NetlistComparator;
+import com.odbpp.analysis.NetlistComparison;
+import com.odbpp.model.NetPoints;
+import com.odbpp.model.Netlist;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetlistParserTest {
+
+    private static final String CADNET = String.join("\n",
+            "H optimize n staggered y",
+            "UNITS=INCH",
+            "$0 GND",
+            "$1 VCC",
+            "$2 SIG",
+            "#",
+            "#Netlist points",
+            "0 0.01 1.0 1.0 T e e",
+            "0 0.01 2.0 1.0 B m c",
+            "1 0 3.0 1.0 D 0.02 0.03 e p",
+            "2 0.01 4.0 1.0 T e e",
+            "2 0.01 5.0 1.0 T e e");
+
+    @Test
+    void testParsesPointsIntoColumns() throws IOException {
+        Netlist netlist = new NetlistParser().parse(new StringReader(CADNET));
+
+        assertTrue(netlist.isStaggered());
+        assertFalse(netlist.isOptimized());
+        assertEquals("INCH", netlist.getUnits());
+        assertEquals("VCC", netlist.getNetName(1));
+        NetPoints points = netlist.getPoints();
+        assertEquals(5, points.size());
+        assertEquals(2.0, points.getX(1));
+        assertEquals('B', points.getSide(1));
+        assertFalse(points.isEndPoint(1));
+        assertEquals('c', points.getExposure(1));
+        assertEquals(0.02, points.getWidth(2));
+        assertEquals(0.03, points.getHeight(2));
+        assertEquals('p', points.getExposure(2));
+        assertTrue(Double.isNaN(points.getWidth(0)));
+    }
+
+    @Test
+    void testNetNamesThatRepeatTheSerial() throws IOException {
+        Netlist netlist = new NetlistParser().parse(new StringReader(String.join("\n",
+                "$0 NET 0", "$1 1", "$10 0", "$11  A  B ", "$12")));
+
+        assertEquals(List.of("NET 0", "1", "0", "A  B", ""),
+                netlist.getNets().stream().map(Netlist.Net::getName).toList());
+        assertEquals(10, netlist.getNets().get(2).getSerialNum());
+        assertEquals("0", netlist.getNetName(10));
+        assertEquals("1", netlist.getNetName(1));
+    }
+
+    @Test
+    void testComparisonReportsShortsAndOpens() throws IOException {
+        Netlist cadnet = new NetlistParser().parse(new StringReader(CADNET));
+        // GND and VCC joined in net A, SIG split across B and C, one point missing, one extra
+        Netlist other = new NetlistParser().parse(new StringReader(String.join("\n",
+                "UNITS=MM",
+                "$0 A",
+                "$1 B",
+                "$2 C",
+                "0 0 25.4 25.4 T e e",
+                "0 0 50.8 25.4 T e e",
+                "0 0 76.2 25.40001 T e e",
+                "1 0 101.6 25.4 T e e",
+                "2 0 127.0 25.4 T e e",
+                "2 0 200.0 25.4 T e e")));
+
+        NetlistComparison comparison = new NetlistComparator().compare(cadnet, other);
+
+        assertEquals(5, comparison.getMatchedPointCount());
+        assertEquals(1, comparison.getShorts().size());
+        assertEquals("A", comparison.getShorts().get(0).getNet());
+        assertEquals(List.of("GND", "VCC"), comparison.getShorts().get(0).getNets());
+        assertEquals(1, comparison.getOpens().size());
+        assertEquals("SIG", comparison.getOpens().get(0).getNet());
+        assertEquals(List.of("B", "C"), comparison.getOpens().get(0).getNets());
+        assertArrayEquals(new int[]{5}, comparison.getUnmatchedOtherPoints());
+        assertFalse(comparison.isEquivalent());
+
+        assertTrue(new NetlistComparator().compare(cadnet, cadnet).isEquivalent());
+    }
+}
@@ -0,0 +1,107 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.Job;
+import com.odbpp.model.Step;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseSchedulerTest {
+
+    @Test
+    void testDispatchesLargestFirst() throws IOException {
+        ParseScheduler scheduler = new ParseScheduler(1);
+        List<Long> order = new ArrayList<>();
+        for (long size : new long[]{10, 500, 1, 70}) {
+            scheduler.add(size, () -> order.add(size));
+        }
+        ParseScheduler.Report report = scheduler.run();
+        assertEquals(List.of(500L, 70L, 10L, 1L), order);
+        assertEquals(4, report.getTaskCount());
+        assertEquals(1, report.getWorkers());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void testRunsAllTasksBeforeReportingFailure() {
+        ParseScheduler scheduler = new ParseScheduler(3);
+        List<Integer> done = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            int task = i;
+            scheduler.add(i, () -> {
+                if (task == 5) {
+                    throw new IOException("task 5");
+                }
+                done.add(task);
+            });
+        }
+        IOException e = assertThrows(IOException.class, scheduler::run);
+        assertEquals("task 5", e.getMessage());
+        assertEquals(9, done.size());
+    }
+
+    @Test
+    void testRecordsErrorsOfWorkerThreads() {
+        ParseScheduler scheduler = new ParseScheduler(3);
+        List<Integer> done = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            int task = i;
+            scheduler.add(i, () -> {
+                if (task == 9 || task == 2) {
+                    throw new OutOfMemoryError("task " + task);
+                }
+                done.add(task);
+            });
+        }
+        OutOfMemoryError e = assertThrows(OutOfMemoryError.class, scheduler::run);
+        // Largest first, so task 9 is the first failure
+        assertEquals("task 9", e.getMessage());
+        assertEquals("task 2", e.getSuppressed()[0].getMessage());
+        assertEquals(8, done.size());
+    }
+
+    @Test
+    void testParsesLayersOfAllSteps(@TempDir Path tempDir) throws IOException {
+        for (String step : new String[]{"pcb", "panel"}) {
+            for (int layer = 0; layer < 5; layer++) {
+                Path dir = tempDir.resolve("steps/" + step + "/layers/l" + layer);
+                Files.createDirectories(dir);
+                List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "$0 r10"));
+                for (int i = 0; i < layer * 10; i++) {
+                    lines.add("P " + i + " 0 0 P 0 0");
+                }
+                Files.write(dir.resolve("features"), lines);
+            }
+        }
+        OdbParser parser = new OdbParser(4);
+        Job job = parser.parse(tempDir);
+        for (Step step : job.getSteps().values()) {
+            assertEquals(5, step.getLayersByName().size());
+            assertEquals(40, step.getLayersByName().get("l4").getFeatures().getFeatures().size());
+        }
+        assertEquals(10, parser.getLastReport().getTaskCount());
+        assertEquals(4, parser.getLastReport().getWorkers());
+        assertTrue(parser.getLastReport().getParallelEfficiency() > 0);
+    }
+
+    @Test
+    void testUnreadableEdaDataDoesNotFailTheStep(@TempDir Path tempDir) throws IOException {
+        Path layer = tempDir.resolve("steps/pcb/layers/top");
+        Files.createDirectories(layer);
+        Files.write(layer.resolve("features"), List.of("UNITS=INCH", "$0 r10", "P 0 0 0 P 0 0"));
+        // A directory where the file should be cannot be read
+        Files.createDirectories(tempDir.resolve("steps/pcb/eda/data"));
+
+        Step step = new OdbParser(2).parse(tempDir).getSteps().get("pcb");
+        assertNull(step.getEdaData());
+        assertEquals(1, step.getLayersByName().get("top").getFeatures().getFeatures().size());
+    }
+}
@@ -0,0 +1,72 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.StepHdr;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StepHdrParserTest {
+
+    @Test
+    void testParseStepRepeats(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("stephdr");
+        Files.write(file, List.of(
+                "UNITS=MM",
+                "X_DATUM=1.5",
+                "Y_DATUM=-2",
+                "X_ORIGIN=0",
+                "Y_ORIGIN=0",
+                "ID=42",
+                "STEP-REPEAT {",
+                "    NAME=pcb",
+                "    X=10",
+                "    Y=20",
+                "    DX=50.5",
+                "    DY=60",
+                "    NX=4",
+                "    NY=2",
+                "    ANGLE=270",
+                "    FLIP=YES",
+                "    MIRROR=NO",
+                "}",
+                "STEP-REPEAT {",
+                "    NAME=coupon",
+                "    X=0",
+                "    Y=0",
+                "    ANGLE=45.5",
+                "    MIRROR=YES",
+                "}"));
+        StepHdr hdr = new StepHdrParser().parse(file);
+        assertEquals("MM", hdr.getUnits());
+        assertEquals(1.5, hdr.getXDatum());
+        assertEquals(-2, hdr.getYDatum());
+        assertEquals(42, hdr.getId());
+        assertEquals(2, hdr.getStepRepeats().size());
+
+        StepHdr.StepRepeat pcb = hdr.getStepRepeats().get(0);
+        assertEquals("pcb", pcb.getName());
+        assertEquals(10, pcb.getX());
+        assertEquals(20, pcb.getY());
+        assertEquals(50.5, pcb.getDx());
+        assertEquals(60, pcb.getDy());
+        assertEquals(4, pcb.getNx());
+        assertEquals(2, pcb.getNy());
+        assertEquals(270, pcb.getAngle());
+        assertTrue(pcb.isFlip());
+        assertFalse(pcb.isMirror());
+
+        StepHdr.StepRepeat coupon = hdr.getStepRepeats().get(1);
+        assertEquals(45.5, coupon.getAngle());
+        assertFalse(coupon.isFlip());
+        assertTrue(coupon.isMirror());
+        // Missing counts mean a single placement
+        assertEquals(1, coupon.getNx());
+        assertEquals(1, coupon.getNy());
+    }
+}
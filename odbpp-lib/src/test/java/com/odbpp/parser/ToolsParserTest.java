@@ -0,0 +1,147 @@
+package com.odbpp.parser;
+
+import com.odbpp.model.DrillTool;
+import com.odbpp.model.DrillTools;
+import com.odbpp.model.Features;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolsParserTest {
+
+    private static final String TOOLS = String.join("\n",
+            "UNITS=INCH",
+            "THICKNESS=0.062",
+            "USER_PARAMS=",
+            "TOOLS {",
+            "    NUM=1",
+            "    TYPE=PLATED",
+            "    TYPE2=STANDARD",
+            "    MIN_TOL=0",
+            "    MAX_TOL=3",
+            "    BIT=",
+            "    FINISH_SIZE=12",
+            "    DRILL_SIZE=16",
+            "}",
+            "TOOLS {",
+            "    NUM=2",
+            "    TYPE=NON_PLATED",
+            "    TYPE2=STANDARD",
+            "    MIN_TOL=0",
+            "    MAX_TOL=0",
+            "    BIT=",
+            "    FINISH_SIZE=125",
+            "    DRILL_SIZE=125",
+            "}");
+
+    private ToolsParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new ToolsParser();
+    }
+
+    @Test
+    void testParseTools() throws IOException {
+        DrillTools tools = parser.parse(new StringReader(TOOLS));
+
+        assertEquals("INCH", tools.getUnits());
+        assertEquals(0.062, tools.getThickness(), 1e-9);
+        assertEquals(2, tools.getTools().size());
+
+        DrillTool first = tools.getTool(1);
+        assertEquals(DrillTool.Type.PLATED, first.getType());
+        assertEquals("STANDARD", first.getType2());
+        assertEquals(3, first.getMaxTol(), 1e-9);
+        assertEquals(12, first.getFinishSize(), 1e-9);
+        assertEquals(16, first.getDrillSize(), 1e-9);
+
+        assertEquals(DrillTool.Type.NON_PLATED, tools.getTool(2).getType());
+        assertNull(tools.getTool(3));
+    }
+
+    private static final List<String> DRILL_FEATURES = List.of(
+            "UNITS=INCH",
+            "$0 r12",
+            "$1 r125",
+            "@0 .drill",
+            "P 1.0 1.0 0 P 1 0",
+            "P 2.0 1.0 1 P 2 0",
+            "P 3.0 1.0 0 P 9 0;0=2",
+            "P 4.0 1.0 0 N 1 0",
+            "L 0 0 1 0 0 P 1");
+
+    @Test
+    void testDrillFeaturesReaderClassifiesHoles() throws IOException {
+        DrillTools tools = parser.parse(new StringReader(TOOLS));
+        List<Object[]> holes = new ArrayList<>();
+        int[] slots = {0};
+        new DrillFeaturesReader(tools, null).read(new StringReader(String.join("\n", DRILL_FEATURES)), visitor(holes, slots));
+        assertHoles(holes, slots);
+    }
+
+    @Test
+    void testDrillFeaturesReaderUsesLoadedAttributes(@TempDir Path dir) throws IOException {
+        DrillTools tools = parser.parse(new StringReader(TOOLS));
+        Path file = dir.resolve("features");
+        Files.write(file, DRILL_FEATURES);
+        Features features = new FeaturesFileParser().parse(file);
+        List<Object[]> holes = new ArrayList<>();
+        int[] slots = {0};
+        new DrillFeaturesReader(tools, null).read(features, visitor(holes, slots));
+        assertHoles(holes, slots);
+    }
+
+    @Test
+    void testReadsLatin1ToolsFiles(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tools");
+        Files.write(file, (TOOLS.replace("USER_PARAMS=", "USER_PARAMS=\u00e9paisseur")).getBytes(StandardCharsets.ISO_8859_1));
+        DrillTools tools = parser.parse(file);
+        assertEquals("\u00e9paisseur", tools.getUserParams());
+        assertEquals(2, tools.getTools().size());
+    }
+
+    @Test
+    void testDrillFeaturesReaderHonoursShortUnits() throws IOException {
+        List<Object[]> holes = new ArrayList<>();
+        new DrillFeaturesReader(null, null).read(new StringReader(String.join("\n", "U MM", "$0 r12 I", "P 1 1 0 P 0 0")),
+                visitor(holes, new int[1]));
+        assertEquals(1, holes.size());
+        assertEquals(0.3048, (double) holes.get(0)[1], 1e-9);
+    }
+
+    private static DrillFeaturesReader.DrillVisitor visitor(List<Object[]> holes, int[] slots) {
+        return new DrillFeaturesReader.DrillVisitor() {
+            @Override
+            public void hole(double x, double y, double size, int tool, DrillTool.Type type) {
+                holes.add(new Object[]{x, size, type});
+            }
+
+            @Override
+            public void slot(double xs, double ys, double xe, double ye, double size, int tool, DrillTool.Type type) {
+                slots[0]++;
+            }
+        };
+    }
+
+    private static void assertHoles(List<Object[]> holes, int[] slots) {
+        assertEquals(3, holes.size());
+        assertEquals(0.012, (double) holes.get(0)[1], 1e-9);
+        assertEquals(DrillTool.Type.PLATED, holes.get(0)[2]);
+        assertEquals(0.125, (double) holes.get(1)[1], 1e-9);
+        assertEquals(DrillTool.Type.NON_PLATED, holes.get(1)[2]);
+        // The .drill attribute overrides the tool
+        assertEquals(DrillTool.Type.VIA, holes.get(2)[2]);
+        assertEquals(1, slots[0]);
+    }
+}
@@ -0,0 +1,123 @@
+package com.odbpp.query;
+
+import com.odbpp.model.BoardSide;
+import com.odbpp.model.Component;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentQueryTest {
+
+    @TempDir
+    Path job;
+
+    private void write(String path, List<String> lines) throws IOException {
+        Path file = job.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, lines);
+    }
+
+    private void writeMatrix(String... layers) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < layers.length; i += 2) {
+            lines.addAll(List.of("LAYER {", "ROW=" + (i / 2 + 1), "CONTEXT=BOARD", "TYPE=" + layers[i],
+                    "NAME=" + layers[i + 1], "POLARITY=POSITIVE", "}"));
+        }
+        write("matrix/matrix", lines);
+    }
+
+    private static List<String> names(List<Component> components) {
+        return components.stream().map(Component::getCompName).collect(Collectors.toList());
+    }
+
+    @BeforeEach
+    void writeComponents() throws IOException {
+        write("steps/pcb/layers/comp_+_top/components", List.of("UNITS=INCH",
+                "CMP 0 1 1 0 N C1 CAP-100;;ID=1", "PRP VALUE '100n'", "TOP 0 1 1 0 N 0 0 1",
+                "CMP 0 2 2 0 N R1 RES-10K;;ID=2", "TOP 0 2 2 0 N 0 0 1"));
+        write("steps/pcb/layers/comp_+_bot/components", List.of("UNITS=INCH",
+                "CMP 0 3 3 0 N C2 CAP-200;;ID=3", "CMP 0 4 4 0 N R2 RES-1K;;ID=4"));
+        write("steps/panel/layers/comp_+_top/components", List.of("UNITS=INCH", "CMP 0 9 9 0 N FID1 FIDUCIAL"));
+    }
+
+    @Test
+    void testStandardLayersWithoutMatrix() throws IOException {
+        List<String> visits = new ArrayList<>();
+        ComponentQuery.select().forEach(job, (step, side, component) ->
+                visits.add(step + " " + side + " " + component.getCompName()));
+        assertEquals(List.of("panel TOP FID1", "pcb TOP C1", "pcb TOP R1", "pcb BOTTOM C2", "pcb BOTTOM R2"), visits);
+
+        assertEquals(List.of("C2", "R2"), names(ComponentQuery.select().steps("pcb").side(BoardSide.BOTTOM).run(job)));
+        assertEquals(List.of("C1", "R1"), names(ComponentQuery.select().steps("p?b").side(BoardSide.TOP).run(job)));
+    }
+
+    @Test
+    void testMatrixWithoutComponentLayersUsesStandardNames() throws IOException {
+        writeMatrix("SIGNAL", "top", "SIGNAL", "bottom");
+        assertEquals(List.of("C2", "R2"), names(ComponentQuery.select().steps("pcb").side(BoardSide.BOTTOM).run(job)));
+    }
+
+    @Test
+    void testBottomOnlyMatrix() throws IOException {
+        writeMatrix("SIGNAL", "top", "SIGNAL", "bottom", "COMPONENT", "comp_+_bot");
+        // comp_+_top is on disk but not in the matrix
+        assertEquals(List.of("C2", "R2"), names(ComponentQuery.select().steps("pcb").run(job)));
+        assertTrue(ComponentQuery.select().side(BoardSide.TOP).run(job).isEmpty());
+    }
+
+    @Test
+    void testSingleComponentLayerTakesTheSideOfItsRow() throws IOException {
+        write("steps/pcb/layers/assy/components", List.of("UNITS=INCH", "CMP 0 5 5 0 N R9 RES-1K"));
+        writeMatrix("COMPONENT", "assy", "SIGNAL", "top", "SIGNAL", "bottom");
+        assertEquals(List.of("R9"), names(ComponentQuery.select().steps("pcb").side(BoardSide.TOP).run(job)));
+        assertTrue(ComponentQuery.select().side(BoardSide.BOTTOM).run(job).isEmpty());
+
+        writeMatrix("SIGNAL", "top", "SIGNAL", "bottom", "COMPONENT", "assy");
+        assertEquals(List.of("R9"), names(ComponentQuery.select().steps("pcb").side(BoardSide.BOTTOM).run(job)));
+        assertTrue(ComponentQuery.select().side(BoardSide.TOP).run(job).isEmpty());
+    }
+
+    @Test
+    void testSingleComponentLayerWithoutCopperTakesTheSideOfItsName() throws IOException {
+        writeMatrix("COMPONENT", "comp_+_bot");
+        assertEquals(List.of("C2", "R2"), names(ComponentQuery.select().steps("pcb").side(BoardSide.BOTTOM).run(job)));
+        assertTrue(ComponentQuery.select().side(BoardSide.TOP).run(job).isEmpty());
+
+        writeMatrix("COMPONENT", "comp_+_top");
+        assertEquals(List.of("C1", "R1"), names(ComponentQuery.select().steps("pcb").run(job)));
+    }
+
+    @Test
+    void testPartRefdesAndWindowFilters() throws IOException {
+        List<Component> caps = ComponentQuery.select().parts("CAP*").run(job);
+        assertEquals(List.of("C1", "C2"), names(caps));
+        // The records of a selected component come with it, those of skipped ones are dropped
+        assertEquals(1, caps.get(0).getToeprintRecords().size());
+        assertEquals(1, caps.get(0).getPropertyRecords().size());
+
+        assertEquals(List.of("R1", "R2"), names(ComponentQuery.select().refdes("R?").run(job)));
+        assertTrue(ComponentQuery.select().refdes("r*").run(job).isEmpty());
+        assertEquals(List.of("R2"), names(ComponentQuery.select().parts("RES*").refdes("*2").run(job)));
+
+        // Edges are inside and the corners may come in any order
+        assertEquals(List.of("R1", "C2"), names(ComponentQuery.select().window(3, 3, 2, 2).run(job)));
+        assertEquals(List.of("C2"), names(ComponentQuery.select().window(2.5, 2.5, 5, 5).parts("CAP*").run(job)));
+    }
+
+    @Test
+    void testWindowIsInTheUnitsOfEachFile() throws IOException {
+        write("steps/pcb/layers/comp_+_bot/components", List.of("UNITS=MM", "CMP 0 25.4 25.4 0 N U1 IC"));
+        // One inch is 25.4 in the millimetre file; the window is not converted
+        assertEquals(List.of("C1"), names(ComponentQuery.select().steps("pcb").window(0.5, 0.5, 1.5, 1.5).run(job)));
+        assertEquals(List.of("U1"), names(ComponentQuery.select().steps("pcb").window(20, 20, 30, 30).run(job)));
+    }
+}
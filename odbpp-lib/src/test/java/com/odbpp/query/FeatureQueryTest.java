@@ -0,0 +1,135 @@
+package com.odbpp.query;
+
+import com.odbpp.model.BoardSide;
+import com.odbpp.model.Component;
+import com.odbpp.model.Pad;
+import com.odbpp.model.Surface;
+import com.odbpp.parser.RecordFilter;
+import com.odbpp.stream.LayerFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureQueryTest {
+
+    @TempDir
+    Path job;
+
+    private void write(String path, List<String> lines) throws IOException {
+        Path file = job.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, lines);
+    }
+
+    private static List<String> matrixLayer(int row, String type, String name) {
+        return List.of("LAYER {", "ROW=" + row, "CONTEXT=BOARD", "TYPE=" + type, "NAME=" + name, "POLARITY=POSITIVE", "}");
+    }
+
+    @BeforeEach
+    void writeJob() throws IOException {
+        List<String> matrix = new ArrayList<>();
+        matrix.addAll(matrixLayer(1, "COMPONENT", "comp_+_top"));
+        matrix.addAll(matrixLayer(2, "SOLDER_MASK", "smt"));
+        matrix.addAll(matrixLayer(3, "SIGNAL", "top"));
+        matrix.addAll(matrixLayer(4, "SIGNAL", "bottom"));
+        matrix.addAll(matrixLayer(5, "COMPONENT", "comp_+_bot"));
+        write("matrix/matrix", matrix);
+        write("misc/sysattr", List.of("OPTION {", "NAME=.pad_usage", "OPTIONS=toeprint;via;g_fiducial", "}"));
+
+        List<String> top = new ArrayList<>(List.of("UNITS=INCH", "$0 r10", "$1 s20", "$2 r30", "@0 .smd", "@1 .pad_usage"));
+        for (int i = 0; i < 10; i++) {
+            top.add("P " + i + " 0 " + (i % 3) + " P 0 0;" + (i % 2 == 0 ? "0,1=0" : "1=1") + ";ID=" + i);
+        }
+        top.add("L 0 0 1 1 0 P 0");
+        top.addAll(List.of("S P 0", "OB 5 5 I", "OS 6 5", "OS 6 6", "OE", "SE"));
+        write("steps/pcb/layers/top/features", top);
+        write("steps/pcb/layers/bottom/features", List.of("UNITS=INCH", "$0 r10", "P 1 1 0 P 0 0"));
+        // Never read: a directory where the features file would be
+        Files.createDirectories(job.resolve("steps/pcb/layers/smt/features"));
+
+        write("steps/pcb/layers/comp_+_top/components", List.of("UNITS=INCH",
+                "CMP 0 1 1 0 N C1 CAP-100;;ID=1", "PRP VALUE '100n'", "TOP 0 1 1 0 N 0 0 1",
+                "CMP 0 2 2 0 N R1 RES-10K;;ID=2"));
+        write("steps/pcb/layers/comp_+_bot/components", List.of("UNITS=INCH",
+                "CMP 0 3 3 0 N C2 CAP-200;;ID=3", "CMP 0 4 4 0 N R2 RES-1K;;ID=4"));
+    }
+
+    @Test
+    void testPadsOnTopCopperBySymbolAndWindow() throws IOException {
+        List<LayerFeature> pads = FeatureQuery.select()
+                .outerCopper(BoardSide.TOP)
+                .kinds(RecordFilter.Kind.PAD)
+                .symbols("r*")
+                .window(2, 0, 8, 0)
+                .run(job);
+        // r10 and r30 are symbols 0 and 2; pads 2 to 8 in the window
+        List<Integer> indices = pads.stream().map(LayerFeature::getIndex).collect(Collectors.toList());
+        assertEquals(List.of(2, 3, 5, 6, 8), indices);
+        for (LayerFeature pad : pads) {
+            assertEquals("top", pad.getLayer());
+            assertEquals(pad.getIndex(), ((Pad) pad.getFeature()).getX(), 0);
+            assertEquals(pad.getIndex(), pad.getFeature().getId());
+        }
+    }
+
+    @Test
+    void testAttributeConditions() throws IOException {
+        List<LayerFeature> smd = FeatureQuery.select().layers("TOP").attribute(".smd").run(job);
+        assertEquals(5, smd.size());
+
+        List<LayerFeature> vias = FeatureQuery.select().layerTypes("signal").attribute(".pad_usage", "via").run(job);
+        assertEquals(List.of(1, 3, 5, 7, 9), vias.stream().map(LayerFeature::getIndex).collect(Collectors.toList()));
+
+        // bottom does not declare .smd and is abandoned at its first record
+        assertTrue(FeatureQuery.select().layers("bottom").attribute(".smd").run(job).isEmpty());
+    }
+
+    @Test
+    void testSurfaceWindow() throws IOException {
+        List<LayerFeature> surfaces = FeatureQuery.select().layers("top").window(5.5, 5.5, 7, 7).run(job);
+        assertEquals(1, surfaces.size());
+        assertEquals(11, surfaces.get(0).getIndex());
+        assertEquals(2, ((Surface) surfaces.get(0).getFeature()).getPolygons().get(0).getPolygonParts().size());
+    }
+
+    @Test
+    void testComponentsByPartAndSide() throws IOException {
+        List<Component> caps = ComponentQuery.select().parts("CAP*").run(job);
+        assertEquals(List.of("C1", "C2"), caps.stream().map(Component::getCompName).collect(Collectors.toList()));
+        assertEquals(1, caps.get(0).getToeprintRecords().size());
+
+        List<Component> bottom = ComponentQuery.select().side(BoardSide.BOTTOM).window(3.5, 3.5, 5, 5).run(job);
+        assertEquals(1, bottom.size());
+        assertEquals("R2", bottom.get(0).getCompName());
+    }
+
+    @Test
+    void testSingleComponentLayerIsUsedForItsSide() throws IOException {
+        List<String> matrix = new ArrayList<>();
+        matrix.addAll(matrixLayer(1, "SIGNAL", "top"));
+        matrix.addAll(matrixLayer(2, "SIGNAL", "bottom"));
+        matrix.addAll(matrixLayer(3, "COMPONENT", "assy_b"));
+        write("matrix/matrix", matrix);
+        write("steps/pcb/layers/assy_b/components", List.of("UNITS=INCH", "CMP 0 5 5 0 N R9 RES-1K;;ID=9"));
+
+        assertTrue(ComponentQuery.select().side(BoardSide.TOP).run(job).isEmpty());
+        List<Component> bottom = ComponentQuery.select().side(BoardSide.BOTTOM).run(job);
+        assertEquals(List.of("R9"), bottom.stream().map(Component::getCompName).collect(Collectors.toList()));
+
+        matrix = new ArrayList<>();
+        matrix.addAll(matrixLayer(1, "COMPONENT", "assy_b"));
+        matrix.addAll(matrixLayer(2, "SIGNAL", "top"));
+        write("matrix/matrix", matrix);
+        assertEquals(1, ComponentQuery.select().side(BoardSide.TOP).run(job).size());
+        assertTrue(ComponentQuery.select().side(BoardSide.BOTTOM).run(job).isEmpty());
+    }
+}
@@ -0,0 +1,134 @@
+package com.odbpp.stream;
+
+import com.odbpp.model.Feature;
+import com.odbpp.model.Job;
+import com.odbpp.model.Pad;
+import com.odbpp.parser.OdbParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeaturePublisherTest {
+
+    private static class Recorder<T> implements Flow.Subscriber<T> {
+        final List<T> items = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+
+    private static Path writeLayer(Path root, String step, String layer, int pads) throws IOException {
+        Path dir = root.resolve("steps/" + step + "/layers/" + layer);
+        Files.createDirectories(dir);
+        List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "$0 r10"));
+        for (int i = 0; i < pads; i++) {
+            lines.add("P " + i + " 0 0 P 0 0");
+        }
+        lines.addAll(List.of("S P 0", "OB 0 0 I", "OS 1 0", "OS 1 1", "OE", "SE"));
+        Path file = dir.resolve("features");
+        Files.write(file, lines);
+        return file;
+    }
+
+    @Test
+    void testEmitsOnlyRequestedFeatures(@TempDir Path tempDir) throws IOException {
+        Path file = writeLayer(tempDir, "pcb", "top", 1000);
+        FeaturePublisher<Feature> publisher = FeaturePublisher.ofFile(file);
+        publisher.setExecutor(Runnable::run);
+        publisher.setChunkSize(16);
+        Recorder<Feature> recorder = new Recorder<>();
+        publisher.subscribe(recorder);
+        assertTrue(recorder.items.isEmpty());
+
+        recorder.subscription.request(10);
+        assertEquals(10, recorder.items.size());
+        assertEquals(9, ((Pad) recorder.items.get(9)).getX());
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertTrue(recorder.completed);
+        assertEquals(1001, recorder.items.size());
+    }
+
+    @Test
+    void testCancelStopsEmission(@TempDir Path tempDir) throws IOException {
+        Path file = writeLayer(tempDir, "pcb", "top", 100);
+        FeaturePublisher<Feature> publisher = FeaturePublisher.ofFile(file);
+        publisher.setExecutor(Runnable::run);
+        Recorder<Feature> recorder = new Recorder<>() {
+            @Override
+            public void onNext(Feature item) {
+                super.onNext(item);
+                if (items.size() == 5) {
+                    subscription.cancel();
+                }
+            }
+        };
+        publisher.subscribe(recorder);
+        recorder.subscription.request(50);
+        recorder.subscription.request(50);
+        assertEquals(5, recorder.items.size());
+        assertFalse(recorder.completed);
+        assertNull(recorder.error);
+    }
+
+    @Test
+    void testPublishesJobTaggedByLayer(@TempDir Path tempDir) throws Exception {
+        writeLayer(tempDir, "pcb", "bottom", 3);
+        writeLayer(tempDir, "pcb", "top", 2);
+        Job job = new OdbParser(1).parse(tempDir);
+        Recorder<LayerFeature> recorder = new Recorder<>();
+        FeaturePublisher.ofJob(job).subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+        assertTrue(recorder.completed);
+        assertEquals(7, recorder.items.size());
+        assertEquals("bottom", recorder.items.get(0).getLayer());
+        assertEquals("top", recorder.items.get(6).getLayer());
+        assertEquals(2, recorder.items.get(6).getIndex());
+        assertEquals("pcb", recorder.items.get(6).getStep());
+    }
+
+    @Test
+    void testRejectsNonPositiveRequest(@TempDir Path tempDir) throws IOException {
+        Path file = writeLayer(tempDir, "pcb", "top", 1);
+        FeaturePublisher<Feature> publisher = FeaturePublisher.ofFile(file);
+        publisher.setExecutor(Runnable::run);
+        Recorder<Feature> recorder = new Recorder<>();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(0);
+        assertInstanceOf(IllegalArgumentException.class, recorder.error);
+    }
+}
@@ -0,0 +1,149 @@
+package com.odbpp.server;
+
+import com.odbpp.geometry.ExtentsCalculator;
+import com.odbpp.index.KdTree;
+import com.odbpp.model.BoundingBox;
+import com.odbpp.model.Features;
+
+import java.util.Arrays;
+
+/**
+ * Window index over the features of one layer.
+ *
+ * The centres of the feature boxes go into a {@link KdTree}. A window query searches the window grown by the
+ * largest half width and height of the indexed boxes, which finds every box that may intersect it, and then tests
+ * the boxes exactly. Boxes much larger than the rest (board-sized surfaces, long lines) would grow every query to
+ * most of the layer, so they are kept out of the tree and tested against every window.
+ */
+final class LayerWindowIndex {
+    /**
+     * Boxes wider or taller than this multiple of the 95th percentile of the non-zero widths or heights are
+     * tested separately
+     */
+    private static final double LARGE_FACTOR = 4;
+
+    private final int[] rows;
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final KdTree tree;
+    private final int[] treeBoxes;
+    private final int[] largeBoxes;
+    private final double halfWidth;
+    private final double halfHeight;
+
+    LayerWindowIndex(Features features, ExtentsCalculator calculator) {
+        int count = features.getFeatures().size();
+        int[] featureRows = new int[count];
+        double[] x0 = new double[count];
+        double[] y0 = new double[count];
+        double[] x1 = new double[count];
+        double[] y1 = new double[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            BoundingBox box = calculator.extents(features, features.getFeatures().get(i));
+            if (box.isEmpty()) {
+                continue;
+            }
+            featureRows[size] = i;
+            x0[size] = box.getMinX();
+            y0[size] = box.getMinY();
+            x1[size] = box.getMaxX();
+            y1[size] = box.getMaxY();
+            size++;
+        }
+        this.rows = Arrays.copyOf(featureRows, size);
+        this.minX = Arrays.copyOf(x0, size);
+        this.minY = Arrays.copyOf(y0, size);
+        this.maxX = Arrays.copyOf(x1, size);
+        this.maxY = Arrays.copyOf(y1, size);
+
+        double[] widths = new double[size];
+        double[] heights = new double[size];
+        for (int i = 0; i < size; i++) {
+            widths[i] = maxX[i] - minX[i];
+            heights[i] = maxY[i] - minY[i];
+        }
+        double widthLimit = limit(widths);
+        double heightLimit = limit(heights);
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        double maxHalfWidth = 0;
+        double maxHalfHeight = 0;
+        for (int i = 0; i < size; i++) {
+            if (widths[i] > widthLimit || heights[i] > heightLimit) {
+                large[largeCount++] = i;
+            } else {
+                small[smallCount++] = i;
+                maxHalfWidth = Math.max(maxHalfWidth, widths[i] / 2);
+                maxHalfHeight = Math.max(maxHalfHeight, heights[i] / 2);
+            }
+        }
+        this.treeBoxes = Arrays.copyOf(small, smallCount);
+        this.largeBoxes = Arrays.copyOf(large, largeCount);
+        double[] centerX = new double[smallCount];
+        double[] centerY = new double[smallCount];
+        for (int i = 0; i < smallCount; i++) {
+            int box = treeBoxes[i];
+            centerX[i] = (minX[box] + maxX[box]) / 2;
+            centerY[i] = (minY[box] + maxY[box]) / 2;
+        }
+        this.tree = new KdTree(centerX, centerY);
+        this.halfWidth = maxHalfWidth;
+        this.halfHeight = maxHalfHeight;
+    }
+
+    // Zero sizes (horizontal or vertical tracks, points) are left out, or a layer of mostly flat boxes would make
+    // every other box large
+    private static double limit(double[] sizes) {
+        double[] sorted = sizes.clone();
+        Arrays.sort(sorted);
+        int flat = 0;
+        while (flat < sorted.length && sorted[flat] <= 0) {
+            flat++;
+        }
+        return flat == sorted.length ? 0 : LARGE_FACTOR * sorted[flat + (int) (0.95 * (sorted.length - flat - 1))];
+    }
+
+    /**
+     * @return the indices of the features whose boxes intersect the window, in increasing order
+     */
+    int[] query(double x0, double y0, double x1, double y1) {
+        int[] candidates = tree.withinWindow(x0 - halfWidth, y0 - halfHeight, x1 + halfWidth, y1 + halfHeight);
+        int[] result = new int[candidates.length + largeBoxes.length];
+        int count = 0;
+        for (int candidate : candidates) {
+            int box = treeBoxes[candidate];
+            if (intersects(box, x0, y0, x1, y1)) {
+                result[count++] = rows[box];
+            }
+        }
+        for (int box : largeBoxes) {
+            if (intersects(box, x0, y0, x1, y1)) {
+                result[count++] = rows[box];
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private boolean intersects(int box, double x0, double y0, double x1, double y1) {
+        return minX[box] <= x1 && maxX[box] >= x0 && minY[box] <= y1 && maxY[box] >= y0;
+    }
+
+    /**
+     * @return the number of boxes tested against every window rather than found through the tree
+     */
+    int getLargeCount() {
+        return largeBoxes.length;
+    }
+
+    BoundingBox getBox(int feature) {
+        int row = Arrays.binarySearch(rows, feature);
+        return row < 0 ? BoundingBox.EMPTY : new BoundingBox(minX[row], minY[row], maxX[row], maxY[row]);
+    }
+}
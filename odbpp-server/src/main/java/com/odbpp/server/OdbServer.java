@@ -0,0 +1,419 @@
+package com.odbpp.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.odbpp.cache.JobCache;
+import com.odbpp.geometry.ExtentsCalculator;
+import com.odbpp.index.ComponentTable;
+import com.odbpp.model.BoundingBox;
+import com.odbpp.model.Components;
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.model.Layer;
+import com.odbpp.model.Step;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP/JSON server answering queries on parsed jobs, so that several processes share one warm cache.
+ *
+ * The server binds to the loopback interface and handles every request on its own virtual thread. Jobs are
+ * parsed through a {@link JobCache}; window and component indexes are built per layer on first use, rebuilt
+ * when the cache hands out a new version of the layer and dropped when the cache evicts the job or the features
+ * they were built from.
+ *
+ * Endpoints (all GET, JSON responses):
+ * <pre>
+ * /jobs/open?path=dir                                     open a job directory, returns its id and steps
+ * /jobs/{id}/steps                                        steps with their layer names
+ * /jobs/{id}/steps/{step}/layers                          layers with feature and component counts; the
+ *                                                         feature count is null while features are evicted
+ * /jobs/{id}/steps/{step}/layers/{layer}/features?window=minX,minY,maxX,maxY[&amp;limit=n]
+ *                                                         features whose extents intersect the window
+ * /jobs/{id}/steps/{step}/components/{refdes}             component lookup on all component layers
+ * /metrics                                                cache and request counters
+ * </pre>
+ */
+public final class OdbServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OdbServer.class);
+
+    private static final int DEFAULT_LIMIT = 10000;
+
+    /**
+     * A request error answered with a status code
+     */
+    private static final class RequestException extends RuntimeException {
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * A per-layer index together with the layer data it was built from
+     */
+    private static final class Cached<T> {
+        private final WeakReference<Object> source;
+        private final T value;
+
+        Cached(Object source, T value) {
+            this.source = new WeakReference<>(source);
+            this.value = value;
+        }
+    }
+
+    private final JobCache cache;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<String, Path> jobs = new ConcurrentHashMap<>();
+    private final Map<Path, String> jobIds = new ConcurrentHashMap<>();
+    private final AtomicLong nextJobId = new AtomicLong(1);
+    private final Map<String, Cached<LayerWindowIndex>> windowIndexes = new ConcurrentHashMap<>();
+    private final Map<String, Cached<ComponentTable>> componentTables = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     */
+    public OdbServer(JobCache cache, int port) throws IOException {
+        this.cache = cache;
+        cache.addEvictionListener(new JobCache.EvictionListener() {
+            @Override
+            public void jobRemoved(Path jobDir) {
+                String prefix = jobDir + "\n";
+                windowIndexes.keySet().removeIf(key -> key.startsWith(prefix));
+                componentTables.keySet().removeIf(key -> key.startsWith(prefix));
+            }
+
+            @Override
+            public void featuresRemoved(Path jobDir, String stepName, String layerName) {
+                windowIndexes.remove(layerKey(jobDir, stepName, layerName));
+            }
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        int status = 200;
+        Object body;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                throw new RequestException(405, "Method " + exchange.getRequestMethod() + " not allowed");
+            }
+            body = route(exchange.getRequestURI().getRawPath(), query(exchange.getRequestURI().getRawQuery()));
+        } catch (RequestException e) {
+            status = e.status;
+            body = Map.of("error", e.getMessage());
+        } catch (NoSuchFileException e) {
+            status = 404;
+            body = Map.of("error", "No such file: " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Request {} failed", exchange.getRequestURI(), e);
+            status = 500;
+            body = Map.of("error", String.valueOf(e.getMessage()));
+        }
+        if (status != 200) {
+            errors.incrementAndGet();
+        }
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Object route(String rawPath, Map<String, String> query) throws IOException {
+        List<String> segments = new ArrayList<>();
+        for (String segment : rawPath.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+            }
+        }
+        int n = segments.size();
+        if (n == 1 && segments.get(0).equals("metrics")) {
+            return metrics();
+        }
+        if (n >= 2 && segments.get(0).equals("jobs")) {
+            if (n == 2 && segments.get(1).equals("open")) {
+                return open(required(query, "path"));
+            }
+            String id = segments.get(1);
+            if (n == 3 && segments.get(2).equals("steps")) {
+                return steps(id);
+            }
+            if (n >= 5 && segments.get(2).equals("steps")) {
+                String step = segments.get(3);
+                if (n == 5 && segments.get(4).equals("layers")) {
+                    return layers(id, step);
+                }
+                if (n == 7 && segments.get(4).equals("layers") && segments.get(6).equals("features")) {
+                    return features(id, step, segments.get(5), query);
+                }
+                if (n == 6 && segments.get(4).equals("components")) {
+                    return component(id, step, segments.get(5));
+                }
+            }
+        }
+        throw new RequestException(404, "Unknown endpoint " + rawPath);
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new RequestException(400, "Missing parameter " + name);
+        }
+        return value;
+    }
+
+    private Object open(String path) throws IOException {
+        Path dir = Path.of(path);
+        if (!Files.isDirectory(dir)) {
+            throw new RequestException(404, "Not a job directory: " + path);
+        }
+        Path realPath = dir.toRealPath();
+        Job job = cache.get(realPath);
+        String id = jobIds.computeIfAbsent(realPath, p -> {
+            String newId = Long.toString(nextJobId.getAndIncrement());
+            jobs.put(newId, p);
+            return newId;
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", id);
+        result.put("path", realPath.toString());
+        result.put("steps", job.getSteps() == null ? List.of() : new TreeMap<>(job.getSteps()).keySet());
+        return result;
+    }
+
+    private Path jobPath(String id) {
+        Path path = jobs.get(id);
+        if (path == null) {
+            throw new RequestException(404, "Unknown job " + id);
+        }
+        return path;
+    }
+
+    private Step step(Job job, String name) {
+        Step step = job.getSteps() == null ? null : job.getSteps().get(name);
+        if (step == null) {
+            throw new RequestException(404, "Unknown step " + name);
+        }
+        return step;
+    }
+
+    private static Map<String, Layer> layersOf(Step step) {
+        return step.getLayersByName() == null ? Map.of() : new TreeMap<>(step.getLayersByName());
+    }
+
+    private Object steps(String id) throws IOException {
+        Job job = cache.get(jobPath(id));
+        List<Object> result = new ArrayList<>();
+        if (job.getSteps() != null) {
+            for (Step step : new TreeMap<>(job.getSteps()).values()) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("name", step.getName());
+                entry.put("layers", layersOf(step).keySet());
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private Object layers(String id, String stepName) throws IOException {
+        Step step = step(cache.get(jobPath(id)), stepName);
+        List<Object> result = new ArrayList<>();
+        for (Layer layer : layersOf(step).values()) {
+            // Counts of evicted features are not worth parsing the layer again for
+            Features features = layer.getFeatures();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", layer.getName());
+            entry.put("features", features == null ? null : features.getFeatures().size());
+            entry.put("components", layer.getComponents() == null ? 0 : layer.getComponents().getComponents().size());
+            result.add(entry);
+        }
+        return result;
+    }
+
+    private Object features(String id, String stepName, String layerName, Map<String, String> query) throws IOException {
+        Path path = jobPath(id);
+        Job job = cache.get(path);
+        Layer layer = layersOf(step(job, stepName)).get(layerName);
+        if (layer == null) {
+            throw new RequestException(404, "Unknown layer " + layerName);
+        }
+        double[] window = numbers(required(query, "window"), 4);
+        int limit = query.containsKey("limit") ? (int) numbers(query.get("limit"), 1)[0] : DEFAULT_LIMIT;
+        Features features = cache.getFeatures(job, layer);
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<Object> found = new ArrayList<>();
+        int total = 0;
+        if (features != null) {
+            LayerWindowIndex index = cached(windowIndexes, layerKey(path, stepName, layerName), features,
+                    () -> new LayerWindowIndex(features, new ExtentsCalculator(job)));
+            int[] rows = index.query(window[0], window[1], window[2], window[3]);
+            total = rows.length;
+            for (int i = 0; i < rows.length && i < limit; i++) {
+                BoundingBox box = index.getBox(rows[i]);
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("index", rows[i]);
+                entry.put("type", features.getFeatures().get(rows[i]).getClass().getSimpleName());
+                entry.put("box", new double[]{box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY()});
+                found.add(entry);
+            }
+        }
+        result.put("total", total);
+        result.put("features", found);
+        return result;
+    }
+
+    private Object component(String id, String stepName, String refdes) throws IOException {
+        Path path = jobPath(id);
+        Step step = step(cache.get(path), stepName);
+        for (Layer layer : layersOf(step).values()) {
+            Components components = layer.getComponents();
+            if (components == null) {
+                continue;
+            }
+            ComponentTable table = cached(componentTables, layerKey(path, stepName, layer.getName()), components,
+                    () -> new ComponentTable(components));
+            int row = table.indexOf(refdes);
+            if (row < 0) {
+                continue;
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("refdes", table.getCompName(row));
+            result.put("layer", layer.getName());
+            result.put("part", table.getPartName(row));
+            result.put("x", table.getX(row));
+            result.put("y", table.getY(row));
+            result.put("rotation", table.getRotation(row));
+            result.put("mirrored", table.isMirrored(row));
+            result.put("pins", table.getToeprintCount(row));
+            return result;
+        }
+        throw new RequestException(404, "Unknown component " + refdes);
+    }
+
+    private static String layerKey(Path jobDir, String stepName, String layerName) {
+        return jobDir + "\n" + stepName + "\n" + layerName;
+    }
+
+    private interface Builder<T> {
+        T build();
+    }
+
+    /**
+     * @return the cached value for the key if it was built from the same source object, otherwise a new one
+     */
+    private static <T> T cached(Map<String, Cached<T>> cache, String key, Object source, Builder<T> builder) {
+        Cached<T> entry = cache.get(key);
+        if (entry == null || entry.source.get() != source) {
+            entry = new Cached<>(source, builder.build());
+            cache.put(key, entry);
+        }
+        return entry.value;
+    }
+
+    private static double[] numbers(String text, int count) {
+        String[] parts = text.split(",");
+        if (parts.length != count) {
+            throw new RequestException(400, "Expected " + count + " numbers: " + text);
+        }
+        double[] numbers = new double[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                numbers[i] = Double.parseDouble(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new RequestException(400, "Not a number: " + parts[i]);
+            }
+        }
+        return numbers;
+    }
+
+    private Object metrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", requests.get());
+        result.put("errors", errors.get());
+        result.put("openJobs", jobs.size());
+        result.put("cachedJobs", cache.size());
+        result.put("cacheWeight", cache.getWeight());
+        result.put("cacheMaxWeight", cache.getMaxWeight());
+        result.put("cacheHits", cache.getHitCount());
+        result.put("cacheMisses", cache.getMissCount());
+        result.put("cacheEvictions", cache.getEvictionCount());
+        result.put("featureEvictions", cache.getFeatureEvictionCount());
+        result.put("windowIndexes", windowIndexes.size());
+        result.put("componentTables", componentTables.size());
+        return result;
+    }
+
+    /**
+     * Usage: OdbServer [port] [cache budget in MB]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8085;
+        long budget = (args.length > 1 ? Long.parseLong(args[1]) : Runtime.getRuntime().maxMemory() / 2 >> 20) << 20;
+        OdbServer server = new OdbServer(new JobCache(budget), port);
+        server.start();
+        log.info("Listening on {}:{} with a {} MB job cache", InetAddress.getLoopbackAddress().getHostAddress(),
+                server.getPort(), budget >> 20);
+    }
+}
@@ -0,0 +1,69 @@
+package com.odbpp.server;
+
+import com.odbpp.geometry.ExtentsCalculator;
+import com.odbpp.model.BoundingBox;
+import com.odbpp.model.Features;
+import com.odbpp.model.Job;
+import com.odbpp.parser.FeaturesFileParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayerWindowIndexTest {
+
+    @TempDir
+    Path dir;
+
+    // A 20 x 20 grid of 10 mil pads one inch apart, crossed by a long horizontal line
+    private Features features() throws IOException {
+        List<String> lines = new ArrayList<>(List.of("UNITS=INCH", "$0 r10", "L -5 9.5 25 9.5 0 P 0"));
+        for (int i = 0; i < 400; i++) {
+            lines.add("P " + (i % 20) + " " + (i / 20) + " 0 P 0 0");
+        }
+        Path file = dir.resolve("features");
+        Files.write(file, lines);
+        return new FeaturesFileParser().parse(file);
+    }
+
+    @Test
+    void testLargeBoxesAreFoundOutsideTheTree() throws IOException {
+        LayerWindowIndex index = new LayerWindowIndex(features(), new ExtentsCalculator((Job) null));
+        assertEquals(1, index.getLargeCount());
+        // Far from the centre of the line, which the grown window of the tree would not reach
+        assertArrayEquals(new int[]{0, 1 + 200 + 19}, index.query(18.9, 9.4, 19.1, 10.1));
+        assertArrayEquals(new int[]{1 + 20 + 3}, index.query(2.9, 0.9, 3.1, 1.1));
+        assertEquals(0, index.query(30, 30, 31, 31).length);
+        assertEquals(0.01, index.getBox(1).getWidth(), 1e-9);
+    }
+
+    @Test
+    void testQueriesMatchAScan() throws IOException {
+        Features features = features();
+        ExtentsCalculator calculator = new ExtentsCalculator((Job) null);
+        LayerWindowIndex index = new LayerWindowIndex(features, calculator);
+        Random random = new Random(7);
+        for (int q = 0; q < 200; q++) {
+            double x0 = random.nextDouble() * 30 - 5;
+            double y0 = random.nextDouble() * 25 - 2;
+            double x1 = x0 + random.nextDouble() * 4;
+            double y1 = y0 + random.nextDouble() * 4;
+            int[] expected = new int[features.getFeatures().size()];
+            int count = 0;
+            for (int i = 0; i < expected.length; i++) {
+                if (calculator.extents(features, features.getFeatures().get(i)).intersects(new BoundingBox(x0, y0, x1, y1))) {
+                    expected[count++] = i;
+                }
+            }
+            assertArrayEquals(Arrays.copyOf(expected, count), index.query(x0, y0, x1, y1));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.odbpp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.odbpp.cache.JobCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OdbServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JobCache cache;
+    private OdbServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path top = tempDir.resolve("job/steps/pcb/layers/top");
+        Files.createDirectories(top);
+        Files.write(top.resolve("features"), List.of(
+                "UNITS=INCH",
+                "$0 r10",
+                "P 0 0 0 P 0 0",
+                "P 1 1 0 P 0 0",
+                "P 5 5 0 P 0 0"));
+        Path comp = tempDir.resolve("job/steps/pcb/layers/comp_+_top");
+        Files.createDirectories(comp);
+        Files.write(comp.resolve("components"), List.of(
+                "UNITS=INCH",
+                "CMP 0 1.0 2.0 90 N U1 IC1",
+                "TOP 0 1.0 2.0 0 N 0 0 1"));
+        cache = new JobCache(Long.MAX_VALUE);
+        server = new OdbServer(cache, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(String path) throws IOException, InterruptedException {
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + path);
+        return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(path);
+        assertEquals(200, response.statusCode(), response.body());
+        return mapper.readTree(response.body());
+    }
+
+    @Test
+    void testQueriesOpenedJob() throws Exception {
+        String dir = URLEncoder.encode(tempDir.resolve("job").toString(), StandardCharsets.UTF_8);
+        JsonNode opened = get("/jobs/open?path=" + dir);
+        String id = opened.get("id").asText();
+        assertEquals("pcb", opened.get("steps").get(0).asText());
+        assertEquals(id, get("/jobs/open?path=" + dir).get("id").asText());
+
+        JsonNode layers = get("/jobs/" + id + "/steps/pcb/layers");
+        assertEquals(2, layers.size());
+        assertEquals("top", layers.get(1).get("name").asText());
+        assertEquals(3, layers.get(1).get("features").asInt());
+
+        JsonNode window = get("/jobs/" + id + "/steps/pcb/layers/top/features?window=-0.5,-0.5,1.5,1.5");
+        assertEquals(2, window.get("total").asInt());
+        assertEquals(0, window.get("features").get(0).get("index").asInt());
+        assertEquals("Pad", window.get("features").get(0).get("type").asText());
+        assertEquals(1, get("/jobs/" + id + "/steps/pcb/layers/top/features?window=-1,-1,10,10&limit=1")
+                .get("features").size());
+
+        JsonNode component = get("/jobs/" + id + "/steps/pcb/components/U1");
+        assertEquals("IC1", component.get("part").asText());
+        assertEquals("comp_+_top", component.get("layer").asText());
+        assertEquals(2.0, component.get("y").asDouble());
+
+        assertEquals(404, send("/jobs/" + id + "/steps/pcb/components/U9").statusCode());
+        assertEquals(404, send("/jobs/99/steps").statusCode());
+        assertEquals(400, send("/jobs/" + id + "/steps/pcb/layers/top/features?window=1,2").statusCode());
+
+        JsonNode metrics = get("/metrics");
+        assertEquals(1, metrics.get("openJobs").asInt());
+        assertEquals(1, metrics.get("cacheMisses").asInt());
+        assertEquals(3, metrics.get("errors").asInt());
+    }
+
+    @Test
+    void testDropsIndexesWithTheCachedJob() throws Exception {
+        Path job = tempDir.resolve("job");
+        String id = get("/jobs/open?path=" + URLEncoder.encode(job.toString(), StandardCharsets.UTF_8)).get("id").asText();
+        get("/jobs/" + id + "/steps/pcb/layers/top/features?window=0,0,1,1");
+        get("/jobs/" + id + "/steps/pcb/components/U1");
+        JsonNode metrics = get("/metrics");
+        assertEquals(1, metrics.get("windowIndexes").asInt());
+        assertEquals(1, metrics.get("componentTables").asInt());
+
+        cache.invalidate(job);
+        metrics = get("/metrics");
+        assertEquals(0, metrics.get("windowIndexes").asInt());
+        assertEquals(0, metrics.get("componentTables").asInt());
+
+        // Rebuilt from the reloaded job
+        assertEquals(2, get("/jobs/" + id + "/steps/pcb/layers/top/features?window=0,0,1,1").get("total").asInt());
+        assertEquals(1, get("/metrics").get("windowIndexes").asInt());
+    }
+}